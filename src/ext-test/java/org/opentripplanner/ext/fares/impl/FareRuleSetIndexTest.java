@@ -0,0 +1,110 @@
+package org.opentripplanner.ext.fares.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.ext.fares.impl.FareRuleSetIndex.RideSequence;
+import org.opentripplanner.ext.fares.model.FareAttribute;
+import org.opentripplanner.ext.fares.model.FareRuleSet;
+import org.opentripplanner.transit.model.framework.FeedScopedId;
+
+class FareRuleSetIndexTest {
+
+  private static final String FEED_ID = "F";
+  private static final FeedScopedId ROUTE_1 = new FeedScopedId(FEED_ID, "R1");
+  private static final FeedScopedId ROUTE_2 = new FeedScopedId(FEED_ID, "R2");
+  private static final FeedScopedId TRIP_1 = new FeedScopedId(FEED_ID, "T1");
+
+  private final FareRuleSet unrestricted = ruleSet("unrestricted");
+  private final FareRuleSet route1 = ruleSet("route1");
+  private final FareRuleSet route2 = ruleSet("route2");
+  private final FareRuleSet trip1 = ruleSet("trip1");
+  private final FareRuleSet zonesAB = ruleSet("zonesAB");
+  private final FareRuleSet fromA = ruleSet("fromA");
+  private final FareRuleSet aToB = ruleSet("aToB");
+
+  {
+    route1.addRoute(ROUTE_1);
+    route2.addRoute(ROUTE_2);
+    trip1.addTrip(TRIP_1);
+    zonesAB.addContains("A");
+    zonesAB.addContains("B");
+    fromA.addOriginDestination("A", null);
+    aToB.addOriginDestination("A", "B");
+  }
+
+  private final FareRuleSetIndex subject = new FareRuleSetIndex(
+    List.of(unrestricted, route1, route2, trip1, zonesAB, fromA, aToB)
+  );
+
+  @Test
+  void candidatesInTheOrderOfTheRules() {
+    var rides = rides("A", "B", Set.of("A", "B"), Set.of(ROUTE_1), Set.of(TRIP_1));
+
+    assertEquals(
+      List.of(unrestricted, route1, trip1, zonesAB, fromA, aToB),
+      subject.candidates(rides)
+    );
+  }
+
+  @Test
+  void candidatesWithoutMatchingKeys() {
+    var rides = rides("C", "D", Set.of("C", "D"), Set.of(ROUTE_2), Set.of());
+
+    assertEquals(List.of(unrestricted, route2), subject.candidates(rides));
+  }
+
+  @Test
+  void allRulesWhichMatchAreCandidates() {
+    var rides = rides("A", "B", Set.of("A", "B"), Set.of(ROUTE_1, ROUTE_2), Set.of(TRIP_1));
+    var candidates = subject.candidates(rides);
+
+    for (FareRuleSet rule : List.of(unrestricted, route1, route2, trip1, zonesAB, fromA, aToB)) {
+      boolean matches = rule.matches(
+        rides.startZone(),
+        rides.endZone(),
+        rides.zones(),
+        rides.routes(),
+        rides.trips()
+      );
+      if (matches) {
+        assertTrue(candidates.contains(rule), rule.getFareAttribute().toString());
+      }
+    }
+  }
+
+  @Test
+  void cacheBestFare() {
+    var rides = rides("A", "B", Set.of("A", "B"), Set.of(ROUTE_1), Set.of(TRIP_1));
+    var fare = new FareAndId(2.5f, new FeedScopedId(FEED_ID, "fare"));
+
+    assertSame(fare, subject.bestFare(rides, it -> fare));
+    // Equal ride sequences share the cached fare
+    var same = rides("A", "B", Set.of("B", "A"), Set.of(ROUTE_1), Set.of(TRIP_1));
+    assertSame(fare, subject.bestFare(same, it -> new FareAndId(0, null)));
+    assertEquals(1, subject.cacheSize());
+  }
+
+  private static RideSequence rides(
+    String startZone,
+    String endZone,
+    Set<String> zones,
+    Set<FeedScopedId> routes,
+    Set<FeedScopedId> trips
+  ) {
+    return new RideSequence(FEED_ID, startZone, endZone, zones, routes, trips, 0, 0, 600);
+  }
+
+  private static FareRuleSet ruleSet(String id) {
+    FareAttribute attribute = FareAttribute
+      .of(new FeedScopedId(FEED_ID, id))
+      .setPrice(1f)
+      .setCurrencyType("USD")
+      .build();
+    return new FareRuleSet(attribute);
+  }
+}
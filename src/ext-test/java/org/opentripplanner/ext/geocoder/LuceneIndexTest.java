@@ -0,0 +1,124 @@
+package org.opentripplanner.ext.geocoder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.opentripplanner.transit.model._data.TransitModelForTest.stopForTest;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.standalone.api.OtpServerRequestContext;
+import org.opentripplanner.transit.model.framework.Deduplicator;
+import org.opentripplanner.transit.model.site.StopLocation;
+import org.opentripplanner.transit.service.DefaultTransitService;
+import org.opentripplanner.transit.service.StopModel;
+import org.opentripplanner.transit.service.TransitModel;
+import org.opentripplanner.util.geometry.GeometryUtils;
+
+class LuceneIndexTest {
+
+  @TempDir
+  File tempDir;
+
+  private Graph graph;
+  private OtpServerRequestContext serverContext;
+
+  @BeforeEach
+  void setUp() {
+    graph = new Graph(new Deduplicator());
+    corner("corner-1", 10.0, "Karl Johans gate");
+    corner("corner-2", 10.001, "Kongens gate");
+
+    var stopModel = StopModel
+      .of()
+      .withRegularStop(stopForTest("Nationaltheatret", 60.0, 10.0))
+      .withRegularStop(stopForTest("Stortinget", 60.001, 10.0))
+      .build();
+    var transitService = new DefaultTransitService(new TransitModel(stopModel, new Deduplicator()));
+    serverContext = mock(OtpServerRequestContext.class);
+    when(serverContext.graph()).thenReturn(graph);
+    when(serverContext.transitService()).thenReturn(transitService);
+  }
+
+  @Test
+  void storedIndexGivesTheSameResultsAsTheIndexOnTheHeap() {
+    var indexDirectory = new File(tempDir, "graph-geocoder");
+    graph.setGeocoderIndexId(
+      LuceneIndex.writeToDirectory(graph, serverContext.transitService(), indexDirectory)
+    );
+    var heapIndex = new LuceneIndex(graph, serverContext.transitService());
+
+    // Added after the index is written, so only found if the index is created again
+    corner("corner-3", 10.002, "Kongsgata");
+
+    var storedIndex = LuceneIndex.forServer(serverContext, indexDirectory);
+
+    for (String query : List.of("Karl Johans gate", "Kongens", "Kong", "corner-2")) {
+      for (boolean autocomplete : List.of(true, false)) {
+        assertEquals(
+          streetLabels(heapIndex.queryStreetVertices(query, autocomplete)),
+          streetLabels(storedIndex.queryStreetVertices(query, autocomplete)),
+          query
+        );
+      }
+    }
+    for (String query : List.of("Stortinget", "Nation")) {
+      assertEquals(
+        stopIds(heapIndex.queryStopLocations(query, true)),
+        stopIds(storedIndex.queryStopLocations(query, true))
+      );
+    }
+    assertEquals(List.of("F:Stortinget"), stopIds(storedIndex.queryStopLocations("Stor", true)));
+    assertEquals(List.of("corner-2"), streetLabels(storedIndex.queryStreetVertices("Kong", true)));
+  }
+
+  @Test
+  void indexIsCreatedIfTheStoredIndexBelongsToAnotherGraph() {
+    var indexDirectory = new File(tempDir, "graph-geocoder");
+    LuceneIndex.writeToDirectory(graph, serverContext.transitService(), indexDirectory);
+    graph.setGeocoderIndexId("another-graph");
+
+    corner("corner-3", 10.002, "Kongsgata");
+
+    var index = LuceneIndex.forServer(serverContext, indexDirectory);
+
+    assertEquals(
+      List.of("corner-2", "corner-3"),
+      streetLabels(index.queryStreetVertices("Kong", true))
+    );
+  }
+
+  @Test
+  void indexIsCreatedIfThereIsNoStoredIndex() {
+    graph.setGeocoderIndexId("graph");
+
+    var index = LuceneIndex.forServer(serverContext, new File(tempDir, "graph-geocoder"));
+
+    assertEquals(List.of("corner-1"), streetLabels(index.queryStreetVertices("Karl", true)));
+  }
+
+  /** A street corner is named after the streets leaving it. */
+  private void corner(String label, double lon, String streetName) {
+    var corner = new IntersectionVertex(graph, label, lon, 60.0);
+    var end = new IntersectionVertex(graph, label + "-end", lon, 60.001);
+    var geometry = GeometryUtils.makeLineString(lon, 60.0, lon, 60.001);
+    new StreetEdge(corner, end, geometry, streetName, 111.0, StreetTraversalPermission.ALL, false);
+  }
+
+  private static List<String> streetLabels(Stream<StreetVertex> vertices) {
+    return vertices.map(StreetVertex::getLabel).sorted().toList();
+  }
+
+  private static List<String> stopIds(Stream<StopLocation> stops) {
+    return stops.map(it -> it.getId().toString()).sorted().toList();
+  }
+}
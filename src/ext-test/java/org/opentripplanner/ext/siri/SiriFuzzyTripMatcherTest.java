@@ -0,0 +1,166 @@
+package org.opentripplanner.ext.siri;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.opentripplanner.model.StopTime;
+import org.opentripplanner.transit.model._data.TransitModelForTest;
+import org.opentripplanner.transit.model.basic.TransitMode;
+import org.opentripplanner.transit.model.framework.Deduplicator;
+import org.opentripplanner.transit.model.framework.FeedScopedId;
+import org.opentripplanner.transit.model.network.Route;
+import org.opentripplanner.transit.model.network.StopPattern;
+import org.opentripplanner.transit.model.network.TripPattern;
+import org.opentripplanner.transit.model.site.RegularStop;
+import org.opentripplanner.transit.model.timetable.Trip;
+import org.opentripplanner.transit.model.timetable.TripTimes;
+import org.opentripplanner.transit.service.TransitService;
+import uk.org.siri.siri20.EstimatedVehicleJourney;
+import uk.org.siri.siri20.FramedVehicleJourneyRefStructure;
+
+public class SiriFuzzyTripMatcherTest {
+
+  private static final LocalDate TODAY = LocalDate.of(2022, 10, 10);
+  private static final Route BUS_ROUTE = TransitModelForTest.route("Bus").build();
+  private static final Route RAIL_ROUTE = TransitModelForTest
+    .route("Rail")
+    .withMode(TransitMode.RAIL)
+    .build();
+  private static final RegularStop STOP_A = TransitModelForTest.stopForTest("A", 60.0, 10.0);
+  private static final RegularStop STOP_B = TransitModelForTest.stopForTest("B", 60.1, 10.1);
+
+  private final List<Trip> trips = new ArrayList<>();
+  private final Map<Trip, TripPattern> patternForTrip = new HashMap<>();
+
+  @Test
+  public void indexScheduledTrips() {
+    var first = addScheduledTrip(trip("F", "1234-a", BUS_ROUTE), 8 * 3600);
+    var second = addScheduledTrip(trip("F", "1234-b", BUS_ROUTE), 9 * 3600);
+    var rail = addScheduledTrip(
+      TransitModelForTest
+        .trip("R1")
+        .withRoute(RAIL_ROUTE)
+        .withNetexInternalPlanningCode("604")
+        .build(),
+      10 * 3600
+    );
+    // A trip without a pattern can not be matched
+    trips.add(trip("F", "1234-c", BUS_ROUTE));
+
+    var index = SiriFuzzyTripMatcherIndex.of(transitService());
+
+    assertEquals(Set.of(first, second), index.tripsBySiriId("1234"));
+    assertEquals(Set.of(first), index.tripsByLastStopArrival("B", 8 * 3600 + 600));
+    assertEquals(Set.of(), index.tripsByLastStopArrival("A", 8 * 3600));
+    assertEquals(Set.of(rail), index.tripsByInternalPlanningCode("604"));
+    assertEquals(Set.of(BUS_ROUTE), index.routesBySiriId("Bus"));
+    assertSame(first, index.tripByVehicleJourney("1234-a"));
+  }
+
+  @Test
+  public void tripsWithTheSameIdInTwoFeedsAreIndexedInTheSameOrder() {
+    var a = trip("A", "1", BUS_ROUTE);
+    var b = trip("B", "1", BUS_ROUTE);
+
+    trips.addAll(List.of(b, a));
+    assertSame(a, SiriFuzzyTripMatcherIndex.of(transitService()).tripByVehicleJourney("1"));
+
+    trips.clear();
+    trips.addAll(List.of(a, b));
+    assertSame(a, SiriFuzzyTripMatcherIndex.of(transitService()).tripByVehicleJourney("1"));
+  }
+
+  @Test
+  public void addedTripsAreMatchedUntilTheirServiceDateIsPurged() {
+    var scheduled = addScheduledTrip(trip("F", "1234-a", BUS_ROUTE), 8 * 3600);
+    var matcher = new SiriFuzzyTripMatcher(transitService());
+
+    var added = trip("F", "1234-x", BUS_ROUTE);
+    var pattern = pattern(added, 9 * 3600);
+    matcher.addRealtimeAddedTrip(added, pattern, tripTimes(added, 9 * 3600), TODAY);
+
+    assertEquals(Set.of(scheduled, added), matcher.match(journey("1234"), "F"));
+    assertEquals(added.getId(), matcher.getTripId("1234-x", "F"));
+
+    // The trip is added for a later date
+    matcher.addRealtimeAddedTrip(added, pattern, tripTimes(added, 9 * 3600), TODAY.plusDays(1));
+    matcher.purgeAddedTrips(TODAY);
+    assertEquals(Set.of(scheduled, added), matcher.match(journey("1234"), "F"));
+
+    matcher.purgeAddedTrips(TODAY.plusDays(1));
+    assertEquals(Set.of(scheduled), matcher.match(journey("1234"), "F"));
+    assertNull(matcher.getTripId("1234-x", "F"));
+    assertEquals(scheduled.getId(), matcher.getTripId("1234-a", "F"));
+  }
+
+  private TransitService transitService() {
+    var transitService = Mockito.mock(TransitService.class);
+    Mockito.when(transitService.getAllTrips()).thenReturn(trips);
+    Mockito.when(transitService.getAllRoutes()).thenReturn(List.of(BUS_ROUTE, RAIL_ROUTE));
+    Mockito
+      .when(transitService.getPatternForTrip(Mockito.any()))
+      .thenAnswer(invocation -> patternForTrip.get(invocation.<Trip>getArgument(0)));
+    return transitService;
+  }
+
+  private Trip addScheduledTrip(Trip trip, int departureTime) {
+    var pattern = pattern(trip, departureTime);
+    pattern.add(tripTimes(trip, departureTime));
+    trips.add(trip);
+    patternForTrip.put(trip, pattern);
+    return trip;
+  }
+
+  private static Trip trip(String feedId, String id, Route route) {
+    return Trip.of(new FeedScopedId(feedId, id)).withRoute(route).build();
+  }
+
+  private static TripPattern pattern(Trip trip, int departureTime) {
+    return TripPattern
+      .of(TransitModelForTest.id("P-" + trip.getId().getId()))
+      .withRoute(trip.getRoute())
+      .withStopPattern(new StopPattern(stopTimes(trip, departureTime)))
+      .build();
+  }
+
+  private static TripTimes tripTimes(Trip trip, int departureTime) {
+    return new TripTimes(trip, stopTimes(trip, departureTime), new Deduplicator());
+  }
+
+  /**
+   * The trip goes from A to B in 10 minutes.
+   */
+  private static List<StopTime> stopTimes(Trip trip, int departureTime) {
+    return List.of(
+      stopTime(trip, STOP_A, 0, departureTime),
+      stopTime(trip, STOP_B, 1, departureTime + 600)
+    );
+  }
+
+  private static StopTime stopTime(Trip trip, RegularStop stop, int sequence, int time) {
+    var stopTime = new StopTime();
+    stopTime.setTrip(trip);
+    stopTime.setStop(stop);
+    stopTime.setStopSequence(sequence);
+    stopTime.setArrivalTime(time);
+    stopTime.setDepartureTime(time);
+    return stopTime;
+  }
+
+  private static EstimatedVehicleJourney journey(String datedVehicleJourneyRef) {
+    var ref = new FramedVehicleJourneyRefStructure();
+    ref.setDatedVehicleJourneyRef(datedVehicleJourneyRef);
+    var journey = new EstimatedVehicleJourney();
+    journey.setFramedVehicleJourneyRef(ref);
+    return journey;
+  }
+}
@@ -0,0 +1,80 @@
+package org.opentripplanner.ext.traveltime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.opentripplanner.ext.traveltime.geometry.SparseMatrixZSampleGrid;
+
+class IsochroneRendererTest {
+
+  private static final List<Duration> CUTOFFS = List.of(
+    Duration.ofSeconds(60),
+    Duration.ofSeconds(90),
+    Duration.ofSeconds(120),
+    Duration.ofSeconds(150)
+  );
+
+  @Test
+  void concurrentIsochronesAreTheSameAsSequentialIsochrones() {
+    var sampleGrid = sampleGrid();
+
+    // Several cutoffs are rendered concurrently, one cutoff is rendered in the calling thread
+    var concurrent = IsochroneRenderer.renderIsochrones(
+      sampleGrid,
+      new TravelTimeRequest(CUTOFFS, Duration.ofMinutes(20))
+    );
+
+    assertEquals(CUTOFFS.size(), concurrent.size());
+    for (int i = 0; i < CUTOFFS.size(); ++i) {
+      var sequential = IsochroneRenderer.renderIsochrones(
+        sampleGrid,
+        new TravelTimeRequest(List.of(CUTOFFS.get(i)), Duration.ofMinutes(20))
+      );
+      assertEquals(1, sequential.size());
+      var expected = sequential.get(0);
+      var actual = concurrent.get(i);
+      assertEquals(expected.cutoffSec(), actual.cutoffSec());
+      assertFalse(expected.geometry().isEmpty());
+      assertTrue(expected.geometry().equalsExact(actual.geometry()), "cutoff " + CUTOFFS.get(i));
+    }
+    // The isochrones grow with the cutoff
+    for (int i = 1; i < concurrent.size(); ++i) {
+      assertTrue(
+        concurrent.get(i).geometry().getArea() > concurrent.get(i - 1).geometry().getArea()
+      );
+    }
+  }
+
+  /**
+   * Travel times growing from the center, faster to the east, with a slow spot which gives holes
+   * in some of the isochrones.
+   */
+  private static SparseMatrixZSampleGrid<WTWD> sampleGrid() {
+    var sampleGrid = new SparseMatrixZSampleGrid<WTWD>(
+      16,
+      2000,
+      0.001,
+      0.0005,
+      new Coordinate(10.0, 60.0)
+    );
+    for (int x = -20; x <= 20; ++x) {
+      for (int y = -20; y <= 20; ++y) {
+        WTWD z = new WTWD();
+        z.w = 1.0;
+        z.wTime = 10 * Math.hypot(x, y) - 2 * x;
+        if (Math.hypot(x - 8, y) < 2.5) {
+          z.wTime += 100;
+        }
+        z.wWalkDist = z.wTime;
+        z.d = 0;
+        sampleGrid.getOrCreate(x, y).setZ(z);
+      }
+    }
+    return sampleGrid;
+  }
+}
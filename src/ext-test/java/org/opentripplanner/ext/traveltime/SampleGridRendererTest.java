@@ -0,0 +1,144 @@
+package org.opentripplanner.ext.traveltime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
+import org.opentripplanner.ext.traveltime.geometry.SparseMatrixZSampleGrid;
+import org.opentripplanner.ext.traveltime.geometry.ZSamplePoint;
+import org.opentripplanner.routing.algorithm.astar.AStarBuilder;
+import org.opentripplanner.routing.api.request.RouteRequest;
+import org.opentripplanner.routing.api.request.StreetMode;
+import org.opentripplanner.routing.api.request.request.StreetRequest;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.spt.DominanceFunction;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.transit.model.framework.Deduplicator;
+import org.opentripplanner.util.geometry.GeometryUtils;
+
+class SampleGridRendererTest {
+
+  /** The side of the square street grid, in intersections */
+  private static final int N = 80;
+  private static final double STREET_LENGTH_METERS = 40;
+  private static final double GRID_SIZE_METERS = 50;
+  private static final double OFF_ROAD_DISTANCE_METERS = 150;
+  private static final int MAX_TIME_SEC = 3600;
+  private static final double EPSILON = 1e-9;
+
+  @Test
+  void parallelSamplingGivesTheSameGridAsSequentialSampling() {
+    var spt = searchStreetGrid();
+    assertTrue(spt.getVertexCount() >= SampleGridRenderer.MIN_VERTICES_PARALLEL_SAMPLING);
+
+    var sequential = sample(spt, Integer.MAX_VALUE);
+    var parallel = sample(spt, SampleGridRenderer.MIN_VERTICES_PARALLEL_SAMPLING);
+
+    Map<Long, WTWD> expected = samples(sequential);
+    Map<Long, WTWD> actual = samples(parallel);
+    assertTrue(expected.size() > 1000);
+    assertEquals(expected.keySet(), actual.keySet());
+    for (var entry : expected.entrySet()) {
+      WTWD e = entry.getValue();
+      WTWD a = actual.get(entry.getKey());
+      assertEquals(e.w, a.w, EPSILON * e.w);
+      assertEquals(e.wTime, a.wTime, EPSILON * e.wTime);
+      assertEquals(e.wWalkDist, a.wWalkDist, EPSILON * e.wWalkDist);
+      assertEquals(e.d, a.d);
+    }
+  }
+
+  /**
+   * A walk search from the center of a square grid of streets.
+   */
+  private static ShortestPathTree searchStreetGrid() {
+    var graph = new Graph(new Deduplicator());
+    double dLat = Math.toDegrees(
+      STREET_LENGTH_METERS / SphericalDistanceLibrary.RADIUS_OF_EARTH_IN_M
+    );
+    double dLon = dLat / Math.cos(Math.toRadians(60.0));
+    var intersections = new IntersectionVertex[N][N];
+    for (int i = 0; i < N; ++i) {
+      for (int j = 0; j < N; ++j) {
+        intersections[i][j] =
+          new IntersectionVertex(graph, i + "-" + j, 10.0 + i * dLon, 60.0 + j * dLat);
+        if (i > 0) {
+          street(intersections[i - 1][j], intersections[i][j]);
+        }
+        if (j > 0) {
+          street(intersections[i][j - 1], intersections[i][j]);
+        }
+      }
+    }
+    return AStarBuilder
+      .allDirectionsMaxDuration(Duration.ofSeconds(MAX_TIME_SEC))
+      .setRequest(new RouteRequest())
+      .setStreetRequest(new StreetRequest(StreetMode.WALK))
+      .setFrom(intersections[N / 2][N / 2])
+      .setDominanceFunction(new DominanceFunction.EarliestArrival())
+      .getShortestPathTree();
+  }
+
+  private static void street(IntersectionVertex from, IntersectionVertex to) {
+    for (var pair : new IntersectionVertex[][] { { from, to }, { to, from } }) {
+      new StreetEdge(
+        pair[0],
+        pair[1],
+        GeometryUtils.makeLineString(
+          pair[0].getLon(),
+          pair[0].getLat(),
+          pair[1].getLon(),
+          pair[1].getLat()
+        ),
+        "street",
+        STREET_LENGTH_METERS,
+        StreetTraversalPermission.PEDESTRIAN,
+        false
+      );
+    }
+  }
+
+  private static SparseMatrixZSampleGrid<WTWD> sample(
+    ShortestPathTree spt,
+    int minVerticesParallel
+  ) {
+    double cosLat = Math.cos(Math.toRadians(60.0));
+    double dY = Math.toDegrees(GRID_SIZE_METERS / SphericalDistanceLibrary.RADIUS_OF_EARTH_IN_M);
+    var sampleGrid = new SparseMatrixZSampleGrid<WTWD>(
+      16,
+      spt.getVertexCount(),
+      dY / cosLat,
+      dY,
+      new Coordinate(10.0, 60.0)
+    );
+    SampleGridRenderer.sampleSPT(
+      spt,
+      sampleGrid,
+      GRID_SIZE_METERS,
+      OFF_ROAD_DISTANCE_METERS,
+      SampleGridRenderer.OFF_ROAD_WALK_SPEED_MPS,
+      MAX_TIME_SEC,
+      cosLat,
+      minVerticesParallel
+    );
+    return sampleGrid;
+  }
+
+  private static Map<Long, WTWD> samples(SparseMatrixZSampleGrid<WTWD> sampleGrid) {
+    Map<Long, WTWD> samples = new HashMap<>();
+    for (ZSamplePoint<WTWD> point : sampleGrid) {
+      if (point.getZ() != null) {
+        samples.put(((long) point.getX() << 32) | (point.getY() & 0xFFFFFFFFL), point.getZ());
+      }
+    }
+    return samples;
+  }
+}
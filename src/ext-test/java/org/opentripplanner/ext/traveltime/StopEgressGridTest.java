@@ -0,0 +1,367 @@
+package org.opentripplanner.ext.traveltime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.opentripplanner.routing.edgetype.StreetTraversalPermission.PEDESTRIAN;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.ext.traveltime.geometry.SparseMatrixZSampleGrid;
+import org.opentripplanner.ext.traveltime.geometry.ZSamplePoint;
+import org.opentripplanner.routing.algorithm.GraphRoutingTest;
+import org.opentripplanner.routing.algorithm.astar.AStarBuilder;
+import org.opentripplanner.routing.api.request.RouteRequest;
+import org.opentripplanner.routing.api.request.StreetMode;
+import org.opentripplanner.routing.api.request.request.StreetRequest;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.spt.DominanceFunction;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.transit.model._data.TransitModelForTest;
+import org.opentripplanner.transit.model.site.RegularStop;
+
+/**
+ * Check the times propagated from the stop tables against a street search from each stop, and
+ * against values computed by hand, on a small street network:
+ * <pre>
+ *              D - S2
+ *              |
+ * S1 - A - B - C
+ * </pre>
+ * The streets are about 110 meters long.
+ */
+class StopEgressGridTest extends GraphRoutingTest {
+
+  private static final double GRID_SIZE_METERS = 20;
+  private static final double OFF_ROAD_DISTANCE_METERS = 50;
+  private static final long MAX_CACHED_CELLS = 1_000_000;
+
+  private Graph graph;
+  private RouteRequest request;
+  private Duration maxWalkDuration;
+  private IntersectionVertex B, C;
+  private RegularStop S1, S2;
+
+  @BeforeEach
+  void setUp() {
+    var model = modelOf(
+      new Builder() {
+        @Override
+        public void build() {
+          var A = intersection("A", 60.0, 10.0);
+          B = intersection("B", 60.0, 10.002);
+          C = intersection("C", 60.0, 10.004);
+          var D = intersection("D", 60.001, 10.004);
+          street(A, B, 111, PEDESTRIAN, PEDESTRIAN);
+          street(B, C, 111, PEDESTRIAN, PEDESTRIAN);
+          street(C, D, 111, PEDESTRIAN, PEDESTRIAN);
+
+          var stop1 = stop("S1", 60.0, 9.9998);
+          var stop2 = stop("S2", 60.001, 10.0042);
+          biLink(A, stop1);
+          biLink(D, stop2);
+          S1 = stop1.getStop();
+          S2 = stop2.getStop();
+        }
+      }
+    );
+    graph = model.graph();
+    graph.calculateEnvelope();
+    request = new RouteRequest();
+    maxWalkDuration =
+      request.preferences().street().maxAccessEgressDuration().valueOf(StreetMode.WALK);
+  }
+
+  @Test
+  void tableOfAStopIsTheStreetSearchFromTheStop() {
+    var subject = newStopEgressGrid(MAX_CACHED_CELLS);
+    int maxTimeSec = (int) maxWalkDuration.toSeconds();
+
+    for (RegularStop stop : List.of(S1, S2)) {
+      var stops = List.of(stop);
+      var cells = subject.newGridTimes(stops, null);
+      assertNotNull(cells);
+      subject.propagate(stops, new int[] { 0 }, maxTimeSec, cells);
+
+      var expected = expectedTimes(subject, cells, stops, new int[] { 0 }, maxTimeSec);
+      assertArrayEquals(expected, cells.times);
+    }
+  }
+
+  @Test
+  void tableHasTheWalkTimeAlongTheStreetAndAnOffRoadBorder() {
+    var subject = newStopEgressGrid(MAX_CACHED_CELLS);
+    var stops = List.of(S1);
+    var cells = subject.newGridTimes(stops, null);
+    assertNotNull(cells);
+    subject.propagate(stops, new int[] { 0 }, (int) maxWalkDuration.toSeconds(), cells);
+
+    int[] b = subject.newSampleGrid(1).getLowerLeftIndex(B.getCoordinate());
+    int[] c = subject.newSampleGrid(1).getLowerLeftIndex(C.getCoordinate());
+    assertEquals(b[1], c[1]);
+
+    // B to C is 111 meters of street, the cells may be up to one cell away from the vertices
+    double walkSpeed = request.preferences().walk().speed();
+    int timeFromBToC = cells.times[cells.index(c[0], c[1])] - cells.times[cells.index(b[0], b[1])];
+    assertEquals(111 / walkSpeed, timeFromBToC, GRID_SIZE_METERS / walkSpeed);
+
+    // Below B the cells are only reached off-road. Past the cells sampled from the street, each
+    // closing cell is one cell size further off-road than the cell above it, walked at the
+    // off-road speed. The border ends with the first cell below a cell further off-road than the
+    // max distance.
+    double maxSampledDistance = GRID_SIZE_METERS * Math.sqrt(2);
+    int timePerCell = (int) Math.round(
+      GRID_SIZE_METERS / SampleGridRenderer.OFF_ROAD_WALK_SPEED_MPS
+    );
+    int nClosingCells = 0;
+    int y = b[1] - 1;
+    for (; cells.isReached(cells.index(b[0], y)); --y) {
+      int cell = cells.index(b[0], y);
+      int above = cells.index(b[0], y + 1);
+      if (cells.offRoadDistances[cell] > maxSampledDistance) {
+        ++nClosingCells;
+        assertEquals(cells.times[above] + timePerCell, cells.times[cell]);
+        assertEquals(
+          cells.offRoadDistances[above] + GRID_SIZE_METERS,
+          cells.offRoadDistances[cell],
+          0.01
+        );
+      }
+      if (cells.offRoadDistances[above] > OFF_ROAD_DISTANCE_METERS) {
+        --y;
+        break;
+      }
+    }
+    assertTrue(nClosingCells > 1);
+    assertTrue(y < cells.yMin || !cells.isReached(cells.index(b[0], y)));
+  }
+
+  @Test
+  void percentileSurfaceOfOneDepartureIsTheSurfaceOfTheDeparture() {
+    var subject = newStopEgressGrid(MAX_CACHED_CELLS);
+    var traveltimeRequest = new TravelTimeRequest(
+      List.of(Duration.ofMinutes(10)),
+      Duration.ofMinutes(20)
+    );
+    int maxTimeSec = 600;
+    var stops = List.of(S1, S2);
+    int[] arrivalTimes = { 100, 30 };
+    var spt = AStarBuilder
+      .allDirectionsMaxDuration(traveltimeRequest.maxCutoff)
+      .setRequest(request)
+      .setStreetRequest(new StreetRequest(StreetMode.WALK))
+      .setFrom(B)
+      .setDominanceFunction(new DominanceFunction.EarliestArrival())
+      .getShortestPathTree();
+
+    var surface = SampleGridRenderer.getSampleGrid(
+      spt,
+      subject,
+      stops,
+      arrivalTimes,
+      traveltimeRequest
+    );
+
+    var originGrid = subject.sampleOrigin(spt, maxTimeSec);
+    var cells = subject.newGridTimes(stops, originGrid);
+    assertNotNull(cells);
+    subject.departureTimes(originGrid, stops, arrivalTimes, maxTimeSec, cells);
+    var percentiles = new TravelTimePercentiles(cells.size(), 1);
+    percentiles.add(cells);
+    int[] percentileSurface = percentiles.percentiles(50)[0];
+
+    int nReached = 0;
+    for (ZSamplePoint<WTWD> point : surface) {
+      var z = point.getZ();
+      int time = (int) Math.round(z.wTime / z.w);
+      if (time < maxTimeSec) {
+        ++nReached;
+        assertEquals(time, percentileSurface[cells.index(point.getX(), point.getY())]);
+      }
+    }
+    // The stops are the first to reach some of the cells
+    var fromOrigin = subject.newGridTimes(stops, originGrid);
+    fromOrigin.update(originGrid, maxTimeSec);
+    int nReachedPercentile = 0;
+    boolean stopFirst = false;
+    for (int cell = 0; cell < percentileSurface.length; ++cell) {
+      if (percentileSurface[cell] != GridTimes.UNREACHED) {
+        ++nReachedPercentile;
+        stopFirst |= percentileSurface[cell] < fromOrigin.times[cell];
+      }
+    }
+    assertEquals(nReached, nReachedPercentile);
+    assertTrue(stopFirst);
+  }
+
+  @Test
+  void propagatedTimesAreTheMinimumOverTheStops() {
+    var subject = newStopEgressGrid(MAX_CACHED_CELLS);
+    var stops = List.of(S1, S2);
+    int[] arrivalTimes = { 100, 30 };
+    int maxTimeSec = 600;
+
+    var cells = subject.newGridTimes(stops, null);
+    assertNotNull(cells);
+    subject.propagate(stops, arrivalTimes, maxTimeSec, cells);
+
+    assertArrayEquals(expectedTimes(subject, cells, stops, arrivalTimes, maxTimeSec), cells.times);
+    // Each stop is the first to reach some of the cells
+    var fromS1 = expectedTimes(subject, cells, List.of(S1), new int[] { 100 }, maxTimeSec);
+    var fromS2 = expectedTimes(subject, cells, List.of(S2), new int[] { 30 }, maxTimeSec);
+    boolean s1First = false, s2First = false;
+    for (int cell = 0; cell < cells.size(); ++cell) {
+      s1First |= cells.isReached(cell) && fromS1[cell] < fromS2[cell];
+      s2First |= cells.isReached(cell) && fromS2[cell] < fromS1[cell];
+    }
+    assertTrue(s1First);
+    assertTrue(s2First);
+  }
+
+  @Test
+  void cellsAtOrAfterTheMaxTimeAreNotReached() {
+    var subject = newStopEgressGrid(MAX_CACHED_CELLS);
+    var stops = List.of(S1, S2);
+    // S2 is reached at the max time, so only the cells reached from S1 are updated
+    int[] arrivalTimes = { 0, 120 };
+    int maxTimeSec = 120;
+
+    var cells = subject.newGridTimes(stops, null);
+    assertNotNull(cells);
+    subject.propagate(stops, arrivalTimes, maxTimeSec, cells);
+
+    assertArrayEquals(
+      expectedTimes(subject, cells, List.of(S1), new int[] { 0 }, maxTimeSec),
+      cells.times
+    );
+    boolean unreached = false;
+    for (int cell = 0; cell < cells.size(); ++cell) {
+      if (cells.isReached(cell)) {
+        assertTrue(cells.times[cell] < maxTimeSec);
+      } else {
+        unreached = true;
+      }
+    }
+    assertTrue(unreached);
+  }
+
+  @Test
+  void stopWithoutVertexHasAnEmptyTable() {
+    var subject = newStopEgressGrid(MAX_CACHED_CELLS);
+    var stop = TransitModelForTest.stop("X").withCoordinate(60.0, 10.0).build();
+
+    assertNull(subject.newGridTimes(List.of(stop), null));
+    assertEquals(0, subject.cachedCells());
+  }
+
+  @Test
+  void cacheIsWeightedByTheNumberOfCells() {
+    var subject = newStopEgressGrid(MAX_CACHED_CELLS);
+    subject.newGridTimes(List.of(S1, S2), null);
+
+    int cellsOfS1 = reachedCells(directSearch(subject, S1));
+    int cellsOfS2 = reachedCells(directSearch(subject, S2));
+    assertTrue(cellsOfS1 > 1);
+    assertTrue(cellsOfS2 > 1);
+    assertEquals(cellsOfS1 + cellsOfS2, subject.cachedCells());
+
+    // A table larger than the max weight is not cached, but is still used
+    var uncached = newStopEgressGrid(1);
+    var stops = List.of(S1, S2);
+    int[] arrivalTimes = { 100, 30 };
+    var cells = uncached.newGridTimes(stops, null);
+    assertNotNull(cells);
+    uncached.propagate(stops, arrivalTimes, 600, cells);
+
+    assertEquals(0, uncached.cachedCells());
+    assertArrayEquals(expectedTimes(uncached, cells, stops, arrivalTimes, 600), cells.times);
+  }
+
+  private StopEgressGrid newStopEgressGrid(long maxCachedCells) {
+    return new StopEgressGrid(
+      graph,
+      request,
+      GRID_SIZE_METERS,
+      OFF_ROAD_DISTANCE_METERS,
+      maxCachedCells
+    );
+  }
+
+  /**
+   * The min-plus of the arrival times and the times of a street search from each stop, for the
+   * cells of the given grid.
+   */
+  private int[] expectedTimes(
+    StopEgressGrid subject,
+    GridTimes cells,
+    List<RegularStop> stops,
+    int[] arrivalTimes,
+    int maxTimeSec
+  ) {
+    var expected = new GridTimes(
+      cells.xMin,
+      cells.yMin,
+      cells.xMin + cells.width - 1,
+      cells.yMin + cells.height - 1
+    );
+    for (int i = 0; i < stops.size(); ++i) {
+      for (ZSamplePoint<WTWD> point : directSearch(subject, stops.get(i))) {
+        var z = point.getZ();
+        if (z == null) {
+          continue;
+        }
+        int time = arrivalTimes[i] + (int) Math.round(z.wTime / z.w);
+        if (time < maxTimeSec) {
+          expected.update(
+            expected.index(point.getX(), point.getY()),
+            time,
+            (float) (z.wWalkDist / z.w),
+            (float) z.d
+          );
+        }
+      }
+    }
+    return expected.times;
+  }
+
+  private static int reachedCells(SparseMatrixZSampleGrid<WTWD> sampleGrid) {
+    int n = 0;
+    for (ZSamplePoint<WTWD> point : sampleGrid) {
+      if (point.getZ() != null) {
+        ++n;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * The closed surface of a street search from the stop, sampled in the grid of the tables.
+   */
+  private SparseMatrixZSampleGrid<WTWD> directSearch(StopEgressGrid subject, RegularStop stop) {
+    var spt = AStarBuilder
+      .allDirectionsMaxDuration(maxWalkDuration)
+      .setRequest(request)
+      .setStreetRequest(new StreetRequest(StreetMode.WALK))
+      .setFrom(graph.getStopVertexForStopId(stop.getId()))
+      .setDominanceFunction(new DominanceFunction.EarliestArrival())
+      .getShortestPathTree();
+
+    var sampleGrid = subject.newSampleGrid(spt.getVertexCount());
+    SampleGridRenderer
+      .sampleSPT(
+        spt,
+        sampleGrid,
+        GRID_SIZE_METERS,
+        OFF_ROAD_DISTANCE_METERS,
+        SampleGridRenderer.OFF_ROAD_WALK_SPEED_MPS,
+        (int) maxWalkDuration.toSeconds(),
+        subject.cosLat()
+      )
+      .close();
+    return sampleGrid;
+  }
+}
@@ -0,0 +1,46 @@
+package org.opentripplanner.ext.traveltime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class TravelTimePercentilesTest {
+
+  private static final int UNREACHED = GridTimes.UNREACHED;
+
+  @Test
+  void percentilesOfEachCell() {
+    // Two cells, the second cell is not reached by the last two departures
+    var subject = new TravelTimePercentiles(2, 4);
+    subject.add(departure(400, 100));
+    subject.add(departure(100, 200));
+    subject.add(departure(300, UNREACHED));
+    subject.add(departure(200, UNREACHED));
+
+    int[][] result = subject.percentiles(0, 50, 100);
+
+    assertArrayEquals(new int[] { 100, 100 }, result[0]);
+    assertArrayEquals(new int[] { 200, 200 }, result[1]);
+    assertArrayEquals(new int[] { 400, UNREACHED }, result[2]);
+  }
+
+  @Test
+  void nearestRank() {
+    assertEquals(0, TravelTimePercentiles.rank(0, 10));
+    assertEquals(4, TravelTimePercentiles.rank(50, 10));
+    assertEquals(8, TravelTimePercentiles.rank(90, 10));
+    assertEquals(9, TravelTimePercentiles.rank(100, 10));
+    assertEquals(0, TravelTimePercentiles.rank(50, 1));
+  }
+
+  private static GridTimes departure(int... times) {
+    var cells = new GridTimes(0, 0, times.length - 1, 0);
+    for (int i = 0; i < times.length; ++i) {
+      if (times[i] != UNREACHED) {
+        cells.update(i, times[i], 0f, 0f);
+      }
+    }
+    return cells;
+  }
+}
@@ -0,0 +1,105 @@
+package org.opentripplanner.ext.traveltime.geometry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+
+class DelaunayIsolineBuilderTest {
+
+  private static final List<Double> Z0 = List.of(40.0, 60.0, 80.0, 100.0, 120.0);
+
+  @Test
+  void eachEdgeHasItsOwnIndex() {
+    var triangulation = sampleGrid();
+    int n = triangulation.edgesCount();
+    var indices = new BitSet(n);
+    int nEdges = 0;
+    for (DelaunayEdge<Double> edge : triangulation.edges()) {
+      assertTrue(edge.getIndex() >= 0 && edge.getIndex() < n);
+      assertFalse(indices.get(edge.getIndex()), "Duplicated index " + edge.getIndex());
+      indices.set(edge.getIndex());
+      ++nEdges;
+    }
+    assertEquals(n, nEdges);
+  }
+
+  @Test
+  void isolinesOfOneBuilderCanBeComputedAgainAndConcurrently() throws Exception {
+    var builder = new DelaunayIsolineBuilder<>(sampleGrid().delaunayTriangulate(), new Metric());
+    List<Geometry> expected = new ArrayList<>();
+    for (double z0 : Z0) {
+      expected.add(builder.computeIsoline(z0));
+    }
+
+    // The processed edges are not kept in the triangulation, so each computation starts afresh
+    for (int i = 0; i < Z0.size(); ++i) {
+      assertFalse(expected.get(i).isEmpty());
+      assertTrue(expected.get(i).equalsExact(builder.computeIsoline(Z0.get(i))));
+    }
+
+    var executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Callable<Geometry>> tasks = new ArrayList<>();
+      for (int repeat = 0; repeat < 10; ++repeat) {
+        for (double z0 : Z0) {
+          tasks.add(() -> builder.computeIsoline(z0));
+        }
+      }
+      List<Future<Geometry>> results = executor.invokeAll(tasks);
+      for (int i = 0; i < results.size(); ++i) {
+        assertTrue(expected.get(i % Z0.size()).equalsExact(results.get(i).get()));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Values growing from the center, faster to the east, with a high spot which gives holes in some
+   * of the isolines. The values on the border are higher than all isolines, so it is closed.
+   */
+  private static SparseMatrixZSampleGrid<Double> sampleGrid() {
+    var sampleGrid = new SparseMatrixZSampleGrid<Double>(
+      16,
+      2000,
+      0.001,
+      0.0005,
+      new Coordinate(10.0, 60.0)
+    );
+    for (int x = -20; x <= 20; ++x) {
+      for (int y = -20; y <= 20; ++y) {
+        double z = 10 * Math.hypot(x, y) - 2 * x;
+        if (Math.hypot(x - 6, y) < 2.5) {
+          z += 100;
+        }
+        sampleGrid.getOrCreate(x, y).setZ(z);
+      }
+    }
+    return sampleGrid;
+  }
+
+  private static class Metric implements ZMetric<Double> {
+
+    @Override
+    public int cut(Double zA, Double zB, Double z0) {
+      if (zA < z0 && z0 <= zB) return 1;
+      if (zB < z0 && z0 <= zA) return -1;
+      return 0;
+    }
+
+    @Override
+    public double interpolate(Double zA, Double zB, Double z0) {
+      return zA.equals(zB) ? 0.5 : (z0 - zA) / (zB - zA);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package org.opentripplanner.ext.vectortiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.wdtinc.mapbox_vector_tile.VectorTile;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+class VectorTileCacheTest {
+
+  private final AtomicInteger buildCount = new AtomicInteger();
+
+  @Test
+  void reuseLayerWithSameVersion() {
+    var subject = new VectorTileCache(1024 * 1024);
+
+    var first = subject.get("stops", 14, 1, 2, 0, buildLayer("stops"));
+    var second = subject.get("stops", 14, 1, 2, 0, buildLayer("stops"));
+
+    assertSame(first, second);
+    assertEquals(1, buildCount.get());
+
+    // Another tile and another layer are built
+    subject.get("stops", 14, 1, 3, 0, buildLayer("stops"));
+    subject.get("stations", 14, 1, 2, 0, buildLayer("stations"));
+    assertEquals(3, buildCount.get());
+  }
+
+  @Test
+  void rebuildLayerWhenVersionChanges() {
+    var subject = new VectorTileCache(1024 * 1024);
+
+    var first = subject.get("rental", 14, 1, 2, 7, buildLayer("rental"));
+    var second = subject.get("rental", 14, 1, 2, 8, buildLayer("rental"));
+    var third = subject.get("rental", 14, 1, 2, 8, buildLayer("rental"));
+
+    assertEquals(2, buildCount.get());
+    assertSame(second, third);
+    assertTrue(first != second);
+  }
+
+  @Test
+  void evictBySize() {
+    var subject = new VectorTileCache(200);
+
+    for (int x = 0; x < 100; ++x) {
+      subject.get("stops", 14, x, 2, 0, buildLayer("stops"));
+    }
+    assertTrue(subject.size() < 100, "size: " + subject.size());
+  }
+
+  private Supplier<VectorTile.Tile.Layer> buildLayer(String name) {
+    return () -> {
+      buildCount.incrementAndGet();
+      return VectorTile.Tile.Layer.newBuilder().setVersion(2).setName(name).build();
+    };
+  }
+}
@@ -11,6 +11,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.opentripplanner.ext.fares.impl.FareRuleSetIndex.RideSequence;
 import org.opentripplanner.ext.fares.model.FareAttribute;
 import org.opentripplanner.ext.fares.model.FareRuleSet;
 import org.opentripplanner.ext.flex.FlexibleTransitLeg;
@@ -54,11 +55,11 @@ class FareSearch {
   }
 }
 
-/** Holds fare and corresponding fareId */
+/** Holds fare and corresponding fareId, the best fares are cached so this must not be changed */
 class FareAndId {
 
-  float fare;
-  FeedScopedId fareId;
+  final float fare;
+  final FeedScopedId fareId;
 
   FareAndId(float fare, FeedScopedId fareId) {
     this.fare = fare;
@@ -82,12 +83,16 @@ public class DefaultFareServiceImpl implements FareService {
   /** For each fare type (regular, student, etc...) the collection of rules that apply. */
   protected Map<FareType, Collection<FareRuleSet>> fareRulesPerType;
 
+  /** An index of the rules of each fare type, created the first time it is used. */
+  private transient volatile Map<FareType, FareRuleSetIndex> fareRuleIndexes;
+
   public DefaultFareServiceImpl() {
     fareRulesPerType = new HashMap<>();
   }
 
   public void addFareRules(FareType fareType, Collection<FareRuleSet> fareRules) {
     fareRulesPerType.put(fareType, new ArrayList<>(fareRules));
+    fareRuleIndexes = null;
   }
 
   public Map<FareType, Collection<FareRuleSet>> getFareRulesPerType() {
@@ -316,34 +321,67 @@ public class DefaultFareServiceImpl implements FareService {
       transfersUsed += 1;
     }
 
+    var rides = new RideSequence(
+      feedId,
+      startZone,
+      endZone,
+      zones,
+      routes,
+      trips,
+      transfersUsed,
+      Duration.between(startTime, lastRideStartTime).getSeconds(),
+      Duration.between(startTime, lastRideEndTime).getSeconds()
+    );
+
+    FareRuleSetIndex index = getFareRuleIndex(fareType, fareRules);
+    if (index == null) {
+      return findBestFareAndId(fareType, rides, fareRules);
+    }
+    return index.bestFare(rides, it -> findBestFareAndId(fareType, it, index.candidates(it)));
+  }
+
+  /**
+   * Find the best fare for the ride sequence among the given rules.
+   */
+  private FareAndId findBestFareAndId(
+    FareType fareType,
+    RideSequence rides,
+    Collection<FareRuleSet> fareRules
+  ) {
     FareAttribute bestAttribute = null;
     float bestFare = Float.POSITIVE_INFINITY;
-    Duration tripTime = Duration.between(startTime, lastRideStartTime);
-    Duration journeyTime = Duration.between(startTime, lastRideEndTime);
 
     // find the best fare that matches this set of rides
     for (FareRuleSet ruleSet : fareRules) {
       FareAttribute attribute = ruleSet.getFareAttribute();
       // fares also don't really have an agency id, they will have the per-feed default id
       // check only if the fare is not mapped to an agency
-      if (!attribute.getId().getFeedId().equals(feedId)) continue;
-
-      if (ruleSet.matches(startZone, endZone, zones, routes, trips)) {
+      if (!attribute.getId().getFeedId().equals(rides.feedId())) continue;
+
+      if (
+        ruleSet.matches(
+          rides.startZone(),
+          rides.endZone(),
+          rides.zones(),
+          rides.routes(),
+          rides.trips()
+        )
+      ) {
         // TODO Maybe move the code below in FareRuleSet::matches() ?
-        if (attribute.isTransfersSet() && attribute.getTransfers() < transfersUsed) {
+        if (attribute.isTransfersSet() && attribute.getTransfers() < rides.transfersUsed()) {
           continue;
         }
         // assume transfers are evaluated at boarding time,
         // as trimet does
         if (
           attribute.isTransferDurationSet() &&
-          tripTime.getSeconds() > attribute.getTransferDuration()
+          rides.tripTimeSeconds() > attribute.getTransferDuration()
         ) {
           continue;
         }
         if (
           attribute.isJourneyDurationSet() &&
-          journeyTime.getSeconds() > attribute.getJourneyDuration()
+          rides.journeyTimeSeconds() > attribute.getJourneyDuration()
         ) {
           continue;
         }
@@ -354,13 +392,37 @@ public class DefaultFareServiceImpl implements FareService {
         }
       }
     }
-    LOG.debug("{} best for {}", bestAttribute, legs);
+    LOG.debug("{} best for {}", bestAttribute, rides);
     if (bestFare == Float.POSITIVE_INFINITY) {
-      LOG.debug("No fare for a ride sequence: {}", legs);
+      LOG.debug("No fare for a ride sequence: {}", rides);
     }
     return new FareAndId(bestFare, bestAttribute == null ? null : bestAttribute.getId());
   }
 
+  /**
+   * Return the index of the rules of the fare type, or {@code null} if the given rules are not
+   * the rules of the fare type. Subclasses may search other collections of rules.
+   */
+  private FareRuleSetIndex getFareRuleIndex(FareType fareType, Collection<FareRuleSet> fareRules) {
+    if (fareRules != fareRulesPerType.get(fareType)) {
+      return null;
+    }
+    var indexes = fareRuleIndexes;
+    if (indexes == null) {
+      indexes = createFareRuleIndexes();
+    }
+    return indexes.get(fareType);
+  }
+
+  private synchronized Map<FareType, FareRuleSetIndex> createFareRuleIndexes() {
+    if (fareRuleIndexes == null) {
+      Map<FareType, FareRuleSetIndex> indexes = new HashMap<>();
+      fareRulesPerType.forEach((type, rules) -> indexes.put(type, new FareRuleSetIndex(rules)));
+      fareRuleIndexes = indexes;
+    }
+    return fareRuleIndexes;
+  }
+
   protected float getFarePrice(FareAttribute fare, FareType type) {
     switch (type) {
       case senior:
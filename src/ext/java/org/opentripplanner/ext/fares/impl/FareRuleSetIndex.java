@@ -0,0 +1,161 @@
+package org.opentripplanner.ext.fares.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import gnu.trove.list.array.TIntArrayList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.opentripplanner.common.model.P2;
+import org.opentripplanner.ext.fares.model.FareRuleSet;
+import org.opentripplanner.transit.model.framework.FeedScopedId;
+
+/**
+ * An index of the fare rules of one fare type, used to find the rules which may match a sequence
+ * of rides without checking every rule. Each rule is indexed by its most selective restriction, in
+ * this order: trips, routes, contained zones and origin/destination zones. A rule with a trip or
+ * route restriction only matches if every trip or route ridden is in the rule, so any one of them
+ * can be used for the lookup. Rules without restrictions are always candidates.
+ * <p>
+ * The candidates are returned in the same order as the rules were given, so the first of several
+ * rules with the same price is still selected. The candidates are not checked, use {@link
+ * FareRuleSet#matches(String, String, Set, Set, Set)} for that.
+ * <p>
+ * The index also keeps a bounded cache of the best fare for each ride sequence, the same
+ * sequences are priced many times for the itineraries of one search and for later searches.
+ * <p>
+ * THREAD SAFETY - The index is immutable and the cache is thread safe.
+ */
+class FareRuleSetIndex {
+
+  private static final int MAX_CACHED_RIDE_SEQUENCES = 10_000;
+
+  private final FareRuleSet[] rules;
+  private final Map<FeedScopedId, int[]> byTrip;
+  private final Map<FeedScopedId, int[]> byRoute;
+  private final Map<Set<String>, int[]> byContains;
+  private final Map<P2<String>, int[]> byOriginDestination;
+  private final int[] unrestricted;
+  private final Cache<RideSequence, FareAndId> bestFares;
+
+  FareRuleSetIndex(Collection<FareRuleSet> fareRules) {
+    this(fareRules, MAX_CACHED_RIDE_SEQUENCES);
+  }
+
+  FareRuleSetIndex(Collection<FareRuleSet> fareRules, int maxCachedRideSequences) {
+    this.rules = fareRules.toArray(FareRuleSet[]::new);
+
+    Map<FeedScopedId, TIntArrayList> trips = new HashMap<>();
+    Map<FeedScopedId, TIntArrayList> routes = new HashMap<>();
+    Map<Set<String>, TIntArrayList> contains = new HashMap<>();
+    Map<P2<String>, TIntArrayList> originDestinations = new HashMap<>();
+    TIntArrayList others = new TIntArrayList();
+
+    for (int i = 0; i < rules.length; ++i) {
+      FareRuleSet rule = rules[i];
+      if (!rule.getTrips().isEmpty()) {
+        for (FeedScopedId trip : rule.getTrips()) {
+          add(trips, trip, i);
+        }
+      } else if (!rule.getRoutes().isEmpty()) {
+        for (FeedScopedId route : rule.getRoutes()) {
+          add(routes, route, i);
+        }
+      } else if (!rule.getContains().isEmpty()) {
+        add(contains, Set.copyOf(rule.getContains()), i);
+      } else if (!rule.getOriginDestinations().isEmpty()) {
+        for (P2<String> od : rule.getOriginDestinations()) {
+          add(originDestinations, od, i);
+        }
+      } else {
+        others.add(i);
+      }
+    }
+    this.byTrip = toArrays(trips);
+    this.byRoute = toArrays(routes);
+    this.byContains = toArrays(contains);
+    this.byOriginDestination = toArrays(originDestinations);
+    this.unrestricted = others.toArray();
+    this.bestFares = CacheBuilder.newBuilder().maximumSize(maxCachedRideSequences).build();
+  }
+
+  /**
+   * Return the rules which may match the given ride sequence.
+   */
+  List<FareRuleSet> candidates(RideSequence rides) {
+    BitSet selected = new BitSet(rules.length);
+    select(selected, unrestricted);
+    if (!rides.trips().isEmpty()) {
+      select(selected, byTrip.get(rides.trips().iterator().next()));
+    }
+    if (!rides.routes().isEmpty()) {
+      select(selected, byRoute.get(rides.routes().iterator().next()));
+    }
+    select(selected, byContains.get(rides.zones()));
+    // These are the origin/destination pairs accepted by FareRuleSet#matches()
+    select(selected, byOriginDestination.get(new P2<>(rides.startZone(), rides.endZone())));
+    select(selected, byOriginDestination.get(new P2<>(rides.startZone(), null)));
+    select(selected, byOriginDestination.get(new P2<>(null, rides.startZone())));
+
+    List<FareRuleSet> result = new ArrayList<>(selected.cardinality());
+    for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+      result.add(rules[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Return the cached best fare for the ride sequence, or compute and cache it.
+   */
+  FareAndId bestFare(RideSequence rides, Function<RideSequence, FareAndId> compute) {
+    FareAndId fare = bestFares.getIfPresent(rides);
+    if (fare == null) {
+      fare = compute.apply(rides);
+      bestFares.put(rides, fare);
+    }
+    return fare;
+  }
+
+  long cacheSize() {
+    return bestFares.size();
+  }
+
+  private static <K> void add(Map<K, TIntArrayList> index, K key, int value) {
+    index.computeIfAbsent(key, k -> new TIntArrayList()).add(value);
+  }
+
+  private static <K> Map<K, int[]> toArrays(Map<K, TIntArrayList> index) {
+    Map<K, int[]> result = new HashMap<>();
+    index.forEach((key, values) -> result.put(key, values.toArray()));
+    return result;
+  }
+
+  private static void select(BitSet selected, int[] indexes) {
+    if (indexes != null) {
+      for (int i : indexes) {
+        selected.set(i);
+      }
+    }
+  }
+
+  /**
+   * The properties of a sequence of rides which are used to find the best fare. Two sequences
+   * with the same properties have the same fare.
+   */
+  record RideSequence(
+    String feedId,
+    String startZone,
+    String endZone,
+    Set<String> zones,
+    Set<FeedScopedId> routes,
+    Set<FeedScopedId> trips,
+    int transfersUsed,
+    long tripTimeSeconds,
+    long journeyTimeSeconds
+  ) {}
+}
@@ -1,11 +1,13 @@
 package org.opentripplanner.ext.geocoder;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import org.apache.lucene.analysis.Analyzer;
@@ -35,6 +37,9 @@ import org.apache.lucene.search.suggest.document.ContextSuggestField;
 import org.apache.lucene.search.suggest.document.PrefixCompletionQuery;
 import org.apache.lucene.search.suggest.document.SuggestIndexSearcher;
 import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.vertextype.StreetVertex;
 import org.opentripplanner.standalone.api.OtpServerRequestContext;
@@ -43,6 +48,8 @@ import org.opentripplanner.transit.model.framework.FeedScopedId;
 import org.opentripplanner.transit.model.site.StopLocation;
 import org.opentripplanner.transit.model.site.StopLocationsGroup;
 import org.opentripplanner.transit.service.TransitService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class LuceneIndex implements Serializable {
 
@@ -53,95 +60,227 @@ public class LuceneIndex implements Serializable {
   private static final String CODE = "code";
   private static final String COORDINATE = "coordinate";
 
+  /** The key of the index id in the commit data of a stored index. */
+  private static final String INDEX_ID = "otpIndexId";
+
+  private static final Logger LOG = LoggerFactory.getLogger(LuceneIndex.class);
+
   private final Graph graph;
 
   private final TransitService transitService;
   private final Analyzer analyzer;
   private final SuggestIndexSearcher searcher;
 
+  /**
+   * Create an index on the heap, this is used if there is no stored index for the graph.
+   */
   public LuceneIndex(Graph graph, TransitService transitService) {
+    this(graph, transitService, createIndexOnHeap(graph, transitService));
+  }
+
+  private LuceneIndex(Graph graph, TransitService transitService, DirectoryReader indexReader) {
     this.graph = graph;
     this.transitService = transitService;
-    this.analyzer =
-      new PerFieldAnalyzerWrapper(
-        new StandardAnalyzer(),
-        Map.of(NAME, new SimpleAnalyzer(), SUGGEST, new CompletionAnalyzer(new StandardAnalyzer()))
-      );
-
-    var directory = new ByteBuffersDirectory();
-
-    try {
-      try (
-        var directoryWriter = new IndexWriter(
-          directory,
-          iwcWithSuggestField(analyzer, Set.of(SUGGEST))
-        )
-      ) {
-        transitService
-          .listStopLocations()
-          .forEach(stopLocation ->
-            addToIndex(
-              directoryWriter,
-              StopLocation.class,
-              stopLocation.getId().toString(),
-              stopLocation.getName(),
-              stopLocation.getCode(),
-              stopLocation.getCoordinate().latitude(),
-              stopLocation.getCoordinate().longitude()
-            )
-          );
-
-        transitService
-          .listStopLocationGroups()
-          .forEach(stopLocationsGroup ->
-            addToIndex(
-              directoryWriter,
-              StopLocationsGroup.class,
-              stopLocationsGroup.getId().toString(),
-              stopLocationsGroup.getName(),
-              null,
-              stopLocationsGroup.getCoordinate().latitude(),
-              stopLocationsGroup.getCoordinate().longitude()
-            )
-          );
-
-        graph
-          .getVertices()
-          .stream()
-          .filter(v -> v instanceof StreetVertex)
-          .map(v -> (StreetVertex) v)
-          .forEach(streetVertex ->
-            addToIndex(
-              directoryWriter,
-              StreetVertex.class,
-              streetVertex.getLabel(),
-              streetVertex.getIntersectionName(),
-              streetVertex.getLabel(),
-              streetVertex.getLat(),
-              streetVertex.getLon()
-            )
-          );
-      }
-
-      DirectoryReader indexReader = DirectoryReader.open(directory);
-      searcher = new SuggestIndexSearcher(indexReader);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+    this.analyzer = createAnalyzer();
+    this.searcher = new SuggestIndexSearcher(indexReader);
   }
 
   public static synchronized LuceneIndex forServer(OtpServerRequestContext serverContext) {
+    return forServer(serverContext, null);
+  }
+
+  /**
+   * Return the index of the graph. If it does not exist, the index stored in the given directory
+   * is opened, see {@link #writeToDirectory(Graph, TransitService, File)}. The index is only used
+   * if it was written for this graph, if not a new index is created on the heap.
+   */
+  public static synchronized LuceneIndex forServer(
+    OtpServerRequestContext serverContext,
+    @Nullable File indexDirectory
+  ) {
     var graph = serverContext.graph();
     var existingIndex = graph.getLuceneIndex();
     if (existingIndex != null) {
       return existingIndex;
     }
 
-    var newIndex = new LuceneIndex(graph, serverContext.transitService());
+    LuceneIndex newIndex = null;
+    if (indexDirectory != null && graph.getGeocoderIndexId() != null) {
+      newIndex =
+        openDirectory(
+          graph,
+          serverContext.transitService(),
+          indexDirectory,
+          graph.getGeocoderIndexId()
+        );
+    }
+    if (newIndex == null) {
+      newIndex = new LuceneIndex(graph, serverContext.transitService());
+    }
     graph.setLuceneIndex(newIndex);
     return newIndex;
   }
 
+  /**
+   * The directory used to store the index for the given graph file, the index is stored next to
+   * the graph file.
+   */
+  public static File indexDirectory(File graphFile) {
+    String name = graphFile.getName();
+    int extension = name.indexOf('.');
+    if (extension > 0) {
+      name = name.substring(0, extension);
+    }
+    return new File(graphFile.getParentFile(), name + "-geocoder");
+  }
+
+  /**
+   * Write the index to the given directory at graph build time, any existing index in the
+   * directory is replaced. The returned id is stored in the graph, it is used to check that the
+   * stored index belongs to the graph when it is opened.
+   */
+  public static String writeToDirectory(
+    Graph graph,
+    TransitService transitService,
+    File indexDirectory
+  ) {
+    String indexId = UUID.randomUUID().toString();
+    LOG.info("Writing geocoder index to {}", indexDirectory);
+    try (var directory = FSDirectory.open(indexDirectory.toPath())) {
+      writeIndex(
+        directory,
+        createAnalyzer(),
+        graph,
+        transitService,
+        IndexWriterConfig.OpenMode.CREATE,
+        Map.of(INDEX_ID, indexId)
+      );
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return indexId;
+  }
+
+  /**
+   * Open a stored index, the index is memory-mapped so it is not loaded into the heap. Returns
+   * {@code null} if the index does not exist or if it was written for another graph.
+   */
+  @Nullable
+  private static LuceneIndex openDirectory(
+    Graph graph,
+    TransitService transitService,
+    File indexDirectory,
+    String indexId
+  ) {
+    if (!indexDirectory.isDirectory()) {
+      LOG.warn("The geocoder index {} does not exist, the index is created.", indexDirectory);
+      return null;
+    }
+    try {
+      var directory = new MMapDirectory(indexDirectory.toPath());
+      var indexReader = DirectoryReader.open(directory);
+      if (!indexId.equals(indexReader.getIndexCommit().getUserData().get(INDEX_ID))) {
+        LOG.warn(
+          "The geocoder index {} does not belong to the graph, the index is created.",
+          indexDirectory
+        );
+        indexReader.close();
+        directory.close();
+        return null;
+      }
+      LOG.info("Opened geocoder index {}", indexDirectory);
+      return new LuceneIndex(graph, transitService, indexReader);
+    } catch (IOException e) {
+      LOG.warn("Unable to open the geocoder index {}: {}", indexDirectory, e.getMessage(), e);
+      return null;
+    }
+  }
+
+  private static DirectoryReader createIndexOnHeap(Graph graph, TransitService transitService) {
+    var directory = new ByteBuffersDirectory();
+    try {
+      writeIndex(
+        directory,
+        createAnalyzer(),
+        graph,
+        transitService,
+        IndexWriterConfig.OpenMode.CREATE_OR_APPEND,
+        Map.of()
+      );
+      return DirectoryReader.open(directory);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static Analyzer createAnalyzer() {
+    return new PerFieldAnalyzerWrapper(
+      new StandardAnalyzer(),
+      Map.of(NAME, new SimpleAnalyzer(), SUGGEST, new CompletionAnalyzer(new StandardAnalyzer()))
+    );
+  }
+
+  private static void writeIndex(
+    Directory directory,
+    Analyzer analyzer,
+    Graph graph,
+    TransitService transitService,
+    IndexWriterConfig.OpenMode openMode,
+    Map<String, String> commitData
+  ) throws IOException {
+    var config = iwcWithSuggestField(analyzer, Set.of(SUGGEST)).setOpenMode(openMode);
+    try (var directoryWriter = new IndexWriter(directory, config)) {
+      transitService
+        .listStopLocations()
+        .forEach(stopLocation ->
+          addToIndex(
+            directoryWriter,
+            StopLocation.class,
+            stopLocation.getId().toString(),
+            stopLocation.getName(),
+            stopLocation.getCode(),
+            stopLocation.getCoordinate().latitude(),
+            stopLocation.getCoordinate().longitude()
+          )
+        );
+
+      transitService
+        .listStopLocationGroups()
+        .forEach(stopLocationsGroup ->
+          addToIndex(
+            directoryWriter,
+            StopLocationsGroup.class,
+            stopLocationsGroup.getId().toString(),
+            stopLocationsGroup.getName(),
+            null,
+            stopLocationsGroup.getCoordinate().latitude(),
+            stopLocationsGroup.getCoordinate().longitude()
+          )
+        );
+
+      graph
+        .getVertices()
+        .stream()
+        .filter(v -> v instanceof StreetVertex)
+        .map(v -> (StreetVertex) v)
+        .forEach(streetVertex ->
+          addToIndex(
+            directoryWriter,
+            StreetVertex.class,
+            streetVertex.getLabel(),
+            streetVertex.getIntersectionName(),
+            streetVertex.getLabel(),
+            streetVertex.getLat(),
+            streetVertex.getLon()
+          )
+        );
+
+      if (!commitData.isEmpty()) {
+        directoryWriter.setLiveCommitData(commitData.entrySet());
+      }
+    }
+  }
+
   public Stream<StopLocation> queryStopLocations(String query, boolean autocomplete) {
     return matchingDocuments(StopLocation.class, query, autocomplete)
       .map(document -> transitService.getStopLocation(FeedScopedId.parseId(document.get(ID))));
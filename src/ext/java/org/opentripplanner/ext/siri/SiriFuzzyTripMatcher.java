@@ -3,11 +3,11 @@ package org.opentripplanner.ext.siri;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.opentripplanner.transit.model.basic.SubMode;
 import org.opentripplanner.transit.model.basic.TransitMode;
 import org.opentripplanner.transit.model.framework.FeedScopedId;
@@ -18,8 +18,6 @@ import org.opentripplanner.transit.model.timetable.TripOnServiceDate;
 import org.opentripplanner.transit.model.timetable.TripTimes;
 import org.opentripplanner.transit.service.TransitService;
 import org.opentripplanner.util.time.ServiceDateUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import uk.org.siri.siri20.EstimatedCall;
 import uk.org.siri.siri20.EstimatedVehicleJourney;
 import uk.org.siri.siri20.RecordedCall;
@@ -36,39 +34,100 @@ import uk.org.siri.siri20.VehicleModesEnumeration;
  * process will always be applied even in places where you have good quality IDs in SIRI data and
  * don't need it - we'd have to add a way to disable it.
  * <p>
- * The same instance of this SiriFuzzyTripMatcher may appear in different SIRI updaters. Be sure
- * to fetch the instance at during the setup of the updaters, the initialization is not thread-safe.
+ * The same instance of this SiriFuzzyTripMatcher is shared by the SIRI updaters. The scheduled
+ * trips are indexed once, when the instance is created, see {@link SiriFuzzyTripMatcherIndex}. The
+ * trips added by the realtime updaters are indexed incrementally, when they are added, and removed
+ * when their service date is purged, see {@link #purgeAddedTrips(LocalDate)}. The matcher is
+ * thread-safe.
  */
 public class SiriFuzzyTripMatcher {
 
-  private static final Logger LOG = LoggerFactory.getLogger(SiriFuzzyTripMatcher.class);
-
   private static SiriFuzzyTripMatcher instance;
 
-  private final Map<String, Set<Trip>> mappedTripsCache = new HashMap<>();
-  private final Map<String, Set<Trip>> mappedVehicleRefCache = new HashMap<>();
-  private final Map<String, Set<Route>> mappedRoutesCache = new HashMap<>();
-  private final Map<String, Set<Trip>> start_stop_tripCache = new HashMap<>();
-  private final Map<String, Trip> vehicleJourneyTripCache = new HashMap<>();
-  private final Set<String> nonExistingStops = new HashSet<>();
+  private final SiriFuzzyTripMatcherIndex index;
+  private final Map<String, Set<Trip>> addedTripsBySiriId = new ConcurrentHashMap<>();
+  private final Map<String, Set<Trip>> addedTripsByLastStopArrival = new ConcurrentHashMap<>();
+  private final Map<String, Trip> addedTripsByVehicleJourney = new ConcurrentHashMap<>();
+  private final Map<Trip, AddedTrip> addedTrips = new ConcurrentHashMap<>();
+  private final Set<String> nonExistingStops = ConcurrentHashMap.newKeySet();
   private final TransitService transitService;
 
   /**
-   * Factory method used to create only one instance.
-   * <p>
-   * THIS METHOD IS NOT THREAD-SAFE AND SHOULD BE CALLED DURING THE
-   * INITIALIZATION PROCESS.
+   * Factory method used to create only one instance, shared by all SIRI updaters.
    */
-  public static SiriFuzzyTripMatcher of(TransitService transitService) {
+  public static synchronized SiriFuzzyTripMatcher of(TransitService transitService) {
     if (instance == null) {
       instance = new SiriFuzzyTripMatcher(transitService);
     }
     return instance;
   }
 
-  private SiriFuzzyTripMatcher(TransitService transitService) {
+  SiriFuzzyTripMatcher(TransitService transitService) {
     this.transitService = transitService;
-    initCache(this.transitService);
+    this.index = SiriFuzzyTripMatcherIndex.of(transitService);
+  }
+
+  /**
+   * Index a trip added by a realtime update, so the following updates of the trip can be matched.
+   * The trip is indexed until the last service date it is added for is purged.
+   */
+  public void addRealtimeAddedTrip(
+    Trip trip,
+    TripPattern pattern,
+    TripTimes tripTimes,
+    LocalDate serviceDate
+  ) {
+    String id = trip.getId().getId();
+    String lastStopArrivalKey = SiriFuzzyTripMatcherIndex.lastStopArrivalKey(pattern, tripTimes);
+    // The index of a trip is only updated in the compute functions, so it is not purged and
+    // added at the same time
+    addedTrips.compute(
+      trip,
+      (t, previous) -> {
+        LocalDate lastServiceDate = serviceDate;
+        if (previous != null) {
+          if (!previous.lastStopArrivalKey.equals(lastStopArrivalKey)) {
+            remove(addedTripsByLastStopArrival, previous.lastStopArrivalKey, trip);
+          }
+          if (previous.serviceDate.isAfter(serviceDate)) {
+            lastServiceDate = previous.serviceDate;
+          }
+        }
+        addedTripsBySiriId
+          .computeIfAbsent(
+            SiriFuzzyTripMatcherIndex.unpaddedId(id),
+            k -> ConcurrentHashMap.newKeySet()
+          )
+          .add(trip);
+        addedTripsByLastStopArrival
+          .computeIfAbsent(lastStopArrivalKey, k -> ConcurrentHashMap.newKeySet())
+          .add(trip);
+        addedTripsByVehicleJourney.put(id, trip);
+        return new AddedTrip(lastStopArrivalKey, lastServiceDate);
+      }
+    );
+  }
+
+  /**
+   * Remove the trips added for service dates on or before the given date from the index, these are
+   * the dates purged from the timetable snapshot.
+   */
+  public void purgeAddedTrips(LocalDate serviceDate) {
+    for (Trip trip : addedTrips.keySet()) {
+      addedTrips.computeIfPresent(
+        trip,
+        (t, addedTrip) -> {
+          if (serviceDate.isBefore(addedTrip.serviceDate)) {
+            return addedTrip;
+          }
+          String id = trip.getId().getId();
+          remove(addedTripsBySiriId, SiriFuzzyTripMatcherIndex.unpaddedId(id), trip);
+          remove(addedTripsByLastStopArrival, addedTrip.lastStopArrivalKey, trip);
+          addedTripsByVehicleJourney.remove(id, trip);
+          return null;
+        }
+      );
+    }
   }
 
   /**
@@ -83,7 +142,7 @@ public class SiriFuzzyTripMatcher {
         datedVehicleRef =
           monitoredVehicleJourney.getFramedVehicleJourneyRef().getDatedVehicleJourneyRef();
         if (datedVehicleRef != null) {
-          trips = mappedTripsCache.get(datedVehicleRef);
+          trips = getCachedTripsBySiriId(datedVehicleRef);
         }
       }
       if (monitoredVehicleJourney.getDestinationRef() != null) {
@@ -181,11 +240,11 @@ public class SiriFuzzyTripMatcher {
   }
 
   public Set<Route> getRoutes(String lineRefValue) {
-    return mappedRoutesCache.getOrDefault(lineRefValue, new HashSet<>());
+    return index.routesBySiriId(lineRefValue);
   }
 
   public FeedScopedId getTripId(String vehicleJourney, String feedId) {
-    Trip trip = vehicleJourneyTripCache.get(vehicleJourney);
+    Trip trip = getCachedTripByVehicleJourney(vehicleJourney);
     if (trip != null) {
       return trip.getId();
     } else {
@@ -200,7 +259,7 @@ public class SiriFuzzyTripMatcher {
     //Fallback to handle extrajourneys
     trip = transitService.getTripForId(new FeedScopedId(feedId, vehicleJourney));
     if (trip != null) {
-      vehicleJourneyTripCache.put(vehicleJourney, trip);
+      addedTripsByVehicleJourney.put(vehicleJourney, trip);
       return trip.getId();
     }
     return null;
@@ -260,87 +319,6 @@ public class SiriFuzzyTripMatcher {
     return null;
   }
 
-  private void initCache(TransitService index) {
-    if (mappedTripsCache.isEmpty()) {
-      for (Trip trip : index.getAllTrips()) {
-        TripPattern tripPattern = index.getPatternForTrip(trip);
-
-        if (tripPattern == null) {
-          continue;
-        }
-
-        String currentTripId = getUnpaddedTripId(trip.getId().getId());
-
-        if (mappedTripsCache.containsKey(currentTripId)) {
-          mappedTripsCache.get(currentTripId).add(trip);
-        } else {
-          Set<Trip> initialSet = new HashSet<>();
-          initialSet.add(trip);
-          mappedTripsCache.put(currentTripId, initialSet);
-        }
-
-        if (tripPattern.matchesModeOrSubMode(TransitMode.RAIL, SubMode.of("railReplacementBus"))) {
-          if (trip.getNetexInternalPlanningCode() != null) {
-            String internalPlanningCode = trip.getNetexInternalPlanningCode();
-            if (mappedVehicleRefCache.containsKey(internalPlanningCode)) {
-              mappedVehicleRefCache.get(internalPlanningCode).add(trip);
-            } else {
-              Set<Trip> initialSet = new HashSet<>();
-              initialSet.add(trip);
-              mappedVehicleRefCache.put(internalPlanningCode, initialSet);
-            }
-          }
-        }
-        String lastStopId = tripPattern.lastStop().getId().getId();
-
-        TripTimes tripTimes = tripPattern.getScheduledTimetable().getTripTimes(trip);
-        if (tripTimes != null) {
-          int arrivalTime = tripTimes.getArrivalTime(tripTimes.getNumStops() - 1);
-
-          String key = createStartStopKey(lastStopId, arrivalTime);
-          if (start_stop_tripCache.containsKey(key)) {
-            start_stop_tripCache.get(key).add(trip);
-          } else {
-            Set<Trip> initialSet = new HashSet<>();
-            initialSet.add(trip);
-            start_stop_tripCache.put(key, initialSet);
-          }
-        }
-      }
-      for (Route route : index.getAllRoutes()) {
-        String currentRouteId = getUnpaddedTripId(route.getId().getId());
-        if (mappedRoutesCache.containsKey(currentRouteId)) {
-          mappedRoutesCache.get(currentRouteId).add(route);
-        } else {
-          Set<Route> initialSet = new HashSet<>();
-          initialSet.add(route);
-          mappedRoutesCache.put(currentRouteId, initialSet);
-        }
-      }
-
-      LOG.info("Built route-cache [{}].", mappedRoutesCache.size());
-      LOG.info("Built vehicleRef-cache [{}].", mappedVehicleRefCache.size());
-      LOG.info("Built trips-cache [{}].", mappedTripsCache.size());
-      LOG.info("Built start-stop-cache [{}].", start_stop_tripCache.size());
-    }
-
-    if (vehicleJourneyTripCache.isEmpty()) {
-      index.getAllTrips().forEach(trip -> vehicleJourneyTripCache.put(trip.getId().getId(), trip));
-    }
-  }
-
-  private static String createStartStopKey(String lastStopId, int lastStopArrivalTime) {
-    return lastStopId + ":" + lastStopArrivalTime;
-  }
-
-  private static String getUnpaddedTripId(String id) {
-    if (id.indexOf("-") > 0) {
-      return id.substring(0, id.indexOf("-"));
-    } else {
-      return id;
-    }
-  }
-
   private String resolveDatedVehicleJourneyRef(EstimatedVehicleJourney journey) {
     if (journey.getFramedVehicleJourneyRef() != null) {
       return journey.getFramedVehicleJourneyRef().getDatedVehicleJourneyRef();
@@ -367,32 +345,21 @@ public class SiriFuzzyTripMatcher {
       transitService.getTimeZone()
     );
 
-    Set<Trip> trips = start_stop_tripCache.get(
-      createStartStopKey(lastStopPoint, secondsSinceMidnight)
-    );
-    if (trips == null) {
+    Set<Trip> trips = getCachedTripsByLastStopArrival(lastStopPoint, secondsSinceMidnight);
+    if (trips.isEmpty()) {
       //Attempt to fetch trips that started yesterday - i.e. add 24 hours to arrival-time
-      trips =
-        start_stop_tripCache.get(createStartStopKey(lastStopPoint, secondsSinceMidnightYesterday));
+      trips = getCachedTripsByLastStopArrival(lastStopPoint, secondsSinceMidnightYesterday);
     }
 
-    if (trips == null || trips.isEmpty()) {
+    if (trips.isEmpty()) {
       //SIRI-data may report other platform, but still on the same Parent-stop
       var stop = transitService.getRegularStop(new FeedScopedId(feedId, lastStopPoint));
       if (stop != null && stop.isPartOfStation()) {
         // TODO OTP2 resolve stop-station split
         var allQuays = stop.getParentStation().getChildStops();
+        trips = new HashSet<>();
         for (var quay : allQuays) {
-          Set<Trip> tripSet = start_stop_tripCache.get(
-            createStartStopKey(quay.getId().getId(), secondsSinceMidnight)
-          );
-          if (tripSet != null) {
-            if (trips == null) {
-              trips = tripSet;
-            } else {
-              trips.addAll(tripSet);
-            }
-          }
+          trips.addAll(getCachedTripsByLastStopArrival(quay.getId().getId(), secondsSinceMidnight));
         }
       }
     }
@@ -403,13 +370,51 @@ public class SiriFuzzyTripMatcher {
     if (vehicleRef == null) {
       return null;
     }
-    return mappedVehicleRefCache.getOrDefault(vehicleRef, new HashSet<>());
+    return index.tripsByInternalPlanningCode(vehicleRef);
   }
 
   private Set<Trip> getCachedTripsBySiriId(String tripId) {
     if (tripId == null) {
       return null;
     }
-    return mappedTripsCache.getOrDefault(tripId, new HashSet<>());
+    return union(index.tripsBySiriId(tripId), addedTripsBySiriId.get(tripId));
+  }
+
+  private Set<Trip> getCachedTripsByLastStopArrival(String lastStopId, int arrivalTime) {
+    return union(
+      index.tripsByLastStopArrival(lastStopId, arrivalTime),
+      addedTripsByLastStopArrival.get(
+        SiriFuzzyTripMatcherIndex.lastStopArrivalKey(lastStopId, arrivalTime)
+      )
+    );
+  }
+
+  private Trip getCachedTripByVehicleJourney(String vehicleJourney) {
+    Trip trip = index.tripByVehicleJourney(vehicleJourney);
+    return trip != null ? trip : addedTripsByVehicleJourney.get(vehicleJourney);
+  }
+
+  private static void remove(Map<String, Set<Trip>> index, String key, Trip trip) {
+    index.computeIfPresent(
+      key,
+      (k, trips) -> {
+        trips.remove(trip);
+        return trips.isEmpty() ? null : trips;
+      }
+    );
+  }
+
+  private static Set<Trip> union(Set<Trip> scheduledTrips, Set<Trip> addedTrips) {
+    if (addedTrips == null || addedTrips.isEmpty()) {
+      return scheduledTrips;
+    }
+    Set<Trip> trips = new HashSet<>(scheduledTrips);
+    trips.addAll(addedTrips);
+    return trips;
   }
+
+  /**
+   * The last stop arrival key of an added trip, and the last service date the trip is added for.
+   */
+  private record AddedTrip(String lastStopArrivalKey, LocalDate serviceDate) {}
 }
@@ -0,0 +1,164 @@
+package org.opentripplanner.ext.siri;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.opentripplanner.transit.model.basic.SubMode;
+import org.opentripplanner.transit.model.basic.TransitMode;
+import org.opentripplanner.transit.model.network.Route;
+import org.opentripplanner.transit.model.network.TripPattern;
+import org.opentripplanner.transit.model.timetable.Trip;
+import org.opentripplanner.transit.model.timetable.TripTimes;
+import org.opentripplanner.transit.service.TransitService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The scheduled trips and routes indexed by the references used in SIRI messages. The index is
+ * built once, using all available processors, and is immutable after that, so it can be read by
+ * the SIRI updaters without locking.
+ * <p>
+ * Trips added by the realtime updaters are not in this index, see
+ * {@link SiriFuzzyTripMatcher#addRealtimeAddedTrip(Trip, TripPattern, TripTimes, LocalDate)}.
+ */
+final class SiriFuzzyTripMatcherIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SiriFuzzyTripMatcherIndex.class);
+
+  private final Map<String, Set<Trip>> tripsBySiriId;
+  private final Map<String, Set<Trip>> tripsByInternalPlanningCode;
+  private final Map<String, Set<Trip>> tripsByLastStopArrival;
+  private final Map<String, Set<Route>> routesBySiriId;
+  private final Map<String, Trip> tripsByVehicleJourney;
+
+  private SiriFuzzyTripMatcherIndex(TransitService transitService) {
+    // Only the trips of a pattern can be matched
+    List<Trip> trips = transitService
+      .getAllTrips()
+      .parallelStream()
+      .filter(trip -> transitService.getPatternForTrip(trip) != null)
+      .toList();
+
+    this.tripsBySiriId = index(trips, trip -> unpaddedId(trip.getId().getId()));
+    this.tripsByInternalPlanningCode =
+      index(
+        trips
+          .parallelStream()
+          .filter(trip -> trip.getNetexInternalPlanningCode() != null)
+          .filter(trip ->
+            transitService
+              .getPatternForTrip(trip)
+              .matchesModeOrSubMode(TransitMode.RAIL, SubMode.of("railReplacementBus"))
+          )
+          .toList(),
+        Trip::getNetexInternalPlanningCode
+      );
+    this.tripsByLastStopArrival =
+      index(
+        trips
+          .parallelStream()
+          .filter(trip -> scheduledTripTimes(transitService, trip) != null)
+          .toList(),
+        trip ->
+          lastStopArrivalKey(
+            transitService.getPatternForTrip(trip),
+            scheduledTripTimes(transitService, trip)
+          )
+      );
+    this.routesBySiriId =
+      index(transitService.getAllRoutes(), route -> unpaddedId(route.getId().getId()));
+    // The trips of different feeds may have the same id, keep the first by feed scoped id so the
+    // trip found does not depend on the order the trips are collected in
+    this.tripsByVehicleJourney =
+      Collections.unmodifiableMap(
+        transitService
+          .getAllTrips()
+          .parallelStream()
+          .collect(
+            Collectors.toConcurrentMap(
+              trip -> trip.getId().getId(),
+              trip -> trip,
+              SiriFuzzyTripMatcherIndex::firstById
+            )
+          )
+      );
+
+    LOG.info("Built route-cache [{}].", routesBySiriId.size());
+    LOG.info("Built vehicleRef-cache [{}].", tripsByInternalPlanningCode.size());
+    LOG.info("Built trips-cache [{}].", tripsBySiriId.size());
+    LOG.info("Built start-stop-cache [{}].", tripsByLastStopArrival.size());
+  }
+
+  static SiriFuzzyTripMatcherIndex of(TransitService transitService) {
+    return new SiriFuzzyTripMatcherIndex(transitService);
+  }
+
+  Set<Trip> tripsBySiriId(String siriId) {
+    return tripsBySiriId.getOrDefault(siriId, Set.of());
+  }
+
+  Set<Trip> tripsByInternalPlanningCode(String internalPlanningCode) {
+    return tripsByInternalPlanningCode.getOrDefault(internalPlanningCode, Set.of());
+  }
+
+  Set<Trip> tripsByLastStopArrival(String lastStopId, int lastStopArrivalTime) {
+    return tripsByLastStopArrival.getOrDefault(
+      lastStopArrivalKey(lastStopId, lastStopArrivalTime),
+      Set.of()
+    );
+  }
+
+  Set<Route> routesBySiriId(String lineRef) {
+    return routesBySiriId.getOrDefault(lineRef, Set.of());
+  }
+
+  Trip tripByVehicleJourney(String vehicleJourney) {
+    return tripsByVehicleJourney.get(vehicleJourney);
+  }
+
+  static String unpaddedId(String id) {
+    if (id.indexOf("-") > 0) {
+      return id.substring(0, id.indexOf("-"));
+    } else {
+      return id;
+    }
+  }
+
+  static String lastStopArrivalKey(TripPattern pattern, TripTimes tripTimes) {
+    return lastStopArrivalKey(
+      pattern.lastStop().getId().getId(),
+      tripTimes.getArrivalTime(tripTimes.getNumStops() - 1)
+    );
+  }
+
+  static String lastStopArrivalKey(String lastStopId, int lastStopArrivalTime) {
+    return lastStopId + ":" + lastStopArrivalTime;
+  }
+
+  private static Trip firstById(Trip a, Trip b) {
+    return a.getId().compareTo(b.getId()) <= 0 ? a : b;
+  }
+
+  private static TripTimes scheduledTripTimes(TransitService transitService, Trip trip) {
+    return transitService.getPatternForTrip(trip).getScheduledTimetable().getTripTimes(trip);
+  }
+
+  /**
+   * Group the values by key in parallel, the maps and sets returned are unmodifiable.
+   */
+  private static <T> Map<String, Set<T>> index(
+    Collection<T> values,
+    Function<T, String> keyMapper
+  ) {
+    ConcurrentMap<String, Set<T>> index = values
+      .parallelStream()
+      .collect(Collectors.groupingByConcurrent(keyMapper, Collectors.toUnmodifiableSet()));
+    return Collections.unmodifiableMap(index);
+  }
+}
@@ -233,7 +233,7 @@ public class SiriTimetableSnapshotSource implements TimetableSnapshotProvider {
       // Purge data if necessary (and force new snapshot if anything was purged)
       // Make sure that the public (locking) getTimetableSnapshot function is not called.
       if (purgeExpiredData) {
-        final boolean modified = purgeExpiredData();
+        final boolean modified = purgeExpiredData(fuzzyTripMatcher);
         getTimetableSnapshot(modified);
       } else {
         getTimetableSnapshot(false);
@@ -310,7 +310,9 @@ public class SiriTimetableSnapshotSource implements TimetableSnapshotProvider {
               if (journey.isExtraJourney() != null && journey.isExtraJourney()) {
                 // Added trip
                 try {
-                  if (handleAddedTrip(transitModel, feedId, journey).isSuccess()) {
+                  if (
+                    handleAddedTrip(transitModel, fuzzyTripMatcher, feedId, journey).isSuccess()
+                  ) {
                     addedCounter++;
                   } else {
                     skippedCounter++;
@@ -364,7 +366,7 @@ public class SiriTimetableSnapshotSource implements TimetableSnapshotProvider {
       // Purge data if necessary (and force new snapshot if anything was purged)
       // Make sure that the public (locking) getTimetableSnapshot function is not called.
       if (purgeExpiredData) {
-        final boolean modified = purgeExpiredData();
+        final boolean modified = purgeExpiredData(fuzzyTripMatcher);
         getTimetableSnapshot(modified);
       } else {
         getTimetableSnapshot(false);
@@ -520,6 +522,7 @@ public class SiriTimetableSnapshotSource implements TimetableSnapshotProvider {
 
   private Result<Void, UpdateError> handleAddedTrip(
     TransitModel transitModel,
+    SiriFuzzyTripMatcher fuzzyTripMatcher,
     String feedId,
     EstimatedVehicleJourney estimatedVehicleJourney
   ) {
@@ -816,7 +819,7 @@ public class SiriTimetableSnapshotSource implements TimetableSnapshotProvider {
         );
       });
 
-    return addTripToGraphAndBuffer(
+    var result = addTripToGraphAndBuffer(
       feedId,
       transitModel,
       trip,
@@ -826,6 +829,10 @@ public class SiriTimetableSnapshotSource implements TimetableSnapshotProvider {
       serviceDate,
       estimatedVehicleJourney
     );
+    if (result.isSuccess() && fuzzyTripMatcher != null) {
+      fuzzyTripMatcher.addRealtimeAddedTrip(trip, pattern, tripTimes, serviceDate);
+    }
+    return result;
   }
 
   /**
@@ -1233,7 +1240,7 @@ public class SiriTimetableSnapshotSource implements TimetableSnapshotProvider {
     return success;
   }
 
-  private boolean purgeExpiredData() {
+  private boolean purgeExpiredData(SiriFuzzyTripMatcher fuzzyTripMatcher) {
     final LocalDate today = LocalDate.now(timeZone);
     final LocalDate previously = today.minusDays(2); // Just to be safe...
 
@@ -1245,6 +1252,10 @@ public class SiriTimetableSnapshotSource implements TimetableSnapshotProvider {
 
     lastPurgeDate = previously;
 
+    if (fuzzyTripMatcher != null) {
+      fuzzyTripMatcher.purgeAddedTrips(previously);
+    }
+
     return buffer.purgeExpiredData(previously);
   }
 
@@ -0,0 +1,86 @@
+package org.opentripplanner.ext.traveltime;
+
+import java.util.Arrays;
+import org.opentripplanner.ext.traveltime.geometry.ZSampleGrid;
+import org.opentripplanner.ext.traveltime.geometry.ZSamplePoint;
+
+/**
+ * The earliest time each cell of a rectangle of the {@link StopEgressGrid} is reached, with the
+ * walk and off-road distance of the path reaching it first. The values are kept in dense primitive
+ * arrays, indexed by {@link #index(int, int)}.
+ */
+class GridTimes {
+
+  static final int UNREACHED = Integer.MAX_VALUE;
+
+  final int xMin;
+  final int yMin;
+  final int width;
+  final int height;
+  final int[] times;
+  final float[] walkDistances;
+  final float[] offRoadDistances;
+
+  GridTimes(int xMin, int yMin, int xMax, int yMax) {
+    this.xMin = xMin;
+    this.yMin = yMin;
+    this.width = xMax - xMin + 1;
+    this.height = yMax - yMin + 1;
+    this.times = new int[width * height];
+    this.walkDistances = new float[times.length];
+    this.offRoadDistances = new float[times.length];
+    clear();
+  }
+
+  int size() {
+    return times.length;
+  }
+
+  int index(int x, int y) {
+    return (x - xMin) + (y - yMin) * width;
+  }
+
+  int x(int index) {
+    return xMin + index % width;
+  }
+
+  int y(int index) {
+    return yMin + index / width;
+  }
+
+  boolean isReached(int index) {
+    return times[index] != UNREACHED;
+  }
+
+  void clear() {
+    Arrays.fill(times, UNREACHED);
+  }
+
+  /**
+   * Update the cell if the given time is earlier than the time already in the cell.
+   */
+  void update(int index, int time, float walkDistance, float offRoadDistance) {
+    if (time < times[index]) {
+      times[index] = time;
+      walkDistances[index] = walkDistance;
+      offRoadDistances[index] = offRoadDistance;
+    }
+  }
+
+  /**
+   * Update the cells with the samples of the given grid, the grid must be aligned with this one
+   * and the samples inside it.
+   */
+  void update(ZSampleGrid<WTWD> sampleGrid, int maxTimeSec) {
+    for (ZSamplePoint<WTWD> point : sampleGrid) {
+      WTWD z = point.getZ();
+      if (z == null) {
+        continue;
+      }
+      int time = (int) Math.round(z.wTime / z.w);
+      if (time < maxTimeSec) {
+        update(index(point.getX(), point.getY()), time, (float) (z.wWalkDist / z.w), (float) z.d);
+      }
+    }
+  }
+}
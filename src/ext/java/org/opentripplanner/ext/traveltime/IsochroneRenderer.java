@@ -3,6 +3,7 @@ package org.opentripplanner.ext.traveltime;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import org.locationtech.jts.geom.Geometry;
 import org.opentripplanner.ext.traveltime.geometry.DelaunayIsolineBuilder;
 import org.opentripplanner.ext.traveltime.geometry.ZMetric;
@@ -26,20 +27,20 @@ public class IsochroneRenderer {
     );
     isolineBuilder.setDebug(traveltimeRequest.includeDebugGeometry);
 
-    List<IsochroneData> isochrones = new ArrayList<>();
-    for (Duration cutoff : traveltimeRequest.cutoffs) {
-      long cutoffSec = cutoff.toSeconds();
-      WTWD z0 = new WTWD();
-      z0.w = 1.0;
-      z0.wTime = cutoffSec;
-      z0.d = traveltimeRequest.offRoadDistanceMeters;
-      Geometry geometry = isolineBuilder.computeIsoline(z0);
-      Geometry debugGeometry = null;
-      if (traveltimeRequest.includeDebugGeometry) {
-        debugGeometry = isolineBuilder.getDebugGeometry();
+    // The isolines of the cutoffs are computed in parallel, except in debug mode where the
+    // builder keeps the debug geometry of the last isoline.
+    List<IsochroneData> isochrones;
+    if (traveltimeRequest.cutoffs.size() > 1 && !traveltimeRequest.includeDebugGeometry) {
+      List<Callable<IsochroneData>> tasks = new ArrayList<>();
+      for (Duration cutoff : traveltimeRequest.cutoffs) {
+        tasks.add(() -> renderIsochrone(isolineBuilder, cutoff, traveltimeRequest));
+      }
+      isochrones = TravelTimeThreadPool.invokeAll(tasks);
+    } else {
+      isochrones = new ArrayList<>();
+      for (Duration cutoff : traveltimeRequest.cutoffs) {
+        isochrones.add(renderIsochrone(isolineBuilder, cutoff, traveltimeRequest));
       }
-
-      isochrones.add(new IsochroneData(cutoffSec, geometry, debugGeometry));
     }
 
     long t1 = System.currentTimeMillis();
@@ -47,4 +48,22 @@ public class IsochroneRenderer {
 
     return isochrones;
   }
+
+  private static IsochroneData renderIsochrone(
+    DelaunayIsolineBuilder<WTWD> isolineBuilder,
+    Duration cutoff,
+    TravelTimeRequest traveltimeRequest
+  ) {
+    long cutoffSec = cutoff.toSeconds();
+    WTWD z0 = new WTWD();
+    z0.w = 1.0;
+    z0.wTime = cutoffSec;
+    z0.d = traveltimeRequest.offRoadDistanceMeters;
+    Geometry geometry = isolineBuilder.computeIsoline(z0);
+    Geometry debugGeometry = null;
+    if (traveltimeRequest.includeDebugGeometry) {
+      debugGeometry = isolineBuilder.getDebugGeometry();
+    }
+    return new IsochroneData(cutoffSec, geometry, debugGeometry);
+  }
 }
@@ -1,5 +1,12 @@
 package org.opentripplanner.ext.traveltime;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import org.locationtech.jts.geom.Coordinate;
 import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
 import org.opentripplanner.ext.traveltime.geometry.AccumulativeGridSampler;
@@ -8,7 +15,9 @@ import org.opentripplanner.ext.traveltime.geometry.SparseMatrixZSampleGrid;
 import org.opentripplanner.ext.traveltime.geometry.ZSampleGrid;
 import org.opentripplanner.ext.traveltime.spt.SPTVisitor;
 import org.opentripplanner.ext.traveltime.spt.SPTWalker;
+import org.opentripplanner.routing.graph.Vertex;
 import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.opentripplanner.transit.model.site.RegularStop;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,12 +25,20 @@ public class SampleGridRenderer {
 
   private static final Logger LOG = LoggerFactory.getLogger(SampleGridRenderer.class);
 
+  /** The off-road walk speed, in m/s */
+  static final double OFF_ROAD_WALK_SPEED_MPS = 1.00;
+
+  /** The side of the square tiles sampled in parallel, in grid cells */
+  private static final int TILE_SIZE = 16;
+
+  /** A SPT with fewer vertices is sampled in the calling thread */
+  static final int MIN_VERTICES_PARALLEL_SAMPLING = 5_000;
+
   public static ZSampleGrid<WTWD> getSampleGrid(
     ShortestPathTree spt,
     TravelTimeRequest traveltimeRequest
   ) {
     final double offRoadDistanceMeters = traveltimeRequest.offRoadDistanceMeters;
-    final double offRoadWalkSpeedMps = 1.00; // m/s, off-road walk speed
 
     // Create a sample grid based on the SPT.
     long t1 = System.currentTimeMillis();
@@ -43,10 +60,11 @@ public class SampleGridRenderer {
       sampleGrid,
       gridSizeMeters,
       offRoadDistanceMeters,
-      offRoadWalkSpeedMps,
+      OFF_ROAD_WALK_SPEED_MPS,
       (int) traveltimeRequest.maxCutoff.getSeconds(),
       cosLat
-    );
+    )
+      .close();
 
     long t2 = System.currentTimeMillis();
     LOG.info("Computed sampling in {}msec", (int) (t2 - t1));
@@ -55,9 +73,40 @@ public class SampleGridRenderer {
   }
 
   /**
-   * Sample a SPT using a SPTWalker and an AccumulativeGridSampler.
+   * Create a sample grid from the SPT of the street search from the origin and the stops reached
+   * by transit. The cells reached from the stops are found in the precomputed tables of the
+   * egress grid, instead of by a street search from each stop. The origin samples and the tables
+   * are closed separately, and each cell gets the earliest time.
+   *
+   * @param arrivalTimes The arrival time at each stop, in seconds after the start of the search.
+   */
+  public static ZSampleGrid<WTWD> getSampleGrid(
+    ShortestPathTree spt,
+    StopEgressGrid egressGrid,
+    List<RegularStop> stops,
+    int[] arrivalTimes,
+    TravelTimeRequest traveltimeRequest
+  ) {
+    long t1 = System.currentTimeMillis();
+    int maxTimeSec = (int) traveltimeRequest.maxCutoff.getSeconds();
+
+    SparseMatrixZSampleGrid<WTWD> sampleGrid = egressGrid.sampleOrigin(spt, maxTimeSec);
+    egressGrid.addStopArrivals(sampleGrid, stops, arrivalTimes, maxTimeSec);
+
+    long t2 = System.currentTimeMillis();
+    LOG.info("Computed sampling from {} stops in {}msec", stops.size(), (int) (t2 - t1));
+
+    return sampleGrid;
+  }
+
+  /**
+   * Sample a SPT using a SPTWalker and an AccumulativeGridSampler. The sampler is returned so more
+   * samples can be added before it is closed.
+   * <p>
+   * A large SPT is sampled in parallel: the vertices are split in square tiles of the grid, and
+   * each tile is sampled in a separate grid. The grids are then added to the sample grid.
    */
-  public static void sampleSPT(
+  public static AccumulativeGridSampler<WTWD> sampleSPT(
     final ShortestPathTree spt,
     final ZSampleGrid<WTWD> sampleGrid,
     final double gridSizeMeters,
@@ -65,6 +114,32 @@ public class SampleGridRenderer {
     final double offRoadWalkSpeedMps,
     final int maxTimeSec,
     final double cosLat
+  ) {
+    return sampleSPT(
+      spt,
+      sampleGrid,
+      gridSizeMeters,
+      offRoadDistanceMeters,
+      offRoadWalkSpeedMps,
+      maxTimeSec,
+      cosLat,
+      MIN_VERTICES_PARALLEL_SAMPLING
+    );
+  }
+
+  /**
+   * Package-private for testing, a SPT with fewer vertices than {@code minVerticesParallel} is
+   * sampled in the calling thread.
+   */
+  static AccumulativeGridSampler<WTWD> sampleSPT(
+    final ShortestPathTree spt,
+    final ZSampleGrid<WTWD> sampleGrid,
+    final double gridSizeMeters,
+    final double offRoadDistanceMeters,
+    final double offRoadWalkSpeedMps,
+    final int maxTimeSec,
+    final double cosLat,
+    final int minVerticesParallel
   ) {
     final AccumulativeMetric<WTWD> accMetric = new WTWDAccumulativeMetric(
       cosLat,
@@ -81,8 +156,55 @@ public class SampleGridRenderer {
     // For best results, this should be slighly lower than the grid size.
     double walkerSplitDistanceMeters = gridSizeMeters * 0.5;
 
-    SPTVisitor visitor = new SampleGridSPTVisitor(maxTimeSec, gridSampler, offRoadWalkSpeedMps);
-    new SPTWalker(spt).walk(visitor, walkerSplitDistanceMeters);
-    gridSampler.close();
+    SPTWalker walker = new SPTWalker(spt);
+    Set<Vertex> vertices = walker.vertices();
+    Collection<List<Vertex>> tiles = splitInTiles(vertices, sampleGrid);
+
+    if (vertices.size() < minVerticesParallel || tiles.size() < 2) {
+      SPTVisitor visitor = new SampleGridSPTVisitor(maxTimeSec, gridSampler, offRoadWalkSpeedMps);
+      walker.walk(visitor, walkerSplitDistanceMeters, vertices);
+      return gridSampler;
+    }
+
+    List<Callable<ZSampleGrid<WTWD>>> tasks = new ArrayList<>(tiles.size());
+    for (List<Vertex> tile : tiles) {
+      tasks.add(() -> {
+        var tileGrid = new SparseMatrixZSampleGrid<WTWD>(
+          16,
+          tile.size(),
+          sampleGrid.getCellSize().x,
+          sampleGrid.getCellSize().y,
+          sampleGrid.getCenter()
+        );
+        var tileSampler = new AccumulativeGridSampler<>(tileGrid, accMetric);
+        SPTVisitor visitor = new SampleGridSPTVisitor(maxTimeSec, tileSampler, offRoadWalkSpeedMps);
+        walker.walk(visitor, walkerSplitDistanceMeters, tile);
+        return tileGrid;
+      });
+    }
+    // Add the tiles in a fixed order, so the result is the same for each run
+    for (ZSampleGrid<WTWD> tileGrid : TravelTimeThreadPool.invokeAll(tasks)) {
+      gridSampler.addSamples(tileGrid);
+    }
+    return gridSampler;
+  }
+
+  /**
+   * Split the vertices in square tiles of the sample grid, the tiles are returned in the order
+   * of their first vertex.
+   */
+  private static Collection<List<Vertex>> splitInTiles(
+    Collection<Vertex> vertices,
+    ZSampleGrid<WTWD> sampleGrid
+  ) {
+    Map<Long, List<Vertex>> tiles = new LinkedHashMap<>();
+    for (Vertex vertex : vertices) {
+      int[] xy = sampleGrid.getLowerLeftIndex(vertex.getCoordinate());
+      long key =
+        ((long) Math.floorDiv(xy[0], TILE_SIZE) << 32) |
+        (Math.floorDiv(xy[1], TILE_SIZE) & 0xFFFFFFFFL);
+      tiles.computeIfAbsent(key, k -> new ArrayList<>()).add(vertex);
+    }
+    return tiles.values();
   }
 }
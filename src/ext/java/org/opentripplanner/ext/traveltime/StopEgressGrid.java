@@ -0,0 +1,330 @@
+package org.opentripplanner.ext.traveltime;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.locationtech.jts.geom.Coordinate;
+import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
+import org.opentripplanner.ext.traveltime.geometry.SparseMatrixZSampleGrid;
+import org.opentripplanner.ext.traveltime.geometry.ZSampleGrid;
+import org.opentripplanner.ext.traveltime.geometry.ZSamplePoint;
+import org.opentripplanner.routing.algorithm.astar.AStarBuilder;
+import org.opentripplanner.routing.api.request.RouteRequest;
+import org.opentripplanner.routing.api.request.StreetMode;
+import org.opentripplanner.routing.api.request.request.StreetRequest;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.graph.Vertex;
+import org.opentripplanner.routing.spt.DominanceFunction;
+import org.opentripplanner.routing.spt.ShortestPathTree;
+import org.opentripplanner.transit.model.site.RegularStop;
+
+/**
+ * The walk times from each stop to the cells of a fixed grid covering the graph. With these tables
+ * the part of a travel time surface reached by transit is the minimum, for each cell, of the
+ * arrival time at each stop plus the walk time from the stop to the cell. This replaces a street
+ * search from all the stops reached by transit for each request.
+ * <p>
+ * The table of a stop is computed the first time the stop is reached, by sampling a walk search
+ * from the stop limited to the max egress duration of the default request. The sampler is closed,
+ * so the table includes the off-road border around the reached cells, like the surface of a street
+ * search. The tables use the walk preferences of the default request, so they are only used for
+ * walk access and egress.
+ * <p>
+ * THREAD SAFETY - The grid is thread safe, each table is computed once and is immutable.
+ */
+public class StopEgressGrid {
+
+  /** The max total number of cells in the cached tables, each cell use 20 bytes. */
+  private static final long MAX_CACHED_CELLS = 5_000_000;
+
+  private final Graph graph;
+  private final RouteRequest walkRequest;
+  private final Duration maxWalkDuration;
+  private final double gridSizeMeters;
+  private final double offRoadDistanceMeters;
+  private final Coordinate center;
+  private final double cosLat;
+  private final double dX;
+  private final double dY;
+  private final LoadingCache<RegularStop, Table> tables;
+
+  StopEgressGrid(
+    Graph graph,
+    RouteRequest walkRequest,
+    double gridSizeMeters,
+    double offRoadDistanceMeters,
+    long maxCachedCells
+  ) {
+    this.graph = graph;
+    this.walkRequest = walkRequest;
+    this.maxWalkDuration =
+      walkRequest.preferences().street().maxAccessEgressDuration().valueOf(StreetMode.WALK);
+    this.gridSizeMeters = gridSizeMeters;
+    this.offRoadDistanceMeters = offRoadDistanceMeters;
+
+    var envelope = graph.getEnvelope();
+    this.center =
+      new Coordinate(
+        (envelope.getLowerLeftLongitude() + envelope.getUpperRightLongitude()) / 2,
+        (envelope.getLowerLeftLatitude() + envelope.getUpperRightLatitude()) / 2
+      );
+    this.cosLat = Math.cos(Math.toRadians(center.y));
+    this.dY = Math.toDegrees(gridSizeMeters / SphericalDistanceLibrary.RADIUS_OF_EARTH_IN_M);
+    this.dX = dY / cosLat;
+
+    this.tables =
+      CacheBuilder
+        .newBuilder()
+        .maximumWeight(maxCachedCells)
+        .<RegularStop, Table>weigher((stop, table) -> table.size())
+        .build(CacheLoader.from(this::computeTable));
+  }
+
+  /**
+   * Return the grid of the graph, the grid is created the first time it is used.
+   */
+  public static synchronized StopEgressGrid forGraph(
+    Graph graph,
+    RouteRequest defaultRequest,
+    TravelTimeRequest traveltimeRequest
+  ) {
+    var grid = graph.getStopEgressGrid();
+    if (grid == null) {
+      grid =
+        new StopEgressGrid(
+          graph,
+          defaultRequest.clone(),
+          traveltimeRequest.precisionMeters,
+          traveltimeRequest.offRoadDistanceMeters,
+          MAX_CACHED_CELLS
+        );
+      graph.setStopEgressGrid(grid);
+    }
+    return grid;
+  }
+
+  /**
+   * Create an empty sample grid aligned with the cells of the tables.
+   */
+  public SparseMatrixZSampleGrid<WTWD> newSampleGrid(int totalSize) {
+    return new SparseMatrixZSampleGrid<>(16, totalSize, dX, dY, center);
+  }
+
+  public double cosLat() {
+    return cosLat;
+  }
+
+  /**
+   * Sample the street search from the origin in a new grid aligned with the cells of the tables.
+   * The sampler is closed, like the tables, so the origin and the stops can be combined by taking
+   * the earliest time of each cell.
+   */
+  public SparseMatrixZSampleGrid<WTWD> sampleOrigin(ShortestPathTree spt, int maxTimeSec) {
+    return sample(spt, maxTimeSec);
+  }
+
+  /**
+   * Add the cells reached from the given stops to the sample grid. A cell is updated if it is
+   * reached earlier from a stop than the time already in the grid.
+   *
+   * @param arrivalTimes The arrival time at each stop, in seconds after the start of the search.
+   * @param maxTimeSec Cells reached at or after this time are not added.
+   */
+  public void addStopArrivals(
+    SparseMatrixZSampleGrid<WTWD> sampleGrid,
+    List<RegularStop> stops,
+    int[] arrivalTimes,
+    int maxTimeSec
+  ) {
+    GridTimes cells = newGridTimes(stops, null);
+    if (cells == null) {
+      return;
+    }
+    propagate(stops, arrivalTimes, maxTimeSec, cells);
+
+    for (int cell = 0; cell < cells.size(); ++cell) {
+      if (!cells.isReached(cell)) {
+        continue;
+      }
+      ZSamplePoint<WTWD> point = sampleGrid.getOrCreate(cells.x(cell), cells.y(cell));
+      WTWD z = point.getZ();
+      if (z == null || cells.times[cell] < z.wTime / z.w) {
+        z = new WTWD();
+        z.w = 1.0;
+        z.wTime = cells.times[cell];
+        z.wWalkDist = cells.walkDistances[cell];
+        z.d = cells.offRoadDistances[cell];
+        point.setZ(z);
+      }
+    }
+  }
+
+  /**
+   * Create the cells covering the tables of the given stops and the samples of the given grid.
+   * Return {@code null} if there is nothing to cover.
+   */
+  @Nullable
+  GridTimes newGridTimes(List<RegularStop> stops, @Nullable ZSampleGrid<WTWD> sampleGrid) {
+    int xMin = Integer.MAX_VALUE, yMin = Integer.MAX_VALUE;
+    int xMax = Integer.MIN_VALUE, yMax = Integer.MIN_VALUE;
+
+    for (RegularStop stop : stops) {
+      Table table = tables.getUnchecked(stop);
+      if (table.size() > 0) {
+        xMin = Math.min(xMin, table.xMin);
+        yMin = Math.min(yMin, table.yMin);
+        xMax = Math.max(xMax, table.xMax);
+        yMax = Math.max(yMax, table.yMax);
+      }
+    }
+    if (sampleGrid != null && sampleGrid.size() > 0) {
+      xMin = Math.min(xMin, sampleGrid.getXMin());
+      yMin = Math.min(yMin, sampleGrid.getYMin());
+      xMax = Math.max(xMax, sampleGrid.getXMax());
+      yMax = Math.max(yMax, sampleGrid.getYMax());
+    }
+    return xMin > xMax ? null : new GridTimes(xMin, yMin, xMax, yMax);
+  }
+
+  /**
+   * Min-plus propagation of the arrival times at the stops over the cells of their tables. The
+   * cells must cover the tables of the stops, see {@link #newGridTimes(List, ZSampleGrid)}.
+   *
+   * @param arrivalTimes The arrival time at each stop, in seconds after the start of the search.
+   * @param maxTimeSec Cells reached at or after this time are not updated.
+   */
+  void propagate(List<RegularStop> stops, int[] arrivalTimes, int maxTimeSec, GridTimes cells) {
+    for (int i = 0; i < stops.size(); ++i) {
+      int arrivalTime = arrivalTimes[i];
+      if (arrivalTime >= maxTimeSec) {
+        continue;
+      }
+      Table table = tables.getUnchecked(stops.get(i));
+      for (int k = 0; k < table.size(); ++k) {
+        int time = arrivalTime + table.times[k];
+        // The cells of a table are sorted by time
+        if (time >= maxTimeSec) {
+          break;
+        }
+        cells.update(
+          cells.index(table.xs[k], table.ys[k]),
+          time,
+          table.walkDistances[k],
+          table.offRoadDistances[k]
+        );
+      }
+    }
+  }
+
+  /**
+   * Set the cells to the travel times of one departure: the earliest of the samples of the origin
+   * grid, and of the arrival at each stop plus the walk time from the stop. This gives the same
+   * times as {@link #addStopArrivals(SparseMatrixZSampleGrid, List, int[], int)} on the origin
+   * grid.
+   */
+  void departureTimes(
+    ZSampleGrid<WTWD> originGrid,
+    List<RegularStop> stops,
+    int[] arrivalTimes,
+    int maxTimeSec,
+    GridTimes cells
+  ) {
+    cells.clear();
+    cells.update(originGrid, maxTimeSec);
+    propagate(stops, arrivalTimes, maxTimeSec, cells);
+  }
+
+  /**
+   * The total number of cells in the cached tables, this is the weight of the cache.
+   */
+  long cachedCells() {
+    return tables.asMap().values().stream().mapToLong(Table::size).sum();
+  }
+
+  private Table computeTable(RegularStop stop) {
+    Vertex vertex = graph.getStopVertexForStopId(stop.getId());
+    if (vertex == null) {
+      return Table.EMPTY;
+    }
+    var spt = AStarBuilder
+      .allDirectionsMaxDuration(maxWalkDuration)
+      .setRequest(walkRequest)
+      .setStreetRequest(new StreetRequest(StreetMode.WALK))
+      .setFrom(vertex)
+      .setDominanceFunction(new DominanceFunction.EarliestArrival())
+      .getShortestPathTree();
+
+    SparseMatrixZSampleGrid<WTWD> sampleGrid = sample(spt, (int) maxWalkDuration.toSeconds());
+    List<ZSamplePoint<WTWD>> points = new ArrayList<>(sampleGrid.size());
+    for (ZSamplePoint<WTWD> point : sampleGrid) {
+      if (point.getZ() != null) {
+        points.add(point);
+      }
+    }
+    points.sort(Comparator.comparingDouble(p -> p.getZ().wTime / p.getZ().w));
+    return new Table(points);
+  }
+
+  private SparseMatrixZSampleGrid<WTWD> sample(ShortestPathTree spt, int maxTimeSec) {
+    SparseMatrixZSampleGrid<WTWD> sampleGrid = newSampleGrid(spt.getVertexCount());
+    SampleGridRenderer
+      .sampleSPT(
+        spt,
+        sampleGrid,
+        gridSizeMeters,
+        offRoadDistanceMeters,
+        SampleGridRenderer.OFF_ROAD_WALK_SPEED_MPS,
+        maxTimeSec,
+        cosLat
+      )
+      .close();
+    return sampleGrid;
+  }
+
+  /**
+   * The cells reached from one stop, sorted by time, in primitive arrays.
+   */
+  private static class Table {
+
+    private static final Table EMPTY = new Table(List.of());
+
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] times;
+    private final float[] walkDistances;
+    private final float[] offRoadDistances;
+    private int xMin = Integer.MAX_VALUE, yMin = Integer.MAX_VALUE;
+    private int xMax = Integer.MIN_VALUE, yMax = Integer.MIN_VALUE;
+
+    private Table(List<ZSamplePoint<WTWD>> points) {
+      int n = points.size();
+      this.xs = new int[n];
+      this.ys = new int[n];
+      this.times = new int[n];
+      this.walkDistances = new float[n];
+      this.offRoadDistances = new float[n];
+      for (int i = 0; i < n; ++i) {
+        var point = points.get(i);
+        var z = point.getZ();
+        xs[i] = point.getX();
+        ys[i] = point.getY();
+        times[i] = (int) Math.round(z.wTime / z.w);
+        walkDistances[i] = (float) (z.wWalkDist / z.w);
+        offRoadDistances[i] = (float) z.d;
+        xMin = Math.min(xMin, xs[i]);
+        yMin = Math.min(yMin, ys[i]);
+        xMax = Math.max(xMax, xs[i]);
+        yMax = Math.max(yMax, ys[i]);
+      }
+    }
+
+    private int size() {
+      return times.length;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package org.opentripplanner.ext.traveltime;
+
+import java.util.Arrays;
+
+/**
+ * The travel time to each cell for each departure time in a window, used to compute percentiles
+ * of the travel time of each cell. The times are kept cell by cell in one array, so the times of a
+ * cell can be sorted in place.
+ * <p>
+ * A cell not reached for a departure has the travel time {@link GridTimes#UNREACHED}, if the
+ * percentile falls on such a departure the cell is not reached for the percentile.
+ */
+class TravelTimePercentiles {
+
+  private final int nCells;
+  private final int nDepartures;
+  private final int[] times;
+  private int nAdded = 0;
+
+  TravelTimePercentiles(int nCells, int nDepartures) {
+    this.nCells = nCells;
+    this.nDepartures = nDepartures;
+    this.times = new int[nCells * nDepartures];
+  }
+
+  /**
+   * Add the travel times of the next departure.
+   */
+  void add(GridTimes departure) {
+    if (nAdded == nDepartures) {
+      throw new IllegalStateException("All " + nDepartures + " departures are added.");
+    }
+    for (int cell = 0; cell < nCells; ++cell) {
+      times[cell * nDepartures + nAdded] = departure.times[cell];
+    }
+    ++nAdded;
+  }
+
+  /**
+   * Return the travel time of each cell for each of the given percentiles, using the nearest-rank
+   * method. The 0th percentile is the minimum travel time.
+   */
+  int[][] percentiles(int... percentiles) {
+    int[][] result = new int[percentiles.length][nCells];
+    if (nAdded == 0) {
+      for (int[] band : result) {
+        Arrays.fill(band, GridTimes.UNREACHED);
+      }
+      return result;
+    }
+    for (int cell = 0; cell < nCells; ++cell) {
+      int from = cell * nDepartures;
+      Arrays.sort(times, from, from + nAdded);
+      for (int p = 0; p < percentiles.length; ++p) {
+        result[p][cell] = times[from + rank(percentiles[p], nAdded)];
+      }
+    }
+    return result;
+  }
+
+  static int rank(int percentile, int n) {
+    int rank = (int) Math.ceil(percentile / 100.0 * n) - 1;
+    return Math.max(0, Math.min(n - 1, rank));
+  }
+}
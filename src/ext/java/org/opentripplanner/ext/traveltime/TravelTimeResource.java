@@ -2,7 +2,10 @@ package org.opentripplanner.ext.traveltime;
 
 import static javax.imageio.ImageWriteParam.MODE_EXPLICIT;
 
+import gnu.trove.list.array.TIntArrayList;
 import java.awt.image.DataBuffer;
+import java.awt.image.WritableRaster;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.Period;
@@ -14,6 +17,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import javax.media.jai.RasterFactory;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -72,6 +76,7 @@ import org.opentripplanner.transit.raptor.api.request.RaptorRequest;
 import org.opentripplanner.transit.raptor.api.request.RaptorRequestBuilder;
 import org.opentripplanner.transit.raptor.api.response.RaptorResponse;
 import org.opentripplanner.transit.raptor.api.response.StopArrivals;
+import org.opentripplanner.transit.raptor.api.response.StopArrivalsListener;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTransfer;
 import org.opentripplanner.transit.service.TransitService;
 import org.opentripplanner.util.time.DurationUtils;
@@ -82,10 +87,18 @@ public class TravelTimeResource {
 
   private static final SimpleFeatureType contourSchema = makeContourSchema();
 
+  /** The max departure window, the travel times of each departure minute are kept in memory. */
+  private static final Duration MAX_DEPARTURE_WINDOW = Duration.ofHours(2);
+
+  /** The default percentiles of a departure window surface: min, median and 90th percentile. */
+  private static final List<Integer> DEFAULT_PERCENTILES = List.of(0, 50, 90);
+
   private final RouteRequest routingRequest;
   private final RaptorRoutingRequestTransitData requestTransitDataProvider;
   private final Instant startTime;
   private final Instant endTime;
+  private final Duration departureWindow;
+  private final int[] percentiles;
   private final ZonedDateTime startOfTime;
   private final TravelTimeRequest traveltimeRequest;
   private final RaptorService<TripSchedule> raptorService;
@@ -97,7 +110,9 @@ public class TravelTimeResource {
     @QueryParam("location") String location,
     @QueryParam("time") String time,
     @QueryParam("cutoff") @DefaultValue("60m") List<String> cutoffs,
-    @QueryParam("modes") String modes
+    @QueryParam("modes") String modes,
+    @QueryParam("window") String window,
+    @QueryParam("percentile") List<Integer> percentiles
   ) {
     this.graph = serverContext.graph();
     this.transitService = serverContext.transitService();
@@ -123,7 +138,21 @@ public class TravelTimeResource {
       startTime = Instant.now();
     }
 
-    endTime = startTime.plus(traveltimeRequest.maxCutoff);
+    departureWindow = window == null ? Duration.ZERO : DurationUtils.duration(window);
+    if (departureWindow.isNegative() || departureWindow.compareTo(MAX_DEPARTURE_WINDOW) > 0) {
+      throw new BadRequestException("The window must be between 0 and " + MAX_DEPARTURE_WINDOW);
+    }
+    this.percentiles =
+      (percentiles == null || percentiles.isEmpty() ? DEFAULT_PERCENTILES : percentiles).stream()
+        .mapToInt(Integer::intValue)
+        .toArray();
+    for (int percentile : this.percentiles) {
+      if (percentile < 0 || percentile > 100) {
+        throw new BadRequestException("A percentile must be between 0 and 100: " + percentile);
+      }
+    }
+
+    endTime = startTime.plus(departureWindow).plus(traveltimeRequest.maxCutoff);
 
     ZoneId zoneId = transitService.getTimeZone();
     LocalDate startDate = LocalDate.ofInstant(startTime, zoneId);
@@ -164,10 +193,19 @@ public class TravelTimeResource {
     return Response.ok().entity(out).build();
   }
 
+  /**
+   * Return the travel time to each cell as a GeoTIFF. If a departure window is given, the image
+   * has one band for each percentile of the travel times of the departures in the window, one
+   * departure each minute. If not, the image has one band with the travel time of the departure at
+   * the given time.
+   */
   @GET
   @Path("/surface")
   @Produces("image/tiff")
   public Response getSurface() {
+    if (!departureWindow.isZero()) {
+      return getPercentileSurface();
+    }
     ZSampleGrid<WTWD> sampleGrid = getSampleGrid();
 
     int minX = sampleGrid.getXMin();
@@ -177,11 +215,6 @@ public class TravelTimeResource {
     int width = sampleGrid.getXMax() - minX + 1;
     int height = maxY - minY + 1;
 
-    Coordinate center = sampleGrid.getCenter();
-
-    double resX = sampleGrid.getCellSize().x;
-    double resY = sampleGrid.getCellSize().y;
-
     var raster = RasterFactory.createBandedRaster(DataBuffer.TYPE_INT, width, height, 1, null);
     var dataBuffer = raster.getDataBuffer();
 
@@ -195,8 +228,139 @@ public class TravelTimeResource {
       raster.setSample(s.getX() - minX, maxY - s.getY(), 0, z.wTime / z.w);
     }
 
+    return geoTiffResponse(raster, minX, minY, sampleGrid.getCenter(), sampleGrid.getCellSize());
+  }
+
+  /**
+   * Run one Range Raptor search over the departure window, and compute the travel time to each
+   * cell for each departure minute using the egress tables of the stops. The street search from
+   * the origin is done once, walking takes the same time for all departures.
+   */
+  private Response getPercentileSurface() {
+    final RouteRequest accessRequest = routingRequest.clone();
+
+    if (accessRequest.journey().access().mode() != StreetMode.WALK) {
+      throw new BadRequestException("The window is only supported with walk access and egress");
+    }
+
+    accessRequest
+      .preferences()
+      .street()
+      .initMaxAccessEgressDuration(traveltimeRequest.maxAccessDuration, Map.of());
+
+    try (
+      var temporaryVertices = new TemporaryVerticesContainer(
+        graph,
+        accessRequest,
+        accessRequest.journey().access().mode(),
+        StreetMode.NOT_SET
+      )
+    ) {
+      var egressGrid = StopEgressGrid.forGraph(graph, routingRequest, traveltimeRequest);
+      int maxTimeSec = (int) traveltimeRequest.maxCutoff.getSeconds();
+
+      final Collection<AccessEgress> accessList = getAccess(accessRequest, temporaryVertices);
+
+      List<RegularStop> stops = List.copyOf(transitService.listRegularStops());
+      List<int[]> departures = new ArrayList<>();
+      route(
+        accessList,
+        departureWindow,
+        (departureTime, arrivals) -> {
+          int[] arrivalTimes = new int[stops.size()];
+          for (int i = 0; i < arrivalTimes.length; ++i) {
+            int index = stops.get(i).getIndex();
+            arrivalTimes[i] =
+              arrivals.reachedByTransit(index)
+                ? arrivals.bestTransitArrivalTime(index) - departureTime
+                : GridTimes.UNREACHED;
+          }
+          departures.add(arrivalTimes);
+        }
+      );
+
+      // Keep only the stops reached from at least one departure
+      TIntArrayList reached = new TIntArrayList();
+      for (int i = 0; i < stops.size(); ++i) {
+        for (int[] arrivalTimes : departures) {
+          if (arrivalTimes[i] < maxTimeSec) {
+            reached.add(i);
+            break;
+          }
+        }
+      }
+      List<RegularStop> reachedStops = new ArrayList<>(reached.size());
+      for (int i = 0; i < reached.size(); ++i) {
+        reachedStops.add(stops.get(reached.get(i)));
+      }
+
+      var spt = AStarBuilder
+        .allDirectionsMaxDuration(traveltimeRequest.maxCutoff)
+        .setRequest(routingRequest)
+        .setStreetRequest(accessRequest.journey().access())
+        .setVerticesContainer(temporaryVertices)
+        .setDominanceFunction(new DominanceFunction.EarliestArrival())
+        .setInitialStates(getOriginStates(temporaryVertices))
+        .getShortestPathTree();
+      var originGrid = egressGrid.sampleOrigin(spt, maxTimeSec);
+
+      GridTimes cells = egressGrid.newGridTimes(reachedStops, originGrid);
+      if (cells == null) {
+        cells = new GridTimes(0, 0, 0, 0);
+      }
+      var travelTimes = new TravelTimePercentiles(cells.size(), departures.size());
+      for (int[] arrivalTimes : departures) {
+        int[] reachedArrivalTimes = new int[reached.size()];
+        for (int i = 0; i < reachedArrivalTimes.length; ++i) {
+          reachedArrivalTimes[i] = arrivalTimes[reached.get(i)];
+        }
+        egressGrid.departureTimes(originGrid, reachedStops, reachedArrivalTimes, maxTimeSec, cells);
+        travelTimes.add(cells);
+      }
+      int[][] bands = travelTimes.percentiles(percentiles);
+
+      var raster = RasterFactory.createBandedRaster(
+        DataBuffer.TYPE_INT,
+        cells.width,
+        cells.height,
+        bands.length,
+        null
+      );
+      int maxY = cells.yMin + cells.height - 1;
+      for (int band = 0; band < bands.length; ++band) {
+        for (int cell = 0; cell < cells.size(); ++cell) {
+          int time = bands[band][cell];
+          raster.setSample(
+            cells.x(cell) - cells.xMin,
+            maxY - cells.y(cell),
+            band,
+            time == GridTimes.UNREACHED ? Integer.MIN_VALUE : time
+          );
+        }
+      }
+
+      return geoTiffResponse(
+        raster,
+        cells.xMin,
+        cells.yMin,
+        originGrid.getCenter(),
+        originGrid.getCellSize()
+      );
+    }
+  }
+
+  private static Response geoTiffResponse(
+    WritableRaster raster,
+    int minX,
+    int minY,
+    Coordinate center,
+    Coordinate cellSize
+  ) {
+    double resX = cellSize.x;
+    double resY = cellSize.y;
+
     Envelope2D geom = new GridGeometry2D(
-      new GridEnvelope2D(0, 0, width, height),
+      new GridEnvelope2D(0, 0, raster.getWidth(), raster.getHeight()),
       new AffineTransform2D(resX, 0, 0, resY, center.x + resX * minX, center.y + resY * minY),
       DefaultGeographicCRS.WGS84
     )
@@ -238,6 +402,10 @@ public class TravelTimeResource {
 
       var arrivals = route(accessList).getArrivals();
 
+      if (accessRequest.journey().access().mode() == StreetMode.WALK) {
+        return getSampleGridFromEgressTables(arrivals, accessRequest, temporaryVertices);
+      }
+
       var spt = AStarBuilder
         .allDirectionsMaxDuration(traveltimeRequest.maxCutoff)
         .setRequest(routingRequest)
@@ -251,6 +419,46 @@ public class TravelTimeResource {
     }
   }
 
+  /**
+   * Only search the streets from the origin, the cells reached from the stops are taken from the
+   * precomputed walk tables of the {@link StopEgressGrid}.
+   */
+  private ZSampleGrid<WTWD> getSampleGridFromEgressTables(
+    StopArrivals arrivals,
+    RouteRequest accessRequest,
+    TemporaryVerticesContainer temporaryVertices
+  ) {
+    var egressGrid = StopEgressGrid.forGraph(graph, routingRequest, traveltimeRequest);
+
+    var spt = AStarBuilder
+      .allDirectionsMaxDuration(traveltimeRequest.maxCutoff)
+      .setRequest(routingRequest)
+      .setStreetRequest(accessRequest.journey().access())
+      .setVerticesContainer(temporaryVertices)
+      .setDominanceFunction(new DominanceFunction.EarliestArrival())
+      .setInitialStates(getOriginStates(temporaryVertices))
+      .getShortestPathTree();
+
+    int departureTime = ServiceDateUtils.secondsSinceStartOfTime(startOfTime, startTime);
+    List<RegularStop> stops = new ArrayList<>();
+    TIntArrayList arrivalTimes = new TIntArrayList();
+    for (RegularStop stop : transitService.listRegularStops()) {
+      int index = stop.getIndex();
+      if (arrivals.reachedByTransit(index)) {
+        stops.add(stop);
+        arrivalTimes.add(arrivals.bestTransitArrivalTime(index) - departureTime);
+      }
+    }
+
+    return SampleGridRenderer.getSampleGrid(
+      spt,
+      egressGrid,
+      stops,
+      arrivalTimes.toArray(),
+      traveltimeRequest
+    );
+  }
+
   private Collection<AccessEgress> getAccess(
     RouteRequest accessRequest,
     TemporaryVerticesContainer temporaryVertices
@@ -270,18 +478,13 @@ public class TravelTimeResource {
     StopArrivals arrivals,
     TemporaryVerticesContainer temporaryVertices
   ) {
-    List<State> initialStates = new ArrayList<>();
+    List<State> initialStates = getOriginStates(temporaryVertices);
 
     StateData stateData = StateData.getInitialStateData(
       routingRequest,
       routingRequest.journey().egress().mode()
     );
 
-    for (var vertex : temporaryVertices.getFromVertices()) {
-      // TODO StateData should be of direct mode here
-      initialStates.add(new State(vertex, startTime, stateData));
-    }
-
     // TODO - Add a method to return all Stops, not StopLocations
     for (RegularStop stop : transitService.listRegularStops()) {
       int index = stop.getIndex();
@@ -301,14 +504,42 @@ public class TravelTimeResource {
     return initialStates;
   }
 
+  private List<State> getOriginStates(TemporaryVerticesContainer temporaryVertices) {
+    List<State> initialStates = new ArrayList<>();
+
+    StateData stateData = StateData.getInitialStateData(
+      routingRequest,
+      routingRequest.journey().egress().mode()
+    );
+
+    for (var vertex : temporaryVertices.getFromVertices()) {
+      // TODO StateData should be of direct mode here
+      initialStates.add(new State(vertex, startTime, stateData));
+    }
+    return initialStates;
+  }
+
   private RaptorResponse<TripSchedule> route(Collection<? extends RaptorTransfer> accessList) {
+    return route(accessList, Duration.ZERO, StopArrivalsListener.NOOP);
+  }
+
+  /**
+   * Run a best time search, over the departure window if it is longer than one minute. The
+   * listener is notified with the stop arrivals of each departure minute.
+   */
+  private RaptorResponse<TripSchedule> route(
+    Collection<? extends RaptorTransfer> accessList,
+    Duration window,
+    StopArrivalsListener stopArrivalsListener
+  ) {
     final RaptorRequest<TripSchedule> request = new RaptorRequestBuilder<TripSchedule>()
       .profile(RaptorProfile.BEST_TIME)
+      .stopArrivalsListener(stopArrivalsListener)
       .searchParams()
       .earliestDepartureTime(ServiceDateUtils.secondsSinceStartOfTime(startOfTime, startTime))
       .latestArrivalTime(ServiceDateUtils.secondsSinceStartOfTime(startOfTime, endTime))
       .addAccessPaths(accessList)
-      .searchOneIterationOnly()
+      .searchWindow(window)
       .timetableEnabled(false)
       .allowEmptyEgressPaths(true)
       .constrainedTransfersEnabled(false) // TODO: Not compatible with best times
@@ -0,0 +1,45 @@
+package org.opentripplanner.ext.traveltime;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The threads used to sample the street search and to compute the isochrones of a request in
+ * parallel. The pool is shared by all requests, each request waits for its own tasks. The tasks
+ * must not submit other tasks to the pool.
+ */
+final class TravelTimeThreadPool {
+
+  private static final ExecutorService threadPool = Executors.newFixedThreadPool(
+    Runtime.getRuntime().availableProcessors(),
+    new ThreadFactoryBuilder().setNameFormat("TravelTime-%d").setDaemon(true).build()
+  );
+
+  private TravelTimeThreadPool() {}
+
+  /**
+   * Run the tasks in the pool and return their results in the same order as the tasks.
+   */
+  static <T> List<T> invokeAll(List<Callable<T>> tasks) {
+    try {
+      List<T> results = new ArrayList<>(tasks.size());
+      for (Future<T> future : threadPool.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new RuntimeException(e.getCause());
+    }
+  }
+}
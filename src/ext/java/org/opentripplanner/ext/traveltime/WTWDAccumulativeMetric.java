@@ -57,6 +57,17 @@ public class WTWDAccumulativeMetric implements AccumulativeMetric<WTWD> {
     return zS;
   }
 
+  @Override
+  public WTWD combine(WTWD z, WTWD z2) {
+    z.w += z2.w;
+    z.wTime += z2.wTime;
+    z.wWalkDist += z2.wWalkDist;
+    if (z2.d < z.d) {
+      z.d = z2.d;
+    }
+    return z;
+  }
+
   /**
    * A Generated closing sample take 1) as off-road distance, the minimum of the off-road distance
    * of all enclosing samples, plus the grid size, and 2) as time the minimum time of all enclosing
@@ -54,6 +54,23 @@ public class AccumulativeGridSampler<TZ> {
     }
   }
 
+  /**
+   * Add the samples cumulated in another grid, with the same center and cell size, using the
+   * metric to combine the values of the points in both grids. This is used to sample separate
+   * sets of points in parallel. The z values of the other grid are not copied, do not use the
+   * other grid after this.
+   */
+  public final void addSamples(ZSampleGrid<TZ> other) {
+    if (closed) throw new IllegalStateException("Can't add samples after closing.");
+    for (ZSamplePoint<TZ> P2 : other) {
+      if (P2.getZ() == null) {
+        continue;
+      }
+      ZSamplePoint<TZ> P = sampleGrid.getOrCreate(P2.getX(), P2.getY());
+      P.setZ(P.getZ() == null ? P2.getZ() : metric.combine(P.getZ(), P2.getZ()));
+    }
+  }
+
   /**
    * Surround all existing samples on the edge by a layer of closing samples.
    */
@@ -31,4 +31,14 @@ public interface AccumulativeMetric<TZ> {
    * @return True if the point "close" the set.
    */
   boolean closeSample(ZSamplePoint<TZ> point);
+
+  /**
+   * Combine two z values cumulated from two separate sets of samples at the same grid point. The
+   * result is the same, up to rounding, as if all the samples were cumulated in the same z value.
+   *
+   * @param z  The z value to add to, may be modified and returned.
+   * @param z2 The z value to add, not modified.
+   * @return The combined z value.
+   */
+  TZ combine(TZ z, TZ z2);
 }
@@ -31,16 +31,9 @@ interface DelaunayEdge<TZ> {
   DelaunayEdge<TZ> getEdge2(boolean ccw);
 
   /**
-   * HACK. This should not be here really. But with Java, attaching some user value to an object
-   * rely on another level of indirection and costly maps/arrays. Exposing this flag directly here
-   * saves *lots* of processing time. TODO Is there a better way to do that?
-   *
-   * @return The flag set by setProcessed.
+   * The index of the edge in the triangulation, from 0 to edgesCount() - 1. Used to keep a flag
+   * for each edge in an array while building an isoline, the flag is not kept on the edge so
+   * several isolines can be built at the same time.
    */
-  boolean isProcessed();
-
-  /**
-   *
-   */
-  void setProcessed(boolean processed);
+  int getIndex();
 }
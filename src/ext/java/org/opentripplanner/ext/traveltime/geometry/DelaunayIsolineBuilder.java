@@ -7,6 +7,7 @@ import static org.locationtech.jts.geom.GeometryFactory.toPolygonArray;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Queue;
 import org.locationtech.jts.algorithm.Area;
@@ -26,6 +27,8 @@ import org.slf4j.LoggerFactory;
  * CW for normal polygons, CCW for "holes". The isoline computation can be called multiple times on
  * the same builder for different z0 value: this will reduce the number of Fz sampling as they are
  * cached in the builder, and reduce the number of time the Delaunay triangulation has to be built.
+ * If debug is off, the isolines for different z0 values can be computed at the same time from
+ * several threads.
  *
  * The algorithm is rather simple: for each edges of the triangulation check if the edge is
  * "cutting" (ie crossing the z0 plane). Then start for each unprocessed cutting edge using a walk
@@ -69,8 +72,8 @@ public class DelaunayIsolineBuilder<TZ> implements IsolineBuilder<TZ> {
   @Override
   public Geometry computeIsoline(TZ z0) {
     Queue<DelaunayEdge<TZ>> processQ = new ArrayDeque<>(triangulation.edgesCount());
+    BitSet processed = new BitSet(triangulation.edgesCount());
     for (DelaunayEdge<TZ> e : triangulation.edges()) {
-      e.setProcessed(false);
       processQ.add(e);
     }
 
@@ -79,8 +82,8 @@ public class DelaunayIsolineBuilder<TZ> implements IsolineBuilder<TZ> {
     List<LinearRing> rings = new ArrayList<>();
     while (!processQ.isEmpty()) {
       DelaunayEdge<TZ> e = processQ.remove();
-      if (e.isProcessed()) continue;
-      e.setProcessed(true);
+      if (processed.get(e.getIndex())) continue;
+      processed.set(e.getIndex());
       int cut = zMetric.cut(e.getA().getZ(), e.getB().getZ(), z0);
       if (cut == 0) {
         continue; // While, next edge
@@ -94,13 +97,13 @@ public class DelaunayIsolineBuilder<TZ> implements IsolineBuilder<TZ> {
         double k = zMetric.interpolate(e.getA().getZ(), e.getB().getZ(), z0);
         Coordinate cC = new Coordinate(cA.x * (1.0 - k) + cB.x * k, cA.y * (1.0 - k) + cB.y * k);
         polyPoints.add(cC);
-        e.setProcessed(true);
+        processed.set(e.getIndex());
         DelaunayEdge<TZ> E1 = e.getEdge1(ccw);
         DelaunayEdge<TZ> E2 = e.getEdge2(ccw);
         int cut1 = E1 == null ? 0 : zMetric.cut(E1.getA().getZ(), E1.getB().getZ(), z0);
         int cut2 = E2 == null ? 0 : zMetric.cut(E2.getA().getZ(), E2.getB().getZ(), z0);
-        boolean ok1 = cut1 != 0 && !E1.isProcessed();
-        boolean ok2 = cut2 != 0 && !E2.isProcessed();
+        boolean ok1 = cut1 != 0 && !processed.get(E1.getIndex());
+        boolean ok2 = cut2 != 0 && !processed.get(E2.getIndex());
         if (ok1) {
           e = E1;
           ccw = cut1 > 0;
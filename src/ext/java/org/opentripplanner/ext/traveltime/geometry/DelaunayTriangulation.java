@@ -10,6 +10,10 @@ package org.opentripplanner.ext.traveltime.geometry;
  * @param <TZ> The value stored for each node.
  */
 public interface DelaunayTriangulation<TZ> {
+  /**
+   * The number of edges, the edges are indexed from 0 to this value - 1. This method and
+   * {@link #edges()} must be thread safe.
+   */
   int edgesCount();
 
   Iterable<? extends DelaunayEdge<TZ>> edges();
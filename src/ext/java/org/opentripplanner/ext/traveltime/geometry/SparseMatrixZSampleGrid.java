@@ -82,7 +82,7 @@ public final class SparseMatrixZSampleGrid<TZ>
 
     private static final int TYPE_DIAGONAL = 2;
 
-    private boolean processed;
+    private final int index;
 
     private final SparseMatrixSamplePoint A, B;
 
@@ -90,7 +90,13 @@ public final class SparseMatrixZSampleGrid<TZ>
 
     private final int type;
 
-    private GridDelaunayEdge(SparseMatrixSamplePoint A, SparseMatrixSamplePoint B, int type) {
+    private GridDelaunayEdge(
+      int index,
+      SparseMatrixSamplePoint A,
+      SparseMatrixSamplePoint B,
+      int type
+    ) {
+      this.index = index;
       this.A = A;
       this.B = B;
       switch (type) {
@@ -122,13 +128,8 @@ public final class SparseMatrixZSampleGrid<TZ>
     }
 
     @Override
-    public boolean isProcessed() {
-      return processed;
-    }
-
-    @Override
-    public void setProcessed(boolean processed) {
-      this.processed = processed;
+    public int getIndex() {
+      return index;
     }
 
     @Override
@@ -269,7 +270,7 @@ public final class SparseMatrixZSampleGrid<TZ>
   }
 
   @Override
-  public int edgesCount() {
+  public synchronized int edgesCount() {
     if (triangulation == null) {
       delaunify();
     }
@@ -277,7 +278,7 @@ public final class SparseMatrixZSampleGrid<TZ>
   }
 
   @Override
-  public Iterable<? extends DelaunayEdge<TZ>> edges() {
+  public synchronized Iterable<? extends DelaunayEdge<TZ>> edges() {
     if (triangulation == null) {
       delaunify();
     }
@@ -299,13 +300,19 @@ public final class SparseMatrixZSampleGrid<TZ>
         B != null ? B.up() : D != null ? D.right() : null
       );
       if (B != null) {
-        triangulation.add(new GridDelaunayEdge(A, B, GridDelaunayEdge.TYPE_HORIZONTAL));
+        triangulation.add(
+          new GridDelaunayEdge(triangulation.size(), A, B, GridDelaunayEdge.TYPE_HORIZONTAL)
+        );
       }
       if (D != null) {
-        triangulation.add(new GridDelaunayEdge(A, D, GridDelaunayEdge.TYPE_VERTICAL));
+        triangulation.add(
+          new GridDelaunayEdge(triangulation.size(), A, D, GridDelaunayEdge.TYPE_VERTICAL)
+        );
       }
       if (C != null) {
-        triangulation.add(new GridDelaunayEdge(A, C, GridDelaunayEdge.TYPE_DIAGONAL));
+        triangulation.add(
+          new GridDelaunayEdge(triangulation.size(), A, C, GridDelaunayEdge.TYPE_DIAGONAL)
+        );
       }
     }
     // 2. Link edges
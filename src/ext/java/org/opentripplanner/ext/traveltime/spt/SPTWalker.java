@@ -36,14 +36,30 @@ public class SPTWalker {
    * Walk over a SPT. Call a visitor for each visited point.
    */
   public void walk(SPTVisitor visitor, double d0) {
-    int nTotal = 0, nSkippedDupEdge = 0, nSkippedNoGeometry = 0;
+    walk(visitor, d0, vertices());
+  }
+
+  /**
+   * The vertices of the SPT.
+   */
+  public Set<Vertex> vertices() {
     Collection<? extends State> allStates = spt.getAllStates();
     Set<Vertex> allVertices = new HashSet<>(spt.getVertexCount());
     for (State s : allStates) {
       allVertices.add(s.getVertex());
     }
-    Set<Edge> processedEdges = new HashSet<>(allVertices.size());
-    for (Vertex v : allVertices) {
+    return allVertices;
+  }
+
+  /**
+   * Walk over the given vertices of the SPT and the edges leading to them. Each edge is only
+   * visited from its end vertex, so the SPT can be walked in parallel by giving disjoint sets of
+   * vertices to several walkers.
+   */
+  public void walk(SPTVisitor visitor, double d0, Collection<Vertex> vertices) {
+    int nTotal = 0, nSkippedDupEdge = 0, nSkippedNoGeometry = 0;
+    Set<Edge> processedEdges = new HashSet<>(vertices.size());
+    for (Vertex v : vertices) {
       State s0 = spt.getState(v);
       if (s0 == null || !s0.isFinal()) continue;
       for (Edge e : s0.getVertex().getIncoming()) {
@@ -134,13 +150,12 @@ public class SPTWalker {
         }
       }
     }
-    LOG.info(
-      "SPTWalker: Generated {} points ({} dup edges, {} no geometry) from {} vertices / {} states.",
+    LOG.debug(
+      "SPTWalker: Generated {} points ({} dup edges, {} no geometry) from {} vertices.",
       nTotal,
       nSkippedDupEdge,
       nSkippedNoGeometry,
-      allVertices.size(),
-      allStates.size()
+      vertices.size()
     );
   }
 }
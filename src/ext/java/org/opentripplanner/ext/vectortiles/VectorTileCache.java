@@ -0,0 +1,79 @@
+package org.opentripplanner.ext.vectortiles;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.wdtinc.mapbox_vector_tile.VectorTile;
+import java.util.function.Supplier;
+import org.opentripplanner.routing.graph.Graph;
+
+/**
+ * A cache of the encoded layers of each tile. The layers are cached one by one, so a layer is
+ * reused when a client requests a different combination of layers. The cache is evicted by the
+ * total size of the encoded layers.
+ * <p>
+ * Each cached layer is stored with the version of the data it was built from. Static layers, like
+ * stops and stations, always have the same version. Realtime layers, like vehicle rental and
+ * parking, use the version of the service which is incremented by the updaters for each update. A
+ * cached layer is only used if the version is the same as the current version of the data.
+ * <p>
+ * THREAD SAFETY - The cache is thread safe. Two requests for the same tile may both build the
+ * layer, the last one is kept.
+ */
+public class VectorTileCache {
+
+  /** The max total size of the cached layers. */
+  private static final long MAX_SIZE_BYTES = 64 * 1024 * 1024;
+
+  private final Cache<TileKey, CachedLayer> cache;
+
+  VectorTileCache(long maxSizeBytes) {
+    this.cache =
+      CacheBuilder
+        .newBuilder()
+        .maximumWeight(maxSizeBytes)
+        .<TileKey, CachedLayer>weigher((key, value) -> value.layer().getSerializedSize())
+        .build();
+  }
+
+  /**
+   * Return the cache of the graph, the cache is created the first time it is used.
+   */
+  public static synchronized VectorTileCache forGraph(Graph graph) {
+    var cache = graph.getVectorTileCache();
+    if (cache == null) {
+      cache = new VectorTileCache(MAX_SIZE_BYTES);
+      graph.setVectorTileCache(cache);
+    }
+    return cache;
+  }
+
+  /**
+   * Return the cached layer of the given tile if it is built from the given version of the data,
+   * if not the layer is built and cached.
+   */
+  VectorTile.Tile.Layer get(
+    String layerName,
+    int z,
+    int x,
+    int y,
+    long version,
+    Supplier<VectorTile.Tile.Layer> buildLayer
+  ) {
+    var key = new TileKey(layerName, z, x, y);
+    var cached = cache.getIfPresent(key);
+    if (cached != null && cached.version() == version) {
+      return cached.layer();
+    }
+    var layer = buildLayer.get();
+    cache.put(key, new CachedLayer(version, layer));
+    return layer;
+  }
+
+  long size() {
+    return cache.size();
+  }
+
+  private record TileKey(String layerName, int z, int x, int y) {}
+
+  private record CachedLayer(long version, VectorTile.Tile.Layer layer) {}
+}
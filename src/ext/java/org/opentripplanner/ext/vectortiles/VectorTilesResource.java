@@ -79,6 +79,8 @@ public class VectorTilesResource {
     List<String> layers = Arrays.asList(requestedLayers.split(","));
 
     int cacheMaxSeconds = Integer.MAX_VALUE;
+    Graph graph = serverContext.graph();
+    VectorTileCache tileCache = VectorTileCache.forGraph(graph);
 
     for (LayerParameters layerParameters : serverContext
       .routerConfig()
@@ -90,11 +92,20 @@ public class VectorTilesResource {
         z <= layerParameters.maxZoom()
       ) {
         cacheMaxSeconds = Math.min(cacheMaxSeconds, layerParameters.cacheMaxSeconds());
+        LayerType layerType = LayerType.valueOf(layerParameters.type());
         mvtBuilder.addLayers(
-          VectorTilesResource.layers
-            .get(LayerType.valueOf(layerParameters.type()))
-            .create(serverContext.graph(), serverContext.transitService(), layerParameters)
-            .build(envelope, layerParameters)
+          tileCache.get(
+            layerParameters.name(),
+            z,
+            x,
+            y,
+            layerVersion(layerType, graph),
+            () ->
+              VectorTilesResource.layers
+                .get(layerType)
+                .create(graph, serverContext.transitService(), layerParameters)
+                .build(envelope, layerParameters)
+          )
         );
       }
     }
@@ -124,6 +135,18 @@ public class VectorTilesResource {
     );
   }
 
+  /**
+   * The version of the data shown in the layer, see {@link VectorTileCache}. The stops and stations
+   * do not change while the server is running.
+   */
+  private static long layerVersion(LayerType layerType, Graph graph) {
+    return switch (layerType) {
+      case Stop, Station -> 0;
+      case VehicleRental -> graph.getVehicleRentalStationService().getVersion();
+      case VehicleParking -> graph.getVehicleParkingService().getVersion();
+    };
+  }
+
   private String getBaseAddress(UriInfo uri, HttpHeaders headers) {
     String protocol;
     if (headers.getRequestHeader("X-Forwarded-Proto") != null) {
@@ -0,0 +1,158 @@
+package org.opentripplanner.common.geometry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compare the latency of finding the nearest edges to a point (edge snapping) using the {@link
+ * HashGridSpatialIndex} and JTS distance (as the VertexLinker did before) with the
+ * {@link PackedSegmentIndex}.
+ * <p>
+ * The "street network" is a synthetic, dense grid of short multi-segment line strings, roughly
+ * the size of a large city. Each invocation snaps {@value N_QUERIES} random points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PackedSegmentIndexBenchmark {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+  private static final double X0 = 10.6;
+  private static final double Y0 = 59.8;
+  private static final double SIZE = 0.3;
+  private static final int N_EDGES = 500_000;
+  private static final int N_QUERIES = 10_000;
+  /** ~100 meters, the initial VertexLinker search radius */
+  private static final double RADIUS_DEG = 0.0009;
+
+  private final Random rand = new Random(42);
+  private final double xScale = Math.cos(Math.toRadians(Y0 + SIZE / 2));
+
+  private List<LineString> edges;
+  private List<Coordinate> points;
+  private HashGridSpatialIndex<LineString> hashGrid;
+  private PackedSegmentIndex<LineString> packed;
+
+  @Setup
+  public void setup() {
+    edges = new ArrayList<>();
+    for (int i = 0; i < N_EDGES; i++) {
+      edges.add(randomEdge());
+    }
+    points = new ArrayList<>();
+    for (int i = 0; i < N_QUERIES; i++) {
+      points.add(randomCoordinate());
+    }
+    hashGrid = buildHashGrid();
+    packed = buildPackedIndex();
+  }
+
+  @Benchmark
+  public HashGridSpatialIndex<LineString> buildHashGrid() {
+    var index = new HashGridSpatialIndex<LineString>();
+    edges.forEach(e -> index.insert(e, e));
+    return index;
+  }
+
+  @Benchmark
+  public PackedSegmentIndex<LineString> buildPackedIndex() {
+    var builder = PackedSegmentIndex.<LineString>of();
+    edges.forEach(e -> builder.add(e, e));
+    return builder.build();
+  }
+
+  @Benchmark
+  public void snapUsingHashGrid(Blackhole blackhole) {
+    for (Coordinate p : points) {
+      blackhole.consume(nearestUsingHashGrid(hashGrid, p));
+    }
+  }
+
+  @Benchmark
+  public void snapUsingPackedIndex(Blackhole blackhole) {
+    for (Coordinate p : points) {
+      blackhole.consume(nearestUsingPackedIndex(packed, p));
+    }
+  }
+
+  private Map<LineString, Double> nearestUsingHashGrid(
+    HashGridSpatialIndex<LineString> index,
+    Coordinate p
+  ) {
+    Envelope env = envelope(p);
+    Point point = GEOMETRY_FACTORY.createPoint(new Coordinate(p.x * xScale, p.y));
+    Map<LineString, Double> result = new HashMap<>();
+    for (LineString e : index.query(env)) {
+      double d = project(e).distance(point);
+      if (d < RADIUS_DEG) {
+        result.put(e, d);
+      }
+    }
+    return result;
+  }
+
+  private Map<LineString, Double> nearestUsingPackedIndex(
+    PackedSegmentIndex<LineString> index,
+    Coordinate p
+  ) {
+    Map<LineString, Double> result = new HashMap<>();
+    index.query(envelope(p), p.x, p.y, xScale, (e, d) -> result.merge(e, d, Math::min));
+    result.values().removeIf(d -> d >= RADIUS_DEG);
+    return result;
+  }
+
+  private Envelope envelope(Coordinate p) {
+    Envelope env = new Envelope(p);
+    env.expandBy(RADIUS_DEG / xScale, RADIUS_DEG);
+    return env;
+  }
+
+  private LineString project(LineString line) {
+    Coordinate[] coords = line.getCoordinates();
+    Coordinate[] projected = new Coordinate[coords.length];
+    for (int i = 0; i < coords.length; i++) {
+      projected[i] = new Coordinate(coords[i].x * xScale, coords[i].y);
+    }
+    return GEOMETRY_FACTORY.createLineString(projected);
+  }
+
+  private LineString randomEdge() {
+    Coordinate[] coords = new Coordinate[2 + rand.nextInt(5)];
+    coords[0] = randomCoordinate();
+    for (int i = 1; i < coords.length; i++) {
+      coords[i] =
+        new Coordinate(
+          coords[i - 1].x + (rand.nextDouble() - 0.5) * 0.0008,
+          coords[i - 1].y + (rand.nextDouble() - 0.5) * 0.0004
+        );
+    }
+    return GEOMETRY_FACTORY.createLineString(coords);
+  }
+
+  private Coordinate randomCoordinate() {
+    return new Coordinate(X0 + rand.nextDouble() * SIZE, Y0 + rand.nextDouble() * SIZE);
+  }
+}
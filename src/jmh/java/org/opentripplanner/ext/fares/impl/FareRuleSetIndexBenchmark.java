@@ -0,0 +1,158 @@
+package org.opentripplanner.ext.fares.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opentripplanner.ext.fares.impl.FareRuleSetIndex.RideSequence;
+import org.opentripplanner.ext.fares.model.FareAttribute;
+import org.opentripplanner.ext.fares.model.FareRuleSet;
+import org.opentripplanner.transit.model.framework.FeedScopedId;
+
+/**
+ * Measure finding the fare rules matching a ride sequence, by checking every rule and by looking
+ * up the candidates in the {@link FareRuleSetIndex}.
+ * <p>
+ * The rules are made to look like a large GTFS fares_v1 feed with zone based fares, like the SF
+ * Bay Area feeds: a fare for each origin/destination zone pair, plus some route fares and a few
+ * fares without restrictions. The ride sequences are one to three rides between random zones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FareRuleSetIndexBenchmark {
+
+  private static final String FEED_ID = "F";
+  private static final int N_ROUTES = 300;
+  private static final int N_RIDE_SEQUENCES = 1024;
+
+  @Param({ "20", "60" })
+  public int nZones;
+
+  private List<FareRuleSet> rules;
+  private FareRuleSetIndex index;
+  private RideSequence[] rideSequences;
+  private int next = 0;
+
+  @Setup
+  public void setup() {
+    var random = new Random(42);
+    rules = new ArrayList<>();
+    for (int from = 0; from < nZones; ++from) {
+      for (int to = 0; to < nZones; ++to) {
+        var rule = ruleSet("od-" + from + "-" + to, 1 + random.nextInt(10));
+        rule.addOriginDestination(zone(from), zone(to));
+        rules.add(rule);
+      }
+    }
+    for (int r = 0; r < N_ROUTES; ++r) {
+      var rule = ruleSet("route-" + r, 2 + random.nextInt(5));
+      rule.addRoute(route(r));
+      rules.add(rule);
+    }
+    for (int i = 0; i < 5; ++i) {
+      rules.add(ruleSet("flat-" + i, 5 + i));
+    }
+    index = new FareRuleSetIndex(rules);
+
+    rideSequences = new RideSequence[N_RIDE_SEQUENCES];
+    for (int i = 0; i < N_RIDE_SEQUENCES; ++i) {
+      int nRides = 1 + random.nextInt(3);
+      Set<String> zones = new HashSet<>();
+      Set<FeedScopedId> routes = new HashSet<>();
+      Set<FeedScopedId> trips = new HashSet<>();
+      String startZone = null;
+      String endZone = null;
+      for (int r = 0; r < nRides; ++r) {
+        String from = zone(random.nextInt(nZones));
+        endZone = zone(random.nextInt(nZones));
+        if (startZone == null) {
+          startZone = from;
+        }
+        zones.add(from);
+        zones.add(endZone);
+        routes.add(route(random.nextInt(N_ROUTES)));
+        trips.add(new FeedScopedId(FEED_ID, "trip-" + random.nextInt(10_000)));
+      }
+      rideSequences[i] =
+        new RideSequence(
+          FEED_ID,
+          startZone,
+          endZone,
+          zones,
+          routes,
+          trips,
+          nRides - 1,
+          nRides * 600L,
+          nRides * 1200L
+        );
+    }
+  }
+
+  @Benchmark
+  public int checkAllRules() {
+    return countMatches(nextRideSequence(), rules);
+  }
+
+  @Benchmark
+  public int checkIndexedCandidates() {
+    var rides = nextRideSequence();
+    return countMatches(rides, index.candidates(rides));
+  }
+
+  private RideSequence nextRideSequence() {
+    next = (next + 1) % N_RIDE_SEQUENCES;
+    return rideSequences[next];
+  }
+
+  private static int countMatches(RideSequence rides, List<FareRuleSet> rules) {
+    int n = 0;
+    for (FareRuleSet rule : rules) {
+      if (
+        rule.matches(
+          rides.startZone(),
+          rides.endZone(),
+          rides.zones(),
+          rides.routes(),
+          rides.trips()
+        )
+      ) {
+        ++n;
+      }
+    }
+    return n;
+  }
+
+  private static String zone(int index) {
+    return "zone-" + index;
+  }
+
+  private static FeedScopedId route(int index) {
+    return new FeedScopedId(FEED_ID, "route-" + index);
+  }
+
+  private static FareRuleSet ruleSet(String id, float price) {
+    FareAttribute attribute = FareAttribute
+      .of(new FeedScopedId(FEED_ID, id))
+      .setPrice(price)
+      .setCurrencyType("USD")
+      .build();
+    return new FareRuleSet(attribute);
+  }
+}
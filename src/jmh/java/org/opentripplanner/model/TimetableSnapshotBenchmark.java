@@ -0,0 +1,91 @@
+package org.opentripplanner.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opentripplanner.ConstantsForTests;
+import org.opentripplanner.transit.model.network.TripPattern;
+import org.opentripplanner.transit.model.timetable.TripTimes;
+
+/**
+ * Measure a realtime update cycle of the {@link TimetableSnapshot}: apply a batch of delayed trip
+ * times, then commit. The commit copies the indexes of the snapshot, so the cost depends on the
+ * number of updated patterns in the snapshot - before each iteration every pattern in the
+ * Portland test graph is updated once, like a busy day with realtime updates for most trips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimetableSnapshotBenchmark {
+
+  private static final LocalDate SERVICE_DATE = LocalDate.of(2009, 10, 1);
+
+  @Param({ "1", "100" })
+  public int updatesPerCommit;
+
+  private final List<TripPattern> patterns = new ArrayList<>();
+  private final List<TripTimes> tripTimes = new ArrayList<>();
+  private TimetableSnapshot snapshot;
+  private Random random;
+
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    var transitModel = ConstantsForTests.getInstance().getCachedPortlandGraph().transitModel();
+    transitModel
+      .getAllTripPatterns()
+      .stream()
+      .sorted(Comparator.comparing(TripPattern::getId))
+      .forEach(pattern -> {
+        for (TripTimes it : pattern.getScheduledTimetable().getTripTimes()) {
+          patterns.add(pattern);
+          tripTimes.add(it);
+        }
+      });
+  }
+
+  @Setup(Level.Iteration)
+  public void setupIteration() {
+    random = new Random(42);
+    snapshot = new TimetableSnapshot();
+    for (int i = 0; i < patterns.size(); ++i) {
+      snapshot.update(patterns.get(i), delayed(tripTimes.get(i), 60), SERVICE_DATE);
+    }
+    snapshot.commit();
+  }
+
+  @Benchmark
+  public TimetableSnapshot updateAndCommit() {
+    for (int i = 0; i < updatesPerCommit; ++i) {
+      int index = random.nextInt(patterns.size());
+      snapshot.update(patterns.get(index), delayed(tripTimes.get(index), 120), SERVICE_DATE);
+    }
+    return snapshot.commit();
+  }
+
+  private static TripTimes delayed(TripTimes scheduled, int delay) {
+    var updated = new TripTimes(scheduled);
+    for (int stop = 0; stop < updated.getNumStops(); ++stop) {
+      updated.updateArrivalDelay(stop, delay);
+      updated.updateDepartureDelay(stop, delay);
+    }
+    return updated;
+  }
+}
@@ -0,0 +1,80 @@
+package org.opentripplanner.routing.algorithm.astar;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opentripplanner.ConstantsForTests;
+import org.opentripplanner.graph_builder.module.NearbyStopFinder;
+import org.opentripplanner.routing.api.request.RouteRequest;
+import org.opentripplanner.routing.graphfinder.NearbyStop;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.transit.service.DefaultTransitService;
+
+/**
+ * Measure the AStar street search used to find the access stops of a transit search, on the
+ * Portland test graph. Each invocation searches from a random street intersection, the sequence
+ * of origins is the same for every run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AccessSearchBenchmark {
+
+  @Param({ "5", "15" })
+  public int maxAccessMinutes;
+
+  private List<IntersectionVertex> origins;
+  private NearbyStopFinder nearbyStopFinder;
+  private RouteRequest request;
+  private Random random;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    var model = ConstantsForTests.getInstance().getCachedPortlandGraph();
+    origins =
+      model
+        .graph()
+        .getVerticesOfType(IntersectionVertex.class)
+        .stream()
+        .sorted(Comparator.comparing(IntersectionVertex::getLabel))
+        .toList();
+    nearbyStopFinder =
+      new NearbyStopFinder(
+        new DefaultTransitService(model.transitModel()),
+        Duration.ofMinutes(maxAccessMinutes),
+        null,
+        true
+      );
+    request = new RouteRequest();
+    random = new Random(42);
+  }
+
+  @Benchmark
+  public List<NearbyStop> accessSearch() {
+    var origin = origins.get(random.nextInt(origins.size()));
+    return nearbyStopFinder.findNearbyStopsViaStreets(
+      Set.of(origin),
+      false,
+      request,
+      request.journey().access()
+    );
+  }
+}
@@ -0,0 +1,63 @@
+package org.opentripplanner.routing.algorithm.raptoradapter.transit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opentripplanner.routing.api.request.RouteRequest;
+
+/**
+ * Measure {@link RaptorTransferIndex#create(List, RouteRequest)}, this is done for every new
+ * combination of transfer request parameters (the result is cached in the {@link
+ * org.opentripplanner.routing.algorithm.raptoradapter.transit.request.RaptorRequestTransferCache}).
+ * <p>
+ * The transfers are straight-line transfers (no edges), each stop has about 30 transfers to
+ * nearby stops. A few of them are duplicates, which is filtered away by the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RaptorTransferIndexBenchmark {
+
+  private static final int TRANSFERS_PER_STOP = 30;
+
+  @Param({ "1000", "10000" })
+  public int nStops;
+
+  private List<List<Transfer>> transfersByStopIndex;
+  private RouteRequest request;
+
+  @Setup
+  public void setup() {
+    var random = new Random(42);
+    transfersByStopIndex = new ArrayList<>(nStops);
+    for (int fromStop = 0; fromStop < nStops; ++fromStop) {
+      var transfers = new ArrayList<Transfer>(TRANSFERS_PER_STOP);
+      for (int i = 0; i < TRANSFERS_PER_STOP; ++i) {
+        int toStop = Math.floorMod(fromStop + random.nextInt(200) - 100, nStops);
+        transfers.add(new Transfer(toStop, 50 + random.nextInt(950)));
+      }
+      transfersByStopIndex.add(transfers);
+    }
+    request = new RouteRequest();
+  }
+
+  @Benchmark
+  public RaptorTransferIndex create() {
+    return RaptorTransferIndex.create(transfersByStopIndex, request);
+  }
+}
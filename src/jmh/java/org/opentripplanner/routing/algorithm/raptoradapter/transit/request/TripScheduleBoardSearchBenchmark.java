@@ -0,0 +1,79 @@
+package org.opentripplanner.routing.algorithm.raptoradapter.transit.request;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opentripplanner.transit.raptor._data.transit.TestRoute;
+import org.opentripplanner.transit.raptor._data.transit.TestTripSchedule;
+import org.opentripplanner.transit.raptor.api.transit.RaptorTripScheduleSearch;
+import org.opentripplanner.transit.raptor.api.transit.SearchDirection;
+
+/**
+ * Measure the board search for the first trip departing after a given time. Timetables with more
+ * trips than the {@link TripScheduleSearchFactory} threshold use a binary search, so run this
+ * with a timetable size on both sides of it.
+ * <p>
+ * The pattern has 10 stops and the trips depart every {@code headwaySeconds} during the day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TripScheduleBoardSearchBenchmark {
+
+  private static final int N_STOPS = 10;
+  private static final int N_SEARCHES = 1024;
+  private static final int DAY_START = 5 * 3600;
+
+  @Param({ "20", "200", "2000" })
+  public int nTrips;
+
+  private RaptorTripScheduleSearch<TestTripSchedule> search;
+  private int[] boardTimes;
+  private int[] stopPositions;
+
+  @Setup
+  public void setup() {
+    int headwaySeconds = Math.max(20 * 3600 / nTrips, 1);
+    var route = TestRoute.route("R1", 0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    for (int i = 0; i < nTrips; ++i) {
+      int[] times = new int[N_STOPS];
+      for (int s = 0; s < N_STOPS; ++s) {
+        times[s] = DAY_START + i * headwaySeconds + s * 120;
+      }
+      route.withTimetable(TestTripSchedule.schedule().times(times));
+    }
+    search = route.tripSearch(SearchDirection.FORWARD);
+
+    var random = new Random(42);
+    boardTimes = new int[N_SEARCHES];
+    stopPositions = new int[N_SEARCHES];
+    for (int i = 0; i < N_SEARCHES; ++i) {
+      // Include a few searches after the last departure
+      boardTimes[i] = DAY_START + random.nextInt(nTrips * headwaySeconds + 1800);
+      stopPositions[i] = random.nextInt(N_STOPS);
+    }
+  }
+
+  /** Each invocation does {@value N_SEARCHES} searches. */
+  @Benchmark
+  public void boardSearch(Blackhole blackhole) {
+    for (int i = 0; i < N_SEARCHES; ++i) {
+      var result = search.search(boardTimes[i], stopPositions[i]);
+      blackhole.consume(result == null ? -1 : result.getTripIndex());
+    }
+  }
+}
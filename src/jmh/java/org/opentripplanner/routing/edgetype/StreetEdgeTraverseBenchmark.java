@@ -0,0 +1,79 @@
+package org.opentripplanner.routing.edgetype;
+
+import java.util.concurrent.TimeUnit;
+import org.locationtech.jts.geom.Coordinate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opentripplanner.routing.api.request.RouteRequest;
+import org.opentripplanner.routing.api.request.StreetMode;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.util.geometry.GeometryUtils;
+
+/**
+ * Measure the cost of traversing a chain of street edges, {@link StreetEdge#traverse} is called
+ * for every edge visited in a street search. Each invocation traverses all edges in the chain,
+ * starting with a new initial state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreetEdgeTraverseBenchmark {
+
+  private static final int N_EDGES = 100;
+
+  @Param({ "WALK", "BIKE", "CAR" })
+  public StreetMode mode;
+
+  private IntersectionVertex origin;
+  private StreetEdge[] edges;
+  private RouteRequest request;
+
+  @Setup
+  public void setup() {
+    var graph = new Graph();
+    edges = new StreetEdge[N_EDGES];
+    origin = new IntersectionVertex(graph, "v0", 10.70, 59.90);
+
+    IntersectionVertex from = origin;
+    for (int i = 0; i < N_EDGES; ++i) {
+      // Zig-zag north, so the turn cost is calculated for every edge
+      var to = new IntersectionVertex(
+        graph,
+        "v" + (i + 1),
+        10.70 + (i % 2) * 0.001,
+        59.90 + (i + 1) * 0.001
+      );
+      var geometry = GeometryUtils
+        .getGeometryFactory()
+        .createLineString(new Coordinate[] { from.getCoordinate(), to.getCoordinate() });
+      edges[i] =
+        new StreetEdge(from, to, geometry, "e" + i, 120.0, StreetTraversalPermission.ALL, false);
+      edges[i].setCarSpeed(13.9f);
+      from = to;
+    }
+    request = new RouteRequest();
+  }
+
+  @Benchmark
+  public void traverse(Blackhole blackhole) {
+    var state = new org.opentripplanner.routing.core.State(origin, request, mode);
+    for (StreetEdge edge : edges) {
+      state = edge.traverse(state);
+    }
+    blackhole.consume(state);
+  }
+}
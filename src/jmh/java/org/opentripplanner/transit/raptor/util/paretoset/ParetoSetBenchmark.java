@@ -0,0 +1,64 @@
+package org.opentripplanner.transit.raptor.util.paretoset;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure {@link ParetoSet#add(Object)} with the three criteria used for stop arrivals in
+ * multi-criteria Raptor: arrival-time, number-of-transfers and generalized-cost. Each invocation
+ * adds the same sequence of random vectors to an empty set.
+ * <p>
+ * The {@code spread} controls how many of the vectors end up in the set, with a small spread most
+ * vectors are dominated and rejected.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParetoSetBenchmark {
+
+  private static final int N_VECTORS = 1000;
+
+  private static final ParetoComparator<Vector> COMPARATOR = (l, r) ->
+    l.v1 < r.v1 || l.v2 < r.v2 || l.v3 < r.v3;
+
+  @Param({ "10", "1000" })
+  public int spread;
+
+  private Vector[] vectors;
+
+  @Setup
+  public void setup() {
+    var random = new Random(42);
+    vectors = new Vector[N_VECTORS];
+    for (int i = 0; i < N_VECTORS; ++i) {
+      int arrivalTime = 3600 + random.nextInt(spread * 10);
+      int transfers = random.nextInt(5);
+      // Faster trips are usually more expensive
+      int cost = 100_000 - arrivalTime * 10 + transfers * 600 + random.nextInt(spread * 100);
+      vectors[i] = new Vector("V" + i, arrivalTime, transfers, cost);
+    }
+  }
+
+  @Benchmark
+  public ParetoSet<Vector> add() {
+    var set = new ParetoSet<>(COMPARATOR);
+    for (Vector v : vectors) {
+      set.add(v);
+    }
+    return set;
+  }
+}
@@ -0,0 +1,189 @@
+package org.opentripplanner.common.geometry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.LineString;
+
+/**
+ * A hash grid spatial index safe for concurrent use, intended for data which change while the
+ * index is queried - like the realtime layer of the street network.
+ * <p>
+ * The grid layout is the same as in {@link HashGridSpatialIndex}, but each bin is an immutable
+ * list which is replaced (copy-on-write) when the bin is modified. This gives:
+ * <ul>
+ *   <li>Lock-free reads - a query never blocks and never sees a partially updated bin.</li>
+ *   <li>Writes to different bins do not contend, so writers may run in parallel.</li>
+ *   <li>Batched writes ({@link #update(Collection, Collection)}) copy each affected bin only once,
+ *   independent of the number of items added to or removed from it.</li>
+ * </ul>
+ * Like {@link HashGridSpatialIndex}, the index may return false positives; it is up to the client
+ * to filter them out.
+ *
+ * @param <T> Type of objects to be spatial indexed.
+ */
+public class ConcurrentHashGridSpatialIndex<T> {
+
+  /* Same bin size as the HashGridSpatialIndex default, ~500m */
+  private static final double DEFAULT_Y_BIN_SIZE = 0.005;
+  private static final double DEFAULT_X_BIN_SIZE = 0.0035;
+
+  private final double xBinSize, yBinSize;
+
+  private final Map<Long, List<T>> bins = new ConcurrentHashMap<>();
+
+  public ConcurrentHashGridSpatialIndex(double xBinSize, double yBinSize) {
+    if (xBinSize <= 0 || yBinSize <= 0) {
+      throw new IllegalStateException("bin size must be positive.");
+    }
+    this.xBinSize = xBinSize;
+    this.yBinSize = yBinSize;
+  }
+
+  public ConcurrentHashGridSpatialIndex() {
+    this(DEFAULT_X_BIN_SIZE, DEFAULT_Y_BIN_SIZE);
+  }
+
+  /** Insert the item into every bin touched by one of the line string segments. */
+  public void insert(LineString geom, T item) {
+    update(List.of(new Entry<>(geom, item)), List.of());
+  }
+
+  /** Remove the item from all bins touching the envelope. */
+  public void remove(Envelope envelope, T item) {
+    update(List.of(), List.of(new Entry<>(envelope, item)));
+  }
+
+  /**
+   * Apply a batch of inserts and removals. Items are first grouped by bin, then each affected bin
+   * is replaced once. Each bin is updated atomically, but the batch as a whole is not; a concurrent
+   * query may see some of the bins updated and not others.
+   */
+  public void update(Collection<Entry<T>> toInsert, Collection<Entry<T>> toRemove) {
+    Map<Long, List<T>> insertsByBin = new HashMap<>();
+    Map<Long, Set<T>> removalsByBin = new HashMap<>();
+
+    for (Entry<T> it : toInsert) {
+      visitLineString(
+        it.lineString(),
+        key -> {
+          var bin = insertsByBin.computeIfAbsent(key, k -> new ArrayList<>());
+          // A line string may touch the same bin with several segments
+          if (!bin.contains(it.item())) {
+            bin.add(it.item());
+          }
+        }
+      );
+    }
+    for (Entry<T> it : toRemove) {
+      visitEnvelope(
+        it.envelope(),
+        key -> removalsByBin.computeIfAbsent(key, k -> new HashSet<>()).add(it.item())
+      );
+    }
+
+    Set<Long> keys = new HashSet<>(insertsByBin.keySet());
+    keys.addAll(removalsByBin.keySet());
+
+    for (Long key : keys) {
+      var inserts = insertsByBin.getOrDefault(key, List.of());
+      var removals = removalsByBin.getOrDefault(key, Set.of());
+      bins.compute(key, (k, bin) -> updateBin(bin, inserts, removals));
+    }
+  }
+
+  /**
+   * Return all items in the bins touching the envelope. This never blocks, and can be called while
+   * the index is being updated.
+   */
+  public List<T> query(Envelope envelope) {
+    final Set<T> result = new HashSet<>();
+    visitEnvelope(
+      envelope,
+      key -> {
+        List<T> bin = bins.get(key);
+        if (bin != null) {
+          result.addAll(bin);
+        }
+      }
+    );
+    return new ArrayList<>(result);
+  }
+
+  /** Number of non-empty bins, mostly useful for testing and debugging. */
+  public int numberOfBins() {
+    return bins.size();
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrentHashGridSpatialIndex{" + bins.size() + " bins}";
+  }
+
+  /**
+   * Create a new immutable bin from the existing bin, or return {@code null} if the result is
+   * empty - this removes the bin from the map.
+   */
+  private static <T> List<T> updateBin(List<T> bin, List<T> inserts, Set<T> removals) {
+    List<T> result = new ArrayList<>((bin == null ? 0 : bin.size()) + inserts.size());
+    if (bin != null) {
+      for (T it : bin) {
+        if (!removals.contains(it)) {
+          result.add(it);
+        }
+      }
+    }
+    result.addAll(inserts);
+    return result.isEmpty() ? null : List.copyOf(result);
+  }
+
+  private void visitLineString(LineString geom, LongConsumer visitor) {
+    Coordinate[] coord = geom.getCoordinates();
+    for (int i = 0; i < coord.length - 1; i++) {
+      visitEnvelope(new Envelope(coord[i], coord[i + 1]), visitor);
+    }
+  }
+
+  /**
+   * Visit each bin key touching the envelope, see {@link HashGridSpatialIndex} for details on the
+   * key. The envelope is clamped to valid lat/lon values.
+   */
+  private void visitEnvelope(Envelope envelope, LongConsumer visitor) {
+    long minXKey = Math.round(clamp(envelope.getMinX(), 180) / xBinSize);
+    long maxXKey = Math.round(clamp(envelope.getMaxX(), 180) / xBinSize);
+    long minYKey = Math.round(clamp(envelope.getMinY(), 90) / yBinSize);
+    long maxYKey = Math.round(clamp(envelope.getMaxY(), 90) / yBinSize);
+
+    for (long xKey = minXKey; xKey <= maxXKey; xKey++) {
+      for (long yKey = minYKey; yKey <= maxYKey; yKey++) {
+        visitor.accept((yKey << 32) | ((xKey & 0xFFFF) << 16) | ((xKey >> 16) & 0xFFFF));
+      }
+    }
+  }
+
+  private static double clamp(double value, double limit) {
+    return Math.max(-limit, Math.min(limit, value));
+  }
+
+  /**
+   * An item to insert or remove. Inserts are indexed using the line string segments, while removals
+   * only need the envelope.
+   */
+  public record Entry<T>(LineString lineString, Envelope envelope, T item) {
+    public Entry(LineString lineString, T item) {
+      this(lineString, lineString.getEnvelopeInternal(), item);
+    }
+
+    public Entry(Envelope envelope, T item) {
+      this(null, envelope, item);
+    }
+  }
+}
@@ -146,6 +146,18 @@ public class HashGridSpatialIndex<T> implements SpatialIndex, Serializable {
     }
   }
 
+  /**
+   * Return all the objects in the index, each object once.
+   */
+  public final Set<T> items() {
+    final Set<T> ret = new HashSet<>(nObjects);
+    bins.forEachValue(bin -> {
+      ret.addAll(bin);
+      return true;
+    });
+    return ret;
+  }
+
   public final void insert(LineString geom, final Object item) {
     Coordinate[] coord = geom.getCoordinates();
     final TLongSet keys = new TLongHashSet(coord.length * 8);
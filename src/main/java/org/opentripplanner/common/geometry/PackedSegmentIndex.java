@@ -0,0 +1,372 @@
+package org.opentripplanner.common.geometry;
+
+import java.util.Arrays;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.LineString;
+
+/**
+ * A read-only, packed R-tree over the line segments of a set of line strings. The segments are
+ * sorted along a Hilbert curve and packed bottom-up into nodes of {@link #NODE_SIZE} children, like
+ * the "flatbush" algorithm. Everything is stored in primitive arrays, so the index is compact and
+ * a query does not allocate or decode any geometries.
+ * <p>
+ * The main use-case is to find the nearest line strings (e.g. street edges) to a point: each
+ * segment intersecting the search envelope is visited together with the distance from the point
+ * to the segment, computed directly from the stored coordinates.
+ * <p>
+ * The index can not be modified after it is built, use the {@link Builder}. Querying is
+ * thread-safe.
+ *
+ * @param <T> Type of the items the line strings belong to.
+ */
+public class PackedSegmentIndex<T> {
+
+  private static final int NODE_SIZE = 16;
+
+  /** Number of segments (leaf nodes) */
+  private final int numSegments;
+
+  /** The item index for each segment, in Hilbert order */
+  private final int[] segmentItem;
+
+  /** Segment coordinates (x0, y0, x1, y1) in Hilbert order */
+  private final double[] segmentCoords;
+
+  /**
+   * Bounding boxes (minX, minY, maxX, maxY) for all nodes. The first {@link #numSegments} nodes are
+   * the segments, then follows each level of the tree up to the root.
+   */
+  private final double[] boxes;
+
+  /** For internal nodes: the index of the first child node. Not used for leaf nodes. */
+  private final int[] firstChild;
+
+  /** The upper (exclusive) node index for each level, starting with the leaf level. */
+  private final int[] levelBounds;
+
+  private final Object[] items;
+
+  private PackedSegmentIndex(Builder<T> builder) {
+    this.items = Arrays.copyOf(builder.items, builder.numItems);
+    this.numSegments = builder.numSegments;
+
+    // Calculate the total number of nodes and the bounds of each level
+    int n = numSegments;
+    int numNodes = n;
+    int[] bounds = new int[32];
+    int numLevels = 0;
+    bounds[numLevels++] = numNodes;
+    do {
+      n = (n + NODE_SIZE - 1) / NODE_SIZE;
+      numNodes += n;
+      bounds[numLevels++] = numNodes;
+    } while (n > 1);
+    this.levelBounds = Arrays.copyOf(bounds, numLevels);
+
+    this.boxes = new double[numNodes * 4];
+    this.firstChild = new int[numNodes];
+    this.segmentItem = new int[numSegments];
+    this.segmentCoords = new double[numSegments * 4];
+
+    sortAndCopySegments(builder);
+    buildTree(numNodes);
+  }
+
+  public static <T> Builder<T> of() {
+    return new Builder<>();
+  }
+
+  public int numberOfItems() {
+    return items.length;
+  }
+
+  public int numberOfSegments() {
+    return numSegments;
+  }
+
+  /**
+   * Visit all segments with a bounding box intersecting the given envelope. For each segment the
+   * visitor is called with the item and the distance from the point {@code (x, y)} to the segment.
+   * <p>
+   * The distance is calculated in a simple equirectangular projection, where all x coordinates are
+   * multiplied by {@code xScale}. With geographic coordinates use the cosine of the latitude as the
+   * scale, and the distance is then in degrees latitude. An item with several segments intersecting
+   * the envelope is visited once per segment.
+   */
+  @SuppressWarnings("unchecked")
+  public void query(Envelope envelope, double x, double y, double xScale, Visitor<T> visitor) {
+    if (numSegments == 0) {
+      return;
+    }
+    final double minX = envelope.getMinX();
+    final double minY = envelope.getMinY();
+    final double maxX = envelope.getMaxX();
+    final double maxY = envelope.getMaxY();
+
+    int[] stack = new int[16];
+    int stackSize = 0;
+    int nodeIndex = firstChild.length - 1;
+
+    while (true) {
+      int end = Math.min(nodeIndex + NODE_SIZE, upperBound(nodeIndex));
+
+      for (int pos = nodeIndex; pos < end; ++pos) {
+        int b = pos * 4;
+        if (maxX < boxes[b] || maxY < boxes[b + 1] || minX > boxes[b + 2] || minY > boxes[b + 3]) {
+          continue;
+        }
+        if (nodeIndex < numSegments) {
+          double distance = distanceToSegment(pos, x, y, xScale);
+          visitor.visit((T) items[segmentItem[pos]], distance);
+        } else {
+          if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+          }
+          stack[stackSize++] = firstChild[pos];
+        }
+      }
+      if (stackSize == 0) {
+        return;
+      }
+      nodeIndex = stack[--stackSize];
+    }
+  }
+
+  @Override
+  public String toString() {
+    return (
+      "PackedSegmentIndex{" +
+      items.length +
+      " items, " +
+      numSegments +
+      " segments, " +
+      levelBounds.length +
+      " levels}"
+    );
+  }
+
+  private double distanceToSegment(int segment, double px, double py, double xScale) {
+    int c = segment * 4;
+    double x0 = segmentCoords[c] * xScale;
+    double y0 = segmentCoords[c + 1];
+    double x1 = segmentCoords[c + 2] * xScale;
+    double y1 = segmentCoords[c + 3];
+    px *= xScale;
+
+    double dx = x1 - x0;
+    double dy = y1 - y0;
+    double lengthSquared = dx * dx + dy * dy;
+
+    if (lengthSquared > 0) {
+      double t = ((px - x0) * dx + (py - y0) * dy) / lengthSquared;
+      if (t >= 1) {
+        x0 = x1;
+        y0 = y1;
+      } else if (t > 0) {
+        x0 += dx * t;
+        y0 += dy * t;
+      }
+    }
+    dx = px - x0;
+    dy = py - y0;
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+  /** Return the exclusive upper node index for the level the given node is on. */
+  private int upperBound(int nodeIndex) {
+    for (int bound : levelBounds) {
+      if (nodeIndex < bound) {
+        return bound;
+      }
+    }
+    throw new IllegalStateException("Node index out of range: " + nodeIndex);
+  }
+
+  private void sortAndCopySegments(Builder<T> builder) {
+    if (numSegments == 0) {
+      return;
+    }
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    double[] coords = builder.coords;
+
+    for (int i = 0; i < numSegments * 4; i += 2) {
+      minX = Math.min(minX, coords[i]);
+      maxX = Math.max(maxX, coords[i]);
+      minY = Math.min(minY, coords[i + 1]);
+      maxY = Math.max(maxY, coords[i + 1]);
+    }
+    double width = maxX - minX;
+    double height = maxY - minY;
+    int hilbertMax = (1 << 16) - 1;
+
+    // Sort on the Hilbert value of the segment center, the segment index in the lower 31 bits
+    long[] keys = new long[numSegments];
+    for (int i = 0; i < numSegments; ++i) {
+      int c = i * 4;
+      double cx = (coords[c] + coords[c + 2]) / 2;
+      double cy = (coords[c + 1] + coords[c + 3]) / 2;
+      int hx = width == 0 ? 0 : (int) (hilbertMax * (cx - minX) / width);
+      int hy = height == 0 ? 0 : (int) (hilbertMax * (cy - minY) / height);
+      keys[i] = (Integer.toUnsignedLong(hilbert(hx, hy)) << 31) | i;
+    }
+    Arrays.sort(keys);
+
+    for (int pos = 0; pos < numSegments; ++pos) {
+      int i = (int) (keys[pos] & Integer.MAX_VALUE);
+      System.arraycopy(coords, i * 4, segmentCoords, pos * 4, 4);
+      segmentItem[pos] = builder.segmentItem[i];
+
+      int b = pos * 4;
+      boxes[b] = Math.min(coords[i * 4], coords[i * 4 + 2]);
+      boxes[b + 1] = Math.min(coords[i * 4 + 1], coords[i * 4 + 3]);
+      boxes[b + 2] = Math.max(coords[i * 4], coords[i * 4 + 2]);
+      boxes[b + 3] = Math.max(coords[i * 4 + 1], coords[i * 4 + 3]);
+    }
+  }
+
+  /** Build the internal nodes, level by level, grouping {@link #NODE_SIZE} children per node. */
+  private void buildTree(int numNodes) {
+    int pos = 0;
+    int parent = numSegments;
+
+    for (int level = 0; level < levelBounds.length - 1; ++level) {
+      int end = levelBounds[level];
+      while (pos < end) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        firstChild[parent] = pos;
+
+        for (int i = 0; i < NODE_SIZE && pos < end; ++i, ++pos) {
+          int b = pos * 4;
+          minX = Math.min(minX, boxes[b]);
+          minY = Math.min(minY, boxes[b + 1]);
+          maxX = Math.max(maxX, boxes[b + 2]);
+          maxY = Math.max(maxY, boxes[b + 3]);
+        }
+        int b = parent * 4;
+        boxes[b] = minX;
+        boxes[b + 1] = minY;
+        boxes[b + 2] = maxX;
+        boxes[b + 3] = maxY;
+        ++parent;
+      }
+    }
+    if (parent != numNodes) {
+      throw new IllegalStateException("Expected " + numNodes + " nodes, got " + parent);
+    }
+  }
+
+  /**
+   * Map a 16 bit (x, y) position to its distance along a Hilbert curve. Fast branch-free version,
+   * see http://threadlocalmutex.com/?p=126.
+   */
+  static int hilbert(int x, int y) {
+    int a = x ^ y;
+    int b = 0xFFFF ^ a;
+    int c = 0xFFFF ^ (x | y);
+    int d = x & (y ^ 0xFFFF);
+
+    int A = a | (b >>> 1);
+    int B = (a >>> 1) ^ a;
+    int C = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+    int D = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+    a = A;
+    b = B;
+    c = C;
+    d = D;
+    A = ((a & (a >>> 2)) ^ (b & (b >>> 2)));
+    B = ((a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2)));
+    C ^= ((a & (c >>> 2)) ^ (b & (d >>> 2)));
+    D ^= ((b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2)));
+
+    a = A;
+    b = B;
+    c = C;
+    d = D;
+    A = ((a & (a >>> 4)) ^ (b & (b >>> 4)));
+    B = ((a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4)));
+    C ^= ((a & (c >>> 4)) ^ (b & (d >>> 4)));
+    D ^= ((b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4)));
+
+    a = A;
+    b = B;
+    c = C;
+    d = D;
+    C ^= ((a & (c >>> 8)) ^ (b & (d >>> 8)));
+    D ^= ((b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8)));
+
+    a = C ^ (C >>> 1);
+    b = D ^ (D >>> 1);
+
+    int i0 = x ^ y;
+    int i1 = b | (0xFFFF ^ (i0 | a));
+
+    i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+    i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+    i0 = (i0 | (i0 << 2)) & 0x33333333;
+    i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+    i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+    i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+    i1 = (i1 | (i1 << 2)) & 0x33333333;
+    i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+    return (i1 << 1) | i0;
+  }
+
+  @FunctionalInterface
+  public interface Visitor<T> {
+    void visit(T item, double distance);
+  }
+
+  public static class Builder<T> {
+
+    private Object[] items = new Object[1024];
+    private int numItems = 0;
+    private int[] segmentItem = new int[4096];
+    private double[] coords = new double[4096 * 4];
+    private int numSegments = 0;
+
+    private Builder() {}
+
+    /** Add all segments of the line string to the index. */
+    public Builder<T> add(LineString lineString, T item) {
+      if (numItems == items.length) {
+        items = Arrays.copyOf(items, numItems * 2);
+      }
+      int itemIndex = numItems++;
+      items[itemIndex] = item;
+
+      Coordinate[] points = lineString.getCoordinates();
+      for (int i = 0; i < points.length - 1; ++i) {
+        addSegment(itemIndex, points[i], points[i + 1]);
+      }
+      return this;
+    }
+
+    public PackedSegmentIndex<T> build() {
+      return new PackedSegmentIndex<>(this);
+    }
+
+    private void addSegment(int itemIndex, Coordinate p0, Coordinate p1) {
+      if (numSegments == segmentItem.length) {
+        segmentItem = Arrays.copyOf(segmentItem, numSegments * 2);
+        coords = Arrays.copyOf(coords, numSegments * 2 * 4);
+      }
+      segmentItem[numSegments] = itemIndex;
+      int c = numSegments * 4;
+      coords[c] = p0.x;
+      coords[c + 1] = p0.y;
+      coords[c + 2] = p1.x;
+      coords[c + 3] = p1.y;
+      ++numSegments;
+    }
+  }
+}
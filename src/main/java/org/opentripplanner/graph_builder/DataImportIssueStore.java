@@ -48,6 +48,16 @@ public class DataImportIssueStore {
     add(Issue.issue(type, message, arguments));
   }
 
+  /**
+   * Add the issues collected in another store, the issues are not logged again. Use this to add
+   * issues collected in parallel in a deterministic order.
+   */
+  public void addAll(DataImportIssueStore other) {
+    if (storeIssues) {
+      this.issues.addAll(other.issues);
+    }
+  }
+
   public List<DataImportIssue> getIssues() {
     return this.issues;
   }
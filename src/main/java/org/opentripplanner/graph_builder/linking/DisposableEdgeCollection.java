@@ -38,9 +38,7 @@ public class DisposableEdgeCollection {
    */
   public void disposeEdges() {
     if (scope == Scope.REALTIME) {
-      for (Edge e : edges) {
-        graph.getLinker().removeEdgeFromIndex(e, scope);
-      }
+      graph.getLinker().removeRealTimeEdgesFromIndex(edges);
     }
     Collection<Vertex> vertices = new ArrayList<>();
     for (Edge e : edges) {
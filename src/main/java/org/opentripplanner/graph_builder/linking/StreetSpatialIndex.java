@@ -1,10 +1,19 @@
 package org.opentripplanner.graph_builder.linking;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.LineString;
+import org.opentripplanner.common.geometry.ConcurrentHashGridSpatialIndex;
 import org.opentripplanner.common.geometry.HashGridSpatialIndex;
+import org.opentripplanner.common.geometry.PackedSegmentIndex;
 import org.opentripplanner.routing.graph.Edge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Manages street spatial indexes by scope. When linking vertices, visibility is as follows:
@@ -13,7 +22,12 @@ import org.opentripplanner.routing.graph.Edge;
  * the permanent index and inserts into the realtime index REQUEST: Looks at both the permanent and
  * realtime indexes and does not insert into any index
  * <p>
- * NOTES ON CONCURRENCY: It is possible that an A Star search would find an edge in the
+ * NOTES ON CONCURRENCY: The permanent index is only written to during graph build and is read-only
+ * when serving requests. The realtime index is a {@link ConcurrentHashGridSpatialIndex}, so
+ * request-time linking (reading it) never blocks on, or fails because of, concurrent realtime
+ * updates writing to it.
+ * <p>
+ * It is possible that an A Star search would find an edge in the
  * realTimeIndex which is then removed before the actual routing starts. This could result in a
  * NullPointerException on the from/to vertex of the Edge being routed on. This happens seldom
  * enough that we have not accounted for it.
@@ -31,26 +45,48 @@ import org.opentripplanner.routing.graph.Edge;
  */
 class StreetSpatialIndex {
 
+  private static final Logger LOG = LoggerFactory.getLogger(StreetSpatialIndex.class);
+
   private final HashGridSpatialIndex<Edge> permanentIndex = new HashGridSpatialIndex<>();
 
-  private final HashGridSpatialIndex<Edge> realTimeIndex = new HashGridSpatialIndex<>();
+  private final ConcurrentHashGridSpatialIndex<Edge> realTimeIndex = new ConcurrentHashGridSpatialIndex<>();
+
+  /**
+   * A read-only copy of the permanent index, optimized for finding the nearest edges. It is only
+   * used after {@link #packPermanentIndex()} is called, and only for the version of the permanent
+   * index it is built from.
+   */
+  private volatile PackedIndex packedPermanentIndex = null;
+
+  private volatile boolean packingEnabled = false;
 
-  void insert(LineString lineString, Object obj, Scope scope) {
+  /**
+   * Incremented by each modification of the permanent index. The permanent index is written by a
+   * single thread, so the increment does not need to be atomic.
+   */
+  private volatile long permanentVersion = 0;
+
+  /** Only one thread packs the permanent index, the others use the hash grid meanwhile. */
+  private final ReentrantLock packLock = new ReentrantLock();
+
+  void insert(LineString lineString, Edge edge, Scope scope) {
     switch (scope) {
       case PERMANENT:
-        permanentIndex.insert(lineString, obj);
+        ++permanentVersion;
+        permanentIndex.insert(lineString, edge);
         break;
       case REALTIME:
-        realTimeIndex.insert(lineString, obj);
+        realTimeIndex.insert(lineString, edge);
         break;
       default:
         throw new IllegalArgumentException();
     }
   }
 
-  void remove(Envelope envelope, final Object item, Scope scope) {
+  void remove(Envelope envelope, final Edge item, Scope scope) {
     switch (scope) {
       case PERMANENT:
+        ++permanentVersion;
         permanentIndex.remove(envelope, item);
         return;
       case REALTIME:
@@ -61,6 +97,93 @@ class StreetSpatialIndex {
     }
   }
 
+  /**
+   * Remove a batch of edges from the realtime index. Each affected bin is only updated once,
+   * which is significantly cheaper than removing the edges one by one.
+   */
+  void removeRealTime(Collection<Edge> edges) {
+    List<ConcurrentHashGridSpatialIndex.Entry<Edge>> entries = new ArrayList<>();
+    for (Edge e : edges) {
+      // Edges without geometry will not have been added to the index in the first place
+      if (e.getGeometry() != null) {
+        var envelope = e.getGeometry().getEnvelopeInternal();
+        entries.add(new ConcurrentHashGridSpatialIndex.Entry<>(envelope, e));
+      }
+    }
+    realTimeIndex.update(List.of(), entries);
+  }
+
+  /**
+   * Build a packed copy of the permanent index, and keep it up to date from now on. Call this when
+   * the permanent street network is not expected to change anymore, i.e. when starting to serve
+   * requests.
+   *
+   * @return the number of edges in the packed index
+   */
+  int packPermanentIndex() {
+    packingEnabled = true;
+    packLock.lock();
+    try {
+      return pack().index().numberOfItems();
+    } finally {
+      packLock.unlock();
+    }
+  }
+
+  /**
+   * Return the packed permanent index, or {@code null} if packing is not enabled. If the permanent
+   * index is modified after it is packed, it is packed again by the first thread asking for it.
+   * The other threads get {@code null} until it is done, and fall back to the hash grid.
+   */
+  @Nullable
+  PackedSegmentIndex<Edge> packedPermanentIndex() {
+    if (!packingEnabled) {
+      return null;
+    }
+    PackedIndex packed = packedPermanentIndex;
+    if (packed != null && packed.version() == permanentVersion) {
+      return packed.index();
+    }
+    if (!packLock.tryLock()) {
+      return null;
+    }
+    try {
+      packed = packedPermanentIndex;
+      if (packed == null || packed.version() != permanentVersion) {
+        long start = System.currentTimeMillis();
+        packed = pack();
+        LOG.info(
+          "Packed the modified street index with {} edges in {} ms.",
+          packed.index().numberOfItems(),
+          System.currentTimeMillis() - start
+        );
+      }
+      return packed.index();
+    } finally {
+      packLock.unlock();
+    }
+  }
+
+  /** Pack the permanent index, the caller must hold the pack lock. */
+  private PackedIndex pack() {
+    // A modification while packing changes the version, and the index is packed again
+    long version = permanentVersion;
+    var builder = PackedSegmentIndex.<Edge>of();
+    for (Edge edge : permanentIndex.items()) {
+      if (edge.getGeometry() != null) {
+        builder.add(edge.getGeometry(), edge);
+      }
+    }
+    var packed = new PackedIndex(builder.build(), version);
+    packedPermanentIndex = packed;
+    return packed;
+  }
+
+  /** Query the realtime index only. */
+  final Stream<Edge> queryRealTime(Envelope envelope) {
+    return realTimeIndex.query(envelope).stream();
+  }
+
   final Stream<Edge> query(Envelope envelope, Scope scope) {
     switch (scope) {
       case PERMANENT:
@@ -75,4 +198,6 @@ class StreetSpatialIndex {
         throw new IllegalArgumentException();
     }
   }
+
+  private record PackedIndex(PackedSegmentIndex<Edge> index, long version) {}
 }
@@ -1,17 +1,23 @@
 package org.opentripplanner.graph_builder.linking;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.linearref.LinearLocation;
 import org.locationtech.jts.linearref.LocationIndexedLine;
+import org.opentripplanner.common.geometry.PackedSegmentIndex;
 import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
 import org.opentripplanner.common.model.P2;
 import org.opentripplanner.routing.core.TraverseMode;
@@ -115,6 +121,30 @@ public class VertexLinker {
     }
   }
 
+  /**
+   * Remove a set of edges from the realtime index in one batch. Use this instead of
+   * {@link #removeEdgeFromIndex(Edge, Scope)} when disposing many edges at once.
+   */
+  public void removeRealTimeEdgesFromIndex(Collection<Edge> edges) {
+    streetSpatialIndex.removeRealTime(edges);
+  }
+
+  /**
+   * Pack the permanent street index into a read-only structure optimized for request-time linking.
+   * Call this when the street network is complete and is not expected to change, typically before
+   * starting to serve requests. If the permanent index is modified after this, it is packed again
+   * the next time it is used.
+   */
+  public void packStreetIndex() {
+    long start = System.currentTimeMillis();
+    int nEdges = streetSpatialIndex.packPermanentIndex();
+    LOG.info(
+      "Packed street index with {} edges in {} ms.",
+      nEdges,
+      System.currentTimeMillis() - start
+    );
+  }
+
   public void removePermanentEdgeFromIndex(Edge edge) {
     removeEdgeFromIndex(edge, Scope.PERMANENT);
   }
@@ -261,14 +291,13 @@ public class VertexLinker {
     // street edges traversable by at least one of the given modes and are still present in the
     // graph. Calculate a distance to each of those edges, and keep only the ones within the search
     // radius.
-    List<DistanceTo<StreetEdge>> candidateEdges = streetSpatialIndex
-      .query(env, scope)
-      .filter(StreetEdge.class::isInstance)
-      .map(StreetEdge.class::cast)
-      .filter(e -> e.canTraverse(traverseModes) && edgeReachableFromGraph(e))
-      .map(e -> new DistanceTo<>(e, distance(vertex, e, xscale)))
-      .filter(ead -> ead.distanceDegreesLat < radiusDeg)
-      .collect(Collectors.toList());
+    var packedIndex = scope == Scope.REQUEST ? streetSpatialIndex.packedPermanentIndex() : null;
+
+    List<DistanceTo<StreetEdge>> candidateEdges = packedIndex == null
+      ? findCandidateEdges(streetSpatialIndex.query(env, scope), vertex, traverseModes, xscale)
+      : findCandidateEdges(packedIndex, env, vertex, traverseModes, xscale);
+
+    candidateEdges.removeIf(ead -> ead.distanceDegreesLat >= radiusDeg);
 
     if (candidateEdges.isEmpty()) {
       return Set.of();
@@ -282,6 +311,67 @@ public class VertexLinker {
       .collect(Collectors.toSet());
   }
 
+  /**
+   * Return the traversable street edges among the given edges, with the distance to the vertex.
+   */
+  private static List<DistanceTo<StreetEdge>> findCandidateEdges(
+    Stream<Edge> edges,
+    Vertex vertex,
+    TraverseModeSet traverseModes,
+    double xscale
+  ) {
+    return edges
+      .filter(StreetEdge.class::isInstance)
+      .map(StreetEdge.class::cast)
+      .filter(e -> e.canTraverse(traverseModes) && edgeReachableFromGraph(e))
+      .map(e -> new DistanceTo<>(e, distance(vertex, e, xscale)))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Same as {@link #findCandidateEdges(Stream, Vertex, TraverseModeSet, double)}, but look up the
+   * permanent edges in the packed index. The distances are calculated from the packed segment
+   * coordinates, so the edge geometries are not decoded. The realtime index is small, and is
+   * queried as usual.
+   */
+  private List<DistanceTo<StreetEdge>> findCandidateEdges(
+    PackedSegmentIndex<Edge> packedIndex,
+    Envelope env,
+    Vertex vertex,
+    TraverseModeSet traverseModes,
+    double xscale
+  ) {
+    Map<StreetEdge, DistanceTo<StreetEdge>> closest = new HashMap<>();
+
+    packedIndex.query(
+      env,
+      vertex.getLon(),
+      vertex.getLat(),
+      xscale,
+      (edge, distance) -> {
+        if (edge instanceof StreetEdge se) {
+          var current = closest.get(se);
+          if (current == null) {
+            closest.put(se, new DistanceTo<>(se, distance));
+          } else if (distance < current.distanceDegreesLat) {
+            current.distanceDegreesLat = distance;
+          }
+        }
+      }
+    );
+
+    List<DistanceTo<StreetEdge>> candidates = new ArrayList<>();
+    for (DistanceTo<StreetEdge> it : closest.values()) {
+      if (it.item.canTraverse(traverseModes) && edgeReachableFromGraph(it.item)) {
+        candidates.add(it);
+      }
+    }
+    candidates.addAll(
+      findCandidateEdges(streetSpatialIndex.queryRealTime(env), vertex, traverseModes, xscale)
+    );
+    return candidates;
+  }
+
   /**
    * We need to get the closest edges per mode to be sure that we are linking to edges traversable
    * by all the specified modes. We use a set here to avoid duplicates in the case that edges are
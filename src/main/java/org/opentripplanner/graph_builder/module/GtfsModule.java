@@ -1,15 +1,23 @@
 package org.opentripplanner.graph_builder.module;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.awt.Color;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import org.onebusaway.csv_entities.EntityHandler;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.onebusaway.gtfs.impl.GtfsRelationalDaoImpl;
 import org.onebusaway.gtfs.model.Agency;
 import org.onebusaway.gtfs.model.FareAttribute;
@@ -31,6 +39,7 @@ import org.onebusaway.gtfs.serialization.GtfsReader;
 import org.onebusaway.gtfs.services.GenericMutableDao;
 import org.onebusaway.gtfs.services.GtfsMutableRelationalDao;
 import org.opentripplanner.ext.fares.impl.DefaultFareServiceFactory;
+import org.opentripplanner.ext.fares.model.FareRulesData;
 import org.opentripplanner.ext.flex.FlexTripsMapper;
 import org.opentripplanner.graph_builder.DataImportIssueStore;
 import org.opentripplanner.graph_builder.model.GraphBuilderModule;
@@ -47,7 +56,6 @@ import org.opentripplanner.model.impl.OtpTransitServiceBuilder;
 import org.opentripplanner.routing.fares.FareServiceFactory;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.standalone.config.BuildConfig;
-import org.opentripplanner.transit.model.framework.FeedScopedId;
 import org.opentripplanner.transit.service.TransitModel;
 import org.opentripplanner.util.OTPFeature;
 import org.slf4j.Logger;
@@ -65,7 +73,7 @@ public class GtfsModule implements GraphBuilderModule {
   );
 
   private static final Logger LOG = LoggerFactory.getLogger(GtfsModule.class);
-  private final EntityHandler counter = new EntityCounter();
+  /** Only accessed by one feed at the time, the feeds take turns in order. */
   private final Set<String> agencyIdsSeen = new HashSet<>();
   /**
    * @see BuildConfig#transitServiceStart
@@ -83,6 +91,19 @@ public class GtfsModule implements GraphBuilderModule {
   private final DataImportIssueStore issueStore;
   private int nextAgencyId = 1; // used for generating agency IDs to resolve ID conflicts
 
+  /**
+   * The result of reading and mapping a feed, ready to be added to the graph.
+   */
+  private record GtfsFeed(
+    GtfsBundle bundle,
+    OtpTransitServiceBuilder builder,
+    FareRulesData fareRulesService,
+    CalendarServiceData calendarServiceData,
+    boolean hasFrequencyBasedTrips,
+    boolean hasScheduledTrips,
+    DataImportIssueStore issues
+  ) {}
+
   public GtfsModule(
     List<GtfsBundle> bundles,
     TransitModel transitModel,
@@ -130,44 +151,45 @@ public class GtfsModule implements GraphBuilderModule {
 
     boolean hasTransit = false;
 
-    try {
-      for (GtfsBundle gtfsBundle : gtfsBundles) {
-        GtfsMutableRelationalDao gtfsDao = loadBundle(gtfsBundle);
-        GTFSToOtpTransitServiceMapper mapper = new GTFSToOtpTransitServiceMapper(
-          gtfsBundle.getFeedId().getId(),
-          issueStore,
-          discardMinTransferTimes,
-          gtfsDao
-        );
-        mapper.mapStopTripAndRouteDataIntoBuilder();
-
-        OtpTransitServiceBuilder builder = mapper.getBuilder();
-        var fareRulesService = mapper.getFareRulesService();
-
-        builder.limitServiceDays(transitPeriodLimit);
-
-        calendarServiceData.add(builder.buildCalendarServiceData());
+    int nThreads = Math.max(
+      1,
+      Math.min(gtfsBundles.size(), Runtime.getRuntime().availableProcessors())
+    );
+    ExecutorService executor = Executors.newFixedThreadPool(
+      nThreads,
+      new ThreadFactoryBuilder().setNameFormat("gtfs-loader-%d").setDaemon(true).build()
+    );
 
-        if (OTPFeature.FlexRouting.isOn()) {
-          builder.getFlexTripsById().addAll(FlexTripsMapper.createFlexTrips(builder, issueStore));
+    try {
+      // Feeds are loaded ahead of the feed being added to the graph, one more than the number of
+      // threads keeps all threads busy, while limiting the number of feeds kept in memory.
+      int maxFeedsInFlight = nThreads + 1;
+      Deque<Future<GtfsFeed>> feedsInFlight = new ArrayDeque<>();
+      Iterator<GtfsBundle> it = gtfsBundles.iterator();
+      CompletableFuture<Void> previousFeedAgencies = CompletableFuture.completedFuture(null);
+
+      while (it.hasNext() || !feedsInFlight.isEmpty()) {
+        while (it.hasNext() && feedsInFlight.size() < maxFeedsInFlight) {
+          GtfsBundle gtfsBundle = it.next();
+          var previousAgencies = previousFeedAgencies;
+          var agencies = new CompletableFuture<Void>();
+          feedsInFlight.add(
+            executor.submit(() -> loadAndMapFeed(gtfsBundle, previousAgencies, agencies))
+          );
+          previousFeedAgencies = agencies;
         }
 
-        validateAndInterpolateStopTimesForEachTrip(builder.getStopTimesSortedByTrip(), issueStore);
+        GtfsFeed feed = waitFor(feedsInFlight.poll());
+        issueStore.addAll(feed.issues());
+        OtpTransitServiceBuilder builder = feed.builder();
 
-        GeometryProcessor geometryProcessor = new GeometryProcessor(
-          builder,
-          gtfsBundle.getMaxStopToShapeSnapDistance(),
-          issueStore
-        );
+        calendarServiceData.add(feed.calendarServiceData());
 
-        // NB! The calls below have side effects - the builder state is updated!
-        createTripPatterns(
-          graph,
-          transitModel,
-          builder,
-          calendarServiceData.getServiceIds(),
-          geometryProcessor,
-          issueStore
+        transitModel.setHasFrequencyService(
+          transitModel.hasFrequencyService() || feed.hasFrequencyBasedTrips()
+        );
+        transitModel.setHasScheduledService(
+          transitModel.hasScheduledService() || feed.hasScheduledTrips()
         );
 
         OtpTransitService otpTransitService = builder.build();
@@ -175,7 +197,7 @@ public class GtfsModule implements GraphBuilderModule {
         // if this or previously processed gtfs bundle has transit that has not been filtered out
         hasTransit = hasTransit || otpTransitService.hasActiveTransit();
 
-        addTransitModelToGraph(graph, transitModel, gtfsBundle, otpTransitService);
+        addTransitModelToGraph(graph, transitModel, feed.bundle(), otpTransitService);
 
         if (blockBasedInterlining) {
           new InterlineProcessor(
@@ -187,12 +209,11 @@ public class GtfsModule implements GraphBuilderModule {
             .run(otpTransitService.getTripPatterns());
         }
 
-        fareServiceFactory.processGtfs(fareRulesService, otpTransitService);
+        fareServiceFactory.processGtfs(feed.fareRulesService(), otpTransitService);
         graph.setFareService(fareServiceFactory.makeFareService());
       }
-    } catch (IOException e) {
-      throw new RuntimeException(e);
     } finally {
+      executor.shutdownNow();
       // Note the close method of each bundle should NOT throw an exception, so this
       // code should be safe without the try/catch block.
       gtfsBundles.forEach(GtfsBundle::close);
@@ -213,42 +234,90 @@ public class GtfsModule implements GraphBuilderModule {
   /* Private Methods */
 
   /**
-   * This method has side effects, the {@code stopTimesByTrip} is updated.
+   * Read the bundle, map it into a new {@link OtpTransitServiceBuilder} and generate the trip
+   * patterns. This is done in parallel for all feeds, it must not change any state shared with the
+   * other feeds, except the agency ids and the deduplicator. The issues are collected in a store
+   * for each feed and added to the main issue store in the feed order.
    */
-  private void validateAndInterpolateStopTimesForEachTrip(
-    TripStopTimes stopTimesByTrip,
-    DataImportIssueStore issueStore
-  ) {
-    new ValidateAndInterpolateStopTimesForEachTrip(stopTimesByTrip, true, issueStore).run();
-  }
+  private GtfsFeed loadAndMapFeed(
+    GtfsBundle gtfsBundle,
+    CompletableFuture<Void> previousFeedAgencies,
+    CompletableFuture<Void> agencies
+  ) throws IOException {
+    var feedIssueStore = new DataImportIssueStore();
+
+    GtfsMutableRelationalDao gtfsDao = loadBundle(gtfsBundle, previousFeedAgencies, agencies);
+    GTFSToOtpTransitServiceMapper mapper = new GTFSToOtpTransitServiceMapper(
+      gtfsBundle.getFeedId().getId(),
+      feedIssueStore,
+      discardMinTransferTimes,
+      gtfsDao
+    );
+    mapper.mapStopTripAndRouteDataIntoBuilder();
 
-  /**
-   * This method has side effects, the {@code builder} is updated with new TripPatterns.
-   */
-  private void createTripPatterns(
-    Graph graph,
-    TransitModel transitModel,
-    OtpTransitServiceBuilder builder,
-    Set<FeedScopedId> calServiceIds,
-    GeometryProcessor geometryProcessor,
-    DataImportIssueStore issueStore
-  ) {
+    OtpTransitServiceBuilder builder = mapper.getBuilder();
+
+    builder.limitServiceDays(transitPeriodLimit);
+
+    CalendarServiceData calendarServiceData = builder.buildCalendarServiceData();
+
+    if (OTPFeature.FlexRouting.isOn()) {
+      builder.getFlexTripsById().addAll(FlexTripsMapper.createFlexTrips(builder, feedIssueStore));
+    }
+
+    validateAndInterpolateStopTimesForEachTrip(builder.getStopTimesSortedByTrip(), feedIssueStore);
+
+    GeometryProcessor geometryProcessor = new GeometryProcessor(
+      builder,
+      gtfsBundle.getMaxStopToShapeSnapDistance(),
+      feedIssueStore
+    );
+
+    // NB! The call below has side effects - the builder state is updated!
     GenerateTripPatternsOperation buildTPOp = new GenerateTripPatternsOperation(
       builder,
-      issueStore,
+      feedIssueStore,
       graph.deduplicator,
-      calServiceIds,
+      calendarServiceData.getServiceIds(),
       geometryProcessor
     );
     buildTPOp.run();
-    transitModel.setHasFrequencyService(
-      transitModel.hasFrequencyService() || buildTPOp.hasFrequencyBasedTrips()
-    );
-    transitModel.setHasScheduledService(
-      transitModel.hasScheduledService() || buildTPOp.hasScheduledTrips()
+
+    return new GtfsFeed(
+      gtfsBundle,
+      builder,
+      mapper.getFareRulesService(),
+      calendarServiceData,
+      buildTPOp.hasFrequencyBasedTrips(),
+      buildTPOp.hasScheduledTrips(),
+      feedIssueStore
     );
   }
 
+  private static GtfsFeed waitFor(Future<GtfsFeed> feed) {
+    try {
+      return feed.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * This method has side effects, the {@code stopTimesByTrip} is updated.
+   */
+  private void validateAndInterpolateStopTimesForEachTrip(
+    TripStopTimes stopTimesByTrip,
+    DataImportIssueStore issueStore
+  ) {
+    new ValidateAndInterpolateStopTimesForEachTrip(stopTimesByTrip, true, issueStore).run();
+  }
+
   private void addTransitModelToGraph(
     Graph graph,
     TransitModel transitModel,
@@ -264,7 +333,30 @@ public class GtfsModule implements GraphBuilderModule {
     );
   }
 
-  private GtfsMutableRelationalDao loadBundle(GtfsBundle gtfsBundle) throws IOException {
+  /**
+   * Read the bundle into a new DAO. The agency ids must be unique across all feeds, so the agencies
+   * are checked in the feed order: the agencies of the previous feed must be done before the
+   * agencies of this feed are checked. The {@code agencies} future is completed when this feed is
+   * done with its agencies, the rest of the feed is read in parallel with the other feeds.
+   */
+  private GtfsMutableRelationalDao loadBundle(
+    GtfsBundle gtfsBundle,
+    CompletableFuture<Void> previousFeedAgencies,
+    CompletableFuture<Void> agencies
+  ) throws IOException {
+    try {
+      return readBundle(gtfsBundle, previousFeedAgencies, agencies);
+    } finally {
+      // Do not block the next feed if this one fails
+      agencies.complete(null);
+    }
+  }
+
+  private GtfsMutableRelationalDao readBundle(
+    GtfsBundle gtfsBundle,
+    CompletableFuture<Void> previousFeedAgencies,
+    CompletableFuture<Void> agencies
+  ) throws IOException {
     StoreImpl store = new StoreImpl(new GtfsRelationalDaoImpl());
     store.open();
     LOG.info("reading {}", gtfsBundle.toString());
@@ -277,7 +369,7 @@ public class GtfsModule implements GraphBuilderModule {
     reader.setInternStrings(true);
     reader.setDefaultAgencyId(gtfsFeedId.getId());
 
-    if (LOG.isDebugEnabled()) reader.addEntityHandler(counter);
+    if (LOG.isDebugEnabled()) reader.addEntityHandler(new EntityCounter());
 
     for (Class<?> entityClass : reader.getEntityClasses()) {
       if (skipEntityClass(entityClass)) {
@@ -291,6 +383,7 @@ public class GtfsModule implements GraphBuilderModule {
       // set the agencyId here. Each feed ("bundle") is loaded by a separate reader, so there is no risk of
       // agency mappings accumulating.
       if (entityClass == Agency.class) {
+        previousFeedAgencies.join();
         for (Agency agency : reader.getAgencies()) {
           String agencyId = agency.getId();
           LOG.info("This Agency has the ID {}", agencyId);
@@ -314,6 +407,7 @@ public class GtfsModule implements GraphBuilderModule {
           }
           if (agencyId != null) agencyIdsSeen.add(gtfsFeedId.getId() + agencyId);
         }
+        agencies.complete(null);
       }
     }
 
@@ -13,16 +13,19 @@ import java.io.ObjectOutputStream;
 import java.nio.file.Files;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAccumulator;
 import org.geotools.geometry.DirectPosition2D;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+import org.opengis.coverage.CannotEvaluateException;
 import org.opengis.coverage.Coverage;
 import org.opengis.coverage.PointOutsideCoverageException;
 import org.opengis.referencing.operation.TransformException;
@@ -87,7 +90,6 @@ public class ElevationModule implements GraphBuilderModule {
 
   /** A concurrent hashmap used for storing geoid difference values at various coordinates */
   private final ConcurrentHashMap<Integer, Double> geoidDifferenceCache = new ConcurrentHashMap<>();
-  private final ThreadLocal<Coverage> coverageInterpolatorThreadLocal = new ThreadLocal<>();
   private final DataImportIssueStore issueStore;
   /**
    * A map of PackedCoordinateSequence values identified by Strings of encoded polylines.
@@ -96,12 +98,10 @@ public class ElevationModule implements GraphBuilderModule {
    * inputs are the same as those that occurred in the graph build that produced this data.
    */
   private HashMap<String, PackedCoordinateSequence> cachedElevations;
-  // the first coordinate in the first StreetWithElevationEdge which is used for initializing coverage instances
-  private Coordinate examplarCoordinate;
-  /** Used only when the ElevationModule is requested to be ran with a single thread */
-  private Coverage singleThreadedCoverageInterpolator;
-  private double minElevation = Double.MAX_VALUE;
-  private double maxElevation = Double.MIN_VALUE;
+  /** The elevation coverage, it is thread-safe and shared by all threads. */
+  private Coverage coverage;
+  private final DoubleAccumulator minElevation = new DoubleAccumulator(Math::min, Double.MAX_VALUE);
+  private final DoubleAccumulator maxElevation = new DoubleAccumulator(Math::max, Double.MIN_VALUE);
 
   private final Map<Vertex, Double> elevationData;
 
@@ -180,15 +180,6 @@ public class ElevationModule implements GraphBuilderModule {
     for (Vertex gv : graph.getVertices()) {
       for (Edge ee : gv.getOutgoing()) {
         if (ee instanceof StreetEdge) {
-          if (multiThreadElevationCalculations) {
-            // Multi-threaded execution requested, check and prepare a few things that are used only during
-            // multi-threaded runs.
-            if (examplarCoordinate == null) {
-              // store the first coordinate of the first StreetEdge for later use in initializing coverage
-              // instances
-              examplarCoordinate = ee.getGeometry().getCoordinates()[0];
-            }
-          }
           streetsWithElevationEdges.add((StreetEdge) ee);
         }
       }
@@ -199,6 +190,9 @@ public class ElevationModule implements GraphBuilderModule {
 
     var progress = ProgressTracker.track("Set elevation", 25_000, totalElevationEdges);
 
+    // The raster tiles are read the first time they are used, so this is cheap
+    coverage = gridCoverageFactory.getGridCoverage();
+
     if (multiThreadElevationCalculations) {
       // Multi-threaded execution
       streetsWithElevationEdges
@@ -303,8 +297,8 @@ public class ElevationModule implements GraphBuilderModule {
   private void updateElevationMetadata(Graph graph) {
     if (nPointsOutsideDEM.get() < nPointsEvaluated.get()) {
       graph.hasElevation = true;
-      graph.minElevation = minElevation;
-      graph.maxElevation = maxElevation;
+      graph.minElevation = minElevation.get();
+      graph.maxElevation = maxElevation.get();
     }
   }
 
@@ -373,9 +367,7 @@ public class ElevationModule implements GraphBuilderModule {
    * @param ee the street edge
    */
   private void processEdge(StreetEdge ee) {
-    // First, check if the edge already has been calculated or if it exists in a pre-calculated cache. Checking
-    // with this method avoids potentially waiting for a lock to be released for calculating the thread-specific
-    // coverage.
+    // First, check if the edge already has been calculated or if it exists in a pre-calculated cache.
     if (ee.hasElevationExtension()) {
       return;/* already set up */
     }
@@ -393,20 +385,16 @@ public class ElevationModule implements GraphBuilderModule {
       }
     }
 
-    // Needs full calculation. Calculate with a thread-specific coverage instance to avoid waiting for any locks on
-    // coverage instances in other threads.
-    Coverage coverage = getThreadSpecificCoverageInterpolator();
-
     // did not find a cached value, calculate
     // If any of the coordinates throw an error when trying to lookup their value, immediately bail and do not
     // process the elevation on the edge
     try {
       Coordinate[] coords = edgeGeometry.getCoordinates();
 
-      List<Coordinate> coordList = new LinkedList<>();
+      var profile = new ProfileBuilder();
 
       // initial sample (x = 0)
-      coordList.add(new Coordinate(0, getElevation(coverage, coords[0])));
+      profile.add(0, getElevation(coords[0]));
 
       // iterate through coordinates calculating the edge length and creating intermediate elevation coordinates at
       // the regularly specified interval
@@ -426,14 +414,9 @@ public class ElevationModule implements GraphBuilderModule {
           // calculate percent of current segment that distance is between
           double pctAlongSeg = (sampleDistance - previousDistance) / curSegmentDistance;
           // add an elevation coordinate
-          coordList.add(
-            new Coordinate(
-              sampleDistance,
-              getElevation(
-                coverage,
-                new Coordinate(x1 + (pctAlongSeg * (x2 - x1)), y1 + (pctAlongSeg * (y2 - y1)))
-              )
-            )
+          profile.add(
+            sampleDistance,
+            getElevation(x1 + (pctAlongSeg * (x2 - x1)), y1 + (pctAlongSeg * (y2 - y1)))
           );
           sampleDistance += distanceBetweenSamplesM;
         }
@@ -443,70 +426,19 @@ public class ElevationModule implements GraphBuilderModule {
       }
 
       // remove final-segment sample if it is less than half the distance between samples
-      if (edgeLenM - coordList.get(coordList.size() - 1).x < distanceBetweenSamplesM / 2) {
-        coordList.remove(coordList.size() - 1);
+      if (edgeLenM - profile.lastDistance() < distanceBetweenSamplesM / 2) {
+        profile.removeLast();
       }
 
       // final sample (x = edge length)
-      coordList.add(new Coordinate(edgeLenM, getElevation(coverage, coords[coords.length - 1])));
+      profile.add(edgeLenM, getElevation(coords[coords.length - 1]));
 
-      // construct the PCS
-      Coordinate[] coordArr = new Coordinate[coordList.size()];
-      PackedCoordinateSequence elevPCS = new PackedCoordinateSequence.Double(
-        coordList.toArray(coordArr)
-      );
-
-      setEdgeElevationProfile(ee, elevPCS);
+      setEdgeElevationProfile(ee, profile.build());
     } catch (ElevationLookupException e) {
       issueStore.add(new ElevationProfileFailure(ee, e.getMessage()));
     }
   }
 
-  /**
-   * Gets a coverage interpolator instance specific to the current thread. If using multiple
-   * threads, get the coverage interpolator instance associated with the ElevationWorkerThread.
-   * Otherwise, use a class field.
-   * <p>
-   * For unknown reasons, the interpolation of heights at coordinates is a synchronized method in
-   * the commonly used Interpolator2D class. Therefore, it is critical to use a dedicated Coverage
-   * interpolator instance for each thread to avoid other threads waiting for a lock to be released
-   * on the Coverage interpolator instance.
-   * <p>
-   * This method will get/lazy-create a thread-specific Coverage interpolator instance. Since these
-   * interpolator instances take some time to create, they are lazy-created instead of created
-   * upfront because it could lock all other threads even if other threads don't need an
-   * interpolator right away if they happen to process a lot of cached data initially.
-   */
-  private Coverage getThreadSpecificCoverageInterpolator() {
-    if (multiThreadElevationCalculations) {
-      Coverage coverage = coverageInterpolatorThreadLocal.get();
-      if (coverage == null) {
-        synchronized (gridCoverageFactory) {
-          coverage = gridCoverageFactory.getGridCoverage();
-          // The Coverage instance relies on some synchronized static methods shared across all threads that
-          // can cause deadlocks if not fully initialized. Therefore, make a single request for the first
-          // point on the edge to initialize these other items.
-          try {
-            getElevation(coverage, examplarCoordinate);
-          } catch (ElevationLookupException e) {
-            LOG.warn(
-              "Error processing elevation for coordinate: {} due to error: {}",
-              examplarCoordinate,
-              e
-            );
-          }
-          coverageInterpolatorThreadLocal.set(coverage);
-        }
-      }
-      return coverage;
-    } else {
-      if (singleThreadedCoverageInterpolator == null) {
-        singleThreadedCoverageInterpolator = gridCoverageFactory.getGridCoverage();
-      }
-      return singleThreadedCoverageInterpolator;
-    }
-  }
-
   private void setEdgeElevationProfile(StreetEdge ee, PackedCoordinateSequence elevPCS) {
     try {
       StreetElevationExtension.addToEdge(ee, elevPCS, false);
@@ -521,36 +453,35 @@ public class ElevationModule implements GraphBuilderModule {
   /**
    * Method for retrieving the elevation at a given Coordinate.
    *
-   * @param coverage the specific Coverage instance to use in order to avoid competition between
-   *                 threads
-   * @param c        the coordinate (NAD83)
+   * @param c the coordinate (NAD83)
    * @return elevation in meters
    */
-  private double getElevation(Coverage coverage, Coordinate c) throws ElevationLookupException {
+  private double getElevation(Coordinate c) throws ElevationLookupException {
+    return getElevation(c.x, c.y);
+  }
+
+  /**
+   * Method for retrieving the elevation at a given (x, y) pair.
+   *
+   * @param x the query longitude (NAD83)
+   * @param y the query latitude (NAD83)
+   * @return elevation in meters
+   */
+  private double getElevation(double x, double y) throws ElevationLookupException {
     try {
-      return getElevation(coverage, c.x, c.y);
-    } catch (
-      ArrayIndexOutOfBoundsException | PointOutsideCoverageException | TransformException e
-    ) {
+      return evaluateElevation(x, y);
+    } catch (ArrayIndexOutOfBoundsException | CannotEvaluateException | TransformException e) {
       // Each of the above exceptions can occur when finding the elevation at a coordinate.
       // - The ArrayIndexOutOfBoundsException seems to occur at the edges of some elevation tiles that
       //     might have areas with NoData. See https://github.com/opentripplanner/OpenTripPlanner/issues/2792
       // - The PointOutsideCoverageException can be thrown for points that are outside of the elevation tile area.
+      // - Other CannotEvaluateExceptions can occur when the point can not be transformed to the raster CRS.
       // - The TransformException can occur when trying to compute the EllipsoidToGeoidDifference.
       throw new ElevationLookupException(e);
     }
   }
 
-  /**
-   * Method for retrieving the elevation at a given (x, y) pair.
-   *
-   * @param coverage the specific Coverage instance to use in order to avoid competition between
-   *                 threads
-   * @param x        the query longitude (NAD83)
-   * @param y        the query latitude (NAD83)
-   * @return elevation in meters
-   */
-  private double getElevation(Coverage coverage, double x, double y)
+  private double evaluateElevation(double x, double y)
     throws PointOutsideCoverageException, TransformException {
     double[] values = new double[1];
     try {
@@ -569,8 +500,8 @@ public class ElevationModule implements GraphBuilderModule {
       (values[0] * gridCoverageFactory.elevationUnitMultiplier()) -
       (includeEllipsoidToGeoidDifference ? getApproximateEllipsoidToGeoidDifference(y, x) : 0);
 
-    minElevation = Math.min(minElevation, elevation);
-    maxElevation = Math.max(maxElevation, elevation);
+    minElevation.accumulate(elevation);
+    maxElevation.accumulate(elevation);
 
     nPointsEvaluated.incrementAndGet();
 
@@ -618,4 +549,34 @@ public class ElevationModule implements GraphBuilderModule {
       super(e);
     }
   }
+
+  /**
+   * Collects the (distance, elevation) samples of a profile in a primitive array, the array is
+   * packed into the profile without creating a {@link Coordinate} for each sample.
+   */
+  private static class ProfileBuilder {
+
+    private double[] values = new double[16];
+    private int size = 0;
+
+    void add(double distance, double elevation) {
+      if (size + 2 > values.length) {
+        values = Arrays.copyOf(values, values.length * 2);
+      }
+      values[size++] = distance;
+      values[size++] = elevation;
+    }
+
+    double lastDistance() {
+      return values[size - 2];
+    }
+
+    void removeLast() {
+      size -= 2;
+    }
+
+    PackedCoordinateSequence build() {
+      return new PackedCoordinateSequence.Double(Arrays.copyOf(values, size), 2, 0);
+    }
+  }
 }
@@ -0,0 +1,202 @@
+package org.opentripplanner.graph_builder.module.ned;
+
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.geotools.coverage.AbstractCoverage;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.util.CoverageUtilities;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.operation.transform.ConcatenatedTransform;
+import org.opengis.coverage.CannotEvaluateException;
+import org.opengis.coverage.PointOutsideCoverageException;
+import org.opengis.coverage.SampleDimension;
+import org.opengis.geometry.DirectPosition;
+import org.opengis.metadata.spatial.PixelOrientation;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.opentripplanner.util.geometry.GeometryUtils;
+
+/**
+ * A thread-safe elevation coverage for one raster. The samples of the first band are copied into
+ * primitive {@code float} arrays, one array for each tile of the source image. A tile is decoded
+ * the first time it is used, so only the part of the raster covering the street network is kept
+ * in memory. The elevation at a point is found by bilinear interpolation between the four closest
+ * cell centers.
+ * <p>
+ * The GeoTools {@code Interpolator2D} synchronizes on the coverage for each evaluation, so the
+ * elevation module used to create one interpolator for each thread. This coverage does not lock,
+ * one instance can be shared by all threads.
+ * <p>
+ * The positions passed to {@link #evaluate(DirectPosition, double[])} must be (longitude,
+ * latitude) in WGS84. A {@link PointOutsideCoverageException} is thrown for points outside the
+ * raster and for points next to a cell with the NO_DATA value.
+ */
+class ElevationRaster extends AbstractCoverage {
+
+  private static final long serialVersionUID = 1L;
+
+  private final GridCoverage2D source;
+
+  /** Transform from WGS84 (longitude, latitude) to the grid, integer values are cell centers. */
+  private final MathTransform wgs84ToGrid;
+
+  private final double noData;
+
+  private final int minX;
+  private final int minY;
+  private final int maxX;
+  private final int maxY;
+
+  private final int tileGridXOffset;
+  private final int tileGridYOffset;
+  private final int tileWidth;
+  private final int tileHeight;
+  private final int minTileX;
+  private final int minTileY;
+  private final int numXTiles;
+
+  /** The decoded tiles, two threads may decode the same tile, the result is the same. */
+  private final AtomicReferenceArray<float[]> tiles;
+
+  private ElevationRaster(GridCoverage2D source) {
+    super("elevation", source);
+    this.source = source;
+    this.wgs84ToGrid = wgs84ToGrid(source);
+
+    var noDataProperty = CoverageUtilities.getNoDataProperty(source);
+    this.noData = noDataProperty == null ? Double.NaN : noDataProperty.getAsSingleValue();
+
+    RenderedImage image = source.getRenderedImage();
+    this.minX = image.getMinX();
+    this.minY = image.getMinY();
+    this.maxX = minX + image.getWidth() - 1;
+    this.maxY = minY + image.getHeight() - 1;
+    this.tileGridXOffset = image.getTileGridXOffset();
+    this.tileGridYOffset = image.getTileGridYOffset();
+    this.tileWidth = image.getTileWidth();
+    this.tileHeight = image.getTileHeight();
+    this.minTileX = image.getMinTileX();
+    this.minTileY = image.getMinTileY();
+    this.numXTiles = image.getNumXTiles();
+    this.tiles = new AtomicReferenceArray<>(numXTiles * image.getNumYTiles());
+  }
+
+  static ElevationRaster of(GridCoverage2D coverage) {
+    return new ElevationRaster(coverage);
+  }
+
+  @Override
+  public Object evaluate(DirectPosition point) throws CannotEvaluateException {
+    /* we don't use this function, we use evaluate(DirectPosition point, double[] values) */
+    return null;
+  }
+
+  @Override
+  public double[] evaluate(DirectPosition point, double[] values) throws CannotEvaluateException {
+    if (values == null) {
+      values = new double[1];
+    }
+    values[0] = interpolate(point.getOrdinate(0), point.getOrdinate(1));
+    return values;
+  }
+
+  @Override
+  public int getNumSampleDimensions() {
+    return 1;
+  }
+
+  @Override
+  public SampleDimension getSampleDimension(int index) throws IndexOutOfBoundsException {
+    return source.getSampleDimension(index);
+  }
+
+  /**
+   * Return the bilinear interpolated value at the given point. Within half a cell from the edge of
+   * the raster the value of the edge cells is used.
+   */
+  double interpolate(double longitude, double latitude) throws CannotEvaluateException {
+    double[] p = { longitude, latitude };
+    try {
+      wgs84ToGrid.transform(p, 0, p, 0, 1);
+    } catch (TransformException e) {
+      var failure = new CannotEvaluateException(e.getMessage());
+      failure.initCause(e);
+      throw failure;
+    }
+    double gx = p[0];
+    double gy = p[1];
+
+    if (!(gx >= minX - 0.5 && gx < maxX + 0.5 && gy >= minY - 0.5 && gy < maxY + 0.5)) {
+      throw new PointOutsideCoverageException(
+        "Point (" + longitude + ", " + latitude + ") is outside the elevation raster."
+      );
+    }
+    gx = Math.min(Math.max(gx, minX), maxX);
+    gy = Math.min(Math.max(gy, minY), maxY);
+
+    int x0 = (int) Math.floor(gx);
+    int y0 = (int) Math.floor(gy);
+    int x1 = Math.min(x0 + 1, maxX);
+    int y1 = Math.min(y0 + 1, maxY);
+    double fx = gx - x0;
+    double fy = gy - y0;
+
+    double v00 = sample(x0, y0);
+    double v10 = sample(x1, y0);
+    double v01 = sample(x0, y1);
+    double v11 = sample(x1, y1);
+
+    return ((v00 * (1 - fx) + v10 * fx) * (1 - fy) + (v01 * (1 - fx) + v11 * fx) * fy);
+  }
+
+  private double sample(int x, int y) {
+    int tx = Math.floorDiv(x - tileGridXOffset, tileWidth);
+    int ty = Math.floorDiv(y - tileGridYOffset, tileHeight);
+    float[] tile = tile(tx, ty);
+    int col = x - (tileGridXOffset + tx * tileWidth);
+    int row = y - (tileGridYOffset + ty * tileHeight);
+    float value = tile[row * tileWidth + col];
+
+    if (Float.isNaN(value) || value == noData) {
+      throw new PointOutsideCoverageException("Value is NO_DATA.");
+    }
+    return value;
+  }
+
+  private float[] tile(int tx, int ty) {
+    int index = (ty - minTileY) * numXTiles + (tx - minTileX);
+    float[] tile = tiles.get(index);
+    if (tile == null) {
+      // The tile raster may be smaller than the tile size at the edge of the image, the samples are
+      // always stored with the full tile width.
+      Raster raster = source.getRenderedImage().getTile(tx, ty);
+      tile = new float[tileWidth * tileHeight];
+      float[] row = new float[raster.getWidth()];
+      for (int y = 0; y < raster.getHeight(); ++y) {
+        raster.getSamples(raster.getMinX(), raster.getMinY() + y, raster.getWidth(), 1, 0, row);
+        System.arraycopy(row, 0, tile, y * tileWidth, row.length);
+      }
+      tiles.set(index, tile);
+    }
+    return tile;
+  }
+
+  private static MathTransform wgs84ToGrid(GridCoverage2D coverage) {
+    MathTransform crsToGrid = coverage.getGridGeometry().getCRSToGrid2D(PixelOrientation.CENTER);
+    var crs = coverage.getCoordinateReferenceSystem2D();
+    if (CRS.equalsIgnoreMetadata(GeometryUtils.WGS84_XY, crs)) {
+      return crsToGrid;
+    }
+    try {
+      MathTransform toCrs = CRS.findMathTransform(GeometryUtils.WGS84_XY, crs, true);
+      return ConcatenatedTransform.create(toCrs, crsToGrid);
+    } catch (FactoryException e) {
+      throw new IllegalStateException(
+        "Can not transform from WGS84 to the elevation raster CRS: " + crs,
+        e
+      );
+    }
+  }
+}
@@ -2,13 +2,11 @@ package org.opentripplanner.graph_builder.module.ned;
 
 import java.io.File;
 import java.io.IOException;
-import javax.media.jai.InterpolationBilinear;
 import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.coverage.grid.Interpolator2D;
 import org.geotools.gce.geotiff.GeoTiffFormat;
 import org.geotools.gce.geotiff.GeoTiffReader;
 import org.geotools.util.factory.Hints;
-import org.opengis.coverage.grid.GridCoverage;
+import org.opengis.coverage.Coverage;
 import org.opentripplanner.datastore.api.DataSource;
 import org.opentripplanner.datastore.api.FileType;
 import org.opentripplanner.datastore.file.FileDataSource;
@@ -27,6 +25,7 @@ public class GeotiffGridCoverageFactoryImpl implements ElevationGridCoverageFact
   private final DataSource input;
   private final double elevationUnitMultiplier;
   private GridCoverage2D coverage;
+  private ElevationRaster raster;
 
   public GeotiffGridCoverageFactoryImpl(DataSource dataSource, double elevationUnitMultiplier) {
     this.input = dataSource;
@@ -38,14 +37,15 @@ public class GeotiffGridCoverageFactoryImpl implements ElevationGridCoverageFact
   }
 
   /**
-   * Wraps the underlying grid coverage instance with an interpolator that can be used in a specific
-   * thread.
+   * Wraps the underlying grid coverage instance with an {@link ElevationRaster}. The same instance
+   * is returned every time, it can be shared by all threads.
    */
   @Override
-  public GridCoverage getGridCoverage() {
-    return NoDataGridCoverage.create(
-      Interpolator2D.create(getUninterpolatedGridCoverage(), new InterpolationBilinear())
-    );
+  public synchronized Coverage getGridCoverage() {
+    if (raster == null) {
+      raster = ElevationRaster.of(getUninterpolatedGridCoverage());
+    }
+    return raster;
   }
 
   @Override
@@ -68,12 +68,8 @@ public class GeotiffGridCoverageFactoryImpl implements ElevationGridCoverageFact
 
   /**
    * Lazy-creates a GridCoverage2D instance by loading the specific elevation file into memory.
-   * During a refactor in the year 2020, the code at one point was written such that each coverage
-   * instance was created and wrapped in the Interpolator2D interpolator for each thread to use.
-   * However, benchmarking showed that this caused longer run times which is likely due to too much
-   * memory competing for a slot in the processor cache.
    */
-  public GridCoverage2D getUninterpolatedGridCoverage() {
+  public synchronized GridCoverage2D getUninterpolatedGridCoverage() {
     if (coverage == null) {
       try {
         // There is a serious standardization failure around the axis order of WGS84. See issue #1930.
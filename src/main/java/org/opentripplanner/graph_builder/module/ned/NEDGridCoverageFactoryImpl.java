@@ -35,7 +35,7 @@ public class NEDGridCoverageFactoryImpl implements ElevationGridCoverageFactory
   };
   private final File cacheDirectory;
   public final NEDTileSource tileSource;
-  private final List<GridCoverage2D> regionCoverages = new ArrayList<>();
+  private UnifiedGridCoverage unifiedCoverage;
   private List<VerticalDatum> datums;
 
   public NEDGridCoverageFactoryImpl(File cacheDirectory) {
@@ -49,26 +49,23 @@ public class NEDGridCoverageFactoryImpl implements ElevationGridCoverageFactory
   }
 
   /**
-   * Creates a new thread-specific UnifiedGridCoverage instance with new Interpolator2D instances
-   * that wrap the underlying shared elevation tile data. During a refactor in the year 2020, the
-   * code at one point was written such that a new UnifiedGridCoverage instance was created with
-   * unique tile data for each thread to use. However, benchmarking showed that this caused longer
-   * run times which is likely due to too much memory competing for a slot in the processor cache.
+   * Creates a UnifiedGridCoverage of all the NED tiles. The coverage is created the first time
+   * this is called, the same instance is returned every time, it can be shared by all threads.
    */
-  public Coverage getGridCoverage() {
+  public synchronized Coverage getGridCoverage() {
     // If the tile data hasn't been loaded into memory yet, do that now.
-    if (regionCoverages.size() == 0) {
+    if (unifiedCoverage == null) {
       loadVerticalDatum();
       // Make one grid coverage for each NED tile, adding them to a list of coverage instances that can then be
-      // wrapped with thread-specific interpolators.
+      // stitched together.
+      List<GridCoverage2D> regionCoverages = new ArrayList<>();
       for (File path : tileSource.getNEDTiles()) {
         GeotiffGridCoverageFactoryImpl factory = new GeotiffGridCoverageFactoryImpl(path);
         regionCoverages.add(factory.getUninterpolatedGridCoverage());
       }
+      unifiedCoverage = new UnifiedGridCoverage(regionCoverages, datums);
     }
-
-    // Create a new UnifiedGridCoverage using the shared region coverages.
-    return new UnifiedGridCoverage(regionCoverages, datums);
+    return unifiedCoverage;
   }
 
   @Override
@@ -1,16 +1,13 @@
 package org.opentripplanner.graph_builder.module.ned;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import javax.media.jai.InterpolationBilinear;
+import java.util.Map;
 import org.geotools.coverage.AbstractCoverage;
 import org.geotools.coverage.grid.GridCoverage2D;
-import org.geotools.coverage.grid.Interpolator2D;
 import org.geotools.geometry.jts.ReferencedEnvelope;
-import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
-import org.locationtech.jts.index.SpatialIndex;
-import org.locationtech.jts.index.strtree.STRtree;
 import org.opengis.coverage.CannotEvaluateException;
 import org.opengis.coverage.Coverage;
 import org.opengis.coverage.PointOutsideCoverageException;
@@ -22,6 +19,9 @@ import org.slf4j.LoggerFactory;
 /**
  * Stitches together multiple elevation maps into a single elevation map, hackily.  This is
  * horrible, but the geotools way of doing things is too slow.
+ * <p>
+ * THREAD SAFETY - The coverage is immutable after construction and the regions are
+ * {@link ElevationRaster}s, so one instance can be shared by all threads.
  *
  * @author novalis
  */
@@ -32,14 +32,13 @@ public class UnifiedGridCoverage extends AbstractCoverage {
   private static final Logger log = LoggerFactory.getLogger(UnifiedGridCoverage.class);
 
   /**
-   * A spatial index of the intersection of all regions and datums. For smaller-scale deployments,
-   * this spatial index might perform more slowly than manually iterating over each region and
-   * datum. However, in larger regions, this can result in 20+% more calculations being done during
-   * the same time compared to the brute-force method. In smaller-scale deployments since the
-   * overall time is not as long, we leave this in here for the benefit of larger regions where this
-   * will result in much better performance.
+   * An index of the intersection of all regions and datums, by the whole degree cells they
+   * overlap. NED tiles are one degree squares, so there are only a few candidates in each cell. In
+   * larger regions this is much faster than iterating over each region and datum. Unlike the JTS
+   * STRtree, which synchronizes each query, the index is read-only and can be queried by many
+   * threads.
    */
-  private final SpatialIndex datumRegionIndex;
+  private final Map<Long, List<DatumRegion>> datumRegionIndex;
   private final ArrayList<Coverage> regions;
 
   /**
@@ -51,16 +50,12 @@ public class UnifiedGridCoverage extends AbstractCoverage {
   protected UnifiedGridCoverage(List<GridCoverage2D> regionCoverages, List<VerticalDatum> datums) {
     super("unified", regionCoverages.get(0));
     regions = new ArrayList<>();
-    datumRegionIndex = new STRtree();
+    datumRegionIndex = new HashMap<>();
 
-    // Iterate through region coverages, creating Interpolators for each region and then adding them and the
+    // Iterate through region coverages, creating an elevation raster for each region and then adding them and the
     // intersected datum to the spatial index.
     for (GridCoverage2D regionCoverage : regionCoverages) {
-      // TODO might bicubic interpolation give better results?
-      GridCoverage2D regionCoverageInterpolator = Interpolator2D.create(
-        regionCoverage,
-        new InterpolationBilinear()
-      );
+      ElevationRaster regionRaster = ElevationRaster.of(regionCoverage);
 
       // Iterate over datums to find intersection envelope with each region and add to spatial index.
       for (VerticalDatum datum : datums) {
@@ -70,13 +65,13 @@ public class UnifiedGridCoverage extends AbstractCoverage {
           datum.lowerLeftLatitude,
           datum.lowerLeftLatitude + datum.deltaLatitude
         );
-        ReferencedEnvelope regionEnvelope = new ReferencedEnvelope(
-          regionCoverageInterpolator.getEnvelope()
-        );
+        ReferencedEnvelope regionEnvelope = new ReferencedEnvelope(regionCoverage.getEnvelope());
         Envelope intersection = regionEnvelope.intersection(datumEnvelope);
-        datumRegionIndex.insert(intersection, new DatumRegion(datum, regionCoverageInterpolator));
+        if (!intersection.isNull()) {
+          index(intersection, new DatumRegion(datum, regionRaster, intersection));
+        }
       }
-      regions.add(regionCoverageInterpolator);
+      regions.add(regionRaster);
     }
   }
 
@@ -102,27 +97,42 @@ public class UnifiedGridCoverage extends AbstractCoverage {
   public double[] evaluate(DirectPosition point, double[] values) throws CannotEvaluateException {
     double x = point.getOrdinate(0);
     double y = point.getOrdinate(1);
-    Coordinate pointCoordinate = new Coordinate(x, y);
-    Envelope envelope = new Envelope(pointCoordinate);
-    List<DatumRegion> coverageCandidates = datumRegionIndex.query(envelope);
-    if (coverageCandidates.size() > 0) {
-      // Found a match for coverage/datum.
-      DatumRegion datumRegion = coverageCandidates.get(0);
-      double[] result = datumRegion.region.evaluate(point, values);
-      result[0] += datumRegion.datum.interpolatedHeight(x, y);
-      return result;
+    List<DatumRegion> coverageCandidates = datumRegionIndex.get(cellKey(x, y));
+    if (coverageCandidates != null) {
+      for (DatumRegion datumRegion : coverageCandidates) {
+        if (datumRegion.envelope.contains(x, y)) {
+          // Found a match for coverage/datum.
+          double[] result = datumRegion.region.evaluate(point, values);
+          result[0] += datumRegion.datum.interpolatedHeight(x, y);
+          return result;
+        }
+      }
     }
     throw new PointOutsideCoverageException("Point not found: " + point);
   }
 
+  private void index(Envelope envelope, DatumRegion datumRegion) {
+    for (long x = (long) Math.floor(envelope.getMinX()); x <= envelope.getMaxX(); ++x) {
+      for (long y = (long) Math.floor(envelope.getMinY()); y <= envelope.getMaxY(); ++y) {
+        datumRegionIndex.computeIfAbsent(cellKey(x, y), k -> new ArrayList<>()).add(datumRegion);
+      }
+    }
+  }
+
+  private static long cellKey(double x, double y) {
+    return ((long) Math.floor(x) << 32) | ((long) Math.floor(y) & 0xFFFFFFFFL);
+  }
+
   public static class DatumRegion {
 
     public final VerticalDatum datum;
     public final Coverage region;
+    public final Envelope envelope;
 
-    public DatumRegion(VerticalDatum datum, Coverage region) {
+    public DatumRegion(VerticalDatum datum, Coverage region, Envelope envelope) {
       this.datum = datum;
       this.region = region;
+      this.envelope = envelope;
     }
   }
 }
@@ -57,8 +57,8 @@ public class OSMDatabase {
 
   private final DataImportIssueStore issueStore;
 
-  /* Map of all nodes used in ways/areas keyed by their OSM ID */
-  private final TLongObjectMap<OSMNode> nodesById = new TLongObjectHashMap<>();
+  /* All nodes used in ways/areas keyed by their OSM ID */
+  private final OSMNodeStore nodesById;
 
   /* Map of all bike parking nodes, keyed by their OSM ID */
   private final TLongObjectMap<OSMNode> bikeParkingNodes = new TLongObjectHashMap<>();
@@ -130,8 +130,21 @@ public class OSMDatabase {
   private final Set<String> boardingAreaRefTags;
 
   public OSMDatabase(DataImportIssueStore issueStore, Set<String> boardingAreaRefTags) {
+    this(issueStore, boardingAreaRefTags, false);
+  }
+
+  /**
+   * @param nodesOnDisk store the coordinates of the untagged nodes in memory-mapped temporary
+   *                    files, instead of on the heap. See {@link OSMNodeStore}.
+   */
+  public OSMDatabase(
+    DataImportIssueStore issueStore,
+    Set<String> boardingAreaRefTags,
+    boolean nodesOnDisk
+  ) {
     this.issueStore = issueStore;
     this.boardingAreaRefTags = boardingAreaRefTags;
+    this.nodesById = new OSMNodeStore(nodesOnDisk);
   }
 
   public OSMNode getNode(Long nodeId) {
@@ -227,10 +240,7 @@ public class OSMDatabase {
       return;
     }
 
-    if (nodesById.containsKey(node.getId())) {
-      return;
-    }
-    nodesById.put(node.getId(), node);
+    nodesById.add(node);
   }
 
   public void addWay(OSMWay way) {
@@ -360,6 +370,7 @@ public class OSMDatabase {
    * and nodes are loaded, handle areas.
    */
   public void doneThirdPhaseNodes() {
+    nodesById.seal();
     processMultipolygonRelations();
     processSingleWayAreas();
   }
@@ -688,7 +699,7 @@ public class OSMDatabase {
     node.setId(virtualNodeId);
     virtualNodeId--;
     waysNodeIds.add(node.getId());
-    nodesById.put(node.getId(), node);
+    nodesById.addNodeObject(node);
     return node;
   }
 
@@ -737,12 +748,12 @@ public class OSMDatabase {
       TLongIterator longIterator = way.getNodeRefs().iterator();
       while (longIterator.hasNext()) {
         long nodeRef = longIterator.next();
-        if (!nodesById.containsKey(nodeRef)) {
+        if (!nodesById.contains(nodeRef)) {
           continue AREA;
         }
       }
       try {
-        newArea(new Area(way, List.of(way), Collections.emptyList(), nodesById));
+        newArea(new Area(way, List.of(way), Collections.emptyList(), nodesById::get));
       } catch (Area.AreaConstructionException | Ring.RingConstructionException e) {
         // this area cannot be constructed, but we already have all the
         // necessary nodes to construct it. So, something must be wrong with
@@ -792,7 +803,7 @@ public class OSMDatabase {
         TLongIterator wayNodeIterator = way.getNodeRefs().iterator();
         while (wayNodeIterator.hasNext()) {
           long nodeId = wayNodeIterator.next();
-          if (nodesById.containsKey(nodeId)) {
+          if (nodesById.contains(nodeId)) {
             MapUtils.addToMapSet(areasForNode, nodeId, way);
           } else {
             // this area is missing some nodes, perhaps because it is on
@@ -810,7 +821,7 @@ public class OSMDatabase {
       }
       processedAreas.add(relation);
       try {
-        newArea(new Area(relation, outerWays, innerWays, nodesById));
+        newArea(new Area(relation, outerWays, innerWays, nodesById::get));
       } catch (Area.AreaConstructionException | Ring.RingConstructionException e) {
         issueStore.add("InvalidGeometry", "Invalid geometry for osm relation %s", relation.getId());
         continue;
@@ -1140,7 +1151,7 @@ public class OSMDatabase {
         } else {
           issueStore.add(new TooManyAreasInRelation(relation.getId()));
         }
-      } else if ("node".equals(member.getType()) && nodesById.containsKey(member.getRef())) {
+      } else if ("node".equals(member.getType()) && nodesById.contains(member.getRef())) {
         platformsNodes.add(nodesById.get(member.getRef()));
       }
     }
@@ -0,0 +1,380 @@
+package org.opentripplanner.graph_builder.module.osm;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.opentripplanner.openstreetmap.model.OSMNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A compact store for the OSM nodes used by the ways and areas. Most nodes do not have any tags,
+ * only the id and the coordinate is needed for these. Instead of keeping an {@link OSMNode} object
+ * for each of them, they are stored in segments of sorted ids with the coordinates packed as ints
+ * (with the OSM precision of 10^-7 degrees). A new {@link OSMNode} is created each time such a node
+ * is looked up. Nodes with relevant tags, and the virtual nodes created while building areas, are
+ * kept as objects.
+ * <p>
+ * The nodes are added in one segment for each OSM source, the segment is sealed (sorted) when all
+ * nodes of the source are read. The segments are kept on the heap, or in memory-mapped temporary
+ * files if {@code onDisk} is set. The temporary files are deleted when the segments are mapped,
+ * the mapped memory is released when the store is garbage collected.
+ * <p>
+ * Since the node objects returned by {@link #get(long)} are not always the same instance,
+ * {@link OSMNode} equality is based on the id.
+ * <p>
+ * THREAD SAFETY - Adding nodes is not thread safe. Looking up nodes is thread safe as long as no
+ * nodes are added at the same time: the lookup does not write any shared state, the segments are
+ * only read with absolute positions, and each created node is only seen by the calling thread.
+ */
+class OSMNodeStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OSMNodeStore.class);
+
+  /** Tags which are not used to build the graph, nodes with only these tags are stored compact. */
+  private static final Set<String> METADATA_TAGS = Set.of(
+    "created_by",
+    "source",
+    "note",
+    "fixme",
+    "attribution"
+  );
+
+  private static final double COORDINATE_PRECISION = 1e7;
+
+  private final boolean onDisk;
+
+  /** Nodes with relevant tags and virtual nodes. */
+  private final TLongObjectMap<OSMNode> nodeObjects = new TLongObjectHashMap<>();
+
+  private final List<Segment> segments = new ArrayList<>();
+
+  private SegmentBuilder currentSegment = null;
+
+  OSMNodeStore(boolean onDisk) {
+    this.onDisk = onDisk;
+  }
+
+  /**
+   * Add a node read from an OSM source, call {@link #seal()} when all nodes of the source are
+   * added. Nodes which already exist are ignored.
+   */
+  void add(OSMNode node) {
+    if (contains(node.getId())) {
+      return;
+    }
+    if (hasRelevantTags(node)) {
+      nodeObjects.put(node.getId(), node);
+      return;
+    }
+    if (currentSegment == null) {
+      currentSegment = new SegmentBuilder();
+    }
+    currentSegment.add(node.getId(), toInt(node.lat), toInt(node.lon));
+  }
+
+  /**
+   * Add a node which is created while building the graph, it is always kept as an object.
+   */
+  void addNodeObject(OSMNode node) {
+    nodeObjects.put(node.getId(), node);
+  }
+
+  /**
+   * Make the nodes added since the last call available for lookup.
+   */
+  void seal() {
+    if (currentSegment == null) {
+      return;
+    }
+    var segment = currentSegment.build(onDisk);
+    currentSegment = null;
+    segments.add(segment);
+    LOG.info("Stored {} untagged OSM nodes{}.", segment.size(), onDisk ? " on disk" : "");
+  }
+
+  /**
+   * Return the node with the given id or {@code null} if it does not exist. Nodes added after the
+   * last call to {@link #seal()} are only found if they are kept as objects.
+   */
+  OSMNode get(long id) {
+    OSMNode node = nodeObjects.get(id);
+    if (node != null) {
+      return node;
+    }
+    for (Segment segment : segments) {
+      int index = segment.indexOf(id);
+      if (index >= 0) {
+        node = new OSMNode();
+        node.setId(id);
+        node.lat = toDegrees(segment.lat(index));
+        node.lon = toDegrees(segment.lon(index));
+        return node;
+      }
+    }
+    return null;
+  }
+
+  boolean contains(long id) {
+    if (nodeObjects.containsKey(id)) {
+      return true;
+    }
+    for (Segment segment : segments) {
+      if (segment.indexOf(id) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  int size() {
+    return nodeObjects.size() + segments.stream().mapToInt(Segment::size).sum();
+  }
+
+  static boolean hasRelevantTags(OSMNode node) {
+    Map<String, String> tags = node.getTags();
+    if (tags == null) {
+      return false;
+    }
+    for (String key : tags.keySet()) {
+      if (!METADATA_TAGS.contains(key) && !key.startsWith("source:")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int toInt(double degrees) {
+    return (int) Math.round(degrees * COORDINATE_PRECISION);
+  }
+
+  private static double toDegrees(int value) {
+    return value / COORDINATE_PRECISION;
+  }
+
+  /**
+   * A sorted sequence of nodes, the ids are unique.
+   */
+  private abstract static class Segment {
+
+    abstract int size();
+
+    abstract long id(int index);
+
+    abstract int lat(int index);
+
+    abstract int lon(int index);
+
+    /** Return the index of the node or a negative number if it does not exist. */
+    int indexOf(long id) {
+      int low = 0;
+      int high = size() - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        long midId = id(mid);
+        if (midId < id) {
+          low = mid + 1;
+        } else if (midId > id) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -1;
+    }
+  }
+
+  private static class ArraySegment extends Segment {
+
+    private final long[] ids;
+    private final int[] lats;
+    private final int[] lons;
+
+    private ArraySegment(long[] ids, int[] lats, int[] lons) {
+      this.ids = ids;
+      this.lats = lats;
+      this.lons = lons;
+    }
+
+    @Override
+    int size() {
+      return ids.length;
+    }
+
+    @Override
+    long id(int index) {
+      return ids[index];
+    }
+
+    @Override
+    int lat(int index) {
+      return lats[index];
+    }
+
+    @Override
+    int lon(int index) {
+      return lons[index];
+    }
+  }
+
+  /**
+   * The nodes are stored as 16 byte records (id, lat, lon) in a memory-mapped file. A mapped buffer
+   * can not be larger than 2 GiB, so the file is mapped in windows of 2^26 records (1 GiB).
+   */
+  private static class MappedSegment extends Segment {
+
+    private static final int RECORD_SIZE = 16;
+    private static final int WINDOW_SHIFT = 26;
+    private static final int WINDOW_MASK = (1 << WINDOW_SHIFT) - 1;
+
+    private final MappedByteBuffer[] windows;
+    private final int size;
+
+    private MappedSegment(ArraySegment data) {
+      this.size = data.size();
+      this.windows = new MappedByteBuffer[(size >>> WINDOW_SHIFT) + 1];
+      try {
+        Path file = Files.createTempFile("otp-osm-nodes-", ".bin");
+        // The file is deleted when the channel is closed, the mapped windows stay valid
+        try (
+          var channel = FileChannel.open(
+            file,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.DELETE_ON_CLOSE
+          )
+        ) {
+          for (int w = 0; w < windows.length; ++w) {
+            int start = w << WINDOW_SHIFT;
+            int end = Math.min(size, start + WINDOW_MASK + 1);
+            var window = channel.map(
+              FileChannel.MapMode.READ_WRITE,
+              (long) start * RECORD_SIZE,
+              (long) (end - start) * RECORD_SIZE
+            );
+            for (int i = start; i < end; ++i) {
+              window.putLong(data.id(i)).putInt(data.lat(i)).putInt(data.lon(i));
+            }
+            windows[w] = window;
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to store the OSM nodes on disk", e);
+      }
+    }
+
+    @Override
+    int size() {
+      return size;
+    }
+
+    @Override
+    long id(int index) {
+      return window(index).getLong(offset(index));
+    }
+
+    @Override
+    int lat(int index) {
+      return window(index).getInt(offset(index) + 8);
+    }
+
+    @Override
+    int lon(int index) {
+      return window(index).getInt(offset(index) + 12);
+    }
+
+    private ByteBuffer window(int index) {
+      return windows[index >>> WINDOW_SHIFT];
+    }
+
+    private static int offset(int index) {
+      return (index & WINDOW_MASK) * RECORD_SIZE;
+    }
+  }
+
+  /**
+   * Collect the nodes of a segment in growing arrays, the nodes in an OSM file are usually sorted
+   * by id, so sorting is only done if needed.
+   */
+  private static class SegmentBuilder {
+
+    private long[] ids = new long[1024];
+    private int[] lats = new int[1024];
+    private int[] lons = new int[1024];
+    private int size = 0;
+    private boolean sorted = true;
+
+    void add(long id, int lat, int lon) {
+      if (size == ids.length) {
+        int newCapacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, newCapacity);
+        lats = Arrays.copyOf(lats, newCapacity);
+        lons = Arrays.copyOf(lons, newCapacity);
+      }
+      if (size > 0 && ids[size - 1] >= id) {
+        sorted = false;
+      }
+      ids[size] = id;
+      lats[size] = lat;
+      lons[size] = lon;
+      ++size;
+    }
+
+    Segment build(boolean onDisk) {
+      if (!sorted) {
+        sort();
+      }
+      var segment = new ArraySegment(
+        Arrays.copyOf(ids, size),
+        Arrays.copyOf(lats, size),
+        Arrays.copyOf(lons, size)
+      );
+      ids = null;
+      lats = null;
+      lons = null;
+      return onDisk ? new MappedSegment(segment) : segment;
+    }
+
+    /**
+     * Sort the nodes by id and remove duplicates. The coordinates are moved together with the ids
+     * using a sorted index, this is only done for unsorted files.
+     */
+    private void sort() {
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; ++i) {
+        order[i] = i;
+      }
+      Arrays.sort(order, (a, b) -> Long.compare(ids[a], ids[b]));
+
+      long[] sortedIds = new long[size];
+      int[] sortedLats = new int[size];
+      int[] sortedLons = new int[size];
+      int n = 0;
+      for (int i : order) {
+        if (n > 0 && sortedIds[n - 1] == ids[i]) {
+          continue;
+        }
+        sortedIds[n] = ids[i];
+        sortedLats[n] = lats[i];
+        sortedLons[n] = lons[i];
+        ++n;
+      }
+      ids = sortedIds;
+      lats = sortedLats;
+      lons = sortedLons;
+      size = n;
+    }
+  }
+}
@@ -90,6 +90,9 @@ public class OpenStreetMapModule implements GraphBuilderModule {
 
   private static final Logger LOG = LoggerFactory.getLogger(OpenStreetMapModule.class);
 
+  /** The number of ways prepared in parallel before the edges are created. */
+  private static final int WAY_BATCH_SIZE = 10_000;
+
   private static final String VEHICLE_PARKING_OSM_FEED_ID = "OSM";
   private final Map<Vertex, Double> elevationData = new HashMap<>();
 
@@ -126,6 +129,10 @@ public class OpenStreetMapModule implements GraphBuilderModule {
    */
   public boolean staticBikeParkAndRide;
   public int maxAreaNodes = 500;
+  /**
+   * Store the untagged OSM nodes in memory-mapped temporary files instead of on the heap.
+   */
+  public boolean nodesOnDisk = false;
 
   /**
    * Whether ways tagged foot/bicycle=discouraged should be marked as inaccessible
@@ -168,6 +175,7 @@ public class OpenStreetMapModule implements GraphBuilderModule {
     this.banDiscouragedWalking = config.banDiscouragedWalking;
     this.banDiscouragedBiking = config.banDiscouragedBiking;
     this.maxAreaNodes = config.maxAreaNodes;
+    this.nodesOnDisk = config.osmNodesOnDisk;
   }
 
   /**
@@ -184,7 +192,7 @@ public class OpenStreetMapModule implements GraphBuilderModule {
     this.osmOpeningHoursParser =
       new OSMOpeningHoursParser(graph.getOpeningHoursCalendarService(), issueStore);
 
-    OSMDatabase osmdb = new OSMDatabase(issueStore, boardingAreaRefTags);
+    OSMDatabase osmdb = new OSMDatabase(issueStore, boardingAreaRefTags, nodesOnDisk);
     Handler handler = new Handler(graph, osmdb);
     for (OpenStreetMapProvider provider : providers) {
       LOG.info("Gathering OSM from provider: {}", provider);
@@ -553,18 +561,7 @@ public class OpenStreetMapModule implements GraphBuilderModule {
           walkableAreaBuilder.buildWithoutVisibility(group);
         }
       } else {
-        ProgressTracker progress = ProgressTracker.track(
-          "Build visibility graph for areas",
-          50,
-          areaGroups.size()
-        );
-        for (AreaGroup group : areaGroups) {
-          walkableAreaBuilder.buildWithVisibility(group);
-          //Keep lambda! A method-ref would log incorrect class and line number
-          //noinspection Convert2MethodRef
-          progress.step(m -> LOG.info(m));
-        }
-        LOG.info(progress.completeMessage());
+        walkableAreaBuilder.buildWithVisibility(areaGroups);
       }
 
       if (skipVisibility) {
@@ -898,165 +895,213 @@ public class OpenStreetMapModule implements GraphBuilderModule {
       return AreaGroup.groupAreas(areasLevels);
     }
 
+    /**
+     * Build the street segment graph from OSM ways. The ways are processed in batches: for each
+     * batch the way properties, permissions, names and segment geometries are computed in
+     * parallel, then the vertices and edges are created in way order on the calling thread. This
+     * way the vertices and edges are created in the same order as with a single thread, the graph
+     * is not thread safe and the order determines the vertex indexes.
+     */
     private void buildBasicGraph() {
-      /* build the street segment graph from OSM ways */
-      long wayCount = osmdb.getWays().size();
-      ProgressTracker progress = ProgressTracker.track("Build street graph", 5_000, wayCount);
+      List<OSMWay> ways = List.copyOf(osmdb.getWays());
+      ProgressTracker progress = ProgressTracker.track("Build street graph", 5_000, ways.size());
       LOG.info(progress.startMessage());
 
-      WAY:for (OSMWay way : osmdb.getWays()) {
-        WayProperties wayData = way.getOsmProvider().getWayPropertySet().getDataForWay(way);
-        setWayName(way);
-        StreetTraversalPermission permissions = OSMFilter.getPermissionsForWay(
-          way,
-          wayData.getPermission(),
-          banDiscouragedWalking,
-          banDiscouragedBiking,
-          issueStore
-        );
-        if (!OSMFilter.isWayRoutable(way) || permissions.allowsNothing()) continue;
-
-        // handle duplicate nodes in OSM ways
-        // this is a workaround for crappy OSM data quality
-        ArrayList<Long> nodes = new ArrayList<>(way.getNodeRefs().size());
-        long last = -1;
-        double lastLat = -1, lastLon = -1;
-        String lastLevel = null;
-        for (TLongIterator iter = way.getNodeRefs().iterator(); iter.hasNext();) {
-          long nodeId = iter.next();
-          OSMNode node = osmdb.getNode(nodeId);
-          if (node == null) continue WAY;
-          boolean levelsDiffer = false;
-          String level = node.getTag("level");
-          if (lastLevel == null) {
-            if (level != null) {
-              levelsDiffer = true;
-            }
-          } else {
-            if (!lastLevel.equals(level)) {
-              levelsDiffer = true;
-            }
+      for (int start = 0; start < ways.size(); start += WAY_BATCH_SIZE) {
+        List<WaySegments> batch = ways
+          .subList(start, Math.min(ways.size(), start + WAY_BATCH_SIZE))
+          .parallelStream()
+          .map(this::prepareWay)
+          .toList();
+
+        for (WaySegments waySegments : batch) {
+          issueStore.addAll(waySegments.issues());
+          if (waySegments.segments() != null) {
+            buildWay(waySegments);
           }
-          if (
-            nodeId != last && (node.lat != lastLat || node.lon != lastLon || levelsDiffer)
-          ) nodes.add(nodeId);
-          last = nodeId;
-          lastLon = node.lon;
-          lastLat = node.lat;
-          lastLevel = level;
+          //Keep lambda! A method-ref would log incorrect class and line number
+          //noinspection Convert2MethodRef
+          progress.step(m -> LOG.info(m));
         }
+      }
 
-        IntersectionVertex startEndpoint = null;
-        IntersectionVertex endEndpoint = null;
-
-        ArrayList<Coordinate> segmentCoordinates = new ArrayList<>();
-
-        /*
-         * Traverse through all the nodes of this edge. For nodes which are not shared with any other edge, do not create endpoints -- just
-         * accumulate them for geometry and ele tags. For nodes which are shared, create endpoints and StreetVertex instances. One exception:
-         * if the next vertex also appears earlier in the way, we need to split the way, because otherwise we have a way that loops from a
-         * vertex to itself, which could cause issues with splitting.
-         */
-        Long startNode = null;
-        // where the current edge should start
-        OSMNode osmStartNode = null;
+      LOG.info(progress.completeMessage());
+    }
 
-        for (int i = 0; i < nodes.size() - 1; i++) {
-          OSMNode segmentStartOSMNode = osmdb.getNode(nodes.get(i));
+    /**
+     * Compute everything needed to build the edges of a way, without changing the graph. This is
+     * done in parallel, so it must only read the shared state, the issues are collected and added
+     * to the issue store later. The OSM nodes are looked up concurrently, which the node store of
+     * the OSM database allows while no nodes are added.
+     */
+    private WaySegments prepareWay(OSMWay way) {
+      var issues = new DataImportIssueStore();
+      WayProperties wayData = way.getOsmProvider().getWayPropertySet().getDataForWay(way);
+      setWayName(way);
+      StreetTraversalPermission permissions = OSMFilter.getPermissionsForWay(
+        way,
+        wayData.getPermission(),
+        banDiscouragedWalking,
+        banDiscouragedBiking,
+        issues
+      );
+      if (!OSMFilter.isWayRoutable(way) || permissions.allowsNothing()) {
+        return new WaySegments(way, wayData, permissions, null, issues);
+      }
 
-          if (segmentStartOSMNode == null) {
-            continue;
+      // handle duplicate nodes in OSM ways
+      // this is a workaround for crappy OSM data quality
+      ArrayList<Long> nodes = new ArrayList<>(way.getNodeRefs().size());
+      long last = -1;
+      double lastLat = -1, lastLon = -1;
+      String lastLevel = null;
+      for (TLongIterator iter = way.getNodeRefs().iterator(); iter.hasNext();) {
+        long nodeId = iter.next();
+        OSMNode node = osmdb.getNode(nodeId);
+        if (node == null) {
+          return new WaySegments(way, wayData, permissions, null, issues);
+        }
+        boolean levelsDiffer = false;
+        String level = node.getTag("level");
+        if (lastLevel == null) {
+          if (level != null) {
+            levelsDiffer = true;
           }
+        } else {
+          if (!lastLevel.equals(level)) {
+            levelsDiffer = true;
+          }
+        }
+        if (
+          nodeId != last && (node.lat != lastLat || node.lon != lastLon || levelsDiffer)
+        ) nodes.add(nodeId);
+        last = nodeId;
+        lastLon = node.lon;
+        lastLat = node.lat;
+        lastLevel = level;
+      }
 
-          Long endNode = nodes.get(i + 1);
+      List<WaySegment> segments = new ArrayList<>();
+      ArrayList<Coordinate> segmentCoordinates = new ArrayList<>();
 
-          if (osmStartNode == null) {
-            startNode = nodes.get(i);
-            osmStartNode = segmentStartOSMNode;
-          }
-          // where the current edge might end
-          OSMNode osmEndNode = osmdb.getNode(endNode);
+      /*
+       * Traverse through all the nodes of this edge. For nodes which are not shared with any other edge, do not create endpoints -- just
+       * accumulate them for geometry and ele tags. For nodes which are shared, create endpoints and StreetVertex instances. One exception:
+       * if the next vertex also appears earlier in the way, we need to split the way, because otherwise we have a way that loops from a
+       * vertex to itself, which could cause issues with splitting.
+       */
+      // where the current edge should start
+      OSMNode osmStartNode = null;
 
-          LineString geometry;
+      for (int i = 0; i < nodes.size() - 1; i++) {
+        OSMNode segmentStartOSMNode = osmdb.getNode(nodes.get(i));
 
-          /*
-           * We split segments at intersections, self-intersections, nodes with ele tags, and transit stops;
-           * the only processing we do on other nodes is to accumulate their geometry
-           */
-          if (segmentCoordinates.size() == 0) {
-            segmentCoordinates.add(getCoordinate(osmStartNode));
-          }
+        if (segmentStartOSMNode == null) {
+          continue;
+        }
 
-          if (
-            intersectionNodes.containsKey(endNode) ||
-            i == nodes.size() - 2 ||
-            nodes.subList(0, i).contains(nodes.get(i)) ||
-            osmEndNode.hasTag("ele") ||
-            osmEndNode.isBoardingLocation() ||
-            osmEndNode.isBarrier()
-          ) {
-            segmentCoordinates.add(getCoordinate(osmEndNode));
-
-            geometry =
-              GeometryUtils
-                .getGeometryFactory()
-                .createLineString(segmentCoordinates.toArray(new Coordinate[0]));
-            segmentCoordinates.clear();
-          } else {
-            segmentCoordinates.add(getCoordinate(osmEndNode));
-            continue;
-          }
+        Long endNode = nodes.get(i + 1);
 
-          /* generate endpoints */
-          if (startEndpoint == null) { // first iteration on this way
-            // make or get a shared vertex for flat intersections,
-            // one vertex per level for multilevel nodes like elevators
-            startEndpoint = getVertexForOsmNode(osmStartNode, way);
-            String ele = segmentStartOSMNode.getTag("ele");
-            if (ele != null) {
-              Double elevation = ElevationUtils.parseEleTag(ele);
-              if (elevation != null) {
-                elevationData.put(startEndpoint, elevation);
-              }
-            }
-          } else { // subsequent iterations
-            startEndpoint = endEndpoint;
-          }
+        if (osmStartNode == null) {
+          osmStartNode = segmentStartOSMNode;
+        }
+        // where the current edge might end
+        OSMNode osmEndNode = osmdb.getNode(endNode);
 
-          endEndpoint = getVertexForOsmNode(osmEndNode, way);
-          String ele = osmEndNode.getTag("ele");
-          if (ele != null) {
-            Double elevation = ElevationUtils.parseEleTag(ele);
-            if (elevation != null) {
-              elevationData.put(endEndpoint, elevation);
-            }
-          }
-          P2<StreetEdge> streets = getEdgesForStreet(
-            startEndpoint,
-            endEndpoint,
-            way,
-            i,
-            osmStartNode.getId(),
-            osmEndNode.getId(),
-            permissions,
-            geometry
+        /*
+         * We split segments at intersections, self-intersections, nodes with ele tags, and transit stops;
+         * the only processing we do on other nodes is to accumulate their geometry
+         */
+        if (segmentCoordinates.size() == 0) {
+          segmentCoordinates.add(getCoordinate(osmStartNode));
+        }
+
+        segmentCoordinates.add(getCoordinate(osmEndNode));
+        if (
+          intersectionNodes.containsKey(endNode) ||
+          i == nodes.size() - 2 ||
+          nodes.subList(0, i).contains(nodes.get(i)) ||
+          osmEndNode.hasTag("ele") ||
+          osmEndNode.isBoardingLocation() ||
+          osmEndNode.isBarrier()
+        ) {
+          LineString geometry = GeometryUtils
+            .getGeometryFactory()
+            .createLineString(segmentCoordinates.toArray(new Coordinate[0]));
+          segmentCoordinates.clear();
+
+          // The elevation of the start is only used for the first segment, the start of the
+          // following segments is the end of the previous one
+          segments.add(
+            new WaySegment(
+              i,
+              osmStartNode,
+              osmEndNode,
+              geometry,
+              segments.isEmpty() ? parseElevation(segmentStartOSMNode) : null,
+              parseElevation(osmEndNode)
+            )
           );
+          osmStartNode = osmEndNode;
+        }
+      }
+      return new WaySegments(way, wayData, permissions, segments, issues);
+    }
 
-          StreetEdge street = streets.first;
-          StreetEdge backStreet = streets.second;
-          applyWayProperties(street, backStreet, wayData, way);
+    /**
+     * Create the vertices and edges of a prepared way, this must be done in way order.
+     */
+    private void buildWay(WaySegments waySegments) {
+      OSMWay way = waySegments.way();
+      IntersectionVertex startEndpoint = null;
+      IntersectionVertex endEndpoint = null;
+
+      for (WaySegment segment : waySegments.segments()) {
+        /* generate endpoints */
+        if (startEndpoint == null) { // first iteration on this way
+          // make or get a shared vertex for flat intersections,
+          // one vertex per level for multilevel nodes like elevators
+          startEndpoint = getVertexForOsmNode(segment.start(), way);
+          if (segment.startElevation() != null) {
+            elevationData.put(startEndpoint, segment.startElevation());
+          }
+        } else { // subsequent iterations
+          startEndpoint = endEndpoint;
+        }
 
-          applyEdgesToTurnRestrictions(way, startNode, endNode, street, backStreet);
-          startNode = endNode;
-          osmStartNode = osmdb.getNode(startNode);
+        endEndpoint = getVertexForOsmNode(segment.end(), way);
+        if (segment.endElevation() != null) {
+          elevationData.put(endEndpoint, segment.endElevation());
         }
+        P2<StreetEdge> streets = getEdgesForStreet(
+          startEndpoint,
+          endEndpoint,
+          way,
+          segment.index(),
+          segment.start().getId(),
+          segment.end().getId(),
+          waySegments.permissions(),
+          segment.geometry()
+        );
 
-        //Keep lambda! A method-ref would log incorrect class and line number
-        //noinspection Convert2MethodRef
-        progress.step(m -> LOG.info(m));
-      } // END loop over OSM ways
+        StreetEdge street = streets.first;
+        StreetEdge backStreet = streets.second;
+        applyWayProperties(street, backStreet, waySegments.wayData(), way);
 
-      LOG.info(progress.completeMessage());
+        applyEdgesToTurnRestrictions(
+          way,
+          segment.start().getId(),
+          segment.end().getId(),
+          street,
+          backStreet
+        );
+      }
+    }
+
+    @Nullable
+    private Double parseElevation(OSMNode node) {
+      String ele = node.getTag("ele");
+      return ele == null ? null : ElevationUtils.parseEleTag(ele);
     }
 
     private void setWayName(OSMWithTags way) {
@@ -1676,4 +1721,28 @@ public class OpenStreetMapModule implements GraphBuilderModule {
       return vertices.get(level);
     }
   }
+
+  /**
+   * The edges to create for a way, {@code segments} is {@code null} if the way is not routable.
+   */
+  private record WaySegments(
+    OSMWay way,
+    WayProperties wayData,
+    StreetTraversalPermission permissions,
+    @Nullable List<WaySegment> segments,
+    DataImportIssueStore issues
+  ) {}
+
+  /**
+   * A segment of a way between two nodes which become vertices. The index is the index of the
+   * segment start node in the way, after duplicate nodes are removed.
+   */
+  private record WaySegment(
+    int index,
+    OSMNode start,
+    OSMNode end,
+    LineString geometry,
+    @Nullable Double startElevation,
+    @Nullable Double endElevation
+  ) {}
 }
@@ -2,22 +2,29 @@ package org.opentripplanner.graph_builder.module.osm;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.locationtech.jts.algorithm.locate.IndexedPointInAreaLocator;
+import org.locationtech.jts.algorithm.locate.PointOnGeometryLocator;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Location;
 import org.locationtech.jts.geom.MultiLineString;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
 import org.opentripplanner.common.model.P2;
 import org.opentripplanner.graph_builder.DataImportIssueStore;
@@ -43,12 +50,14 @@ import org.opentripplanner.routing.graph.Edge;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.routing.graph.Vertex;
 import org.opentripplanner.routing.spt.DominanceFunction;
-import org.opentripplanner.routing.spt.GraphPath;
 import org.opentripplanner.routing.spt.ShortestPathTree;
 import org.opentripplanner.routing.vertextype.IntersectionVertex;
 import org.opentripplanner.routing.vertextype.OsmVertex;
 import org.opentripplanner.transit.model.basic.I18NString;
 import org.opentripplanner.util.geometry.GeometryUtils;
+import org.opentripplanner.util.logging.ProgressTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Theoretically, it is not correct to build the visibility graph on the joined polygon of areas
@@ -70,6 +79,11 @@ import org.opentripplanner.util.geometry.GeometryUtils;
  */
 public class WalkableAreaBuilder {
 
+  private static final Logger LOG = LoggerFactory.getLogger(WalkableAreaBuilder.class);
+
+  /** Log the area groups which take longer than this to build. */
+  private static final long SLOW_AREA_GROUP_NANOS = 1_000_000_000L;
+
   private final DataImportIssueStore issueStore;
 
   private final int maxAreaNodes;
@@ -171,17 +185,55 @@ public class WalkableAreaBuilder {
   }
 
   public void buildWithVisibility(AreaGroup group) {
-    // These sets contain the nodes/vertices which can be used to traverse from the rest of the
-    // street network onto the walkable area
-    Set<OSMNode> startingNodes = new HashSet<>();
-    Set<Vertex> startingVertices = new HashSet<>();
+    buildWithVisibility(List.of(group));
+  }
 
-    // List of edges belonging to the walkable area
-    Set<Edge> edges = new HashSet<>();
+  /**
+   * Build the visibility graphs for the given area groups. This is done in three steps:
+   * <ol>
+   *   <li>Create the ring edges and find the visibility nodes, group by group.</li>
+   *   <li>Find the pairs of visibility nodes which can see each other, for all rings in
+   *   parallel. This does not change the graph, and is where most of the time is spent.</li>
+   *   <li>Create the visibility edges and prune them, group by group.</li>
+   * </ol>
+   * The graph is only changed in the first and the last step, in group order, so the result is
+   * the same as if the groups were built one by one.
+   */
+  public void buildWithVisibility(List<AreaGroup> groups) {
+    ProgressTracker progress = ProgressTracker.track(
+      "Build visibility graph for areas",
+      50,
+      groups.size()
+    );
+    LOG.info(progress.startMessage());
 
-    // Edges which are part of the rings. We want to keep there for linking even tough they
-    // might not be part of the visibility edges.
-    Set<Edge> ringEdges = new HashSet<>();
+    List<GroupVisibility> groupVisibilities = groups.stream().map(this::createRingEdges).toList();
+
+    groupVisibilities
+      .stream()
+      .flatMap(it -> it.rings.stream())
+      .toList()
+      .parallelStream()
+      .forEach(RingVisibility::findVisiblePairs);
+
+    var summary = new VisibilitySummary();
+    for (GroupVisibility groupVisibility : groupVisibilities) {
+      createVisibilityEdges(groupVisibility);
+      summary.add(groupVisibility);
+      //Keep lambda! A method-ref would log incorrect class and line number
+      //noinspection Convert2MethodRef
+      progress.step(m -> LOG.info(m));
+    }
+    LOG.info(progress.completeMessage());
+    summary.log();
+  }
+
+  /**
+   * Create the edges along the rings of the group, and find the visibility nodes of each ring.
+   */
+  private GroupVisibility createRingEdges(AreaGroup group) {
+    long startTime = System.nanoTime();
+    var result = new GroupVisibility(group);
 
     // OSM ways that this area group consists of
     Set<Long> osmWayIds = group.areas
@@ -207,13 +259,16 @@ public class WalkableAreaBuilder {
       HashSet<OSMNode> visibilityNodes = new HashSet<>();
       HashSet<P2<OSMNode>> alreadyAddedEdges = new HashSet<>();
       HashSet<IntersectionVertex> platformLinkingVertices = new HashSet<>();
+      // These sets contain the nodes which can be used to traverse from the rest of the
+      // street network onto the walkable area
+      Set<OSMNode> startingNodes = new HashSet<>();
       // we need to accumulate visibility points from all contained areas
       // inside this ring, but only for shared nodes; we don't care about
       // convexity, which we'll handle for the grouped area only.
 
       GeometryFactory geometryFactory = GeometryUtils.getGeometryFactory();
 
-      OSMWithTags areaEntity = group.getSomeOSMObject();
+      OSMWithTags areaEntity = result.areaEntity;
 
       // we also want to fill in the edges of this area anyway, because we can,
       // and to avoid the numerical problems that they tend to cause
@@ -261,8 +316,8 @@ public class WalkableAreaBuilder {
               i,
               alreadyAddedEdges
             );
-            edges.addAll(newEdges);
-            ringEdges.addAll(newEdges);
+            result.edges.addAll(newEdges);
+            result.ringEdges.addAll(newEdges);
             // A node can only be a visibility node only if it is an entrance to the
             // area or a convex point, i.e. the angle is over 180 degrees.
             if (outerRing.isNodeConvex(i)) {
@@ -277,7 +332,7 @@ public class WalkableAreaBuilder {
           for (Ring innerRing : outerRing.getHoles()) {
             for (int j = 0; j < innerRing.nodes.size(); ++j) {
               OSMNode node = innerRing.nodes.get(j);
-              edges.addAll(
+              result.edges.addAll(
                 createEdgesForRingSegment(edgeList, area, innerRing, j, alreadyAddedEdges)
               );
               // A node can only be a visibility node only if it is an entrance to the
@@ -319,42 +374,69 @@ public class WalkableAreaBuilder {
 
       createNamedAreas(edgeList, ring, group.areas);
 
-      for (OSMNode nodeI : visibilityNodes) {
+      result.rings.add(
+        new RingVisibility(
+          polygon,
+          edgeList,
+          List.copyOf(visibilityNodes),
+          startingNodes,
+          alreadyAddedEdges,
+          platformLinkingVertices
+        )
+      );
+    }
+    result.nanos += System.nanoTime() - startTime;
+    return result;
+  }
+
+  /**
+   * Create the edges between the visibility nodes which can see each other, and remove the edges
+   * which are not used in any shortest path between the starting nodes.
+   */
+  private void createVisibilityEdges(GroupVisibility groupVisibility) {
+    long startTime = System.nanoTime();
+    AreaGroup group = groupVisibility.group;
+    OSMWithTags areaEntity = groupVisibility.areaEntity;
+    Set<Vertex> startingVertices = new HashSet<>();
+
+    for (RingVisibility ring : groupVisibility.rings) {
+      List<OSMNode> visibilityNodes = ring.visibilityNodes;
+
+      for (int i = 0; i < visibilityNodes.size(); ++i) {
+        OSMNode nodeI = visibilityNodes.get(i);
         IntersectionVertex startEndpoint = handler.getVertexForOsmNode(nodeI, areaEntity);
-        if (startingNodes.contains(nodeI)) {
+        if (ring.startingNodes.contains(nodeI)) {
           startingVertices.add(startEndpoint);
         }
 
-        for (OSMNode nodeJ : visibilityNodes) {
+        for (int j = 0; j < visibilityNodes.size(); ++j) {
+          OSMNode nodeJ = visibilityNodes.get(j);
           P2<OSMNode> nodePair = new P2<>(nodeI, nodeJ);
-          if (alreadyAddedEdges.contains(nodePair)) continue;
+          if (ring.alreadyAddedEdges.contains(nodePair)) continue;
 
           IntersectionVertex endEndpoint = handler.getVertexForOsmNode(nodeJ, areaEntity);
 
-          Coordinate[] coordinates = new Coordinate[] {
-            startEndpoint.getCoordinate(),
-            endEndpoint.getCoordinate(),
-          };
-          LineString line = geometryFactory.createLineString(coordinates);
-          if (polygon.contains(line)) {
+          if (ring.isVisible(i, j)) {
             Set<AreaEdge> segments = createSegments(
               startEndpoint,
               endEndpoint,
               group.areas,
-              edgeList
+              ring.edgeList
             );
-            edges.addAll(segments);
-            if (platformLinkingVertices.contains(startEndpoint)) {
-              ringEdges.addAll(segments);
+            groupVisibility.edges.addAll(segments);
+            if (ring.platformLinkingVertices.contains(startEndpoint)) {
+              groupVisibility.ringEdges.addAll(segments);
             }
-            if (platformLinkingVertices.contains(endEndpoint)) {
-              ringEdges.addAll(segments);
+            if (ring.platformLinkingVertices.contains(endEndpoint)) {
+              groupVisibility.ringEdges.addAll(segments);
             }
           }
         }
       }
     }
-    pruneAreaEdges(startingVertices, edges, ringEdges);
+    groupVisibility.nEdgesBeforePruning = groupVisibility.edges.size();
+    pruneAreaEdges(startingVertices, groupVisibility.edges, groupVisibility.ringEdges);
+    groupVisibility.nanos += System.nanoTime() - startTime;
   }
 
   private Set<String> getStopReferences(AreaGroup group) {
@@ -385,24 +467,25 @@ public class WalkableAreaBuilder {
     } else {
       mode = StreetMode.CAR;
     }
-    RouteRequest options = new RouteRequest();
-    Set<Edge> usedEdges = new HashSet<>();
-    for (Vertex vertex : startingVertices) {
-      ShortestPathTree spt = AStarBuilder
-        .allDirections(new ListedEdgesOnly(edges))
-        .setDominanceFunction(new DominanceFunction.EarliestArrival())
-        .setRequest(options)
-        .setStreetRequest(new StreetRequest(mode))
-        .setFrom(vertex)
-        .getShortestPathTree();
-
-      for (Vertex endVertex : startingVertices) {
-        GraphPath path = spt.getPath(endVertex);
-        if (path != null) {
-          usedEdges.addAll(path.edges);
-        }
-      }
-    }
+    // The searches only read the edges, so they are done in parallel
+    Set<Edge> usedEdges = startingVertices
+      .parallelStream()
+      .flatMap(vertex -> {
+        ShortestPathTree spt = AStarBuilder
+          .allDirections(new ListedEdgesOnly(edges))
+          .setDominanceFunction(new DominanceFunction.EarliestArrival())
+          .setRequest(new RouteRequest())
+          .setStreetRequest(new StreetRequest(mode))
+          .setFrom(vertex)
+          .getShortestPathTree();
+
+        return startingVertices
+          .stream()
+          .map(spt::getPath)
+          .filter(Objects::nonNull)
+          .flatMap(path -> path.edges.stream());
+      })
+      .collect(Collectors.toSet());
     for (Edge edge : edges) {
       if (!usedEdges.contains(edge) && !edgesToKeep.contains(edge)) {
         graph.removeEdge(edge);
@@ -705,4 +788,179 @@ public class WalkableAreaBuilder {
       return !edges.contains(edge);
     }
   }
+
+  /**
+   * The visibility graph of an area group while it is built.
+   */
+  private static class GroupVisibility {
+
+    final AreaGroup group;
+    final OSMWithTags areaEntity;
+    final List<RingVisibility> rings = new ArrayList<>();
+
+    /** Edges belonging to the walkable area */
+    final Set<Edge> edges = new HashSet<>();
+
+    /**
+     * Edges which are part of the rings. We want to keep these for linking even though they might
+     * not be part of the visibility edges.
+     */
+    final Set<Edge> ringEdges = new HashSet<>();
+
+    int nEdgesBeforePruning = 0;
+    long nanos = 0;
+
+    GroupVisibility(AreaGroup group) {
+      this.group = group;
+      this.areaEntity = group.getSomeOSMObject();
+    }
+
+    int nVisibilityNodes() {
+      return rings.stream().mapToInt(it -> it.visibilityNodes.size()).sum();
+    }
+
+    long totalNanos() {
+      return nanos + rings.stream().mapToLong(it -> it.nanos).sum();
+    }
+  }
+
+  /**
+   * The visibility nodes of a ring, and which pairs of them can see each other - the straight line
+   * between them is inside the area.
+   */
+  private static class RingVisibility {
+
+    final Polygon polygon;
+    final AreaEdgeList edgeList;
+    final List<OSMNode> visibilityNodes;
+    final Set<OSMNode> startingNodes;
+    final Set<P2<OSMNode>> alreadyAddedEdges;
+    final Set<IntersectionVertex> platformLinkingVertices;
+
+    /** Bit {@code i * n + j} is set if node i and j can see each other. */
+    private BitSet visiblePairs;
+    private long nanos = 0;
+
+    RingVisibility(
+      Polygon polygon,
+      AreaEdgeList edgeList,
+      List<OSMNode> visibilityNodes,
+      Set<OSMNode> startingNodes,
+      Set<P2<OSMNode>> alreadyAddedEdges,
+      Set<IntersectionVertex> platformLinkingVertices
+    ) {
+      this.polygon = polygon;
+      this.edgeList = edgeList;
+      this.visibilityNodes = visibilityNodes;
+      this.startingNodes = startingNodes;
+      this.alreadyAddedEdges = alreadyAddedEdges;
+      this.platformLinkingVertices = platformLinkingVertices;
+    }
+
+    /**
+     * Test all pairs of visibility nodes. This does not use the graph, so the rings can be
+     * processed in parallel. Visibility is symmetric, so each pair is only tested once.
+     * <p>
+     * Most pairs in a concave area can not see each other. These are rejected first by looking up
+     * the midpoint of the line in an index of the polygon segments, which is much cheaper than
+     * the full test. Only the remaining pairs are tested against the prepared polygon, which also
+     * indexes the segments, so each test does not have to check every segment of the polygon.
+     */
+    void findVisiblePairs() {
+      long startTime = System.nanoTime();
+      GeometryFactory geometryFactory = GeometryUtils.getGeometryFactory();
+      PreparedGeometry preparedPolygon = PreparedGeometryFactory.prepare(polygon);
+      PointOnGeometryLocator locator = new IndexedPointInAreaLocator(polygon);
+      int n = visibilityNodes.size();
+      visiblePairs = new BitSet(n * n);
+
+      for (int i = 0; i < n; ++i) {
+        OSMNode nodeI = visibilityNodes.get(i);
+        for (int j = i; j < n; ++j) {
+          OSMNode nodeJ = visibilityNodes.get(j);
+          if (i != j && isMidpointOutside(locator, nodeI, nodeJ)) {
+            continue;
+          }
+          LineString line = geometryFactory.createLineString(
+            new Coordinate[] { nodeI.getCoordinate(), nodeJ.getCoordinate() }
+          );
+          if (preparedPolygon.contains(line)) {
+            visiblePairs.set(i * n + j);
+            visiblePairs.set(j * n + i);
+          }
+        }
+      }
+      nanos = System.nanoTime() - startTime;
+    }
+
+    private static boolean isMidpointOutside(
+      PointOnGeometryLocator locator,
+      OSMNode nodeI,
+      OSMNode nodeJ
+    ) {
+      Coordinate midpoint = new Coordinate(
+        (nodeI.lon + nodeJ.lon) / 2,
+        (nodeI.lat + nodeJ.lat) / 2
+      );
+      return locator.locate(midpoint) == Location.EXTERIOR;
+    }
+
+    boolean isVisible(int i, int j) {
+      return visiblePairs.get(i * visibilityNodes.size() + j);
+    }
+  }
+
+  /**
+   * Build time statistics for all area groups, the slow groups are logged.
+   */
+  private static class VisibilitySummary {
+
+    private int nGroups = 0;
+    private long nVisibilityNodes = 0;
+    private long nEdges = 0;
+    private long totalNanos = 0;
+    private GroupVisibility slowest = null;
+
+    void add(GroupVisibility group) {
+      long nanos = group.totalNanos();
+      ++nGroups;
+      nVisibilityNodes += group.nVisibilityNodes();
+      nEdges += group.nEdgesBeforePruning;
+      totalNanos += nanos;
+      if (slowest == null || nanos > slowest.totalNanos()) {
+        slowest = group;
+      }
+      if (nanos > SLOW_AREA_GROUP_NANOS) {
+        logGroup("Slow visibility graph for area", group);
+      } else if (LOG.isDebugEnabled()) {
+        logGroup("Visibility graph for area", group);
+      }
+    }
+
+    void log() {
+      if (nGroups == 0) {
+        return;
+      }
+      LOG.info(
+        "Visibility graphs for {} area groups: {} visibility nodes, {} edges before pruning, total time {} ms (in all threads).",
+        nGroups,
+        nVisibilityNodes,
+        nEdges,
+        totalNanos / 1_000_000
+      );
+      logGroup("Slowest visibility graph for area", slowest);
+    }
+
+    private static void logGroup(String message, GroupVisibility group) {
+      LOG.info(
+        "{} {}: {} ms, {} rings, {} visibility nodes, {} edges before pruning.",
+        message,
+        group.areaEntity.getOpenStreetMapLink(),
+        group.totalNanos() / 1_000_000,
+        group.rings.size(),
+        group.nVisibilityNodes(),
+        group.nEdgesBeforePruning
+      );
+    }
+  }
 }
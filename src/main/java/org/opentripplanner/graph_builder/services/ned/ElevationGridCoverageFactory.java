@@ -12,7 +12,10 @@ import org.opentripplanner.routing.graph.Graph;
  */
 
 public interface ElevationGridCoverageFactory {
-  /** Creates a new coverage instance from files already fetched */
+  /**
+   * Returns a coverage of the files already fetched. The coverage is shared by all threads of the
+   * elevation module, so it must be thread-safe.
+   */
   Coverage getGridCoverage();
 
   /**
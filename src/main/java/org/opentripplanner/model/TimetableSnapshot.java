@@ -283,6 +283,41 @@ public class TimetableSnapshot {
     return ret;
   }
 
+  /**
+   * Combine the committed snapshots of different feeds into one read-only snapshot. The snapshots
+   * must not contain the same trip patterns or trips, which is the case when each snapshot only
+   * contains the updates of a single feed. Only the maps are copied, not the timetables.
+   * <p>
+   * If a trip pattern still has timetables in more than one snapshot, the timetables of the first
+   * of them are kept and the conflict is logged, so that routing requests do not fail because of
+   * it.
+   */
+  public static TimetableSnapshot combine(Collection<TimetableSnapshot> snapshots) {
+    TimetableSnapshot ret = new TimetableSnapshot();
+    for (TimetableSnapshot snapshot : snapshots) {
+      if (!snapshot.readOnly) {
+        throw new IllegalArgumentException("Only committed snapshots can be combined.");
+      }
+      for (var entry : snapshot.timetables.entrySet()) {
+        if (ret.timetables.putIfAbsent(entry.getKey(), entry.getValue()) != null) {
+          LOG.warn(
+            "Trip pattern {} is updated in more than one snapshot, the updates of only one of " +
+            "them are used.",
+            entry.getKey().getId()
+          );
+        }
+      }
+      ret.realtimeAddedTripPattern.putAll(snapshot.realtimeAddedTripPattern);
+      ret.realtimeAddedTripOnServiceDate.putAll(snapshot.realtimeAddedTripOnServiceDate);
+      ret.realtimeAddedTripOnServiceDateByTripIdAndServiceDate.putAll(
+        snapshot.realtimeAddedTripOnServiceDateByTripIdAndServiceDate
+      );
+      ret.patternsForStop.putAll(snapshot.patternsForStop);
+    }
+    ret.readOnly = true;
+    return ret;
+  }
+
   /**
    * Clear all data of snapshot for the provided feed id
    *
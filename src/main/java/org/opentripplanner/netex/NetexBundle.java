@@ -1,9 +1,17 @@
 package org.opentripplanner.netex;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.xml.bind.JAXBException;
 import org.opentripplanner.datastore.api.CompositeDataSource;
 import org.opentripplanner.datastore.api.DataSource;
@@ -30,12 +38,22 @@ import org.slf4j.LoggerFactory;
  * keeping an index of entities to enable linking. The convention is documented here {@link
  * NetexDefaultsConfig#sharedFilePattern} and here {@link NetexDataSourceHierarchy}.
  * <p>
+ * The independent files of a group do not depend on each other, so they are parsed in parallel,
+ * each into its own index. The indexes are validated and mapped in file order, so the result is
+ * the same as if the files were loaded one by one.
+ * <p>
  * This class is also responsible for logging progress and exception handling.
  */
 public class NetexBundle implements Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(NetexBundle.class);
 
+  /**
+   * The number of files parsed ahead of the file being mapped, per thread. This limits the memory
+   * used by parsed files waiting to be mapped.
+   */
+  private static final int FILES_IN_FLIGHT_PER_THREAD = 2;
+
   private final CompositeDataSource source;
 
   private final NetexDataSourceHierarchy hierarchy;
@@ -50,6 +68,8 @@ public class NetexBundle implements Closeable {
   /** maps the NeTEx XML document to OTP transit model. */
   private NetexMapper mapper;
   private NetexXmlParser xmlParser;
+  private ExecutorService parserExecutor;
+  private int nParserThreads;
 
   public NetexBundle(
     String netexFeedId,
@@ -110,28 +130,80 @@ public class NetexBundle implements Closeable {
 
   /** Load all files entries in the bundle */
   private void loadFileEntries() {
-    // Load global shared files
-    loadFilesThenMapToOtpTransitModel("shared file", hierarchy.sharedEntries());
+    nParserThreads = Runtime.getRuntime().availableProcessors();
+    parserExecutor =
+      Executors.newFixedThreadPool(
+        nParserThreads,
+        new ThreadFactoryBuilder().setNameFormat("netex-parser-%d").setDaemon(true).build()
+      );
+    try {
+      // Load global shared files
+      loadFilesThenMapToOtpTransitModel("shared file", hierarchy.sharedEntries());
 
-    for (GroupEntries group : hierarchy.groups()) {
-      LOG.info("reading group {}", group.name());
+      for (GroupEntries group : hierarchy.groups()) {
+        LOG.info("reading group {}", group.name());
 
-      scopeInputData(() -> {
-        // Load shared group files
-        loadFilesThenMapToOtpTransitModel("shared group file", group.sharedEntries());
+        scopeInputData(() -> {
+          // Load shared group files
+          loadFilesThenMapToOtpTransitModel("shared group file", group.sharedEntries());
 
-        for (DataSource entry : group.independentEntries()) {
-          scopeInputData(() -> {
-            // Load each independent file in group
-            loadFilesThenMapToOtpTransitModel("group file", List.of(entry));
-          });
-        }
-      });
+          // Load each independent file in group
+          loadIndependentFilesThenMapToOtpTransitModel(group.independentEntries());
+        });
+      }
+    } finally {
+      parserExecutor.shutdownNow();
     }
     mapper.finishUp();
     NetexDocumentParser.finnishUp();
   }
 
+  /**
+   * Parse the independent files of a group in parallel, each file into its own child index of
+   * the group index. The files are validated and mapped in order on the calling thread, while the
+   * next files are parsed. The group index is not changed while the files are parsed, so it is
+   * safe to read from the parser threads.
+   */
+  private void loadIndependentFilesThenMapToOtpTransitModel(Collection<DataSource> entries) {
+    NetexEntityIndex groupIndex = index;
+    int maxFilesInFlight = FILES_IN_FLIGHT_PER_THREAD * nParserThreads;
+    Deque<Future<NetexEntityIndex>> filesInFlight = new ArrayDeque<>();
+    Iterator<DataSource> it = entries.iterator();
+
+    try {
+      while (it.hasNext() || !filesInFlight.isEmpty()) {
+        while (it.hasNext() && filesInFlight.size() < maxFilesInFlight) {
+          DataSource entry = it.next();
+          filesInFlight.add(
+            parserExecutor.submit(() -> loadSingeFileEntry("group file", entry, groupIndex.push()))
+          );
+        }
+        // Same as scopeInputData(), but the index is pushed by the parser task
+        index = waitFor(filesInFlight.poll());
+        mapper = mapper.push();
+        validateThenMapToOtpTransitModel();
+        mapper = mapper.pop();
+        index = index.pop();
+      }
+    } finally {
+      filesInFlight.forEach(file -> file.cancel(true));
+    }
+  }
+
+  private static NetexEntityIndex waitFor(Future<NetexEntityIndex> file) {
+    try {
+      return file.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e.getMessage(), e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      }
+      throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+    }
+  }
+
   /**
    * make a new index and pushes it on the index stack, before executing the task and at the end pop
    * of the index.
@@ -156,9 +228,12 @@ public class NetexBundle implements Closeable {
   ) {
     for (DataSource entry : entries) {
       // Load entry and store it in the index
-      loadSingeFileEntry(fileDescription, entry);
+      loadSingeFileEntry(fileDescription, entry, index);
     }
+    validateThenMapToOtpTransitModel();
+  }
 
+  private void validateThenMapToOtpTransitModel() {
     // Validate input data, and remove invalid data
     Validator.validate(index, issueStore);
 
@@ -166,13 +241,18 @@ public class NetexBundle implements Closeable {
     mapper.mapNetexToOtp(index.readOnlyView());
   }
 
-  /** Load a single entry and store it in the index for later */
-  private void loadSingeFileEntry(String fileDescription, DataSource entry) {
+  /** Load a single entry and store it in the given index for later */
+  private NetexEntityIndex loadSingeFileEntry(
+    String fileDescription,
+    DataSource entry,
+    NetexEntityIndex entryIndex
+  ) {
     try {
       LOG.info("reading entity {}: {}", fileDescription, entry.name());
 
       PublicationDeliveryStructure doc = xmlParser.parseXmlDoc(entry.asInputStream());
-      NetexDocumentParser.parseAndPopulateIndex(index, doc);
+      NetexDocumentParser.parseAndPopulateIndex(entryIndex, doc);
+      return entryIndex;
     } catch (JAXBException e) {
       throw new RuntimeException(e.getMessage(), e);
     }
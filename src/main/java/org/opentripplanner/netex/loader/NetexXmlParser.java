@@ -7,15 +7,20 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import org.rutebanken.netex.model.PublicationDeliveryStructure;
 
-/** Simple wrapper to perform typesafe xml parsing and simple error handling. */
+/**
+ * Simple wrapper to perform typesafe xml parsing and simple error handling.
+ * <p>
+ * THREAD SAFETY - An Unmarshaller is not thread safe, so each thread get its own. The JAXBContext
+ * is thread safe and expensive to create, so it is shared.
+ */
 public class NetexXmlParser {
 
-  /** used to parse the XML. */
-  private final Unmarshaller unmarshaller;
+  private static final JAXBContext JAXB_CONTEXT = createJaxbContext();
 
-  public NetexXmlParser() {
-    this.unmarshaller = createUnmarshaller();
-  }
+  /** used to parse the XML. */
+  private final ThreadLocal<Unmarshaller> unmarshaller = ThreadLocal.withInitial(
+    NetexXmlParser::createUnmarshaller
+  );
 
   /**
    * Parse an input stream and return the root document type for the given xml file (stream).
@@ -24,7 +29,7 @@ public class NetexXmlParser {
     JAXBElement<PublicationDeliveryStructure> root;
 
     //noinspection unchecked
-    root = (JAXBElement<PublicationDeliveryStructure>) unmarshaller.unmarshal(stream);
+    root = (JAXBElement<PublicationDeliveryStructure>) unmarshaller.get().unmarshal(stream);
 
     return root.getValue();
   }
@@ -32,10 +37,19 @@ public class NetexXmlParser {
   /** factory method for unmarshaller */
   private static Unmarshaller createUnmarshaller() {
     try {
-      return JAXBContext.newInstance(PublicationDeliveryStructure.class).createUnmarshaller();
+      return JAXB_CONTEXT.createUnmarshaller();
+    } catch (JAXBException e) {
+      // This is a programming error - not expected!
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static JAXBContext createJaxbContext() {
+    try {
+      return JAXBContext.newInstance(PublicationDeliveryStructure.class);
     } catch (JAXBException e) {
       // This is a programming error - not expected!
-      // We abort early and also allow for this to happen in the constructor;
+      // We abort early and also allow for this to happen when the class is loaded;
       // Which in other cases would be considered bad practice.
       throw new RuntimeException(e);
     }
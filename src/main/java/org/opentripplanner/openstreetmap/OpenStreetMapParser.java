@@ -1,12 +1,11 @@
 package org.opentripplanner.openstreetmap;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
 import org.openstreetmap.osmosis.osmbinary.BinaryParser;
 import org.openstreetmap.osmosis.osmbinary.Osmformat;
-import org.opentripplanner.graph_builder.module.osm.OSMDatabase;
 import org.opentripplanner.openstreetmap.model.OSMNode;
 import org.opentripplanner.openstreetmap.model.OSMNodeRef;
 import org.opentripplanner.openstreetmap.model.OSMProvider;
@@ -14,22 +13,31 @@ import org.opentripplanner.openstreetmap.model.OSMRelation;
 import org.opentripplanner.openstreetmap.model.OSMRelationMember;
 import org.opentripplanner.openstreetmap.model.OSMTag;
 import org.opentripplanner.openstreetmap.model.OSMWay;
+import org.opentripplanner.openstreetmap.model.OSMWithTags;
 
 /**
- * Parser for the OpenStreetMap PBF Format.
+ * Parser for one block of the OpenStreetMap PBF Format. The entities of the given phase are
+ * collected, and must be added to the OSMDatabase by the caller. A new parser is created for each
+ * block, this allows the blocks to be parsed in parallel - the string table is the only state
+ * shared between the parsers.
  *
  * @since 0.4
  */
 public class OpenStreetMapParser extends BinaryParser {
 
-  private final OSMDatabase osmdb;
-  private final Map<String, String> stringTable = new HashMap<>();
+  private final OsmParserPhase parsePhase;
   private final OSMProvider provider;
-  private OsmParserPhase parsePhase;
-
-  public OpenStreetMapParser(OSMDatabase osmdb, OSMProvider provider) {
-    this.osmdb = Objects.requireNonNull(osmdb);
+  private final ConcurrentMap<String, String> stringTable;
+  private final List<OSMWithTags> entities = new ArrayList<>();
+
+  OpenStreetMapParser(
+    OsmParserPhase parsePhase,
+    OSMProvider provider,
+    ConcurrentMap<String, String> stringTable
+  ) {
+    this.parsePhase = Objects.requireNonNull(parsePhase);
     this.provider = Objects.requireNonNull(provider);
+    this.stringTable = Objects.requireNonNull(stringTable);
   }
 
   // The strings are already being pulled from a string table in the PBF file,
@@ -37,12 +45,15 @@ public class OpenStreetMapParser extends BinaryParser {
   // String.intern grinds to a halt on large PBF files (as it did on GTFS import), so
   // we implement our own.
   public String internalize(String s) {
-    String fromTable = stringTable.get(s);
-    if (fromTable == null) {
-      stringTable.put(s, s);
-      return s;
-    }
-    return fromTable;
+    String fromTable = stringTable.putIfAbsent(s, s);
+    return fromTable == null ? s : fromTable;
+  }
+
+  /**
+   * The entities of the parse phase in the parsed block, in file order.
+   */
+  List<OSMWithTags> entities() {
+    return entities;
   }
 
   @Override
@@ -50,13 +61,6 @@ public class OpenStreetMapParser extends BinaryParser {
     // Jump in circles
   }
 
-  /**
-   * Set the phase to be parsed
-   */
-  public void setPhase(OsmParserPhase phase) {
-    this.parsePhase = phase;
-  }
-
   @Override
   protected void parseRelations(List<Osmformat.Relation> rels) {
     if (parsePhase != OsmParserPhase.Relations) {
@@ -100,7 +104,7 @@ public class OpenStreetMapParser extends BinaryParser {
         tmp.addMember(relMember);
       }
 
-      osmdb.addRelation(tmp);
+      entities.add(tmp);
     }
   }
 
@@ -145,7 +149,7 @@ public class OpenStreetMapParser extends BinaryParser {
         j++; // Skip over the '0' delimiter.
       }
 
-      osmdb.addNode(tmp);
+      entities.add(tmp);
     }
   }
 
@@ -172,7 +176,7 @@ public class OpenStreetMapParser extends BinaryParser {
         tmp.addTag(tag);
       }
 
-      osmdb.addNode(tmp);
+      entities.add(tmp);
     }
   }
 
@@ -205,7 +209,7 @@ public class OpenStreetMapParser extends BinaryParser {
         lastId = j + lastId;
       }
 
-      osmdb.addWay(tmp);
+      entities.add(tmp);
     }
   }
 
@@ -5,7 +5,16 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.ZoneId;
-import org.openstreetmap.osmosis.osmbinary.file.BlockInputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import org.openstreetmap.osmosis.osmbinary.file.FileBlock;
 import org.opentripplanner.datastore.api.DataSource;
 import org.opentripplanner.datastore.api.FileType;
 import org.opentripplanner.datastore.file.FileDataSource;
@@ -13,7 +22,11 @@ import org.opentripplanner.graph_builder.ConfiguredDataSource;
 import org.opentripplanner.graph_builder.module.osm.OSMDatabase;
 import org.opentripplanner.graph_builder.module.osm.WayPropertySet;
 import org.opentripplanner.graph_builder.module.osm.WayPropertySetSource;
+import org.opentripplanner.openstreetmap.model.OSMNode;
 import org.opentripplanner.openstreetmap.model.OSMProvider;
+import org.opentripplanner.openstreetmap.model.OSMRelation;
+import org.opentripplanner.openstreetmap.model.OSMWay;
+import org.opentripplanner.openstreetmap.model.OSMWithTags;
 import org.opentripplanner.standalone.config.feed.OsmDefaultsConfig;
 import org.opentripplanner.standalone.config.feed.OsmExtractConfig;
 import org.opentripplanner.standalone.config.feed.OsmExtractConfigBuilder;
@@ -25,11 +38,23 @@ import org.slf4j.LoggerFactory;
 /**
  * Parser for the OpenStreetMap PBF format. Parses files in three passes: First the relations, then
  * the ways, then the nodes are also loaded.
+ * <p>
+ * In each pass the blocks of the file are decompressed and parsed in parallel, while the parsed
+ * entities are added to the {@link OSMDatabase} by the calling thread in file order - so the
+ * database sees the same sequence of entities as with a sequential parser. An uncompressed local
+ * file is memory-mapped, other data sources are streamed (or cached in memory if
+ * {@code cacheDataInMem} is set).
  */
 public class OpenStreetMapProvider implements OSMProvider {
 
   private static final Logger LOG = LoggerFactory.getLogger(OpenStreetMapProvider.class);
 
+  /**
+   * The number of blocks decoded ahead of the block added to the database, per thread. This limits
+   * the memory used by decoded blocks waiting to be added.
+   */
+  private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 4;
+
   private final DataSource source;
   private final boolean cacheDataInMem;
 
@@ -78,15 +103,16 @@ public class OpenStreetMapProvider implements OSMProvider {
 
   public void readOSM(OSMDatabase osmdb) {
     try {
-      OpenStreetMapParser parser = new OpenStreetMapParser(osmdb, this);
+      // The strings are shared by all phases, the tag keys and values are repeated a lot
+      ConcurrentMap<String, String> stringTable = new ConcurrentHashMap<>();
 
-      parsePhase(parser, OsmParserPhase.Relations);
+      parsePhase(OsmParserPhase.Relations, stringTable, e -> osmdb.addRelation((OSMRelation) e));
       osmdb.doneFirstPhaseRelations();
 
-      parsePhase(parser, OsmParserPhase.Ways);
+      parsePhase(OsmParserPhase.Ways, stringTable, e -> osmdb.addWay((OSMWay) e));
       osmdb.doneSecondPhaseWays();
 
-      parsePhase(parser, OsmParserPhase.Nodes);
+      parsePhase(OsmParserPhase.Nodes, stringTable, e -> osmdb.addNode((OSMNode) e));
       osmdb.doneThirdPhaseNodes();
     } catch (Exception ex) {
       throw new IllegalStateException("error loading OSM from path " + source.path(), ex);
@@ -115,22 +141,79 @@ public class OpenStreetMapProvider implements OSMProvider {
     return ProgressTracker.track("Parse OSM " + phase, 1000, size, inputStream, m -> LOG.info(m));
   }
 
-  private void parsePhase(OpenStreetMapParser parser, OsmParserPhase phase) throws IOException {
-    parser.setPhase(phase);
-    BlockInputStream in = null;
-    try {
-      in = new BlockInputStream(createInputStream(phase), parser);
-      in.process();
-    } finally {
-      // Close
-      try {
-        if (in != null) {
-          in.close();
+  private void parsePhase(
+    OsmParserPhase phase,
+    ConcurrentMap<String, String> stringTable,
+    Consumer<OSMWithTags> addToDatabase
+  ) throws IOException {
+    int maxBlocksInFlight = BLOCKS_IN_FLIGHT_PER_THREAD * ForkJoinPool.getCommonPoolParallelism();
+    Deque<CompletableFuture<List<OSMWithTags>>> blocksInFlight = new ArrayDeque<>();
+
+    try (OsmPbfBlockSource blocks = openBlocks(phase)) {
+      OsmPbfBlockSource.RawBlock block;
+      while ((block = blocks.next()) != null) {
+        var rawBlock = block;
+        blocksInFlight.add(
+          CompletableFuture.supplyAsync(() -> parseBlock(rawBlock, phase, stringTable))
+        );
+        if (blocksInFlight.size() >= maxBlocksInFlight) {
+          addBlock(blocksInFlight.poll(), addToDatabase);
         }
-      } catch (Exception e) {
-        LOG.error(e.getMessage(), e);
       }
+      while (!blocksInFlight.isEmpty()) {
+        addBlock(blocksInFlight.poll(), addToDatabase);
+      }
+    } finally {
+      // Do not leave blocks behind if an error occurred, the result is not used
+      blocksInFlight.forEach(it -> it.cancel(false));
+    }
+  }
+
+  private List<OSMWithTags> parseBlock(
+    OsmPbfBlockSource.RawBlock block,
+    OsmParserPhase phase,
+    ConcurrentMap<String, String> stringTable
+  ) {
+    try {
+      var parser = new OpenStreetMapParser(phase, this, stringTable);
+      parser.handleBlock(FileBlock.newInstance(block.type(), block.decompress(), null));
+      return parser.entities();
+    } catch (Exception e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  private static void addBlock(
+    CompletableFuture<List<OSMWithTags>> block,
+    Consumer<OSMWithTags> addToDatabase
+  ) throws IOException {
+    try {
+      block.join().forEach(addToDatabase);
+    } catch (CompletionException e) {
+      throw new IOException(
+        "Failed to parse OSM PBF block: " + e.getCause().getMessage(),
+        e.getCause()
+      );
+    }
+  }
+
+  private OsmPbfBlockSource openBlocks(OsmParserPhase phase) throws IOException {
+    File file = uncompressedLocalFile();
+    if (file != null) {
+      return OsmPbfBlockSource.ofMappedFile(file, "Parse OSM " + phase);
+    }
+    return OsmPbfBlockSource.ofInputStream(createInputStream(phase));
+  }
+
+  /**
+   * Return the file if the data source is a local file which can be memory-mapped, if not
+   * {@code null}.
+   */
+  private File uncompressedLocalFile() {
+    if (source instanceof FileDataSource && !source.name().endsWith(".gz")) {
+      return new File(source.uri());
     }
+    return null;
   }
 
   private InputStream createInputStream(OsmParserPhase phase) {
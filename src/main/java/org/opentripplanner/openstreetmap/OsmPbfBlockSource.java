@@ -0,0 +1,213 @@
+package org.opentripplanner.openstreetmap;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+import org.openstreetmap.osmosis.osmbinary.Fileformat;
+import org.opentripplanner.util.logging.ProgressTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read the raw (still compressed) blocks of an OSM PBF file one by one, in file order. Reading the
+ * raw blocks is cheap, decompressing and parsing them is not - this is done by the caller, see
+ * {@link RawBlock#decompress()}. This split allows the blocks to be decoded in parallel.
+ * <p>
+ * The file format is a sequence of: a 4 byte big-endian header length, the {@code BlobHeader} and
+ * then the {@code Blob}, the size of the blob is given by the header. See
+ * https://wiki.openstreetmap.org/wiki/PBF_Format
+ */
+abstract class OsmPbfBlockSource implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OsmPbfBlockSource.class);
+
+  /** The max sizes are defined by the file format. */
+  private static final int MAX_HEADER_SIZE = 64 * 1024;
+  private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+  /**
+   * Read the blocks of an uncompressed local file, the file is memory-mapped. This avoids copying
+   * the file into the heap.
+   */
+  static OsmPbfBlockSource ofMappedFile(File file, String actionName) throws IOException {
+    return new MappedFileSource(file, actionName);
+  }
+
+  /**
+   * Read the blocks from a stream, use this if the data source is not an uncompressed local file.
+   */
+  static OsmPbfBlockSource ofInputStream(InputStream inputStream) {
+    return new InputStreamSource(inputStream);
+  }
+
+  /**
+   * Return the next raw block, or {@code null} if the end of the file is reached.
+   */
+  @Nullable
+  RawBlock next() throws IOException {
+    ByteBuffer headerSizeBuffer = readOrEndOfFile(4);
+    if (headerSizeBuffer == null) {
+      return null;
+    }
+    int headerSize = headerSizeBuffer.getInt();
+    if (headerSize < 0 || headerSize > MAX_HEADER_SIZE) {
+      throw new IOException("Invalid OSM PBF block header size: " + headerSize);
+    }
+    var header = Fileformat.BlobHeader.parseFrom(read(headerSize));
+    int blobSize = header.getDatasize();
+    if (blobSize < 0 || blobSize > MAX_BLOB_SIZE) {
+      throw new IOException("Invalid OSM PBF block size: " + blobSize);
+    }
+    return new RawBlock(header.getType(), read(blobSize));
+  }
+
+  /**
+   * Read the next {@code size} bytes, return {@code null} if the end of the file is reached
+   * before the first byte.
+   */
+  @Nullable
+  abstract ByteBuffer readOrEndOfFile(int size) throws IOException;
+
+  private ByteBuffer read(int size) throws IOException {
+    var buffer = readOrEndOfFile(size);
+    if (buffer == null) {
+      throw new EOFException("Unexpected end of OSM PBF file.");
+    }
+    return buffer;
+  }
+
+  /**
+   * A block of the file, the type is "OSMHeader" or "OSMData". The blob is not parsed or
+   * decompressed, so this is safe to pass on to another thread.
+   */
+  record RawBlock(String type, ByteBuffer blob) {
+    /**
+     * Parse the blob and return the decompressed block data.
+     */
+    ByteString decompress() throws InvalidProtocolBufferException, DataFormatException {
+      var parsedBlob = Fileformat.Blob.parseFrom(blob);
+      if (parsedBlob.hasRaw()) {
+        return parsedBlob.getRaw();
+      }
+      if (parsedBlob.hasZlibData()) {
+        byte[] data = new byte[parsedBlob.getRawSize()];
+        Inflater inflater = new Inflater();
+        try {
+          inflater.setInput(parsedBlob.getZlibData().asReadOnlyByteBuffer());
+          int size = inflater.inflate(data);
+          if (size != data.length || !inflater.finished()) {
+            throw new DataFormatException(
+              "Unexpected size of decompressed OSM PBF block: " + size + " != " + data.length
+            );
+          }
+        } finally {
+          inflater.end();
+        }
+        // The array is not shared, so it is safe to wrap it without copying
+        return UnsafeByteOperations.unsafeWrap(data);
+      }
+      throw new DataFormatException(
+        "Unsupported OSM PBF block compression, only zlib is supported."
+      );
+    }
+  }
+
+  /**
+   * Map the file in windows of up to 1 GiB, a MappedByteBuffer can not be larger than 2 GiB. A new
+   * window is mapped when a block crosses the end of the current window.
+   */
+  private static class MappedFileSource extends OsmPbfBlockSource {
+
+    private static final long MAX_WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final ProgressTracker progress;
+
+    private MappedByteBuffer window;
+    private long windowStart = 0;
+    private long position = 0;
+
+    private MappedFileSource(File file, String actionName) throws IOException {
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      this.size = channel.size();
+      this.progress = ProgressTracker.trackBytes(actionName, 1000, size);
+      LOG.info(progress.startMessage());
+    }
+
+    @Nullable
+    @Override
+    ByteBuffer readOrEndOfFile(int n) throws IOException {
+      if (position == size) {
+        return null;
+      }
+      if (position + n > size) {
+        throw new EOFException("Unexpected end of OSM PBF file.");
+      }
+      if (window == null || position + n > windowStart + window.capacity()) {
+        windowStart = position;
+        window =
+          channel.map(
+            FileChannel.MapMode.READ_ONLY,
+            position,
+            Math.min(MAX_WINDOW_SIZE, size - position)
+          );
+      }
+      ByteBuffer result = window.slice((int) (position - windowStart), n);
+      position += n;
+      progress.steps(n, LOG::info);
+      return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+      // The mapped windows are released when they are garbage collected
+      window = null;
+      channel.close();
+      LOG.info(progress.completeMessage());
+    }
+  }
+
+  private static class InputStreamSource extends OsmPbfBlockSource {
+
+    private final DataInputStream in;
+
+    private InputStreamSource(InputStream inputStream) {
+      this.in = new DataInputStream(inputStream);
+    }
+
+    @Nullable
+    @Override
+    ByteBuffer readOrEndOfFile(int n) throws IOException {
+      byte[] bytes = new byte[n];
+      if (n == 0) {
+        return ByteBuffer.wrap(bytes);
+      }
+      int first = in.read();
+      if (first < 0) {
+        return null;
+      }
+      bytes[0] = (byte) first;
+      in.readFully(bytes, 1, n - 1);
+      return ByteBuffer.wrap(bytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -24,6 +24,7 @@ import org.opentripplanner.routing.algorithm.filterchain.deletionflagger.RemoveP
 import org.opentripplanner.routing.algorithm.filterchain.deletionflagger.RemoveTransitIfStreetOnlyIsBetterFilter;
 import org.opentripplanner.routing.algorithm.filterchain.deletionflagger.RemoveWalkOnlyFilter;
 import org.opentripplanner.routing.algorithm.filterchain.deletionflagger.TransitGeneralizedCostFilter;
+import org.opentripplanner.routing.algorithm.filterchain.filter.DecoratingFilter;
 import org.opentripplanner.routing.algorithm.filterchain.filter.DeletionFlaggingFilter;
 import org.opentripplanner.routing.algorithm.filterchain.filter.GroupByFilter;
 import org.opentripplanner.routing.algorithm.filterchain.filter.RemoveDeletionFlagForLeastTransfersItinerary;
@@ -280,18 +281,6 @@ public class ItineraryListFilterChainBuilder {
       filters.add(new SameFirstOrLastTripFilter());
     }
 
-    if (accessibilityScore) {
-      filters.add(new AccessibilityScoreFilter(wheelchairMaxSlope));
-    }
-
-    if (faresService != null) {
-      filters.add(new FaresFilter(faresService));
-    }
-
-    if (transitAlertService != null) {
-      filters.add(new TransitAlertFilter(transitAlertService, getMultiModalStation));
-    }
-
     // Filter transit itineraries on generalized-cost
     if (transitGeneralizedCostFilterParams != null) {
       filters.add(
@@ -369,9 +358,32 @@ public class ItineraryListFilterChainBuilder {
     // Do the final itineraries sort
     filters.add(new SortingFilter(SortOrderComparator.comparator(sortOrder)));
 
+    // Decorate the itineraries AFTER all itineraries are flagged for deletion, so the fares,
+    // alerts and accessibility scores are only computed for the itineraries returned. None of the
+    // filters above depend on these.
+    if (accessibilityScore) {
+      filters.add(decorator(new AccessibilityScoreFilter(wheelchairMaxSlope)));
+    }
+
+    if (faresService != null) {
+      filters.add(decorator(new FaresFilter(faresService)));
+    }
+
+    if (transitAlertService != null) {
+      filters.add(decorator(new TransitAlertFilter(transitAlertService, getMultiModalStation)));
+    }
+
     return new ItineraryListFilterChain(filters, debug);
   }
 
+  /**
+   * In debug mode the itineraries flagged for deletion are returned as well, so they are decorated
+   * too.
+   */
+  private ItineraryListFilter decorator(ItineraryListFilter filter) {
+    return debug ? filter : new DecoratingFilter(filter);
+  }
+
   /**
    * If enabled, this adds the filter to remove itineraries which have the same stops and routes.
    * These are sometimes called "time-shifted duplicates" but since those terms have so many meanings
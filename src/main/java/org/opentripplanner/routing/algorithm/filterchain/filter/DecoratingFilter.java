@@ -0,0 +1,44 @@
+package org.opentripplanner.routing.algorithm.filterchain.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import org.opentripplanner.model.plan.Itinerary;
+import org.opentripplanner.routing.algorithm.filterchain.ItineraryListFilter;
+
+/**
+ * Apply a decorating filter, like fares or alerts, only to the itineraries which are not flagged
+ * for deletion. Decorating is often expensive, and most of the itineraries found by the search are
+ * removed by the filter chain, so the decorators should be added at the end of the chain using
+ * this filter.
+ * <p>
+ * The decorated itineraries are put back in the same position in the list, the itineraries
+ * flagged for deletion are returned unchanged.
+ */
+public class DecoratingFilter implements ItineraryListFilter {
+
+  private final ItineraryListFilter decorator;
+
+  public DecoratingFilter(ItineraryListFilter decorator) {
+    this.decorator = decorator;
+  }
+
+  @Override
+  public List<Itinerary> filter(List<Itinerary> itineraries) {
+    List<Itinerary> kept = itineraries
+      .stream()
+      .filter(Predicate.not(Itinerary::isFlaggedForDeletion))
+      .toList();
+
+    if (kept.isEmpty()) {
+      return itineraries;
+    }
+
+    var decorated = decorator.filter(kept).iterator();
+    List<Itinerary> result = new ArrayList<>(itineraries.size());
+    for (Itinerary it : itineraries) {
+      result.add(it.isFlaggedForDeletion() ? it : decorated.next());
+    }
+    return result;
+  }
+}
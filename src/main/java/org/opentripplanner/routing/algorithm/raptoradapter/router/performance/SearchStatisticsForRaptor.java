@@ -0,0 +1,59 @@
+package org.opentripplanner.routing.algorithm.raptoradapter.router.performance;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import java.util.Collection;
+import org.opentripplanner.routing.api.request.RoutingTag;
+import org.opentripplanner.routing.framework.MicrometerUtils;
+import org.opentripplanner.transit.raptor.api.debug.RaptorSearchStatistics;
+import org.opentripplanner.transit.raptor.api.debug.RaptorStatisticsCollector;
+import org.opentripplanner.transit.raptor.api.request.RaptorProfile;
+
+/**
+ * Export the Raptor search statistics as Micrometer distributions, one sample per search. The
+ * distributions are tagged with the Raptor profile and search direction, in addition to the
+ * routing request tags. This is enabled with the {@code RaptorStatistics} OTP feature.
+ */
+public class SearchStatisticsForRaptor implements RaptorStatisticsCollector {
+
+  private static final String PREFIX = "raptor.search.";
+
+  private final Tags tags;
+  private final MeterRegistry registry;
+
+  public SearchStatisticsForRaptor(Collection<RoutingTag> routingTags, MeterRegistry registry) {
+    this.tags = Tags.of(MicrometerUtils.mapTimingTags(routingTags));
+    this.registry = registry;
+  }
+
+  @Override
+  public void collect(RaptorSearchStatistics statistics) {
+    Tags searchTags = tags.and(
+      Tag.of("profile", statistics.profile().name()),
+      Tag.of("direction", statistics.direction().name())
+    );
+
+    record("iterations", searchTags, statistics.iterations());
+    record("rounds", searchTags, statistics.rounds());
+    record("patternsScanned", searchTags, statistics.patternsScanned());
+    record("tripSearches", searchTags, statistics.tripSearches());
+    record("binaryTripSearches", searchTags, statistics.binaryTripSearches());
+    record("binaryTripSearchFallbacks", searchTags, statistics.binaryTripSearchFallbacks());
+
+    if (statistics.profile().is(RaptorProfile.MULTI_CRITERIA)) {
+      record("paretoSetInserts", searchTags, statistics.paretoSetInserts());
+      record("paretoSetRejects", searchTags, statistics.paretoSetRejects());
+    }
+
+    double[] stopsReached = statistics.avgStopsReachedByRound();
+    for (int round = 1; round < stopsReached.length; ++round) {
+      record("stopsReached", searchTags.and("round", Integer.toString(round)), stopsReached[round]);
+    }
+  }
+
+  private void record(String name, Tags searchTags, double value) {
+    DistributionSummary.builder(PREFIX + name).tags(searchTags).register(registry).record(value);
+  }
+}
@@ -0,0 +1,25 @@
+package org.opentripplanner.routing.algorithm.raptoradapter.transit;
+
+import java.time.LocalDate;
+
+/**
+ * A rolling window of dates around today: {@code [today - pastDays, today + futureDays]}. Used to
+ * limit the dates for which the trip patterns are kept in memory in the {@link TransitLayer}.
+ */
+public record ServiceDateWindow(int pastDays, int futureDays) {
+  public ServiceDateWindow {
+    if (pastDays < 0 || futureDays < 0) {
+      throw new IllegalArgumentException(
+        "The service date window can not be negative: " + pastDays + ", " + futureDays
+      );
+    }
+  }
+
+  public LocalDate start(LocalDate today) {
+    return today.minusDays(pastDays);
+  }
+
+  public LocalDate end(LocalDate today) {
+    return today.plusDays(futureDays);
+  }
+}
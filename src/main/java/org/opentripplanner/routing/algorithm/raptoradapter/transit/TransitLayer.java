@@ -26,6 +26,14 @@ public class TransitLayer {
    */
   private final HashMap<LocalDate, List<TripPatternForDate>> tripPatternsRunningOnDate;
 
+  /**
+   * If set, the scheduled trip patterns are mapped on demand for each date, and only the dates
+   * updated by realtime are kept in {@link #tripPatternsRunningOnDate}. The cache is shared with
+   * all copies of this TransitLayer.
+   */
+  @Nullable
+  private final TripPatternsRunningOnDateCache tripPatternsRunningOnDateCache;
+
   /**
    * Index of outer list is from stop index, inner list index has no specific meaning. To stop index
    * is a field of the Transfer object.
@@ -52,11 +60,13 @@ public class TransitLayer {
   /**
    * Makes a shallow copy of the TransitLayer, except for the tripPatternsForDate, where a shallow
    * copy of the HashMap is made. This is sufficient, as the TransitLayerUpdater will replace entire
-   * keys and their values in the map.
+   * keys and their values in the map. If the trip patterns are mapped on demand, the dates evicted
+   * from the cache are dropped from the copy.
    */
   public TransitLayer(TransitLayer transitLayer) {
     this(
       transitLayer.tripPatternsRunningOnDate,
+      transitLayer.tripPatternsRunningOnDateCache,
       transitLayer.transfersByStopIndex,
       transitLayer.transferService,
       transitLayer.stopModel,
@@ -70,6 +80,7 @@ public class TransitLayer {
 
   public TransitLayer(
     Map<LocalDate, List<TripPatternForDate>> tripPatternsRunningOnDate,
+    @Nullable TripPatternsRunningOnDateCache tripPatternsRunningOnDateCache,
     List<List<Transfer>> transfersByStopIndex,
     TransferService transferService,
     StopModel stopModel,
@@ -80,6 +91,11 @@ public class TransitLayer {
     int[] stopBoardAlightCosts
   ) {
     this.tripPatternsRunningOnDate = new HashMap<>(tripPatternsRunningOnDate);
+    this.tripPatternsRunningOnDateCache = tripPatternsRunningOnDateCache;
+    if (tripPatternsRunningOnDateCache != null) {
+      this.tripPatternsRunningOnDate.keySet()
+        .removeIf(tripPatternsRunningOnDateCache::isBeforeWindow);
+    }
     this.transfersByStopIndex = transfersByStopIndex;
     this.transferService = transferService;
     this.stopModel = stopModel;
@@ -96,7 +112,11 @@ public class TransitLayer {
   }
 
   public Collection<TripPatternForDate> getTripPatternsForDate(LocalDate date) {
-    return tripPatternsRunningOnDate.getOrDefault(date, List.of());
+    List<TripPatternForDate> tripPatternForDate = tripPatternsRunningOnDate.get(date);
+    if (tripPatternForDate == null && tripPatternsRunningOnDateCache != null) {
+      return tripPatternsRunningOnDateCache.get(date);
+    }
+    return tripPatternForDate != null ? tripPatternForDate : List.of();
   }
 
   /**
@@ -114,8 +134,7 @@ public class TransitLayer {
   }
 
   public List<TripPatternForDate> getTripPatternsRunningOnDateCopy(LocalDate runningPeriodDate) {
-    List<TripPatternForDate> tripPatternForDate = tripPatternsRunningOnDate.get(runningPeriodDate);
-    return tripPatternForDate != null ? new ArrayList<>(tripPatternForDate) : new ArrayList<>();
+    return new ArrayList<>(getTripPatternsForDate(runningPeriodDate));
   }
 
   public List<TripPatternForDate> getTripPatternsStartingOnDateCopy(LocalDate date) {
@@ -156,13 +175,34 @@ public class TransitLayer {
 
   /**
    * Replaces all the TripPatternForDates for a single date. This is an atomic operation according
-   * to the HashMap implementation.
+   * to the HashMap implementation. If the trip patterns are mapped on demand, the date is added
+   * even if it is not in the map, it then overrides the scheduled trip patterns in the cache.
    */
   public void replaceTripPatternsForDate(
     LocalDate date,
     List<TripPatternForDate> tripPatternForDates
   ) {
-    this.tripPatternsRunningOnDate.replace(date, tripPatternForDates);
+    if (tripPatternsRunningOnDateCache != null) {
+      this.tripPatternsRunningOnDate.put(date, tripPatternForDates);
+    } else {
+      this.tripPatternsRunningOnDate.replace(date, tripPatternForDates);
+    }
+  }
+
+  /**
+   * Called when the scheduled layer is replaced by the given layer. Stops the background work of
+   * the trip patterns mapped on demand, unless the cache is shared with the new layer.
+   */
+  public void replacedBy(TransitLayer replacement) {
+    if (
+      tripPatternsRunningOnDateCache != null &&
+      (
+        replacement == null ||
+        replacement.tripPatternsRunningOnDateCache != tripPatternsRunningOnDateCache
+      )
+    ) {
+      tripPatternsRunningOnDateCache.close();
+    }
   }
 
   public void setConstrainedTransfers(ConstrainedTransfersForPatterns constrainedTransfers) {
@@ -2,6 +2,7 @@ package org.opentripplanner.routing.algorithm.raptoradapter.transit;
 
 import java.time.Duration;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.opentripplanner.transit.model.site.StopTransferPriority;
 import org.opentripplanner.util.time.DurationUtils;
 
@@ -96,4 +97,18 @@ public interface TransitTuningParameters {
    * The default values are: {@link #PAGING_SEARCH_WINDOW_ADJUSTMENTS}
    */
   List<Duration> pagingSearchWindowAdjustments();
+
+  /**
+   * If set, the trip patterns running on each date are mapped on demand, and only the dates
+   * inside this window around today are kept in memory. The dates inside the window are mapped up
+   * front, and the upcoming dates are mapped in the background as the window moves. This reduces
+   * memory usage and startup time for feeds with a long service period.
+   * <p>
+   * The default is {@code null}, all dates in the service period are mapped when the transit layer
+   * is created.
+   */
+  @Nullable
+  default ServiceDateWindow serviceDateWindow() {
+    return null;
+  }
 }
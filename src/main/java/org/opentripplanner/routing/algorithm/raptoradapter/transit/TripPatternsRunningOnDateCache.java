@@ -0,0 +1,269 @@
+package org.opentripplanner.routing.algorithm.raptoradapter.transit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maps the scheduled {@link TripPatternForDate}s for a date on demand, instead of mapping all dates
+ * in the service period when the {@link TransitLayer} is created. This saves a lot of memory for
+ * feeds with a long validity period, because routing is usually done within a few days of today.
+ * <p>
+ * The dates inside a rolling {@link ServiceDateWindow} around today are mapped up front, and when
+ * the window moves (checked every hour) the upcoming dates are mapped in the background and the
+ * dates outside the window are evicted. Dates outside the window are still available, they are
+ * mapped when requested and kept until the next time the window is rolled.
+ * <p>
+ * A trip "runs through" a date if any of its arrivals or departures is happening on that date, so
+ * the trip patterns running on a date are collected from the service dates within the range of
+ * day offsets of the trips (usually the service date and the day before).
+ * <p>
+ * The scheduled TransitLayer and all realtime copies share the same instance. It should be
+ * {@link #close() closed} when the scheduled TransitLayer is replaced. THIS CLASS IS THREAD SAFE.
+ */
+public class TripPatternsRunningOnDateCache implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TripPatternsRunningOnDateCache.class);
+  private static final String METRICS_PREFIX = "transit.layer.";
+
+  private final ServiceDateWindow window;
+  private final Clock clock;
+  private final int minDayOffset;
+  private final int maxDayOffset;
+
+  /** Maps all trip patterns for a service date, returns an empty list if there is no service. */
+  private final Function<LocalDate, List<TripPatternForDate>> serviceDateMapper;
+
+  /**
+   * The values are futures, so a date is mapped outside the map, only the threads asking for the
+   * same date wait for it.
+   */
+  private final ConcurrentMap<LocalDate, CompletableFuture<List<TripPatternForDate>>> tripPatternsByServiceDate = new ConcurrentHashMap<>();
+  private final ConcurrentMap<LocalDate, CompletableFuture<List<TripPatternForDate>>> tripPatternsRunningOnDate = new ConcurrentHashMap<>();
+
+  private final AtomicLong tripPatternForDateCount = new AtomicLong();
+  private final AtomicLong tripTimesCount = new AtomicLong();
+  private final MeterRegistry registry;
+  private final Timer mapServiceDateTimer;
+  private final List<Gauge> gauges;
+
+  private volatile LocalDate windowStart;
+
+  /** The scheduler rolling the window, guarded by this */
+  private ScheduledExecutorService scheduler = null;
+
+  /**
+   * @param minDayOffset the first day, relative to the service date, any trip runs on. This is -1
+   *                     if a trip have negative times, if not 0.
+   * @param maxDayOffset the last day, relative to the service date, any trip runs on. This is 1
+   *                     if any trip runs past midnight.
+   */
+  public TripPatternsRunningOnDateCache(
+    ServiceDateWindow window,
+    Clock clock,
+    int minDayOffset,
+    int maxDayOffset,
+    Function<LocalDate, List<TripPatternForDate>> serviceDateMapper,
+    MeterRegistry registry
+  ) {
+    this.window = window;
+    this.clock = clock;
+    this.minDayOffset = minDayOffset;
+    this.maxDayOffset = maxDayOffset;
+    this.serviceDateMapper = serviceDateMapper;
+    this.windowStart = window.start(LocalDate.now(clock));
+
+    this.registry = registry;
+    this.mapServiceDateTimer = Timer.builder(METRICS_PREFIX + "mapServiceDate").register(registry);
+    this.gauges =
+      List.of(
+        registerGauge("serviceDates", tripPatternsByServiceDate, Map::size),
+        registerGauge("runningDates", tripPatternsRunningOnDate, Map::size),
+        registerGauge("tripPatternsForDate", tripPatternForDateCount, AtomicLong::get),
+        registerGauge("tripTimes", tripTimesCount, AtomicLong::get)
+      );
+  }
+
+  /**
+   * Return the trip patterns running on the given date, map them if they are not cached.
+   */
+  public List<TripPatternForDate> get(LocalDate runningDate) {
+    return getOrMap(tripPatternsRunningOnDate, runningDate, this::mapRunningDate);
+  }
+
+  /**
+   * Dates before the start of the window are evicted from the cache. Realtime updates for these
+   * dates can be dropped as well.
+   */
+  public boolean isBeforeWindow(LocalDate date) {
+    return date.isBefore(windowStart);
+  }
+
+  /**
+   * Move the window to today, evict the dates outside the window and map the dates inside it.
+   */
+  public void roll() {
+    LocalDate today = LocalDate.now(clock);
+    LocalDate start = window.start(today);
+    LocalDate end = window.end(today);
+    windowStart = start;
+
+    for (LocalDate date : List.copyOf(tripPatternsRunningOnDate.keySet())) {
+      if (date.isBefore(start) || date.isAfter(end)) {
+        tripPatternsRunningOnDate.remove(date);
+      }
+    }
+    for (LocalDate serviceDate : List.copyOf(tripPatternsByServiceDate.keySet())) {
+      // Keep the service dates with trips running inside the window
+      if (
+        serviceDate.plusDays(maxDayOffset).isBefore(start) ||
+        serviceDate.plusDays(minDayOffset).isAfter(end)
+      ) {
+        var removed = tripPatternsByServiceDate.remove(serviceDate);
+        if (removed != null) {
+          // The date may still be mapped by another thread
+          removed.thenAccept(it -> updateCounters(it, -1));
+        }
+      }
+    }
+
+    long startTime = System.currentTimeMillis();
+    start.datesUntil(end.plusDays(1)).forEach(this::get);
+    LOG.debug(
+      "Service date window {} - {} is ready, it took {} ms",
+      start,
+      end,
+      System.currentTimeMillis() - startTime
+    );
+  }
+
+  /**
+   * Roll the window every hour in a background thread, so that the dates entering the window are
+   * mapped before they are needed.
+   */
+  public synchronized void startRollingInBackground() {
+    if (scheduler != null) {
+      return;
+    }
+    var threadFactory = new ThreadFactoryBuilder()
+      .setNameFormat("ServiceDateWindow-%d")
+      .setDaemon(true)
+      .build();
+    scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    scheduler.scheduleWithFixedDelay(
+      () -> {
+        try {
+          roll();
+        } catch (Exception e) {
+          // An uncaught exception would stop the task from running again
+          LOG.error("Failed to roll the service date window: {}", e.getMessage(), e);
+        }
+      },
+      1,
+      1,
+      TimeUnit.HOURS
+    );
+  }
+
+  /**
+   * Stop rolling the window and remove the gauges of this cache from the registry, unless they
+   * are already replaced by a newer cache. The cached dates are kept, the cache can still be used
+   * by routing requests in progress.
+   */
+  @Override
+  public synchronized void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+    for (Gauge gauge : gauges) {
+      if (registry.find(gauge.getId().getName()).gauge() == gauge) {
+        registry.remove(gauge);
+      }
+    }
+  }
+
+  private List<TripPatternForDate> mapRunningDate(LocalDate runningDate) {
+    List<TripPatternForDate> result = new ArrayList<>();
+    // Add the trip patterns in service date order
+    for (int offset = maxDayOffset; offset >= minDayOffset; --offset) {
+      for (TripPatternForDate it : getServiceDate(runningDate.minusDays(offset))) {
+        if (it.getRunningPeriodDates().contains(runningDate)) {
+          result.add(it);
+        }
+      }
+    }
+    return List.copyOf(result);
+  }
+
+  private List<TripPatternForDate> getServiceDate(LocalDate serviceDate) {
+    return getOrMap(tripPatternsByServiceDate, serviceDate, this::mapServiceDate);
+  }
+
+  private List<TripPatternForDate> mapServiceDate(LocalDate serviceDate) {
+    var result = mapServiceDateTimer.record(() -> serviceDateMapper.apply(serviceDate));
+    updateCounters(result, 1);
+    return result;
+  }
+
+  /**
+   * Return the value for the date, or map it in the calling thread if it is missing. Unlike
+   * {@link ConcurrentMap#computeIfAbsent}, the map is not locked while the value is mapped.
+   */
+  private static List<TripPatternForDate> getOrMap(
+    ConcurrentMap<LocalDate, CompletableFuture<List<TripPatternForDate>>> cache,
+    LocalDate date,
+    Function<LocalDate, List<TripPatternForDate>> mapper
+  ) {
+    var future = cache.get(date);
+    if (future == null) {
+      var newFuture = new CompletableFuture<List<TripPatternForDate>>();
+      future = cache.putIfAbsent(date, newFuture);
+      if (future == null) {
+        try {
+          newFuture.complete(mapper.apply(date));
+        } catch (RuntimeException e) {
+          // Let the next request try again
+          cache.remove(date, newFuture);
+          newFuture.completeExceptionally(e);
+          throw e;
+        }
+        return newFuture.join();
+      }
+    }
+    return future.join();
+  }
+
+  /**
+   * Register a gauge, a gauge with the same name registered by a previous cache is replaced.
+   * Micrometer would otherwise keep reporting the previous cache.
+   */
+  private <T> Gauge registerGauge(String name, T obj, ToDoubleFunction<T> f) {
+    registry.find(METRICS_PREFIX + name).gauges().forEach(registry::remove);
+    return Gauge.builder(METRICS_PREFIX + name, obj, f).register(registry);
+  }
+
+  private void updateCounters(List<TripPatternForDate> tripPatterns, int sign) {
+    tripPatternForDateCount.addAndGet(sign * (long) tripPatterns.size());
+    tripTimesCount.addAndGet(
+      sign * tripPatterns.stream().mapToLong(TripPatternForDate::numberOfTripSchedules).sum()
+    );
+  }
+}
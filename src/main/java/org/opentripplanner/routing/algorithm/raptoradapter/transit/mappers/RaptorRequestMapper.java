@@ -7,6 +7,7 @@ import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.Collection;
 import org.opentripplanner.routing.algorithm.raptoradapter.router.performance.PerformanceTimersForRaptor;
+import org.opentripplanner.routing.algorithm.raptoradapter.router.performance.SearchStatisticsForRaptor;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.SlackProvider;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.TripSchedule;
 import org.opentripplanner.routing.api.request.RouteRequest;
@@ -158,6 +159,12 @@ public class RaptorRequestMapper {
       )
     );
 
+    if (OTPFeature.RaptorStatistics.isOn()) {
+      builder.statisticsCollector(
+        new SearchStatisticsForRaptor(preferences.system().tags(), meterRegistry)
+      );
+    }
+
     return builder.build();
   }
 
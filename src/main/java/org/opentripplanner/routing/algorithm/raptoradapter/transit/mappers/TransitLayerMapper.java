@@ -3,6 +3,8 @@ package org.opentripplanner.routing.algorithm.raptoradapter.transit.mappers;
 import static org.opentripplanner.routing.algorithm.raptoradapter.transit.mappers.TransfersMapper.mapTransfers;
 
 import com.google.common.collect.ArrayListMultimap;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -11,19 +13,24 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.opentripplanner.model.Timetable;
+import org.opentripplanner.routing.algorithm.raptoradapter.transit.ServiceDateWindow;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.Transfer;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.TransitLayer;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.TransitTuningParameters;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.TripPatternForDate;
+import org.opentripplanner.routing.algorithm.raptoradapter.transit.TripPatternsRunningOnDateCache;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.constrainedtransfer.ConstrainedTransfersForPatterns;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.constrainedtransfer.TransferIndexGenerator;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.cost.RaptorCostConverter;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.request.RaptorRequestTransferCache;
 import org.opentripplanner.transit.model.network.TripPattern;
 import org.opentripplanner.transit.model.site.StopTransferPriority;
+import org.opentripplanner.transit.model.timetable.FrequencyEntry;
 import org.opentripplanner.transit.model.timetable.TripTimes;
 import org.opentripplanner.transit.service.StopModel;
 import org.opentripplanner.transit.service.TransitModel;
@@ -45,6 +52,7 @@ import org.slf4j.LoggerFactory;
 public class TransitLayerMapper {
 
   private static final Logger LOG = LoggerFactory.getLogger(TransitLayerMapper.class);
+  private static final int SECONDS_PER_DAY = 24 * 60 * 60;
 
   private final TransitModel transitModel;
 
@@ -71,6 +79,7 @@ public class TransitLayerMapper {
 
   private TransitLayer map(TransitTuningParameters tuningParameters) {
     HashMap<LocalDate, List<TripPatternForDate>> tripPatternsByStopByDate;
+    TripPatternsRunningOnDateCache tripPatternsRunningOnDateCache = null;
     List<List<Transfer>> transferByStopIndex;
     ConstrainedTransfersForPatterns constrainedTransfers = null;
     StopModel stopModel = transitModel.getStopModel();
@@ -79,7 +88,14 @@ public class TransitLayerMapper {
 
     Collection<TripPattern> allTripPatterns = transitModel.getAllTripPatterns();
 
-    tripPatternsByStopByDate = mapTripPatterns(allTripPatterns);
+    ServiceDateWindow serviceDateWindow = tuningParameters.serviceDateWindow();
+    if (serviceDateWindow == null) {
+      tripPatternsByStopByDate = mapTripPatterns(allTripPatterns);
+    } else {
+      tripPatternsByStopByDate = new HashMap<>();
+      tripPatternsRunningOnDateCache =
+        createTripPatternsRunningOnDateCache(allTripPatterns, serviceDateWindow);
+    }
 
     transferByStopIndex = mapTransfers(stopModel, transitModel);
 
@@ -96,6 +112,7 @@ public class TransitLayerMapper {
 
     return new TransitLayer(
       tripPatternsByStopByDate,
+      tripPatternsRunningOnDateCache,
       transferByStopIndex,
       transitModel.getTransferService(),
       stopModel,
@@ -155,6 +172,68 @@ public class TransitLayerMapper {
     return keyByRunningPeriodDates(tripPatternForDates);
   }
 
+  /**
+   * Create a cache which map the TripPatternsForDate objects on demand, the dates in the given
+   * window is mapped before this method returns.
+   */
+  private TripPatternsRunningOnDateCache createTripPatternsRunningOnDateCache(
+    Collection<TripPattern> allTripPatterns,
+    ServiceDateWindow serviceDateWindow
+  ) {
+    var serviceCodesRunningForDate = transitModel
+      .getTransitModelIndex()
+      .getServiceCodesRunningForDate();
+    var tripPatternForDateMapper = new TripPatternForDateMapper(serviceCodesRunningForDate);
+    var timetables = allTripPatterns.stream().map(TripPattern::getScheduledTimetable).toList();
+
+    Function<LocalDate, List<TripPatternForDate>> serviceDateMapper = serviceDate -> {
+      if (!serviceCodesRunningForDate.containsKey(serviceDate)) {
+        return List.of();
+      }
+      return timetables
+        .stream()
+        .map(timetable -> tripPatternForDateMapper.map(timetable, serviceDate))
+        .filter(Objects::nonNull)
+        .toList();
+    };
+
+    int[] dayOffsets = findDayOffsets(timetables);
+
+    var cache = new TripPatternsRunningOnDateCache(
+      serviceDateWindow,
+      Clock.system(transitModel.getTimeZone()),
+      dayOffsets[0],
+      dayOffsets[1],
+      serviceDateMapper,
+      Metrics.globalRegistry
+    );
+    LOG.info("Mapping trip patterns for {}", serviceDateWindow);
+    cache.roll();
+    cache.startRollingInBackground();
+    return cache;
+  }
+
+  /**
+   * Find the first and last day, relative to the service date, that any trip is running on. The
+   * same logic as in {@link TripPatternForDate} is used to compute the running period.
+   */
+  static int[] findDayOffsets(Collection<Timetable> timetables) {
+    int min = 0;
+    int max = 0;
+    for (Timetable timetable : timetables) {
+      for (TripTimes it : timetable.getTripTimes()) {
+        min = Math.min(min, Math.floorDiv(it.getDepartureTime(0), SECONDS_PER_DAY));
+        max =
+          Math.max(max, Math.floorDiv(it.getArrivalTime(it.getNumStops() - 1), SECONDS_PER_DAY));
+      }
+      for (FrequencyEntry it : timetable.getFrequencyEntries()) {
+        min = Math.min(min, Math.floorDiv(it.startTime, SECONDS_PER_DAY));
+        max = Math.max(max, Math.floorDiv(it.endTime, SECONDS_PER_DAY));
+      }
+    }
+    return new int[] { min, max };
+  }
+
   /**
    * Returns a map of TripPatternsForDate objects by their active dates.
    */
@@ -61,7 +61,11 @@ public class TransitLayerUpdater {
     this.serviceCodesRunningForDate = serviceCodesRunningForDate;
   }
 
-  public void update(
+  /**
+   * Synchronized, the realtime feeds may commit their timetables from different threads, and each
+   * update copies the realtime transit layer published by the previous update.
+   */
+  public synchronized void update(
     Set<Timetable> updatedTimetables,
     Map<TripPattern, SortedSet<Timetable>> timetables
   ) {
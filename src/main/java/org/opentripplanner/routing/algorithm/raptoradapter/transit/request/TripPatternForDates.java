@@ -4,6 +4,7 @@ import gnu.trove.list.TIntList;
 import java.util.BitSet;
 import java.util.List;
 import java.util.function.IntUnaryOperator;
+import javax.annotation.Nullable;
 import org.opentripplanner.routing.algorithm.raptoradapter.api.DefaultTripPattern;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.TripPatternForDate;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.TripSchedule;
@@ -12,6 +13,7 @@ import org.opentripplanner.routing.algorithm.raptoradapter.transit.frequency.Tri
 import org.opentripplanner.transit.model.basic.Accessibility;
 import org.opentripplanner.transit.model.network.Route;
 import org.opentripplanner.transit.model.network.RoutingTripPattern;
+import org.opentripplanner.transit.raptor.api.debug.RaptorSearchStatistics;
 import org.opentripplanner.transit.raptor.api.transit.IntIterator;
 import org.opentripplanner.transit.raptor.api.transit.RaptorRoute;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTimeTable;
@@ -192,6 +194,17 @@ public class TripPatternForDates
     return TripScheduleSearchFactory.create(direction, this);
   }
 
+  @Override
+  public RaptorTripScheduleSearch<TripSchedule> tripSearch(
+    SearchDirection direction,
+    @Nullable RaptorSearchStatistics statistics
+  ) {
+    if (useCustomizedTripSearch()) {
+      return createCustomizedTripSearch(direction);
+    }
+    return TripScheduleSearchFactory.create(direction, this, statistics);
+  }
+
   @Override
   public TripSchedule getTripSchedule(int index) {
     return new TripScheduleWithOffset(this, index);
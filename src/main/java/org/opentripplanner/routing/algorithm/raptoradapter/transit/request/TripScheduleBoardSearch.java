@@ -2,6 +2,7 @@ package org.opentripplanner.routing.algorithm.raptoradapter.transit.request;
 
 import java.util.function.IntUnaryOperator;
 import javax.annotation.Nullable;
+import org.opentripplanner.transit.raptor.api.debug.RaptorSearchStatistics;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTransferConstraint;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTripScheduleBoardOrAlightEvent;
@@ -28,6 +29,9 @@ public final class TripScheduleBoardSearch<T extends RaptorTripSchedule>
   private final int nTrips;
   private final int binarySearchThreshold;
 
+  @Nullable
+  private final RaptorSearchStatistics statistics;
+
   private int earliestBoardTime;
   private int stopPositionInPattern;
   private IntUnaryOperator departureTimes;
@@ -40,9 +44,18 @@ public final class TripScheduleBoardSearch<T extends RaptorTripSchedule>
    * trip schedule search.
    */
   TripScheduleBoardSearch(TripSearchTimetable<T> timetable, int binarySearchThreshold) {
+    this(timetable, binarySearchThreshold, null);
+  }
+
+  TripScheduleBoardSearch(
+    TripSearchTimetable<T> timetable,
+    int binarySearchThreshold,
+    @Nullable RaptorSearchStatistics statistics
+  ) {
     this.timetable = timetable;
     this.nTrips = timetable.numberOfTripSchedules();
     this.binarySearchThreshold = binarySearchThreshold;
+    this.statistics = statistics;
   }
 
   /* TripScheduleBoardOrAlightEvent implementation using fly-weight pattern */
@@ -124,6 +137,9 @@ public final class TripScheduleBoardSearch<T extends RaptorTripSchedule>
   /* private methods */
 
   private RaptorTripScheduleBoardOrAlightEvent<T> findFirstBoardingOptimizedForLargeSetOfTrips() {
+    if (statistics != null) {
+      statistics.incBinaryTripSearches();
+    }
     int indexBestGuess = binarySearchForTripIndex();
 
     // Use the upper bound from the binary search to look for a candidate trip
@@ -140,6 +156,9 @@ public final class TripScheduleBoardSearch<T extends RaptorTripSchedule>
     // trips are not in service.
     //
     // So we have to search for the first valid trip schedule after that.
+    if (statistics != null) {
+      statistics.incBinaryTripSearchFallbacks();
+    }
     return findBoardingBySteppingForwardInTime(indexBestGuess);
   }
 
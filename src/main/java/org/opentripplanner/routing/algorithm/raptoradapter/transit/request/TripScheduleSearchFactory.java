@@ -1,5 +1,7 @@
 package org.opentripplanner.routing.algorithm.raptoradapter.transit.request;
 
+import javax.annotation.Nullable;
+import org.opentripplanner.transit.raptor.api.debug.RaptorSearchStatistics;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTripScheduleSearch;
 import org.opentripplanner.transit.raptor.api.transit.SearchDirection;
@@ -29,9 +31,21 @@ public class TripScheduleSearchFactory {
   public static <T extends RaptorTripSchedule> RaptorTripScheduleSearch<T> create(
     SearchDirection searchDirection,
     TripSearchTimetable<T> timetable
+  ) {
+    return create(searchDirection, timetable, null);
+  }
+
+  /**
+   * Same as {@link #create(SearchDirection, TripSearchTimetable)}, but count the binary searches
+   * in the given statistics.
+   */
+  public static <T extends RaptorTripSchedule> RaptorTripScheduleSearch<T> create(
+    SearchDirection searchDirection,
+    TripSearchTimetable<T> timetable,
+    @Nullable RaptorSearchStatistics statistics
   ) {
     return searchDirection.isForward()
-      ? new TripScheduleBoardSearch<>(timetable, BINARY_SEARCH_THRESHOLD)
-      : new TripScheduleAlightSearch<>(timetable, BINARY_SEARCH_THRESHOLD);
+      ? new TripScheduleBoardSearch<>(timetable, BINARY_SEARCH_THRESHOLD, statistics)
+      : new TripScheduleAlightSearch<>(timetable, BINARY_SEARCH_THRESHOLD, statistics);
   }
 }
@@ -21,6 +21,8 @@ import org.opentripplanner.common.geometry.CompactElevationProfile;
 import org.opentripplanner.common.geometry.GraphUtils;
 import org.opentripplanner.ext.dataoverlay.configuration.DataOverlayParameterBindings;
 import org.opentripplanner.ext.geocoder.LuceneIndex;
+import org.opentripplanner.ext.traveltime.StopEgressGrid;
+import org.opentripplanner.ext.vectortiles.VectorTileCache;
 import org.opentripplanner.graph_builder.linking.VertexLinker;
 import org.opentripplanner.model.calendar.openinghours.OpeningHoursCalendarService;
 import org.opentripplanner.routing.edgetype.StreetEdge;
@@ -124,7 +126,15 @@ public class Graph implements Serializable {
    * creating the data overlay context when routing.
    */
   public DataOverlayParameterBindings dataOverlayParameterBindings;
-  private LuceneIndex luceneIndex;
+  private transient LuceneIndex luceneIndex;
+  private transient VectorTileCache vectorTileCache;
+  private transient StopEgressGrid stopEgressGrid;
+
+  /**
+   * The id of the geocoder index stored next to the serialized graph, or {@code null} if the index
+   * is not stored. See {@link LuceneIndex#writeToDirectory}.
+   */
+  private String geocoderIndexId;
 
   @Inject
   public Graph(
@@ -456,6 +466,31 @@ public class Graph implements Serializable {
     this.luceneIndex = luceneIndex;
   }
 
+  public VectorTileCache getVectorTileCache() {
+    return vectorTileCache;
+  }
+
+  public void setVectorTileCache(VectorTileCache vectorTileCache) {
+    this.vectorTileCache = vectorTileCache;
+  }
+
+  public StopEgressGrid getStopEgressGrid() {
+    return stopEgressGrid;
+  }
+
+  public void setStopEgressGrid(StopEgressGrid stopEgressGrid) {
+    this.stopEgressGrid = stopEgressGrid;
+  }
+
+  @Nullable
+  public String getGeocoderIndexId() {
+    return geocoderIndexId;
+  }
+
+  public void setGeocoderIndexId(String geocoderIndexId) {
+    this.geocoderIndexId = geocoderIndexId;
+  }
+
   private void indexIfNotIndexed(StopModel stopModel) {
     if (streetIndex == null) {
       index(stopModel);
@@ -11,6 +11,11 @@ public class VehicleParkingService implements Serializable {
 
   private final Set<VehicleParking> vehicleParkings = new HashSet<>();
 
+  /**
+   * Incremented for each update of the vehicle parkings, see {@link #incrementVersion()}.
+   */
+  private transient volatile long version;
+
   public void addVehicleParking(VehicleParking vehicleParking) {
     vehicleParkings.add(vehicleParking);
   }
@@ -30,4 +35,20 @@ public class VehicleParkingService implements Serializable {
   public Stream<VehicleParking> getVehicleParkings() {
     return vehicleParkings.stream();
   }
+
+  /**
+   * The version is used to find out if data derived from the vehicle parkings, like cached map
+   * tiles, is up to date.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Call this when an update of the vehicle parkings is applied. This is only done by the
+   * graph writer thread, so the version is only written by one thread.
+   */
+  public void incrementVersion() {
+    ++version;
+  }
 }
@@ -16,6 +16,11 @@ public class VehicleRentalStationService implements Serializable {
 
   private final Map<FeedScopedId, VehicleRentalPlace> vehicleRentalStations = new HashMap<>();
 
+  /**
+   * Incremented for each update of the vehicle rental places, see {@link #incrementVersion()}.
+   */
+  private transient volatile long version;
+
   public Collection<VehicleRentalPlace> getVehicleRentalPlaces() {
     return vehicleRentalStations.values();
   }
@@ -88,4 +93,20 @@ public class VehicleRentalStationService implements Serializable {
       .filter(b -> envelope.contains(new Coordinate(b.getLongitude(), b.getLatitude())))
       .collect(Collectors.toList());
   }
+
+  /**
+   * The version is used to find out if data derived from the vehicle rental places, like cached map
+   * tiles, is up to date.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Call this when an update of the vehicle rental places is applied. This is only done by the
+   * graph writer thread, so the version is only written by one thread.
+   */
+  public void incrementVersion() {
+    ++version;
+  }
 }
@@ -141,6 +141,8 @@ public class OTPMain {
       } else {
         throw new IllegalStateException("An error occurred while building the graph.");
       }
+      // The geocoder index is stored next to the graph, the graph keeps the id of the index
+      app.writeGeocoderIndex();
       // Store graph and config used to build it, also store router-config for easy deployment
       // with using the embedded router config.
       new SerializedGraphObject(
@@ -170,6 +172,8 @@ public class OTPMain {
     // Index graph for travel search
     app.transitModel().index();
     app.graph().index(app.transitModel().getStopModel());
+    // The permanent street network does not change while serving requests
+    app.graph().getLinker().packStreetIndex();
 
     // publishing the config version info make it available to the APIs
     setOtpConfigVersionsOnServerInfo(app);
@@ -267,6 +267,12 @@ public class BuildConfig implements OtpDataStoreConfig {
    * {@code false}.
    */
   public final boolean osmCacheDataInMem;
+  /**
+   * Store the coordinates of the OSM nodes in memory-mapped temporary files instead of on the
+   * heap. The nodes are the biggest part of the memory used to load OSM data, set this to {@code
+   * true} to build large OSM extracts with less heap. The default value is {@code false}.
+   */
+  public final boolean osmNodesOnDisk;
   /**
    * This field indicates the pruning threshold for islands without stops. Any such island under
    * this size will be pruned.
@@ -493,6 +499,7 @@ public class BuildConfig implements OtpDataStoreConfig {
     maxStopToShapeSnapDistance = c.asDouble("maxStopToShapeSnapDistance", 150);
     multiThreadElevationCalculations = c.asBoolean("multiThreadElevationCalculations", false);
     osmCacheDataInMem = c.asBoolean("osmCacheDataInMem", false);
+    osmNodesOnDisk = c.asBoolean("osmNodesOnDisk", false);
     platformEntriesLinking = c.asBoolean("platformEntriesLinking", false);
     readCachedElevations = c.asBoolean("readCachedElevations", true);
     staticBikeParkAndRide = c.asBoolean("staticBikeParkAndRide", false);
@@ -3,6 +3,7 @@ package org.opentripplanner.standalone.config;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import org.opentripplanner.routing.algorithm.raptoradapter.transit.ServiceDateWindow;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.TransitTuningParameters;
 import org.opentripplanner.transit.model.site.StopTransferPriority;
 import org.opentripplanner.transit.raptor.api.request.DynamicSearchWindowCoefficients;
@@ -19,6 +20,7 @@ public final class TransitRoutingConfig implements RaptorTuningParameters, Trans
   private final int searchThreadPoolSize;
   private final int transferCacheMaxSize;
   private final List<Duration> pagingSearchWindowAdjustments;
+  private final ServiceDateWindow serviceDateWindow;
 
   private final Map<StopTransferPriority, Integer> stopTransferCost;
   private final DynamicSearchWindowCoefficients dynamicSearchWindowCoefficients;
@@ -46,6 +48,12 @@ public final class TransitRoutingConfig implements RaptorTuningParameters, Trans
 
     this.dynamicSearchWindowCoefficients =
       new DynamicSearchWindowConfig(c.path("dynamicSearchWindow"));
+
+    NodeAdapter sdWin = c.path("serviceDateWindow");
+    this.serviceDateWindow =
+      sdWin.isEmpty()
+        ? null
+        : new ServiceDateWindow(sdWin.asInt("pastDays", 1), sdWin.asInt("futureDays", 7));
   }
 
   @Override
@@ -93,6 +101,11 @@ public final class TransitRoutingConfig implements RaptorTuningParameters, Trans
     return pagingSearchWindowAdjustments;
   }
 
+  @Override
+  public ServiceDateWindow serviceDateWindow() {
+    return serviceDateWindow;
+  }
+
   private static class DynamicSearchWindowConfig implements DynamicSearchWindowCoefficients {
 
     private final double minTransitTimeCoefficient;
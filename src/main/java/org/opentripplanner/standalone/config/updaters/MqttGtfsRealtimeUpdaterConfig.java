@@ -1,5 +1,6 @@
 package org.opentripplanner.standalone.config.updaters;
 
+import java.time.Duration;
 import org.opentripplanner.standalone.config.NodeAdapter;
 import org.opentripplanner.updater.stoptime.BackwardsDelayPropagationType;
 import org.opentripplanner.updater.stoptime.MqttGtfsRealtimeUpdaterParameters;
@@ -14,7 +15,8 @@ public class MqttGtfsRealtimeUpdaterConfig {
       c.asText("topic"),
       c.asInt("qos", 0),
       c.asBoolean("fuzzyTripMatching", false),
-      c.asEnum("backwardsDelayPropagationType", BackwardsDelayPropagationType.REQUIRED_NO_DATA)
+      c.asEnum("backwardsDelayPropagationType", BackwardsDelayPropagationType.REQUIRED_NO_DATA),
+      c.asDuration("batchWindow", Duration.ZERO)
     );
   }
 }
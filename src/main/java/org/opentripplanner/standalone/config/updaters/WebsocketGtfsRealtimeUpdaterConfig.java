@@ -1,5 +1,6 @@
 package org.opentripplanner.standalone.config.updaters;
 
+import java.time.Duration;
 import org.opentripplanner.standalone.config.NodeAdapter;
 import org.opentripplanner.updater.stoptime.BackwardsDelayPropagationType;
 import org.opentripplanner.updater.stoptime.WebsocketGtfsRealtimeUpdaterParameters;
@@ -12,7 +13,8 @@ public class WebsocketGtfsRealtimeUpdaterConfig {
       c.asText("feedId", null),
       c.asText("url", null),
       c.asInt("reconnectPeriodSec", 60),
-      c.asEnum("backwardsDelayPropagationType", BackwardsDelayPropagationType.REQUIRED_NO_DATA)
+      c.asEnum("backwardsDelayPropagationType", BackwardsDelayPropagationType.REQUIRED_NO_DATA),
+      c.asDuration("batchWindow", Duration.ZERO)
     );
   }
 }
@@ -1,8 +1,10 @@
 package org.opentripplanner.standalone.configure;
 
+import java.io.File;
 import javax.annotation.Nullable;
 import javax.ws.rs.core.Application;
 import org.opentripplanner.datastore.api.DataSource;
+import org.opentripplanner.datastore.file.FileDataSource;
 import org.opentripplanner.ext.geocoder.LuceneIndex;
 import org.opentripplanner.ext.transmodelapi.TransmodelAPI;
 import org.opentripplanner.graph_builder.GraphBuilder;
@@ -21,6 +23,7 @@ import org.opentripplanner.standalone.config.RouterConfig;
 import org.opentripplanner.standalone.server.GrizzlyServer;
 import org.opentripplanner.standalone.server.OTPWebApplication;
 import org.opentripplanner.transit.raptor.configure.RaptorConfig;
+import org.opentripplanner.transit.service.DefaultTransitService;
 import org.opentripplanner.transit.service.TransitModel;
 import org.opentripplanner.updater.configure.UpdaterConfigurator;
 import org.opentripplanner.util.OTPFeature;
@@ -52,6 +55,10 @@ public class ConstructApplication {
   private final GraphBuilderDataSources graphBuilderDataSources;
   private final ConstructApplicationFactory factory;
 
+  /** The directory of the geocoder index stored next to the graph, if any. */
+  @Nullable
+  private File geocoderIndexDirectory;
+
   /**
    * Create a new OTP configuration instance for a given directory.
    */
@@ -59,11 +66,13 @@ public class ConstructApplication {
     CommandLineParameters cli,
     Graph graph,
     TransitModel transitModel,
+    @Nullable DataSource inputGraph,
     ConfigModel config,
     GraphBuilderDataSources graphBuilderDataSources
   ) {
     this.cli = cli;
     this.graphBuilderDataSources = graphBuilderDataSources;
+    this.geocoderIndexDirectory = geocoderIndexDirectory(inputGraph);
 
     // We create the optional GraphVisualizer here, because it would be significant more complex to
     // use Dagger DI to do it - passing in a parameter to enable it or not.
@@ -119,6 +128,28 @@ public class ConstructApplication {
     return graphBuilderDataSources.getOutputGraph();
   }
 
+  /**
+   * Write the geocoder index next to the output graph, so it does not need to be created at
+   * startup. Call this before the graph is saved, the id of the index is stored in the graph. The
+   * index is only written if the geocoder is enabled and the graph is saved to a local file.
+   */
+  public void writeGeocoderIndex() {
+    if (OTPFeature.SandboxAPIGeocoder.isOff()) {
+      return;
+    }
+    File indexDirectory = geocoderIndexDirectory(graphOutputDataSource());
+    if (indexDirectory == null) {
+      return;
+    }
+    String indexId = LuceneIndex.writeToDirectory(
+      graph(),
+      new DefaultTransitService(transitModel()),
+      indexDirectory
+    );
+    graph().setGeocoderIndexId(indexId);
+    this.geocoderIndexDirectory = indexDirectory;
+  }
+
   private Application createApplication() {
     LOG.info("Wiring up and configuring server.");
     setupTransitRoutingServer();
@@ -146,8 +177,19 @@ public class ConstructApplication {
 
     if (OTPFeature.SandboxAPIGeocoder.isOn()) {
       LOG.info("Creating debug client geocoder lucene index");
-      LuceneIndex.forServer(createServerContext());
+      LuceneIndex.forServer(createServerContext(), geocoderIndexDirectory);
+    }
+  }
+
+  /**
+   * The stored geocoder index can only be memory-mapped if the graph is a local file.
+   */
+  @Nullable
+  private static File geocoderIndexDirectory(@Nullable DataSource graphSource) {
+    if (graphSource instanceof FileDataSource) {
+      return LuceneIndex.indexDirectory(new File(graphSource.path()));
     }
+    return null;
   }
 
   /**
@@ -1,5 +1,6 @@
 package org.opentripplanner.standalone.configure;
 
+import javax.annotation.Nullable;
 import org.opentripplanner.datastore.api.DataSource;
 import org.opentripplanner.graph_builder.GraphBuilderDataSources;
 import org.opentripplanner.routing.graph.Graph;
@@ -46,12 +47,12 @@ public class LoadApplication {
 
   /** Construct application from serialized graph */
   public ConstructApplication appConstruction(SerializedGraphObject obj) {
-    return createAppConstruction(obj.graph, obj.transitModel);
+    return createAppConstruction(obj.graph, obj.transitModel, getInputGraphDataStore());
   }
 
   /** Construct application with an empty model. */
   public ConstructApplication appConstruction() {
-    return createAppConstruction(factory.emptyGraph(), factory.emptyTransitModel());
+    return createAppConstruction(factory.emptyGraph(), factory.emptyTransitModel(), null);
   }
 
   public GraphBuilderDataSources graphBuilderDataSources() {
@@ -65,7 +66,18 @@ public class LoadApplication {
     return factory.configModel();
   }
 
-  private ConstructApplication createAppConstruction(Graph graph, TransitModel transitModel) {
-    return new ConstructApplication(cli, graph, transitModel, config(), graphBuilderDataSources());
+  private ConstructApplication createAppConstruction(
+    Graph graph,
+    TransitModel transitModel,
+    @Nullable DataSource inputGraph
+  ) {
+    return new ConstructApplication(
+      cli,
+      graph,
+      transitModel,
+      inputGraph,
+      config(),
+      graphBuilderDataSources()
+    );
   }
 }
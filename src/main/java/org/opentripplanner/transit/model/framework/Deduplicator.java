@@ -5,10 +5,11 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -19,21 +20,25 @@ import org.opentripplanner.util.lang.ToStringBuilder;
 /**
  * Does the same thing as String.intern, but for several different types. Java's String.intern uses
  * perm gen space and is broken anyway.
+ * <p>
+ * THREAD SAFETY - The deduplicator is used by the GTFS feeds loaded in parallel, so the canonical
+ * instances are kept in concurrent maps. If two threads add equal values at the same time, both get
+ * the value added first.
  */
 public class Deduplicator implements Serializable {
 
   private static final String ZERO_COUNT = sizeAndCount(0, 0);
 
-  private final Map<BitSet, BitSet> canonicalBitSets = new HashMap<>();
-  private final Map<IntArray, IntArray> canonicalIntArrays = new HashMap<>();
-  private final Map<String, String> canonicalStrings = new HashMap<>();
-  private final Map<StringArray, StringArray> canonicalStringArrays = new HashMap<>();
-  private final Map<String2DArray, String2DArray> canonicalString2DArrays = new HashMap<>();
-  private final Map<Class<?>, Map<?, ?>> canonicalObjects = new HashMap<>();
-  private final Map<Class<?>, Map<?, ?>> canonicalObjArrays = new HashMap<>();
-  private final Map<Class<?>, Map<List<?>, List<?>>> canonicalLists = new HashMap<>();
+  private final Map<BitSet, BitSet> canonicalBitSets = new ConcurrentHashMap<>();
+  private final Map<IntArray, IntArray> canonicalIntArrays = new ConcurrentHashMap<>();
+  private final Map<String, String> canonicalStrings = new ConcurrentHashMap<>();
+  private final Map<StringArray, StringArray> canonicalStringArrays = new ConcurrentHashMap<>();
+  private final Map<String2DArray, String2DArray> canonicalString2DArrays = new ConcurrentHashMap<>();
+  private final Map<Class<?>, Map<?, ?>> canonicalObjects = new ConcurrentHashMap<>();
+  private final Map<Class<?>, Map<?, ?>> canonicalObjArrays = new ConcurrentHashMap<>();
+  private final Map<Class<?>, Map<List<?>, List<?>>> canonicalLists = new ConcurrentHashMap<>();
 
-  private final Map<String, Integer> effectCounter = new HashMap<>();
+  private final Map<String, LongAdder> effectCounter = new ConcurrentHashMap<>();
 
   @Inject
   public Deduplicator() {}
@@ -55,13 +60,8 @@ public class Deduplicator implements Serializable {
     if (original == null) {
       return null;
     }
-    BitSet canonical = canonicalBitSets.get(original);
-    if (canonical == null) {
-      canonical = original;
-      canonicalBitSets.put(canonical, canonical);
-    }
     incrementEffectCounter(BitSet.class);
-    return canonical;
+    return canonical(canonicalBitSets, original);
   }
 
   /** Used to deduplicate time and stop sequence arrays. The same times may occur in many trips. */
@@ -70,14 +70,8 @@ public class Deduplicator implements Serializable {
     if (original == null) {
       return null;
     }
-    IntArray intArray = new IntArray(original);
-    IntArray canonical = canonicalIntArrays.get(intArray);
-    if (canonical == null) {
-      canonical = intArray;
-      canonicalIntArrays.put(canonical, canonical);
-    }
     incrementEffectCounter(IntArray.class);
-    return canonical.array;
+    return canonical(canonicalIntArrays, new IntArray(original)).array;
   }
 
   @Nullable
@@ -85,9 +79,8 @@ public class Deduplicator implements Serializable {
     if (original == null) {
       return null;
     }
-    String canonical = canonicalStrings.putIfAbsent(original, original);
     incrementEffectCounter(String.class);
-    return canonical == null ? original : canonical;
+    return canonical(canonicalStrings, original);
   }
 
   @Nullable
@@ -95,12 +88,11 @@ public class Deduplicator implements Serializable {
     if (original == null) {
       return null;
     }
+    incrementEffectCounter(StringArray.class);
     StringArray canonical = canonicalStringArrays.get(new StringArray(original));
     if (canonical == null) {
-      canonical = StringArray.deepDeduplicateOf(original, this);
-      canonicalStringArrays.put(canonical, canonical);
+      canonical = canonical(canonicalStringArrays, StringArray.deepDeduplicateOf(original, this));
     }
-    incrementEffectCounter(StringArray.class);
     return canonical.array;
   }
 
@@ -113,12 +105,12 @@ public class Deduplicator implements Serializable {
     if (original == null) {
       return null;
     }
+    incrementEffectCounter(String2DArray.class);
     String2DArray canonical = canonicalString2DArrays.get(new String2DArray(original));
     if (canonical == null) {
-      canonical = String2DArray.deepDeduplicateOf(original, this);
-      canonicalString2DArrays.put(canonical, canonical);
+      canonical =
+        canonical(canonicalString2DArrays, String2DArray.deepDeduplicateOf(original, this));
     }
-    incrementEffectCounter(String2DArray.class);
     return canonical.array;
   }
 
@@ -131,32 +123,29 @@ public class Deduplicator implements Serializable {
     if (original == null) {
       return null;
     }
-    Map<T, T> objects = (Map<T, T>) canonicalObjects.computeIfAbsent(cl, c -> new HashMap<T, T>());
-    T canonical = objects.putIfAbsent(original, original);
+    Map<T, T> objects = (Map<T, T>) canonicalObjects.computeIfAbsent(
+      cl,
+      c -> new ConcurrentHashMap<T, T>()
+    );
     incrementEffectCounter(objCounterName(cl));
-    return canonical == null ? original : canonical;
+    return canonical(objects, original);
   }
 
+  @SuppressWarnings("unchecked")
   @Nullable
   public <T> T[] deduplicateObjectArray(Class<T> type, T[] original) {
     if (original == null) {
       return null;
     }
-    Map<ObjArray<T>, ObjArray<T>> map;
-    if (canonicalObjArrays.containsKey(type)) {
-      //noinspection unchecked
-      map = (Map<ObjArray<T>, ObjArray<T>>) canonicalObjArrays.get(type);
-    } else {
-      map = new HashMap<>();
-      canonicalObjArrays.put(type, map);
-    }
+    Map<ObjArray<T>, ObjArray<T>> map = (Map<ObjArray<T>, ObjArray<T>>) canonicalObjArrays.computeIfAbsent(
+      type,
+      t -> new ConcurrentHashMap<ObjArray<T>, ObjArray<T>>()
+    );
+    incrementEffectCounter(arrayCounterName(type));
     ObjArray<T> canonical = map.get(new ObjArray<>(original));
-
     if (canonical == null) {
-      canonical = ObjArray.deepDeduplicateOf(type, original, this);
-      map.put(canonical, canonical);
+      canonical = canonical(map, ObjArray.deepDeduplicateOf(type, original, this));
     }
-    incrementEffectCounter(arrayCounterName(type));
     return canonical.array();
   }
 
@@ -167,7 +156,9 @@ public class Deduplicator implements Serializable {
     }
 
     Map<List<?>, List<?>> canonicalLists =
-      this.canonicalLists.computeIfAbsent(clazz, key -> new HashMap<>());
+      this.canonicalLists.computeIfAbsent(clazz, key -> new ConcurrentHashMap<>());
+
+    incrementEffectCounter(listCounterName(clazz));
 
     @SuppressWarnings("unchecked")
     List<T> canonical = (List<T>) canonicalLists.get(original);
@@ -181,10 +172,12 @@ public class Deduplicator implements Serializable {
         containsNull
           ? Collections.unmodifiableList(stream.collect(Collectors.toList()))
           : stream.collect(Collectors.toUnmodifiableList());
-      canonicalLists.put(canonical, canonical);
+      @SuppressWarnings("unchecked")
+      List<T> existing = (List<T>) canonicalLists.putIfAbsent(canonical, canonical);
+      if (existing != null) {
+        canonical = existing;
+      }
     }
-
-    incrementEffectCounter(listCounterName(clazz));
     return canonical;
   }
 
@@ -246,8 +239,15 @@ public class Deduplicator implements Serializable {
   }
 
   private void incrementEffectCounter(String key) {
-    // Count the first element, start at 1
-    effectCounter.compute(key, (k, v) -> v == null ? 1 : ++v);
+    effectCounter.computeIfAbsent(key, k -> new LongAdder()).increment();
+  }
+
+  /**
+   * Return the canonical instance equal to the given value, the value is added if there is none.
+   */
+  private static <T> T canonical(Map<T, T> canonicalValues, T value) {
+    T canonical = canonicalValues.putIfAbsent(value, value);
+    return canonical == null ? value : canonical;
   }
 
   private String sizeAndCount(int size, Class<?> clazz) {
@@ -255,7 +255,8 @@ public class Deduplicator implements Serializable {
   }
 
   private String sizeAndCount(int size, String key) {
-    int count = effectCounter.getOrDefault(key, 0);
+    LongAdder counter = effectCounter.get(key);
+    int count = counter == null ? 0 : counter.intValue();
     return sizeAndCount(size, count);
   }
 
@@ -0,0 +1,160 @@
+package org.opentripplanner.transit.raptor.api.debug;
+
+import java.util.Arrays;
+import org.opentripplanner.transit.raptor.api.request.RaptorProfile;
+import org.opentripplanner.transit.raptor.api.transit.SearchDirection;
+import org.opentripplanner.util.lang.ToStringBuilder;
+
+/**
+ * Counts the work done by one Range Raptor routing request. An instance is only created if a
+ * {@link RaptorStatisticsCollector} is set on the request, and the counters are reported to the
+ * collector when the search is complete.
+ * <p>
+ * The counters are plain int fields, they are incremented in the inner loops of Raptor and must be
+ * as cheap as possible. An instance belongs to one search and is NOT thread-safe.
+ */
+public final class RaptorSearchStatistics {
+
+  private final RaptorProfile profile;
+  private final SearchDirection direction;
+
+  private int iterations = 0;
+  private int rounds = 0;
+  private int patternsScanned = 0;
+  private int tripSearches = 0;
+  private int binaryTripSearches = 0;
+  private int binaryTripSearchFallbacks = 0;
+  private int paretoSetInserts = 0;
+  private int paretoSetRejects = 0;
+
+  /** The number of stops reached by transit, summed over all iterations. Indexed by round. */
+  private int[] stopsReachedByRound = new int[8];
+
+  public RaptorSearchStatistics(RaptorProfile profile, SearchDirection direction) {
+    this.profile = profile;
+    this.direction = direction;
+  }
+
+  public RaptorProfile profile() {
+    return profile;
+  }
+
+  public SearchDirection direction() {
+    return direction;
+  }
+
+  /** The number of Range Raptor iterations (departure minutes). */
+  public int iterations() {
+    return iterations;
+  }
+
+  /** The total number of rounds for all iterations. */
+  public int rounds() {
+    return rounds;
+  }
+
+  /** The number of patterns (routes) scanned for all rounds and iterations. */
+  public int patternsScanned() {
+    return patternsScanned;
+  }
+
+  /** The number of regular trip searches (boarding without a constrained transfer). */
+  public int tripSearches() {
+    return tripSearches;
+  }
+
+  /** The number of trip searches using the binary search optimization for large timetables. */
+  public int binaryTripSearches() {
+    return binaryTripSearches;
+  }
+
+  /**
+   * The number of binary trip searches which had to step past the best-guess index, because no
+   * trip in service was found on the expected side of it.
+   */
+  public int binaryTripSearchFallbacks() {
+    return binaryTripSearchFallbacks;
+  }
+
+  /** The number of stop arrivals accepted into a pareto set, only counted by multi-criteria. */
+  public int paretoSetInserts() {
+    return paretoSetInserts;
+  }
+
+  /** The number of stop arrivals rejected by a pareto set, only counted by multi-criteria. */
+  public int paretoSetRejects() {
+    return paretoSetRejects;
+  }
+
+  /**
+   * The average number of stops reached by transit for each round, over all iterations. Round 0
+   * is the access, so the first element is always 0.
+   */
+  public double[] avgStopsReachedByRound() {
+    int maxRound = stopsReachedByRound.length - 1;
+    while (maxRound > 0 && stopsReachedByRound[maxRound] == 0) {
+      --maxRound;
+    }
+    double[] result = new double[maxRound + 1];
+    for (int i = 0; i <= maxRound; ++i) {
+      result[i] = iterations == 0 ? 0.0 : stopsReachedByRound[i] / (double) iterations;
+    }
+    return result;
+  }
+
+  public void incIterations() {
+    ++iterations;
+  }
+
+  public void incRounds() {
+    ++rounds;
+  }
+
+  public void incPatternsScanned() {
+    ++patternsScanned;
+  }
+
+  public void incTripSearches() {
+    ++tripSearches;
+  }
+
+  public void incBinaryTripSearches() {
+    ++binaryTripSearches;
+  }
+
+  public void incBinaryTripSearchFallbacks() {
+    ++binaryTripSearchFallbacks;
+  }
+
+  public void paretoSetAddResult(boolean accepted) {
+    if (accepted) {
+      ++paretoSetInserts;
+    } else {
+      ++paretoSetRejects;
+    }
+  }
+
+  public void addStopsReached(int round, int numberOfStops) {
+    if (round >= stopsReachedByRound.length) {
+      stopsReachedByRound = Arrays.copyOf(stopsReachedByRound, round + 1);
+    }
+    stopsReachedByRound[round] += numberOfStops;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringBuilder
+      .of(RaptorSearchStatistics.class)
+      .addEnum("profile", profile)
+      .addEnum("direction", direction)
+      .addNum("iterations", iterations)
+      .addNum("rounds", rounds)
+      .addNum("patternsScanned", patternsScanned)
+      .addNum("tripSearches", tripSearches)
+      .addNum("binaryTripSearches", binaryTripSearches)
+      .addNum("binaryTripSearchFallbacks", binaryTripSearchFallbacks)
+      .addNum("paretoSetInserts", paretoSetInserts)
+      .addNum("paretoSetRejects", paretoSetRejects)
+      .toString();
+  }
+}
@@ -0,0 +1,26 @@
+package org.opentripplanner.transit.raptor.api.debug;
+
+/**
+ * Implement this interface and pass it into Raptor to collect statistics about the work done by
+ * each search, like the number of rounds and patterns scanned. Like {@link RaptorTimers}, this
+ * make Raptor independent of the target monitoring system.
+ * <p>
+ * Counting is off by default ({@link #NOOP}); Raptor only creates and updates the counters if a
+ * collector is set.
+ */
+public interface RaptorStatisticsCollector {
+  /**
+   * This collector is used if no collector is set, no statistics is collected.
+   */
+  RaptorStatisticsCollector NOOP = statistics -> {};
+
+  /**
+   * This method is called at the end of each Range Raptor routing request. A Raptor search may
+   * first do an arrival-time-criteria routing request, then do a reverse search and then a
+   * multi-criteria routing request. In this case this method is called for all three requests.
+   * Use the profile and direction of the statistics to tell them apart.
+   * <p>
+   * This method may be called from several threads at the same time.
+   */
+  void collect(RaptorSearchStatistics statistics);
+}
@@ -4,7 +4,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Objects;
 import java.util.Set;
+import org.opentripplanner.transit.raptor.api.debug.RaptorStatisticsCollector;
 import org.opentripplanner.transit.raptor.api.debug.RaptorTimers;
+import org.opentripplanner.transit.raptor.api.response.StopArrivalsListener;
 import org.opentripplanner.transit.raptor.api.transit.RaptorSlackProvider;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTransitDataProvider;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
@@ -31,6 +33,8 @@ public class RaptorRequest<T extends RaptorTripSchedule> {
   private final DebugRequest debug;
   private final RaptorSlackProvider slackProvider;
   private final RaptorTimers performanceTimers;
+  private final RaptorStatisticsCollector statisticsCollector;
+  private final StopArrivalsListener stopArrivalsListener;
 
   private RaptorRequest() {
     searchParams = SearchParams.defaults();
@@ -40,6 +44,8 @@ public class RaptorRequest<T extends RaptorTripSchedule> {
     // Slack defaults: 1 minute for transfer-slack, 0 minutes for board- and alight-slack.
     slackProvider = RaptorSlackProvider.defaultSlackProvider(60, 0, 0);
     performanceTimers = RaptorTimers.NOOP;
+    statisticsCollector = RaptorStatisticsCollector.NOOP;
+    stopArrivalsListener = StopArrivalsListener.NOOP;
     debug = DebugRequest.defaults();
     alias = RaptorRequestBuilder.generateRequestAlias(profile, searchDirection, optimizations);
   }
@@ -52,6 +58,8 @@ public class RaptorRequest<T extends RaptorTripSchedule> {
     this.optimizations = Set.copyOf(builder.optimizations());
     this.slackProvider = builder.slackProvider();
     this.performanceTimers = builder.performanceTimers();
+    this.statisticsCollector = builder.statisticsCollector();
+    this.stopArrivalsListener = builder.stopArrivalsListener();
     this.debug = builder.debug().build();
     verify();
   }
@@ -140,6 +148,22 @@ public class RaptorRequest<T extends RaptorTripSchedule> {
     return performanceTimers;
   }
 
+  /**
+   * Collect statistics about the work done by the search, like the number of rounds and patterns
+   * scanned. This is optional, by default no statistics is collected.
+   */
+  public RaptorStatisticsCollector statisticsCollector() {
+    return statisticsCollector;
+  }
+
+  /**
+   * Get the stop arrivals after each Range Raptor iteration. This is optional, by default the
+   * listener is not notified.
+   */
+  public StopArrivalsListener stopArrivalsListener() {
+    return stopArrivalsListener;
+  }
+
   /**
    * Specify what to debug in the debug request.
    * <p/>
@@ -180,6 +204,8 @@ public class RaptorRequest<T extends RaptorTripSchedule> {
       .addObj("debug", debug, DebugRequest.defaults())
       .addObj("searchParams", searchParams)
       .addBoolIfTrue("withPerformanceTimers", performanceTimers != RaptorTimers.NOOP)
+      .addBoolIfTrue("withStatistics", statisticsCollector != RaptorStatisticsCollector.NOOP)
+      .addBoolIfTrue("withStopArrivalsListener", stopArrivalsListener != StopArrivalsListener.NOOP)
       .toString();
   }
 
@@ -7,7 +7,9 @@ import java.util.Collection;
 import java.util.EnumSet;
 import java.util.Set;
 import javax.annotation.Nonnull;
+import org.opentripplanner.transit.raptor.api.debug.RaptorStatisticsCollector;
 import org.opentripplanner.transit.raptor.api.debug.RaptorTimers;
+import org.opentripplanner.transit.raptor.api.response.StopArrivalsListener;
 import org.opentripplanner.transit.raptor.api.transit.RaptorSlackProvider;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
 import org.opentripplanner.transit.raptor.api.transit.SearchDirection;
@@ -36,6 +38,10 @@ public class RaptorRequestBuilder<T extends RaptorTripSchedule> {
 
   // Performance monitoring
   private RaptorTimers performanceTimers;
+  private RaptorStatisticsCollector statisticsCollector;
+
+  // Result
+  private StopArrivalsListener stopArrivalsListener;
 
   // Algorithm
   private RaptorProfile profile;
@@ -60,6 +66,10 @@ public class RaptorRequestBuilder<T extends RaptorTripSchedule> {
 
     // Timer
     this.performanceTimers = defaults.performanceTimers();
+    this.statisticsCollector = defaults.statisticsCollector();
+
+    // Result
+    this.stopArrivalsListener = defaults.stopArrivalsListener();
 
     // Debug
     this.debug = new DebugRequestBuilder(defaults.debug());
@@ -126,6 +136,26 @@ public class RaptorRequestBuilder<T extends RaptorTripSchedule> {
     return this;
   }
 
+  public RaptorStatisticsCollector statisticsCollector() {
+    return statisticsCollector;
+  }
+
+  public RaptorRequestBuilder<T> statisticsCollector(
+    RaptorStatisticsCollector statisticsCollector
+  ) {
+    this.statisticsCollector = statisticsCollector;
+    return this;
+  }
+
+  public StopArrivalsListener stopArrivalsListener() {
+    return stopArrivalsListener;
+  }
+
+  public RaptorRequestBuilder<T> stopArrivalsListener(StopArrivalsListener stopArrivalsListener) {
+    this.stopArrivalsListener = stopArrivalsListener;
+    return this;
+  }
+
   public DebugRequestBuilder debug() {
     return this.debug;
   }
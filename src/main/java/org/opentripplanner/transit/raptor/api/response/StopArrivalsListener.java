@@ -0,0 +1,23 @@
+package org.opentripplanner.transit.raptor.api.response;
+
+/**
+ * Implement this interface and pass it into Raptor to get the stop arrivals after each Range
+ * Raptor iteration. The arrivals of an iteration are the best arrivals for a departure at the
+ * iteration departure time, so a single search over a departure window give the stop arrival times
+ * for each departure minute in the window.
+ * <p>
+ * The listener is only notified by the standard Range Raptor profiles, not by the multi-criteria
+ * search or the heuristic searches.
+ */
+public interface StopArrivalsListener {
+  /**
+   * This listener is used if no listener is set.
+   */
+  StopArrivalsListener NOOP = (iterationDepartureTime, arrivals) -> {};
+
+  /**
+   * This method is called at the end of each iteration. The stop arrivals are only valid during
+   * the call, they are updated by the next iteration. Copy the arrivals needed.
+   */
+  void iterationComplete(int iterationDepartureTime, StopArrivals arrivals);
+}
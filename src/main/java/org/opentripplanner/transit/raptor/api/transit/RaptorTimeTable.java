@@ -1,5 +1,8 @@
 package org.opentripplanner.transit.raptor.api.transit;
 
+import javax.annotation.Nullable;
+import org.opentripplanner.transit.raptor.api.debug.RaptorSearchStatistics;
+
 /**
  * A TimeTable is a list of trips in service for the given search date and a limited time before and
  * after. This can be a subset of all trips available to speed up the trip search - that is left to
@@ -28,4 +31,18 @@ public interface RaptorTimeTable<T extends RaptorTripSchedule> {
    * Factory method to create the trip search
    */
   RaptorTripScheduleSearch<T> tripSearch(SearchDirection direction);
+
+  /**
+   * Same as {@link #tripSearch(SearchDirection)}, but the search may count its work, like the
+   * number of binary searches, in the given statistics. Implementing this is optional, the default
+   * ignores the statistics.
+   *
+   * @param statistics the search statistics to update, {@code null} if not collected
+   */
+  default RaptorTripScheduleSearch<T> tripSearch(
+    SearchDirection direction,
+    @Nullable RaptorSearchStatistics statistics
+  ) {
+    return tripSearch(direction);
+  }
 }
@@ -106,6 +106,8 @@ public class RaptorConfig<T extends RaptorTripSchedule> {
       ctx.calculator(),
       ctx.createLifeCyclePublisher(),
       ctx.performanceTimers(),
+      ctx.statistics(),
+      ctx.statisticsCollector(),
       ctx.enableConstrainedTransfers()
     );
   }
@@ -2,7 +2,10 @@ package org.opentripplanner.transit.raptor.rangeraptor;
 
 import java.util.Collection;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.request.TripScheduleBoardSearch;
+import org.opentripplanner.transit.raptor.api.debug.RaptorSearchStatistics;
+import org.opentripplanner.transit.raptor.api.debug.RaptorStatisticsCollector;
 import org.opentripplanner.transit.raptor.api.debug.RaptorTimers;
 import org.opentripplanner.transit.raptor.api.path.Path;
 import org.opentripplanner.transit.raptor.api.response.StopArrivals;
@@ -81,6 +84,16 @@ public final class RangeRaptorWorker<T extends RaptorTripSchedule> implements Wo
 
   private final RaptorTimers timers;
 
+  /**
+   * The statistics counters are {@code null} if statistics is not collected. This is checked
+   * before each increment, which is cheaper than calling a no-op implementation in the inner
+   * loops.
+   */
+  @Nullable
+  private final RaptorSearchStatistics statistics;
+
+  private final RaptorStatisticsCollector statisticsCollector;
+
   private final AccessPaths accessPaths;
 
   private final LifeCycleEventPublisher lifeCycle;
@@ -105,6 +118,8 @@ public final class RangeRaptorWorker<T extends RaptorTripSchedule> implements Wo
     TransitCalculator<T> calculator,
     LifeCycleEventPublisher lifeCyclePublisher,
     RaptorTimers timers,
+    @Nullable RaptorSearchStatistics statistics,
+    RaptorStatisticsCollector statisticsCollector,
     boolean enableTransferConstraints
   ) {
     this.transitWorker = transitWorker;
@@ -113,6 +128,8 @@ public final class RangeRaptorWorker<T extends RaptorTripSchedule> implements Wo
     this.slackProvider = slackProvider;
     this.calculator = calculator;
     this.timers = timers;
+    this.statistics = statistics;
+    this.statisticsCollector = statisticsCollector;
     this.accessPaths = accessPaths;
     this.minNumberOfRounds = accessPaths.calculateMaxNumberOfRides();
     this.enableTransferConstraints = enableTransferConstraints;
@@ -151,8 +168,14 @@ public final class RangeRaptorWorker<T extends RaptorTripSchedule> implements Wo
         lifeCycle.setupIteration(iterationDepartureTime);
         runRaptorForMinute();
         inFirstIteration = false;
+        if (statistics != null) {
+          statistics.incIterations();
+        }
       }
     });
+    if (statistics != null) {
+      statisticsCollector.collect(statistics);
+    }
   }
 
   @Override
@@ -173,6 +196,9 @@ public final class RangeRaptorWorker<T extends RaptorTripSchedule> implements Wo
 
     while (hasMoreRounds()) {
       lifeCycle.prepareForNextRound(roundTracker.nextRound());
+      if (statistics != null) {
+        statistics.incRounds();
+      }
 
       // NB since we have transfer limiting not bothering to cut off search when there are no
       // more transfers as that will be rare and complicates the code
@@ -213,6 +239,9 @@ public final class RangeRaptorWorker<T extends RaptorTripSchedule> implements Wo
 
       while (routeIndexIterator.hasNext()) {
         var routeIndex = routeIndexIterator.next();
+        if (statistics != null) {
+          statistics.incPatternsScanned();
+        }
         var route = transitData.getRouteForIndex(routeIndex);
         var pattern = route.pattern();
         var tripSearch = createTripSearch(route.timetable());
@@ -280,6 +309,9 @@ public final class RangeRaptorWorker<T extends RaptorTripSchedule> implements Wo
     int boardSlack
   ) {
     int earliestBoardTime = earliestBoardTime(prevArrivalTime, boardSlack);
+    if (statistics != null) {
+      statistics.incTripSearches();
+    }
     // check if we can back up to an earlier trip due to this stop
     // being reached earlier
     var result = tripSearch.search(earliestBoardTime, stopPos, transitWorker.onTripIndex());
@@ -354,12 +386,18 @@ public final class RangeRaptorWorker<T extends RaptorTripSchedule> implements Wo
   private void findTransfersForRound() {
     timers.findTransfersForRound(() -> {
       IntIterator it = state.stopsTouchedByTransitCurrentRound();
+      int nStopsReached = 0;
 
       while (it.hasNext()) {
         final int fromStop = it.next();
         // no need to consider loop transfers, since we don't mark patterns here any more
         // loop transfers are already included by virtue of those stops having been reached
         state.transferToStops(fromStop, calculator.getTransfers(transitData, fromStop));
+        ++nStopsReached;
+      }
+
+      if (statistics != null) {
+        statistics.addStopsReached(round(), nStopsReached);
       }
 
       lifeCycle.transfersForRoundComplete();
@@ -382,11 +420,11 @@ public final class RangeRaptorWorker<T extends RaptorTripSchedule> implements Wo
       // a bus, take it one stop and walk back and then wait to board a later trip - this kind
       // of results would be rejected by earlier iterations, for all iterations except the
       // first.
-      return calculator.createExactTripSearch(timeTable);
+      return calculator.createExactTripSearch(timeTable, statistics);
     }
 
     // Default: create a standard trip search
-    return calculator.createTripSearch(timeTable);
+    return calculator.createTripSearch(timeTable, statistics);
   }
 
   private void findAccessOnStreetForRound() {
@@ -9,12 +9,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.function.ToIntFunction;
 import javax.annotation.Nullable;
+import org.opentripplanner.transit.raptor.api.debug.RaptorSearchStatistics;
+import org.opentripplanner.transit.raptor.api.debug.RaptorStatisticsCollector;
 import org.opentripplanner.transit.raptor.api.debug.RaptorTimers;
 import org.opentripplanner.transit.raptor.api.request.DebugRequest;
 import org.opentripplanner.transit.raptor.api.request.RaptorProfile;
 import org.opentripplanner.transit.raptor.api.request.RaptorRequest;
 import org.opentripplanner.transit.raptor.api.request.RaptorTuningParameters;
 import org.opentripplanner.transit.raptor.api.request.SearchParams;
+import org.opentripplanner.transit.raptor.api.response.StopArrivalsListener;
 import org.opentripplanner.transit.raptor.api.transit.CostCalculator;
 import org.opentripplanner.transit.raptor.api.transit.RaptorSlackProvider;
 import org.opentripplanner.transit.raptor.api.transit.RaptorStopNameResolver;
@@ -62,6 +65,9 @@ public class SearchContext<T extends RaptorTripSchedule> {
   private final EgressPaths egressPaths;
   private final AccessPaths accessPaths;
 
+  @Nullable
+  private final RaptorSearchStatistics statistics;
+
   private final LifeCycleSubscriptions lifeCycleSubscriptions = new LifeCycleSubscriptions();
 
   public SearchContext(
@@ -88,6 +94,10 @@ public class SearchContext<T extends RaptorTripSchedule> {
         lifeCycle()
       );
     this.debugFactory = new DebugHandlerFactory<>(debugRequest(request), lifeCycle());
+    this.statistics =
+      request.statisticsCollector() == RaptorStatisticsCollector.NOOP
+        ? null
+        : new RaptorSearchStatistics(request.profile(), request.searchDirection());
   }
 
   public AccessPaths accessPaths() {
@@ -158,6 +168,22 @@ public class SearchContext<T extends RaptorTripSchedule> {
     return request.performanceTimers();
   }
 
+  public RaptorStatisticsCollector statisticsCollector() {
+    return request.statisticsCollector();
+  }
+
+  public StopArrivalsListener stopArrivalsListener() {
+    return request.stopArrivalsListener();
+  }
+
+  /**
+   * The search statistics counters, {@code null} if statistics is not collected for this search.
+   */
+  @Nullable
+  public RaptorSearchStatistics statistics() {
+    return statistics;
+  }
+
   /** Number of stops in transit graph. */
   public int nStops() {
     return transit.numberOfStops();
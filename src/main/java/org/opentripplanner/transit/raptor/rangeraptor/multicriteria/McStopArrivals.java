@@ -2,6 +2,8 @@ package org.opentripplanner.transit.raptor.rangeraptor.multicriteria;
 
 import java.util.BitSet;
 import java.util.Collections;
+import javax.annotation.Nullable;
+import org.opentripplanner.transit.raptor.api.debug.RaptorSearchStatistics;
 import org.opentripplanner.transit.raptor.api.response.StopArrivals;
 import org.opentripplanner.transit.raptor.api.transit.IntIterator;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
@@ -26,6 +28,9 @@ public final class McStopArrivals<T extends RaptorTripSchedule> implements StopA
   private final DebugHandlerFactory<T> debugHandlerFactory;
   private final DebugStopArrivalsStatistics debugStats;
 
+  @Nullable
+  private final RaptorSearchStatistics statistics;
+
   /**
    * Set the time at a transit index iff it is optimal. This sets both the best time and the
    * transfer time
@@ -34,13 +39,15 @@ public final class McStopArrivals<T extends RaptorTripSchedule> implements StopA
     int nStops,
     EgressPaths egressPaths,
     DestinationArrivalPaths<T> paths,
-    DebugHandlerFactory<T> debugHandlerFactory
+    DebugHandlerFactory<T> debugHandlerFactory,
+    @Nullable RaptorSearchStatistics statistics
   ) {
     //noinspection unchecked
     this.arrivals = (StopArrivalParetoSet<T>[]) new StopArrivalParetoSet[nStops];
     this.touchedStops = new BitSet(nStops);
     this.debugHandlerFactory = debugHandlerFactory;
     this.debugStats = new DebugStopArrivalsStatistics(debugHandlerFactory.debugLogger());
+    this.statistics = statistics;
 
     glueTogetherEgressStopWithDestinationArrivals(egressPaths, paths);
   }
@@ -97,6 +104,9 @@ public final class McStopArrivals<T extends RaptorTripSchedule> implements StopA
     if (added) {
       touchedStops.set(arrival.stop());
     }
+    if (statistics != null) {
+      statistics.paretoSetAddResult(added);
+    }
   }
 
   void debugStateInfo() {
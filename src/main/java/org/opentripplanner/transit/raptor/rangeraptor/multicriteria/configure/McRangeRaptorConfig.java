@@ -69,7 +69,8 @@ public class McRangeRaptorConfig<T extends RaptorTripSchedule> {
       context.nStops(),
       context.egressPaths(),
       createDestinationArrivalPaths(),
-      context.debugFactory()
+      context.debugFactory(),
+      context.statistics()
     );
   }
 
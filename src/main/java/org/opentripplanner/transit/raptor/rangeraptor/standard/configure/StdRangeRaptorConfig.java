@@ -1,6 +1,8 @@
 package org.opentripplanner.transit.raptor.rangeraptor.standard.configure;
 
 import java.util.function.BiFunction;
+import org.opentripplanner.transit.raptor.api.response.StopArrivals;
+import org.opentripplanner.transit.raptor.api.response.StopArrivalsListener;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTripSchedule;
 import org.opentripplanner.transit.raptor.rangeraptor.context.SearchContext;
 import org.opentripplanner.transit.raptor.rangeraptor.internalapi.HeuristicSearch;
@@ -70,6 +72,7 @@ public class StdRangeRaptorConfig<T extends RaptorTripSchedule> {
     BiFunction<WorkerState<T>, RoutingStrategy<T>, Worker<T>> createWorker
   ) {
     StdRangeRaptorWorkerState<T> state = createState();
+    subscribeStopArrivalsListener(state);
     return createWorker.apply(state, createWorkerStrategy(state));
   }
 
@@ -88,6 +91,19 @@ public class StdRangeRaptorConfig<T extends RaptorTripSchedule> {
     throw new IllegalArgumentException(ctx.profile().toString());
   }
 
+  private void subscribeStopArrivalsListener(StdRangeRaptorWorkerState<T> state) {
+    StopArrivalsListener listener = ctx.stopArrivalsListener();
+    if (listener == StopArrivalsListener.NOOP) {
+      return;
+    }
+    StopArrivals arrivals = state.extractStopArrivals();
+    int[] iterationDepartureTime = new int[1];
+    ctx.lifeCycle().onSetupIteration(time -> iterationDepartureTime[0] = time);
+    ctx
+      .lifeCycle()
+      .onIterationComplete(() -> listener.iterationComplete(iterationDepartureTime[0], arrivals));
+  }
+
   private RoutingStrategy<T> createWorkerStrategy(StdWorkerState<T> state) {
     switch (ctx.profile()) {
       case STANDARD:
@@ -1,6 +1,8 @@
 package org.opentripplanner.transit.raptor.rangeraptor.transit;
 
 import java.util.Iterator;
+import javax.annotation.Nullable;
+import org.opentripplanner.transit.raptor.api.debug.RaptorSearchStatistics;
 import org.opentripplanner.transit.raptor.api.request.RaptorTuningParameters;
 import org.opentripplanner.transit.raptor.api.request.SearchParams;
 import org.opentripplanner.transit.raptor.api.transit.IntIterator;
@@ -121,12 +123,22 @@ public final class ForwardTransitCalculator<T extends RaptorTripSchedule>
   }
 
   @Override
-  public RaptorTripScheduleSearch<T> createTripSearch(RaptorTimeTable<T> timeTable) {
-    return timeTable.tripSearch(SearchDirection.FORWARD);
+  public RaptorTripScheduleSearch<T> createTripSearch(
+    RaptorTimeTable<T> timeTable,
+    @Nullable RaptorSearchStatistics statistics
+  ) {
+    return timeTable.tripSearch(SearchDirection.FORWARD, statistics);
   }
 
   @Override
-  public RaptorTripScheduleSearch<T> createExactTripSearch(RaptorTimeTable<T> pattern) {
-    return new TripScheduleExactMatchSearch<>(createTripSearch(pattern), this, iterationStep);
+  public RaptorTripScheduleSearch<T> createExactTripSearch(
+    RaptorTimeTable<T> timeTable,
+    @Nullable RaptorSearchStatistics statistics
+  ) {
+    return new TripScheduleExactMatchSearch<>(
+      createTripSearch(timeTable, statistics),
+      this,
+      iterationStep
+    );
   }
 }
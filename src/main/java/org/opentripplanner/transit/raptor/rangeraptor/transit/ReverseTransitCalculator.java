@@ -1,6 +1,8 @@
 package org.opentripplanner.transit.raptor.rangeraptor.transit;
 
 import java.util.Iterator;
+import javax.annotation.Nullable;
+import org.opentripplanner.transit.raptor.api.debug.RaptorSearchStatistics;
 import org.opentripplanner.transit.raptor.api.request.RaptorTuningParameters;
 import org.opentripplanner.transit.raptor.api.request.SearchParams;
 import org.opentripplanner.transit.raptor.api.transit.IntIterator;
@@ -126,12 +128,22 @@ public final class ReverseTransitCalculator<T extends RaptorTripSchedule>
   }
 
   @Override
-  public RaptorTripScheduleSearch<T> createTripSearch(RaptorTimeTable<T> timeTable) {
-    return timeTable.tripSearch(SearchDirection.REVERSE);
+  public RaptorTripScheduleSearch<T> createTripSearch(
+    RaptorTimeTable<T> timeTable,
+    @Nullable RaptorSearchStatistics statistics
+  ) {
+    return timeTable.tripSearch(SearchDirection.REVERSE, statistics);
   }
 
   @Override
-  public RaptorTripScheduleSearch<T> createExactTripSearch(RaptorTimeTable<T> timeTable) {
-    return new TripScheduleExactMatchSearch<>(createTripSearch(timeTable), this, -iterationStep);
+  public RaptorTripScheduleSearch<T> createExactTripSearch(
+    RaptorTimeTable<T> timeTable,
+    @Nullable RaptorSearchStatistics statistics
+  ) {
+    return new TripScheduleExactMatchSearch<>(
+      createTripSearch(timeTable, statistics),
+      this,
+      -iterationStep
+    );
   }
 }
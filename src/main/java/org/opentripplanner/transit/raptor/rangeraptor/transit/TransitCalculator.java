@@ -3,6 +3,8 @@ package org.opentripplanner.transit.raptor.rangeraptor.transit;
 import static org.opentripplanner.util.time.TimeUtils.hm2time;
 
 import java.util.Iterator;
+import javax.annotation.Nullable;
+import org.opentripplanner.transit.raptor.api.debug.RaptorSearchStatistics;
 import org.opentripplanner.transit.raptor.api.transit.IntIterator;
 import org.opentripplanner.transit.raptor.api.transit.RaptorConstrainedTripScheduleBoardingSearch;
 import org.opentripplanner.transit.raptor.api.transit.RaptorTimeTable;
@@ -114,15 +116,38 @@ public interface TransitCalculator<T extends RaptorTripSchedule> extends TimeCal
    * is used to to inject a forward or reverse search into the worker (strategy design pattern).
    *
    * @param timeTable the trip time-table to search
+   * @param statistics the search statistics to update, {@code null} if not collected
    * @return The trip search strategy implementation.
    */
-  RaptorTripScheduleSearch<T> createTripSearch(RaptorTimeTable<T> timeTable);
+  RaptorTripScheduleSearch<T> createTripSearch(
+    RaptorTimeTable<T> timeTable,
+    @Nullable RaptorSearchStatistics statistics
+  );
+
+  /**
+   * Same as {@link #createTripSearch(RaptorTimeTable, RaptorSearchStatistics)}, but create a trip
+   * search that only accept exact trip timeLimit matches.
+   */
+  RaptorTripScheduleSearch<T> createExactTripSearch(
+    RaptorTimeTable<T> timeTable,
+    @Nullable RaptorSearchStatistics statistics
+  );
 
   /**
-   * Same as {@link #createTripSearch(RaptorTimeTable)}, but create a trip search that only accept
-   * exact trip timeLimit matches.
+   * Same as {@link #createTripSearch(RaptorTimeTable, RaptorSearchStatistics)}, without
+   * statistics.
    */
-  RaptorTripScheduleSearch<T> createExactTripSearch(RaptorTimeTable<T> timeTable);
+  default RaptorTripScheduleSearch<T> createTripSearch(RaptorTimeTable<T> timeTable) {
+    return createTripSearch(timeTable, null);
+  }
+
+  /**
+   * Same as {@link #createExactTripSearch(RaptorTimeTable, RaptorSearchStatistics)}, without
+   * statistics.
+   */
+  default RaptorTripScheduleSearch<T> createExactTripSearch(RaptorTimeTable<T> timeTable) {
+    return createExactTripSearch(timeTable, null);
+  }
 
   /**
    * Return a transfer provider for the given pattern. When searching forward the given {@code
@@ -151,6 +151,9 @@ public class TransitModel implements Serializable {
   }
 
   public void setTransitLayer(TransitLayer transitLayer) {
+    if (this.transitLayer != null) {
+      this.transitLayer.replacedBy(transitLayer);
+    }
     this.transitLayer = transitLayer;
   }
 
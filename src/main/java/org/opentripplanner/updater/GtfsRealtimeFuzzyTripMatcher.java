@@ -4,6 +4,12 @@ import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
 import gnu.trove.set.TIntSet;
 import java.text.ParseException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.opentripplanner.graph_builder.DataImportIssueStore;
 import org.opentripplanner.gtfs.mapping.DirectionMapper;
 import org.opentripplanner.transit.model.framework.FeedScopedId;
@@ -22,6 +28,12 @@ import org.opentripplanner.util.time.TimeUtils;
  * <p>
  * The class should only be used if we know that the feed producer is unable to produce trip_ids in
  * the GTFS-RT feed.
+ * <p>
+ * The scheduled trips of a route are indexed by direction and start time the first time the route
+ * is matched, so matching a trip does not scan all the trips of the route. The index of a route is
+ * built once and never updated: only the scheduled patterns are matched, and they do not change
+ * after the graph is built. Trips added in real time are not matched. A new transit model gets a
+ * new matcher, as the updaters create their matcher with the transit model they update.
  */
 public class GtfsRealtimeFuzzyTripMatcher {
 
@@ -32,6 +44,8 @@ public class GtfsRealtimeFuzzyTripMatcher {
     DataImportIssueStore.noopIssueStore()
   );
 
+  private final Map<Route, RouteTrips> tripsByRoute = new ConcurrentHashMap<>();
+
   public GtfsRealtimeFuzzyTripMatcher(TransitService transitService) {
     this.transitService = transitService;
   }
@@ -80,24 +94,56 @@ public class GtfsRealtimeFuzzyTripMatcher {
     return trip.toBuilder().setTripId(matchedTrip.getId().getId()).build();
   }
 
-  public synchronized Trip getTrip(
-    Route route,
-    Direction direction,
-    int startTime,
-    LocalDate date
-  ) {
+  public Trip getTrip(Route route, Direction direction, int startTime, LocalDate date) {
+    if (route == null) {
+      return null;
+    }
+    List<TripTimes> candidates = routeTrips(route).get(direction, startTime);
+    if (candidates.isEmpty()) {
+      return null;
+    }
     TIntSet servicesRunningForDate = transitService.getServiceCodesRunningForDate(date);
-    for (TripPattern pattern : transitService.getPatternsForRoute(route)) {
-      if (pattern.getDirection() != direction) continue;
-      for (TripTimes times : pattern.getScheduledTimetable().getTripTimes()) {
-        if (
-          times.getScheduledDepartureTime(0) == startTime &&
-          servicesRunningForDate.contains(times.getServiceCode())
-        ) {
-          return times.getTrip();
-        }
+    for (TripTimes times : candidates) {
+      if (servicesRunningForDate.contains(times.getServiceCode())) {
+        return times.getTrip();
       }
     }
     return null;
   }
+
+  private RouteTrips routeTrips(Route route) {
+    return tripsByRoute.computeIfAbsent(
+      route,
+      r -> new RouteTrips(transitService.getPatternsForRoute(r))
+    );
+  }
+
+  /**
+   * The scheduled trips of a route by direction and departure time from the first stop. The trips
+   * with the same key are kept in the order of the patterns and timetables, so the first trip
+   * running on a date is the same trip as the one found by scanning the timetables.
+   */
+  private static class RouteTrips {
+
+    private final Map<TripKey, List<TripTimes>> tripsByKey = new HashMap<>();
+
+    private RouteTrips(Collection<TripPattern> patterns) {
+      for (TripPattern pattern : patterns) {
+        for (TripTimes times : pattern.getScheduledTimetable().getTripTimes()) {
+          tripsByKey
+            .computeIfAbsent(
+              new TripKey(pattern.getDirection(), times.getScheduledDepartureTime(0)),
+              k -> new ArrayList<>(1)
+            )
+            .add(times);
+        }
+      }
+    }
+
+    private List<TripTimes> get(Direction direction, int startTime) {
+      return tripsByKey.getOrDefault(new TripKey(direction, startTime), List.of());
+    }
+  }
+
+  private record TripKey(Direction direction, int startTime) {}
 }
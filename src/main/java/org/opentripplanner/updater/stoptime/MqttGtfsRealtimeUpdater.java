@@ -50,6 +50,7 @@ public class MqttGtfsRealtimeUpdater implements GraphUpdater {
   private final String configRef;
   private final MemoryPersistence persistence = new MemoryPersistence();
   private final TimetableSnapshotSource snapshotSource;
+  private final TripUpdateBatcher batcher;
   private WriteToGraphCallback saveResultOnGraph;
 
   private GtfsRealtimeFuzzyTripMatcher fuzzyTripMatcher = null;
@@ -68,6 +69,12 @@ public class MqttGtfsRealtimeUpdater implements GraphUpdater {
     this.qos = parameters.getQos();
     this.backwardsDelayPropagationType = parameters.getBackwardsDelayPropagationType();
     this.snapshotSource = snapshotSource;
+    this.batcher =
+      new TripUpdateBatcher(
+        parameters.getBatchWindow(),
+        updates ->
+          saveResultOnGraph.execute(new TripUpdateGraphWriterRunnable(snapshotSource, updates))
+      );
     // Set properties of realtime data snapshot source
     if (parameters.getFuzzyTripMatching()) {
       this.fuzzyTripMatcher =
@@ -105,6 +112,7 @@ public class MqttGtfsRealtimeUpdater implements GraphUpdater {
     } catch (MqttException e) {
       LOG.error("Error disconnecting", e);
     }
+    batcher.close();
   }
 
   @Override
@@ -164,10 +172,9 @@ public class MqttGtfsRealtimeUpdater implements GraphUpdater {
       }
 
       if (updates != null) {
-        // Handle trip updates via graph writer runnable
-        saveResultOnGraph.execute(
-          new TripUpdateGraphWriterRunnable(
-            snapshotSource,
+        // Handle trip updates via graph writer runnable, batched with other messages
+        batcher.add(
+          snapshotSource.prepareTripUpdates(
             fuzzyTripMatcher,
             backwardsDelayPropagationType,
             fullDataset,
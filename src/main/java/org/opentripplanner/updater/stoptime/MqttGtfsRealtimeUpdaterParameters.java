@@ -1,5 +1,7 @@
 package org.opentripplanner.updater.stoptime;
 
+import java.time.Duration;
+
 public class MqttGtfsRealtimeUpdaterParameters {
 
   private final String configRef;
@@ -9,6 +11,7 @@ public class MqttGtfsRealtimeUpdaterParameters {
   private final int qos;
   private final boolean fuzzyTripMatching;
   private final BackwardsDelayPropagationType backwardsDelayPropagationType;
+  private final Duration batchWindow;
 
   public MqttGtfsRealtimeUpdaterParameters(
     String configRef,
@@ -17,7 +20,8 @@ public class MqttGtfsRealtimeUpdaterParameters {
     String topic,
     int qos,
     boolean fuzzyTripMatching,
-    BackwardsDelayPropagationType backwardsDelayPropagationType
+    BackwardsDelayPropagationType backwardsDelayPropagationType,
+    Duration batchWindow
   ) {
     this.configRef = configRef;
     this.feedId = feedId;
@@ -26,6 +30,7 @@ public class MqttGtfsRealtimeUpdaterParameters {
     this.qos = qos;
     this.fuzzyTripMatching = fuzzyTripMatching;
     this.backwardsDelayPropagationType = backwardsDelayPropagationType;
+    this.batchWindow = batchWindow;
   }
 
   String getUrl() {
@@ -52,6 +57,14 @@ public class MqttGtfsRealtimeUpdaterParameters {
     return backwardsDelayPropagationType;
   }
 
+  /**
+   * The messages received during this window are applied together, keeping only the last update
+   * of each trip. Zero to apply each message on its own.
+   */
+  Duration getBatchWindow() {
+    return batchWindow;
+  }
+
   /** The config name/type for the updater. Used to reference the configuration element. */
   String getConfigRef() {
     return configRef;
@@ -95,11 +95,13 @@ public class PollingStoptimeUpdater extends PollingGraphUpdater {
       // Handle trip updates via graph writer runnable
       TripUpdateGraphWriterRunnable runnable = new TripUpdateGraphWriterRunnable(
         snapshotSource,
-        fuzzyTripMatcher,
-        backwardsDelayPropagationType,
-        fullDataset,
-        updates,
-        feedId
+        snapshotSource.prepareTripUpdates(
+          fuzzyTripMatcher,
+          backwardsDelayPropagationType,
+          fullDataset,
+          updates,
+          feedId
+        )
       );
       saveResultOnGraph.execute(runnable);
     }
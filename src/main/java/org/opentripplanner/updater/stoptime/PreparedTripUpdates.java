@@ -0,0 +1,128 @@
+package org.opentripplanner.updater.stoptime;
+
+import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.opentripplanner.common.model.Result;
+import org.opentripplanner.model.TripTimesPatch;
+import org.opentripplanner.model.UpdateError;
+import org.opentripplanner.transit.model.framework.FeedScopedId;
+import org.opentripplanner.transit.model.network.TripPattern;
+import org.opentripplanner.transit.model.timetable.TripIdAndServiceDate;
+
+/**
+ * A GTFS-RT message prepared by {@link TimetableSnapshotSource#prepareTripUpdates}, ready to be
+ * applied to the timetable snapshot buffer. The preparation matches the trips and creates the
+ * updated trip times of the scheduled trips. It does not depend on the buffer, so it is done in
+ * the updater thread, and only the application of the updates is done while holding the buffer
+ * lock.
+ */
+public class PreparedTripUpdates {
+
+  private final String feedId;
+  private final boolean fullDataset;
+  private final int nReceived;
+  private final List<PreparedTripUpdate> updates;
+  private final long preparedAtNanos;
+
+  PreparedTripUpdates(
+    String feedId,
+    boolean fullDataset,
+    int nReceived,
+    List<PreparedTripUpdate> updates
+  ) {
+    this(feedId, fullDataset, nReceived, updates, System.nanoTime());
+  }
+
+  private PreparedTripUpdates(
+    String feedId,
+    boolean fullDataset,
+    int nReceived,
+    List<PreparedTripUpdate> updates,
+    long preparedAtNanos
+  ) {
+    this.feedId = feedId;
+    this.fullDataset = fullDataset;
+    this.nReceived = nReceived;
+    this.updates = updates;
+    this.preparedAtNanos = preparedAtNanos;
+  }
+
+  /**
+   * Merge the updates of a later message of the same feed into these updates. A trip update of
+   * the later message replaces the update of the same trip and service date in these updates, the
+   * last update of a trip is the complete realtime state of the trip. A full dataset replaces all
+   * previous updates.
+   */
+  PreparedTripUpdates merge(PreparedTripUpdates next) {
+    if (next.fullDataset) {
+      return new PreparedTripUpdates(feedId, true, next.nReceived, next.updates, preparedAtNanos);
+    }
+    Map<TripIdAndServiceDate, PreparedTripUpdate> merged = new LinkedHashMap<>();
+    for (PreparedTripUpdate update : updates) {
+      merged.put(update.tripIdAndServiceDate(), update);
+    }
+    for (PreparedTripUpdate update : next.updates) {
+      merged.put(update.tripIdAndServiceDate(), update);
+    }
+    return new PreparedTripUpdates(
+      feedId,
+      fullDataset,
+      nReceived + next.nReceived,
+      List.copyOf(merged.values()),
+      preparedAtNanos
+    );
+  }
+
+  String feedId() {
+    return feedId;
+  }
+
+  /**
+   * True if the updates represent all updates that are active right now, i.e. all previous
+   * updates should be disregarded.
+   */
+  boolean fullDataset() {
+    return fullDataset;
+  }
+
+  /** The number of trip updates in the message, including the ones that could not be prepared. */
+  int nReceived() {
+    return nReceived;
+  }
+
+  List<PreparedTripUpdate> updates() {
+    return updates;
+  }
+
+  /**
+   * The time the first message of these updates was prepared, see {@link System#nanoTime()}.
+   */
+  long preparedAtNanos() {
+    return preparedAtNanos;
+  }
+
+  /**
+   * A trip update with a trip id and a service date.
+   *
+   * @param pattern The scheduled pattern of the trip, only set for a SCHEDULED trip update.
+   * @param scheduledPatch The scheduled trip times updated with the trip update, only set for a
+   *                       SCHEDULED trip update of a trip with a pattern.
+   */
+  record PreparedTripUpdate(
+    TripUpdate tripUpdate,
+    FeedScopedId tripId,
+    LocalDate serviceDate,
+    TripDescriptor.ScheduleRelationship scheduleRelationship,
+    @Nullable TripPattern pattern,
+    @Nullable Result<TripTimesPatch, UpdateError> scheduledPatch
+  ) {
+    TripIdAndServiceDate tripIdAndServiceDate() {
+      return new TripIdAndServiceDate(tripId, serviceDate);
+    }
+  }
+}
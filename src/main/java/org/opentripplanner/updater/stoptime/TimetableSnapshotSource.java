@@ -19,6 +19,8 @@ import com.google.common.collect.Multimaps;
 import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
 import com.google.transit.realtime.GtfsRealtime.TripUpdate;
 import com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import java.text.ParseException;
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -29,13 +31,18 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import org.opentripplanner.common.model.Result;
 import org.opentripplanner.model.StopTime;
 import org.opentripplanner.model.Timetable;
 import org.opentripplanner.model.TimetableSnapshot;
 import org.opentripplanner.model.TimetableSnapshotProvider;
+import org.opentripplanner.model.TripTimesPatch;
 import org.opentripplanner.model.UpdateError;
 import org.opentripplanner.routing.algorithm.raptoradapter.transit.mappers.TransitLayerUpdater;
 import org.opentripplanner.transit.model.basic.I18NString;
@@ -57,6 +64,7 @@ import org.opentripplanner.transit.service.TransitService;
 import org.opentripplanner.updater.GtfsRealtimeFuzzyTripMatcher;
 import org.opentripplanner.updater.GtfsRealtimeMapper;
 import org.opentripplanner.updater.TimetableSnapshotSourceParameters;
+import org.opentripplanner.updater.stoptime.PreparedTripUpdates.PreparedTripUpdate;
 import org.opentripplanner.util.lang.DoubleUtils;
 import org.opentripplanner.util.time.ServiceDateUtils;
 import org.slf4j.Logger;
@@ -77,30 +85,25 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
   private static final long MAX_ARRIVAL_DEPARTURE_TIME = 48 * 60 * 60;
 
   /**
-   * The working copy of the timetable snapshot. Should not be visible to routing threads. Should
-   * only be modified by a thread that holds a lock on {@link #bufferLock}. All public methods that
-   * might modify this buffer will correctly acquire the lock.
+   * Trip update lists with fewer updates are prepared in the calling thread
    */
-  private final TimetableSnapshot buffer = new TimetableSnapshot();
+  static final int MIN_TRIP_UPDATES_PARALLEL_PREPARE = 100;
 
-  /**
-   * Lock to indicate that buffer is in use
-   */
-  private final ReentrantLock bufferLock = new ReentrantLock(true);
+  private static final String METRICS_PREFIX = "updater.tripUpdates.";
 
   /**
-   * A synchronized cache of trip patterns that are added to the graph due to GTFS-realtime
-   * messages.
+   * The working copies of the timetable snapshot, one for each realtime feed id. The feeds are
+   * applied and committed independently, so a large or slow feed does not delay the updates of the
+   * other feeds. Should not be visible to routing threads, see {@link FeedBuffer}.
    */
-
-  private final TripPatternCache tripPatternCache = new TripPatternCache();
+  private final Map<String, FeedBuffer> feedBuffers = new ConcurrentHashMap<>();
 
   private final ZoneId timeZone;
   private final TransitService transitService;
   private final TransitLayerUpdater transitLayerUpdater;
 
   private final int logFrequency;
-  private int totalSuccessfullyApplied = 0;
+  private final AtomicInteger totalSuccessfullyApplied = new AtomicInteger();
 
   /**
    * If a timetable snapshot is requested less than this number of milliseconds after the previous
@@ -110,19 +113,14 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
   private final int maxSnapshotFrequencyMs;
 
   /**
-   * The last committed snapshot that was handed off to a routing thread. This snapshot may be given
-   * to more than one routing thread if the maximum snapshot frequency is exceeded.
+   * The committed snapshots of all feeds combined, handed off to the routing threads. This snapshot
+   * may be given to more than one routing thread if the maximum snapshot frequency is exceeded.
    */
-  private volatile TimetableSnapshot snapshot = null;
+  private volatile CombinedSnapshot combined = new CombinedSnapshot(List.of(), null);
 
   /** Should expired realtime data be purged from the graph. */
   private final boolean purgeExpiredData;
 
-  protected LocalDate lastPurgeDate = null;
-
-  /** Epoch time in milliseconds at which the last snapshot was generated. */
-  protected long lastSnapshotTime = -1;
-
   private final Deduplicator deduplicator;
 
   private final Map<FeedScopedId, Integer> serviceCodes;
@@ -170,23 +168,21 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
    * to the snapshot to release resources.
    */
   public TimetableSnapshot getTimetableSnapshot() {
-    TimetableSnapshot snapshotToReturn;
-
-    // Try to get a lock on the buffer
-    if (bufferLock.tryLock()) {
-      // Make a new snapshot if necessary
-      try {
-        snapshotToReturn = getTimetableSnapshot(false);
-      } finally {
-        bufferLock.unlock();
+    for (FeedBuffer feedBuffer : feedBuffers.values()) {
+      // Try to get a lock on the buffer of the feed
+      if (feedBuffer.lock.tryLock()) {
+        // Make a new snapshot if necessary
+        try {
+          commit(feedBuffer, false);
+        } finally {
+          feedBuffer.lock.unlock();
+        }
       }
-    } else {
       // No lock could be obtained because there is either a snapshot commit busy or updates
-      // are applied at this moment, just return the current snapshot
-      snapshotToReturn = snapshot;
+      // are applied to the feed at this moment, just use the current snapshot of the feed
     }
 
-    return snapshotToReturn;
+    return combinedSnapshot();
   }
 
   /**
@@ -213,9 +209,61 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
       LOG.warn("updates is null");
       return;
     }
+    applyTripUpdates(
+      prepareTripUpdates(
+        fuzzyTripMatcher,
+        backwardsDelayPropagationType,
+        fullDataset,
+        updates,
+        feedId
+      )
+    );
+  }
+
+  /**
+   * Prepare a trip update list to be applied with {@link #applyTripUpdates(PreparedTripUpdates)}:
+   * match the trips, parse the service dates and create the updated trip times of the scheduled
+   * trips. The preparation only reads the scheduled transit data, it does not need the buffer lock
+   * and should be done in the updater thread. A large list is prepared in parallel.
+   */
+  public PreparedTripUpdates prepareTripUpdates(
+    GtfsRealtimeFuzzyTripMatcher fuzzyTripMatcher,
+    BackwardsDelayPropagationType backwardsDelayPropagationType,
+    boolean fullDataset,
+    List<TripUpdate> updates,
+    String feedId
+  ) {
+    long t0 = System.nanoTime();
+    var stream = updates.size() < MIN_TRIP_UPDATES_PARALLEL_PREPARE
+      ? updates.stream()
+      : updates.parallelStream();
+    List<PreparedTripUpdate> prepared = stream
+      .map(tripUpdate ->
+        prepareTripUpdate(fuzzyTripMatcher, backwardsDelayPropagationType, tripUpdate, feedId)
+      )
+      .filter(Objects::nonNull)
+      .toList();
+    var result = new PreparedTripUpdates(feedId, fullDataset, updates.size(), prepared);
+    feedBuffer(feedId).prepareTimer.record(result.preparedAtNanos() - t0, TimeUnit.NANOSECONDS);
+    return result;
+  }
+
+  /**
+   * Apply trip updates prepared with {@link #prepareTripUpdates} to the most recent version of the
+   * timetable snapshot. The updates are applied atomically, while holding the buffer lock of the
+   * feed. Updates of other feeds are not blocked.
+   */
+  public void applyTripUpdates(PreparedTripUpdates preparedUpdates) {
+    String feedId = preparedUpdates.feedId();
+    boolean fullDataset = preparedUpdates.fullDataset();
+    FeedBuffer feedBuffer = feedBuffer(feedId);
+    TimetableSnapshot buffer = feedBuffer.buffer;
 
     // Acquire lock on buffer
-    bufferLock.lock();
+    feedBuffer.lock.lock();
+
+    long t0 = System.nanoTime();
+    feedBuffer.queueTimer.record(t0 - preparedUpdates.preparedAtNanos(), TimeUnit.NANOSECONDS);
 
     Map<TripDescriptor.ScheduleRelationship, Integer> failuresByRelationship = new HashMap<>();
     List<UpdateError> errors = new ArrayList<>();
@@ -226,71 +274,34 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
         buffer.clear(feedId);
       }
 
-      LOG.debug("message contains {} trip updates", updates.size());
+      LOG.debug("message contains {} trip updates", preparedUpdates.nReceived());
       int successfullyApplied = 0;
       int uIndex = 0;
-      for (TripUpdate tripUpdate : updates) {
-        if (!tripUpdate.hasTrip()) {
-          debug(feedId, "", "Missing TripDescriptor in gtfs-rt trip update: \n{}", tripUpdate);
-          continue;
-        }
-
-        if (fuzzyTripMatcher != null) {
-          final TripDescriptor trip = fuzzyTripMatcher.match(feedId, tripUpdate.getTrip());
-          tripUpdate = tripUpdate.toBuilder().setTrip(trip).build();
-        }
-
+      for (PreparedTripUpdate preparedUpdate : preparedUpdates.updates()) {
+        final TripUpdate tripUpdate = preparedUpdate.tripUpdate();
         final TripDescriptor tripDescriptor = tripUpdate.getTrip();
-
-        if (!tripDescriptor.hasTripId() || tripDescriptor.getTripId().isBlank()) {
-          debug(feedId, "", "No trip id found for gtfs-rt trip update: \n{}", tripUpdate);
-          continue;
-        }
-
-        FeedScopedId tripId = new FeedScopedId(feedId, tripUpdate.getTrip().getTripId());
-
-        LocalDate serviceDate = LocalDate.now(timeZone);
-        if (tripDescriptor.hasStartDate()) {
-          try {
-            serviceDate = ServiceDateUtils.parseString(tripDescriptor.getStartDate());
-          } catch (final ParseException e) {
-            debug(
-              tripId,
-              "Failed to parse start date in gtfs-rt trip update: {}",
-              tripDescriptor.getStartDate()
-            );
-            continue;
-          }
-        } else {
-          // TODO: figure out the correct service date. For the special case that a trip
-          // starts for example at 40:00, yesterday would probably be a better guess.
-        }
+        final FeedScopedId tripId = preparedUpdate.tripId();
+        final LocalDate serviceDate = preparedUpdate.serviceDate();
 
         uIndex += 1;
         LOG.debug("trip update #{} ({} updates) :", uIndex, tripUpdate.getStopTimeUpdateCount());
         LOG.trace("{}", tripUpdate);
 
-        // Determine what kind of trip update this is
-        final TripDescriptor.ScheduleRelationship tripScheduleRelationship = determineTripScheduleRelationship(
-          tripDescriptor
-        );
+        final TripDescriptor.ScheduleRelationship tripScheduleRelationship = preparedUpdate.scheduleRelationship();
 
         Optional<UpdateError> updateError =
           switch (tripScheduleRelationship) {
-            case SCHEDULED -> handleScheduledTrip(
-              tripUpdate,
-              tripId,
-              serviceDate,
-              backwardsDelayPropagationType
-            );
+            case SCHEDULED -> handleScheduledTrip(buffer, preparedUpdate);
             case ADDED -> validateAndHandleAddedTrip(
+              buffer,
               tripUpdate,
               tripDescriptor,
               tripId,
               serviceDate
             );
-            case CANCELED -> handleCanceledTrip(tripId, serviceDate);
+            case CANCELED -> handleCanceledTrip(buffer, tripId, serviceDate);
             case REPLACEMENT -> validateAndHandleModifiedTrip(
+              buffer,
               tripUpdate,
               tripDescriptor,
               tripId,
@@ -304,7 +315,10 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
 
         if (updateError.isEmpty()) {
           successfullyApplied++;
-          totalSuccessfullyApplied++;
+          int total = totalSuccessfullyApplied.incrementAndGet();
+          if (total % logFrequency == 0) {
+            LOG.debug("Applied {} trip updates in total.", total);
+          }
         } else {
           debug(tripId, "Failed to apply TripUpdate.");
           LOG.trace(" Contents: {}", tripUpdate);
@@ -315,10 +329,6 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
             failuresByRelationship.put(tripScheduleRelationship, 1);
           }
         }
-
-        if (totalSuccessfullyApplied % logFrequency == 0) {
-          LOG.debug("Applied {} trip updates in total.", totalSuccessfullyApplied);
-        }
       }
 
       if (fullDataset) {
@@ -326,8 +336,10 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
           "[feedId: {}] {} of {} update messages were applied successfully (success rate: {}%)",
           feedId,
           successfullyApplied,
-          updates.size(),
-          DoubleUtils.roundTo2Decimals((double) successfullyApplied / updates.size() * 100)
+          preparedUpdates.nReceived(),
+          DoubleUtils.roundTo2Decimals(
+            (double) successfullyApplied / preparedUpdates.nReceived() * 100
+          )
         );
 
         var errorIndex = Multimaps.index(errors, UpdateError::errorType);
@@ -358,32 +370,169 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
       // Make a snapshot after each message in anticipation of incoming requests
       // Purge data if necessary (and force new snapshot if anything was purged)
       // Make sure that the public (locking) getTimetableSnapshot function is not called.
-      if (purgeExpiredData) {
-        final boolean modified = purgeExpiredData();
-        getTimetableSnapshot(modified);
-      } else {
-        getTimetableSnapshot(false);
-      }
+      final boolean modified = purgeExpiredData && purgeExpiredData(feedBuffer);
+      commit(feedBuffer, modified);
     } finally {
       // Always release lock
-      bufferLock.unlock();
+      feedBuffer.lock.unlock();
     }
+    feedBuffer.applyTimer.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
   }
 
-  private TimetableSnapshot getTimetableSnapshot(final boolean force) {
+  /**
+   * Return the trip update with a matched trip id and a service date, or {@code null} if the trip
+   * update can not be applied.
+   */
+  private PreparedTripUpdate prepareTripUpdate(
+    GtfsRealtimeFuzzyTripMatcher fuzzyTripMatcher,
+    BackwardsDelayPropagationType backwardsDelayPropagationType,
+    TripUpdate tripUpdate,
+    String feedId
+  ) {
+    if (!tripUpdate.hasTrip()) {
+      debug(feedId, "", "Missing TripDescriptor in gtfs-rt trip update: \n{}", tripUpdate);
+      return null;
+    }
+
+    if (fuzzyTripMatcher != null) {
+      final TripDescriptor trip = fuzzyTripMatcher.match(feedId, tripUpdate.getTrip());
+      tripUpdate = tripUpdate.toBuilder().setTrip(trip).build();
+    }
+
+    final TripDescriptor tripDescriptor = tripUpdate.getTrip();
+
+    if (!tripDescriptor.hasTripId() || tripDescriptor.getTripId().isBlank()) {
+      debug(feedId, "", "No trip id found for gtfs-rt trip update: \n{}", tripUpdate);
+      return null;
+    }
+
+    FeedScopedId tripId = new FeedScopedId(feedId, tripUpdate.getTrip().getTripId());
+
+    LocalDate serviceDate = LocalDate.now(timeZone);
+    if (tripDescriptor.hasStartDate()) {
+      try {
+        serviceDate = ServiceDateUtils.parseString(tripDescriptor.getStartDate());
+      } catch (final ParseException e) {
+        debug(
+          tripId,
+          "Failed to parse start date in gtfs-rt trip update: {}",
+          tripDescriptor.getStartDate()
+        );
+        return null;
+      }
+    } else {
+      // TODO: figure out the correct service date. For the special case that a trip
+      // starts for example at 40:00, yesterday would probably be a better guess.
+    }
+
+    // Determine what kind of trip update this is
+    final TripDescriptor.ScheduleRelationship tripScheduleRelationship = determineTripScheduleRelationship(
+      tripDescriptor
+    );
+
+    TripPattern pattern = null;
+    Result<TripTimesPatch, UpdateError> scheduledPatch = null;
+    if (tripScheduleRelationship == TripDescriptor.ScheduleRelationship.SCHEDULED) {
+      pattern = getPatternForTripId(tripId);
+      if (pattern != null && tripUpdate.getStopTimeUpdateCount() > 0) {
+        // Get new TripTimes based on scheduled timetable
+        scheduledPatch =
+          pattern
+            .getScheduledTimetable()
+            .createUpdatedTripTimes(
+              tripUpdate,
+              timeZone,
+              serviceDate,
+              backwardsDelayPropagationType
+            );
+      }
+    }
+
+    return new PreparedTripUpdate(
+      tripUpdate,
+      tripId,
+      serviceDate,
+      tripScheduleRelationship,
+      pattern,
+      scheduledPatch
+    );
+  }
+
+  /**
+   * The lock of the buffer of a feed, package local to allow unit-tests to hold it.
+   */
+  ReentrantLock feedLock(String feedId) {
+    return feedBuffer(feedId).lock;
+  }
+
+  private FeedBuffer feedBuffer(String feedId) {
+    return feedBuffers.computeIfAbsent(feedId, FeedBuffer::new);
+  }
+
+  private static Timer stageTimer(String stage, String feedId) {
+    return Timer
+      .builder(METRICS_PREFIX + stage)
+      .tag("feedId", feedId)
+      .register(Metrics.globalRegistry);
+  }
+
+  /**
+   * Commit the buffer of a feed if necessary, the caller must hold the lock of the feed.
+   */
+  private void commit(FeedBuffer feedBuffer, final boolean force) {
     final long now = System.currentTimeMillis();
-    if (force || now - lastSnapshotTime > maxSnapshotFrequencyMs) {
-      if (force || buffer.isDirty()) {
-        LOG.debug("Committing {}", buffer);
-        snapshot = buffer.commit(transitLayerUpdater, force);
+    if (force || now - feedBuffer.lastSnapshotTime > maxSnapshotFrequencyMs) {
+      feedBuffer.lastSnapshotTime = now;
+      if (force || feedBuffer.buffer.isDirty()) {
+        LOG.debug("Committing {}", feedBuffer.buffer);
+        feedBuffer.snapshot = feedBuffer.buffer.commit(transitLayerUpdater, force);
       } else {
         LOG.debug("Buffer was unchanged, keeping old snapshot.");
       }
-      lastSnapshotTime = System.currentTimeMillis();
     } else {
-      LOG.debug("Snapshot frequency exceeded. Reusing snapshot {}", snapshot);
+      LOG.debug("Snapshot frequency exceeded. Reusing snapshot {}", feedBuffer.snapshot);
+    }
+  }
+
+  /**
+   * Return the last committed snapshots of all feeds combined. The snapshots are combined when a
+   * routing thread requests them, and only if a feed committed a new snapshot since they were last
+   * combined, so the feeds are not copied after each message. The snapshot of a single feed is used
+   * as it is.
+   */
+  private TimetableSnapshot combinedSnapshot() {
+    List<TimetableSnapshot> snapshots = committedSnapshots();
+    CombinedSnapshot current = combined;
+    if (current.isCombinedFrom(snapshots)) {
+      return current.snapshot();
+    }
+    synchronized (this) {
+      // Combine the latest snapshots, another thread may have combined them already
+      snapshots = committedSnapshots();
+      current = combined;
+      if (!current.isCombinedFrom(snapshots)) {
+        current =
+          new CombinedSnapshot(
+            snapshots,
+            switch (snapshots.size()) {
+              case 0 -> null;
+              case 1 -> snapshots.get(0);
+              default -> TimetableSnapshot.combine(snapshots);
+            }
+          );
+        combined = current;
+      }
+      return current.snapshot();
     }
-    return snapshot;
+  }
+
+  private List<TimetableSnapshot> committedSnapshots() {
+    return feedBuffers
+      .values()
+      .stream()
+      .map(feedBuffer -> feedBuffer.snapshot)
+      .filter(Objects::nonNull)
+      .toList();
   }
 
   /**
@@ -408,12 +557,13 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
   }
 
   private Optional<UpdateError> handleScheduledTrip(
-    TripUpdate tripUpdate,
-    FeedScopedId tripId,
-    LocalDate serviceDate,
-    BackwardsDelayPropagationType backwardsDelayPropagationType
+    final TimetableSnapshot buffer,
+    PreparedTripUpdate preparedUpdate
   ) {
-    final TripPattern pattern = getPatternForTripId(tripId);
+    final TripUpdate tripUpdate = preparedUpdate.tripUpdate();
+    final FeedScopedId tripId = preparedUpdate.tripId();
+    final LocalDate serviceDate = preparedUpdate.serviceDate();
+    final TripPattern pattern = preparedUpdate.pattern();
 
     if (pattern == null) {
       debug(tripId, "No pattern found for tripId, skipping TripUpdate.");
@@ -427,12 +577,10 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
 
     // If this trip_id has been used for previously ADDED/MODIFIED trip message (e.g. when the sequence of stops has
     // changed, and is now changing back to the originally scheduled one) cancel that previously created trip.
-    cancelPreviouslyAddedTrip(tripId, serviceDate);
+    cancelPreviouslyAddedTrip(buffer, tripId, serviceDate);
 
-    // Get new TripTimes based on scheduled timetable
-    var result = pattern
-      .getScheduledTimetable()
-      .createUpdatedTripTimes(tripUpdate, timeZone, serviceDate, backwardsDelayPropagationType);
+    // The new TripTimes are created from the scheduled timetable when the update is prepared
+    var result = preparedUpdate.scheduledPatch();
 
     if (result.isFailure()) {
       return Optional.of(result.failureValue());
@@ -457,13 +605,10 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
 
       final Trip trip = getTripForTripId(tripId);
       // Get cached trip pattern or create one if it doesn't exist yet
-      final TripPattern newPattern = tripPatternCache.getOrCreateTripPattern(
-        newStopPattern,
-        trip,
-        pattern
-      );
+      final TripPattern newPattern = feedBuffer(tripId.getFeedId())
+        .tripPatternCache.getOrCreateTripPattern(newStopPattern, trip, pattern);
 
-      cancelScheduledTrip(tripId, serviceDate);
+      cancelScheduledTrip(buffer, tripId, serviceDate);
       return buffer.update(newPattern, updatedTripTimes, serviceDate);
     } else {
       // Set the updated trip times in the buffer
@@ -479,6 +624,7 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
    * @return empty Optional if successful or one containing en error
    */
   private Optional<UpdateError> validateAndHandleAddedTrip(
+    final TimetableSnapshot buffer,
     final TripUpdate tripUpdate,
     final TripDescriptor tripDescriptor,
     final FeedScopedId tripId,
@@ -524,7 +670,7 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
     //
     // Handle added trip
     //
-    return handleAddedTrip(tripUpdate, tripDescriptor, stops, tripId, serviceDate);
+    return handleAddedTrip(buffer, tripUpdate, tripDescriptor, stops, tripId, serviceDate);
   }
 
   /**
@@ -628,6 +774,7 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
    * @return empty Optional if successful or one containing en error
    */
   private Optional<UpdateError> handleAddedTrip(
+    final TimetableSnapshot buffer,
     final TripUpdate tripUpdate,
     final TripDescriptor tripDescriptor,
     final List<StopLocation> stops,
@@ -643,7 +790,7 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
 
     // Check whether trip id has been used for previously ADDED trip message and cancel
     // previously created trip
-    cancelPreviouslyAddedTrip(tripId, serviceDate);
+    cancelPreviouslyAddedTrip(buffer, tripId, serviceDate);
 
     //
     // Create added trip
@@ -704,6 +851,7 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
     }
 
     return addTripToGraphAndBuffer(
+      buffer,
       tripBuilder.build(),
       tripUpdate,
       stops,
@@ -723,6 +871,7 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
    * @return empty Optional if successful or one containing en error
    */
   private Optional<UpdateError> addTripToGraphAndBuffer(
+    final TimetableSnapshot buffer,
     final Trip trip,
     final TripUpdate tripUpdate,
     final List<StopLocation> stops,
@@ -795,11 +944,8 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
 
     final TripPattern originalTripPattern = transitService.getPatternForTrip(trip);
     // Get cached trip pattern or create one if it doesn't exist yet
-    final TripPattern pattern = tripPatternCache.getOrCreateTripPattern(
-      stopPattern,
-      trip,
-      originalTripPattern
-    );
+    final TripPattern pattern = feedBuffer(trip.getId().getFeedId())
+      .tripPatternCache.getOrCreateTripPattern(stopPattern, trip, originalTripPattern);
 
     // Create new trip times
     final TripTimes newTripTimes = new TripTimes(trip, stopTimes, deduplicator);
@@ -841,7 +987,11 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
    * @param serviceDate service date
    * @return true if scheduled trip was cancelled
    */
-  private boolean cancelScheduledTrip(final FeedScopedId tripId, final LocalDate serviceDate) {
+  private boolean cancelScheduledTrip(
+    final TimetableSnapshot buffer,
+    final FeedScopedId tripId,
+    final LocalDate serviceDate
+  ) {
     boolean success = false;
 
     final TripPattern pattern = getPatternForTripId(tripId);
@@ -876,6 +1026,7 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
    * @return true if a previously added trip was cancelled
    */
   private boolean cancelPreviouslyAddedTrip(
+    final TimetableSnapshot buffer,
     final FeedScopedId tripId,
     final LocalDate serviceDate
   ) {
@@ -907,6 +1058,7 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
    * @return empty Optional if successful or one containing en error
    */
   private Optional<UpdateError> validateAndHandleModifiedTrip(
+    final TimetableSnapshot buffer,
     final TripUpdate tripUpdate,
     final TripDescriptor tripDescriptor,
     final FeedScopedId tripId,
@@ -962,7 +1114,7 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
     // Handle modified trip
     //
 
-    return handleModifiedTrip(trip, tripUpdate, stops, serviceDate);
+    return handleModifiedTrip(buffer, trip, tripUpdate, stops, serviceDate);
   }
 
   /**
@@ -975,6 +1127,7 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
    * @return empty Optional if successful or one containing en error
    */
   private Optional<UpdateError> handleModifiedTrip(
+    final TimetableSnapshot buffer,
     final Trip trip,
     final TripUpdate tripUpdate,
     final List<StopLocation> stops,
@@ -989,25 +1142,37 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
 
     // Cancel scheduled trip
     var tripId = trip.getId();
-    cancelScheduledTrip(tripId, serviceDate);
+    cancelScheduledTrip(buffer, tripId, serviceDate);
 
     // Check whether trip id has been used for previously ADDED/REPLACEMENT trip message and cancel
     // previously created trip
-    cancelPreviouslyAddedTrip(tripId, serviceDate);
+    cancelPreviouslyAddedTrip(buffer, tripId, serviceDate);
 
     // Add new trip
-    return addTripToGraphAndBuffer(trip, tripUpdate, stops, serviceDate, RealTimeState.MODIFIED);
+    return addTripToGraphAndBuffer(
+      buffer,
+      trip,
+      tripUpdate,
+      stops,
+      serviceDate,
+      RealTimeState.MODIFIED
+    );
   }
 
   private Optional<UpdateError> handleCanceledTrip(
+    final TimetableSnapshot buffer,
     FeedScopedId tripId,
     final LocalDate serviceDate
   ) {
     // Try to cancel scheduled trip
-    final boolean cancelScheduledSuccess = cancelScheduledTrip(tripId, serviceDate);
+    final boolean cancelScheduledSuccess = cancelScheduledTrip(buffer, tripId, serviceDate);
 
     // Try to cancel previously added trip
-    final boolean cancelPreviouslyAddedSuccess = cancelPreviouslyAddedTrip(tripId, serviceDate);
+    final boolean cancelPreviouslyAddedSuccess = cancelPreviouslyAddedTrip(
+      buffer,
+      tripId,
+      serviceDate
+    );
 
     if (!cancelScheduledSuccess && !cancelPreviouslyAddedSuccess) {
       debug(tripId, "No pattern found for tripId. Skipping cancellation.");
@@ -1016,21 +1181,22 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
     return UpdateError.noError();
   }
 
-  private boolean purgeExpiredData() {
+  private boolean purgeExpiredData(FeedBuffer feedBuffer) {
     final LocalDate today = localDateNow.get();
     // TODO: Base this on numberOfDaysOfLongestTrip for tripPatterns
     final LocalDate previously = today.minusDays(2); // Just to be safe...
 
     // Purge data only if we have changed date
+    final LocalDate lastPurgeDate = feedBuffer.lastPurgeDate;
     if (lastPurgeDate != null && lastPurgeDate.compareTo(previously) >= 0) {
       return false;
     }
 
     LOG.debug("purging expired realtime data");
 
-    lastPurgeDate = previously;
+    feedBuffer.lastPurgeDate = previously;
 
-    return buffer.purgeExpiredData(previously);
+    return feedBuffer.buffer.purgeExpiredData(previously);
   }
 
   /**
@@ -1079,4 +1245,63 @@ public class TimetableSnapshotSource implements TimetableSnapshotProvider {
     String m = "[feedId: %s, tripId: %s] %s".formatted(feedId, tripId, message);
     LOG.debug(m, params);
   }
+
+  /**
+   * The realtime state of one feed. The buffer and the fields are only used by a thread that holds
+   * the lock.
+   */
+  private static class FeedBuffer {
+
+    /** The working copy of the timetable snapshot of the feed. */
+    private final TimetableSnapshot buffer = new TimetableSnapshot();
+
+    /** Lock to indicate that buffer is in use */
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    /**
+     * The trip patterns added by the realtime messages of the feed. Each feed has its own patterns,
+     * so a pattern is never updated in the snapshots of two feeds, see
+     * {@link TimetableSnapshot#combine}.
+     */
+    private final TripPatternCache tripPatternCache = new TripPatternCache();
+
+    /** The last committed snapshot of the feed, read by {@link #combinedSnapshot()}. */
+    private volatile TimetableSnapshot snapshot = null;
+
+    /** Epoch time in milliseconds at which the last snapshot was generated. */
+    private long lastSnapshotTime = -1;
+
+    private LocalDate lastPurgeDate = null;
+
+    /** The time spent in each stage of the messages of the feed, the timers are thread-safe. */
+    private final Timer prepareTimer;
+    private final Timer queueTimer;
+    private final Timer applyTimer;
+
+    private FeedBuffer(String feedId) {
+      this.prepareTimer = stageTimer("prepare", feedId);
+      this.queueTimer = stageTimer("queue", feedId);
+      this.applyTimer = stageTimer("apply", feedId);
+    }
+  }
+
+  /**
+   * A combined snapshot and the committed snapshots of the feeds it was combined from.
+   */
+  private record CombinedSnapshot(
+    List<TimetableSnapshot> feedSnapshots,
+    TimetableSnapshot snapshot
+  ) {
+    private boolean isCombinedFrom(List<TimetableSnapshot> snapshots) {
+      if (snapshots.size() != feedSnapshots.size()) {
+        return false;
+      }
+      for (int i = 0; i < snapshots.size(); ++i) {
+        if (snapshots.get(i) != feedSnapshots.get(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
 }
@@ -0,0 +1,118 @@
+package org.opentripplanner.updater.stoptime;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesce the messages of a streaming GTFS-RT updater received during a short window, and apply
+ * them as one batch. Only the last update of each trip and service date is kept, see
+ * {@link PreparedTripUpdates#merge(PreparedTripUpdates)}. During a burst of messages this limits
+ * the number of graph writer tasks, and so the number of times the buffer is locked and the
+ * snapshot is committed, to one per window.
+ * <p>
+ * The window starts with the first message after the previous batch. With an empty window each
+ * message is applied on its own. When the updater is torn down, {@link #close()} applies the
+ * pending batch at once, and waits until the batches are applied. The graph updater manager shuts
+ * down the graph writer after the teardown of the updaters, which would drop the queued batches.
+ */
+class TripUpdateBatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TripUpdateBatcher.class);
+
+  private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+    new ThreadFactoryBuilder().setNameFormat("TripUpdateBatcher-%d").setDaemon(true).build()
+  );
+
+  /** How long {@link #close()} waits for the last batch to be applied */
+  private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(30);
+
+  private final long windowMs;
+  private final Function<PreparedTripUpdates, Future<?>> applyBatch;
+
+  /** The updates received in the current window, guarded by this */
+  private PreparedTripUpdates batch = null;
+
+  /** The result of the last batch passed to applyBatch, guarded by this */
+  private Future<?> lastApplied = null;
+
+  /** No messages are added after the batcher is closed, guarded by this */
+  private boolean closed = false;
+
+  /**
+   * @param applyBatch Called with each batch, in the scheduler thread. It should not block, but
+   *                   submit the batch and return the result of applying it.
+   */
+  TripUpdateBatcher(Duration window, Function<PreparedTripUpdates, Future<?>> applyBatch) {
+    this.windowMs = window.toMillis();
+    this.applyBatch = applyBatch;
+  }
+
+  synchronized void add(PreparedTripUpdates updates) {
+    if (closed) {
+      LOG.debug("Dropping trip updates for feed {}, the batcher is closed", updates.feedId());
+      return;
+    }
+    if (windowMs <= 0) {
+      apply(updates);
+    } else if (batch == null) {
+      batch = updates;
+      scheduler.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+    } else {
+      batch = batch.merge(updates);
+    }
+  }
+
+  /**
+   * Apply the pending batch, drop the messages added after this, and wait until the last batch is
+   * applied.
+   */
+  void close() {
+    Future<?> last;
+    synchronized (this) {
+      closed = true;
+      flush();
+      last = lastApplied;
+    }
+    if (last == null) {
+      return;
+    }
+    try {
+      last.get(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.warn("Interrupted while waiting for the last batch of trip updates to be applied.");
+    } catch (ExecutionException | TimeoutException | CancellationException e) {
+      LOG.warn("The last batch of trip updates was not applied: {}", e.toString());
+    }
+  }
+
+  private synchronized void flush() {
+    // The batch is already applied if the batcher is closed before the end of the window
+    if (batch != null) {
+      apply(batch);
+      batch = null;
+    }
+  }
+
+  /**
+   * Submit the updates, the graph writer tasks are applied in the order they are submitted, so
+   * the last one is applied after all the others.
+   */
+  private void apply(PreparedTripUpdates updates) {
+    try {
+      lastApplied = applyBatch.apply(updates);
+    } catch (RuntimeException e) {
+      LOG.error("Failed to apply a batch of trip updates for feed {}", updates.feedId(), e);
+    }
+  }
+}
@@ -63,6 +63,7 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
   private final BackwardsDelayPropagationType backwardsDelayPropagationType;
 
   private final TimetableSnapshotSource snapshotSource;
+  private final TripUpdateBatcher batcher;
 
   /**
    * Parent update manager. Is used to execute graph writer runnables.
@@ -82,6 +83,12 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
     this.reconnectPeriodSec = parameters.getReconnectPeriodSec();
     this.backwardsDelayPropagationType = parameters.getBackwardsDelayPropagationType();
     this.snapshotSource = snapshotSource;
+    this.batcher =
+      new TripUpdateBatcher(
+        parameters.getBatchWindow(),
+        updates ->
+          saveResultOnGraph.execute(new TripUpdateGraphWriterRunnable(snapshotSource, updates))
+      );
     this.fuzzyTripMatcher =
       new GtfsRealtimeFuzzyTripMatcher(new DefaultTransitService(transitModel));
   }
@@ -134,6 +141,11 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
     }
   }
 
+  @Override
+  public void teardown() {
+    batcher.close();
+  }
+
   @Override
   public String getConfigRef() {
     return configRef;
@@ -188,16 +200,16 @@ public class WebsocketGtfsRealtimeUpdater implements GraphUpdater {
       }
 
       if (updates != null) {
-        // Handle trip updates via graph writer runnable
-        TripUpdateGraphWriterRunnable runnable = new TripUpdateGraphWriterRunnable(
-          snapshotSource,
-          fuzzyTripMatcher,
-          backwardsDelayPropagationType,
-          fullDataset,
-          updates,
-          feedId
+        // Handle trip updates via graph writer runnable, batched with other messages
+        batcher.add(
+          snapshotSource.prepareTripUpdates(
+            fuzzyTripMatcher,
+            backwardsDelayPropagationType,
+            fullDataset,
+            updates,
+            feedId
+          )
         );
-        saveResultOnGraph.execute(runnable);
       }
     }
   }
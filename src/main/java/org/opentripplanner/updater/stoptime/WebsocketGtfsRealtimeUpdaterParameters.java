@@ -1,5 +1,7 @@
 package org.opentripplanner.updater.stoptime;
 
+import java.time.Duration;
+
 public class WebsocketGtfsRealtimeUpdaterParameters {
 
   private final String configRef;
@@ -7,19 +9,22 @@ public class WebsocketGtfsRealtimeUpdaterParameters {
   private final String url;
   private final int reconnectPeriodSec;
   private final BackwardsDelayPropagationType backwardsDelayPropagationType;
+  private final Duration batchWindow;
 
   public WebsocketGtfsRealtimeUpdaterParameters(
     String configRef,
     String feedId,
     String url,
     int reconnectPeriodSec,
-    BackwardsDelayPropagationType backwardsDelayPropagationType
+    BackwardsDelayPropagationType backwardsDelayPropagationType,
+    Duration batchWindow
   ) {
     this.configRef = configRef;
     this.feedId = feedId;
     this.url = url;
     this.reconnectPeriodSec = reconnectPeriodSec;
     this.backwardsDelayPropagationType = backwardsDelayPropagationType;
+    this.batchWindow = batchWindow;
   }
 
   String getUrl() {
@@ -34,6 +39,14 @@ public class WebsocketGtfsRealtimeUpdaterParameters {
     return reconnectPeriodSec;
   }
 
+  /**
+   * The messages received during this window are applied together, keeping only the last update
+   * of each trip. Zero to apply each message on its own.
+   */
+  Duration getBatchWindow() {
+    return batchWindow;
+  }
+
   /** The config name/type for the updater. Used to reference the configuration element. */
   String getConfigRef() {
     return configRef;
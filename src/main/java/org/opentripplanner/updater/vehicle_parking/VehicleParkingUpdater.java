@@ -165,6 +165,8 @@ public class VehicleParkingUpdater extends PollingGraphUpdater {
 
       oldVehicleParkings.removeAll(toRemove);
       oldVehicleParkings.addAll(toAdd);
+
+      vehicleParkingService.incrementVersion();
     }
 
     private List<DisposableEdgeCollection> linkVehicleParkingVertexToStreets(
@@ -1,5 +1,9 @@
 package org.opentripplanner.updater.vehicle_rental;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -9,6 +13,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.opentripplanner.common.geometry.SphericalDistanceLibrary;
 import org.opentripplanner.graph_builder.linking.DisposableEdgeCollection;
 import org.opentripplanner.graph_builder.linking.LinkingDirection;
 import org.opentripplanner.graph_builder.linking.VertexLinker;
@@ -39,6 +44,13 @@ import org.slf4j.LoggerFactory;
 public class VehicleRentalUpdater extends PollingGraphUpdater {
 
   private static final Logger LOG = LoggerFactory.getLogger(VehicleRentalUpdater.class);
+
+  /**
+   * Free-floating vehicles report slightly different positions on every poll (GPS noise), we only
+   * relink a vehicle to the street network if it has moved more than this distance.
+   */
+  static final double RELINK_THRESHOLD_METERS = 10.0;
+
   private final DataSource<VehicleRentalPlace> source;
   private WriteToGraphCallback saveResultOnGraph;
   Map<FeedScopedId, VehicleRentalPlaceVertex> verticesByStation = new HashMap<>();
@@ -47,6 +59,10 @@ public class VehicleRentalUpdater extends PollingGraphUpdater {
 
   private VehicleRentalStationService service;
 
+  private final Timer linkTimer;
+
+  private final DistributionSummary linkedPlaces;
+
   public VehicleRentalUpdater(
     VehicleRentalUpdaterParameters parameters,
     DataSource<VehicleRentalPlace> source,
@@ -65,6 +81,15 @@ public class VehicleRentalUpdater extends PollingGraphUpdater {
     // Adding a vehicle rental station service needs a graph writer runnable
     this.service = vehicleRentalStationService;
 
+    var tags = List.of(Tag.of("updater", parameters.getConfigRef()));
+    this.linkTimer =
+      Timer.builder("updater.vehicleRental.update").tags(tags).register(Metrics.globalRegistry);
+    this.linkedPlaces =
+      DistributionSummary
+        .builder("updater.vehicleRental.linkedPlaces")
+        .tags(tags)
+        .register(Metrics.globalRegistry);
+
     try {
       // Do any setup if needed
       source.setup();
@@ -124,41 +149,37 @@ public class VehicleRentalUpdater extends PollingGraphUpdater {
 
     @Override
     public void run(Graph graph, TransitModel transitModel) {
-      // Apply stations to graph
+      linkTimer.record(() -> applyUpdates(graph));
+    }
+
+    /**
+     * Apply the difference between the current state and the received update to the graph. Only
+     * places that are new, have moved more than {@link #RELINK_THRESHOLD_METERS}, or are no longer
+     * present are (re)linked or removed. All other places only get their state updated, which keeps
+     * the time spent on the graph-writer thread proportional to the size of the change, not the size
+     * of the feed.
+     */
+    private void applyUpdates(Graph graph) {
       Set<FeedScopedId> stationSet = new HashSet<>();
+      int linked = 0;
+      int relinked = 0;
 
       /* add any new stations and update vehicle counts for existing stations */
       for (VehicleRentalPlace station : stations) {
         service.addVehicleRentalStation(station);
         stationSet.add(station.getId());
         VehicleRentalPlaceVertex vehicleRentalVertex = verticesByStation.get(station.getId());
+
+        if (vehicleRentalVertex != null && hasMoved(vehicleRentalVertex, station)) {
+          // The vertex coordinate is fixed, so a moved vehicle needs a new vertex and new links
+          removeLinks(station.getId());
+          vehicleRentalVertex = null;
+          ++relinked;
+        }
+
         if (vehicleRentalVertex == null) {
-          vehicleRentalVertex = new VehicleRentalPlaceVertex(graph, station);
-          DisposableEdgeCollection tempEdges = linker.linkVertexForRealTime(
-            vehicleRentalVertex,
-            new TraverseModeSet(TraverseMode.WALK),
-            LinkingDirection.BOTH_WAYS,
-            (vertex, streetVertex) ->
-              List.of(
-                new StreetVehicleRentalLink((VehicleRentalPlaceVertex) vertex, streetVertex),
-                new StreetVehicleRentalLink(streetVertex, (VehicleRentalPlaceVertex) vertex)
-              )
-          );
-          if (vehicleRentalVertex.getOutgoing().isEmpty()) {
-            // the toString includes the text "Bike rental station"
-            LOG.info("VehicleRentalPlace {} is unlinked", vehicleRentalVertex);
-          }
-          Set<FormFactor> formFactors = Stream
-            .concat(
-              station.getAvailablePickupFormFactors(false).stream(),
-              station.getAvailableDropoffFormFactors(false).stream()
-            )
-            .collect(Collectors.toSet());
-          for (FormFactor formFactor : formFactors) {
-            tempEdges.addEdge(new VehicleRentalEdge(vehicleRentalVertex, formFactor));
-          }
-          verticesByStation.put(station.getId(), vehicleRentalVertex);
-          tempEdgesByStation.put(station.getId(), tempEdges);
+          linkStation(graph, station);
+          ++linked;
         } else {
           vehicleRentalVertex.setStation(station);
         }
@@ -173,10 +194,73 @@ public class VehicleRentalUpdater extends PollingGraphUpdater {
       }
       for (FeedScopedId station : toRemove) {
         // post-iteration removal to avoid concurrent modification
-        verticesByStation.remove(station);
-        tempEdgesByStation.get(station).disposeEdges();
-        tempEdgesByStation.remove(station);
+        removeLinks(station);
+      }
+
+      service.incrementVersion();
+
+      linkedPlaces.record(linked);
+      LOG.debug(
+        "Vehicle rental update from {}: {} places, {} linked ({} moved), {} removed",
+        source,
+        stations.size(),
+        linked,
+        relinked,
+        toRemove.size()
+      );
+    }
+
+    private void linkStation(Graph graph, VehicleRentalPlace station) {
+      var vehicleRentalVertex = new VehicleRentalPlaceVertex(graph, station);
+      DisposableEdgeCollection tempEdges = linker.linkVertexForRealTime(
+        vehicleRentalVertex,
+        new TraverseModeSet(TraverseMode.WALK),
+        LinkingDirection.BOTH_WAYS,
+        (vertex, streetVertex) ->
+          List.of(
+            new StreetVehicleRentalLink((VehicleRentalPlaceVertex) vertex, streetVertex),
+            new StreetVehicleRentalLink(streetVertex, (VehicleRentalPlaceVertex) vertex)
+          )
+      );
+      if (vehicleRentalVertex.getOutgoing().isEmpty()) {
+        // the toString includes the text "Bike rental station"
+        LOG.info("VehicleRentalPlace {} is unlinked", vehicleRentalVertex);
+      }
+      Set<FormFactor> formFactors = Stream
+        .concat(
+          station.getAvailablePickupFormFactors(false).stream(),
+          station.getAvailableDropoffFormFactors(false).stream()
+        )
+        .collect(Collectors.toSet());
+      for (FormFactor formFactor : formFactors) {
+        tempEdges.addEdge(new VehicleRentalEdge(vehicleRentalVertex, formFactor));
       }
+      verticesByStation.put(station.getId(), vehicleRentalVertex);
+      tempEdgesByStation.put(station.getId(), tempEdges);
     }
+
+    private void removeLinks(FeedScopedId station) {
+      verticesByStation.remove(station);
+      DisposableEdgeCollection tempEdges = tempEdgesByStation.remove(station);
+      if (tempEdges != null) {
+        tempEdges.disposeEdges();
+      }
+    }
+  }
+
+  /**
+   * Return {@code true} if the place has moved so far away from the vertex it is linked through
+   * that it should be relinked to the street network.
+   */
+  static boolean hasMoved(VehicleRentalPlaceVertex vertex, VehicleRentalPlace place) {
+    return (
+      SphericalDistanceLibrary.fastDistance(
+        vertex.getLat(),
+        vertex.getLon(),
+        place.getLatitude(),
+        place.getLongitude()
+      ) >
+      RELINK_THRESHOLD_METERS
+    );
   }
 }
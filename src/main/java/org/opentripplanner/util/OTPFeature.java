@@ -28,6 +28,7 @@ public enum OTPFeature {
   MinimumTransferTimeIsDefinitive(false),
   OptimizeTransfers(true),
   ParallelRouting(false),
+  RaptorStatistics(false),
   TransferConstraints(true),
   FloatingBike(true),
 
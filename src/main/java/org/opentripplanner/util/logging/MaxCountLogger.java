@@ -1,5 +1,6 @@
 package org.opentripplanner.util.logging;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 
 /**
@@ -14,12 +15,12 @@ import org.slf4j.Logger;
  * The primary use-case for this class is to prevent a logger form spamming the log with the same
  * message. After a given limit this logger will be muted and no more log events are logged.
  * <p>
- * THREAD SAFETY - The implementation is not thread safe.
+ * THREAD SAFETY - The implementation is thread safe.
  */
 public class MaxCountLogger extends AbstractFilterLogger {
 
   private static final int MAX_COUNT = 10;
-  private int count = 0;
+  private final AtomicInteger count = new AtomicInteger();
 
   public MaxCountLogger(Logger delegate) {
     super(delegate);
@@ -38,13 +39,12 @@ public class MaxCountLogger extends AbstractFilterLogger {
    */
   public void logTotal(String message) {
     if (mute()) {
-      getDelegate().warn("TOTAL: {} - {}", count, message);
+      getDelegate().warn("TOTAL: {} - {}", count.get(), message);
     }
   }
 
   @Override
   boolean mute() {
-    ++count;
-    return count > MAX_COUNT;
+    return count.incrementAndGet() > MAX_COUNT;
   }
 }
@@ -98,6 +98,14 @@ public class ProgressTracker {
     return new ProgressTracker(actionName, minBlockSize, size, QUIET_PERIOD_MILLISECONDS, false);
   }
 
+  /**
+   * Same as {@link #track(String, int, long)}, but the steps are bytes and logged as such. Use
+   * this to track reading of a file when an InputStream is not used, like a memory-mapped file.
+   */
+  public static ProgressTracker trackBytes(String actionName, int minBlockSize, long size) {
+    return new ProgressTracker(actionName, minBlockSize, size, QUIET_PERIOD_MILLISECONDS, true);
+  }
+
   /**
    * Create an InputStream that decorate another InputStream with progress logging.
    *
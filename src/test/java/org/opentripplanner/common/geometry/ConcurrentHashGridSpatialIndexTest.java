@@ -0,0 +1,109 @@
+package org.opentripplanner.common.geometry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+
+class ConcurrentHashGridSpatialIndexTest {
+
+  private static final double X0 = -0.05;
+  private static final double Y0 = 44.0;
+  private static final double DX = 0.1;
+  private static final double DY = 0.1;
+
+  private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+  private final Random rand = new Random(42);
+
+  /**
+   * Insert the same random line strings into this index and a {@link HashGridSpatialIndex}, and
+   * check that random queries return the same result.
+   */
+  @Test
+  void sameResultAsHashGrid() {
+    var subject = new ConcurrentHashGridSpatialIndex<LineString>();
+    var hashGrid = new HashGridSpatialIndex<LineString>();
+
+    for (int i = 0; i < 1000; i++) {
+      LineString line = randomLine();
+      subject.insert(line, line);
+      hashGrid.insert(line, line);
+    }
+
+    for (int i = 0; i < 1000; i++) {
+      Envelope searchEnv = new Envelope(randomCoordinate(), randomCoordinate());
+      assertEquals(
+        new HashSet<>(hashGrid.query(searchEnv)),
+        new HashSet<>(subject.query(searchEnv))
+      );
+    }
+  }
+
+  @Test
+  void batchRemove() {
+    var subject = new ConcurrentHashGridSpatialIndex<LineString>();
+    List<ConcurrentHashGridSpatialIndex.Entry<LineString>> inserts = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      LineString line = randomLine();
+      inserts.add(new ConcurrentHashGridSpatialIndex.Entry<>(line, line));
+    }
+    subject.update(inserts, List.of());
+
+    Envelope all = new Envelope(X0, X0 + DX, Y0, Y0 + DY);
+    assertEquals(100, subject.query(all).size());
+
+    var removals = inserts
+      .stream()
+      .map(e -> new ConcurrentHashGridSpatialIndex.Entry<>(e.envelope(), e.item()))
+      .toList();
+    subject.update(List.of(), removals);
+
+    assertTrue(subject.query(all).isEmpty());
+    assertEquals(0, subject.numberOfBins());
+  }
+
+  @Test
+  void queryWhileUpdating() {
+    var subject = new ConcurrentHashGridSpatialIndex<LineString>();
+    List<LineString> lines = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      lines.add(randomLine());
+    }
+    Envelope all = new Envelope(X0, X0 + DX, Y0, Y0 + DY);
+
+    var writer = CompletableFuture.runAsync(() -> {
+      for (LineString line : lines) {
+        subject.insert(line, line);
+      }
+    });
+
+    // Reads must never fail, and only return items inserted by the writer
+    Set<LineString> expected = new HashSet<>(lines);
+    while (!writer.isDone()) {
+      assertTrue(expected.containsAll(subject.query(all)));
+    }
+    writer.join();
+    assertEquals(expected, new HashSet<>(subject.query(all)));
+  }
+
+  private LineString randomLine() {
+    return GEOMETRY_FACTORY.createLineString(
+      new Coordinate[] { randomCoordinate(), randomCoordinate(), randomCoordinate() }
+    );
+  }
+
+  private Coordinate randomCoordinate() {
+    return new Coordinate(rand.nextDouble() * DX + X0, rand.nextDouble() * DY + Y0);
+  }
+}
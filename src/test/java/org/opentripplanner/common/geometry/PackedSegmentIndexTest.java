@@ -0,0 +1,126 @@
+package org.opentripplanner.common.geometry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+
+class PackedSegmentIndexTest {
+
+  private static final double X0 = 10.7;
+  private static final double Y0 = 59.9;
+  private static final double D = 0.05;
+  private static final double EPSILON = 1e-12;
+
+  private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+  private final Random rand = new Random(42);
+
+  /**
+   * Compare the result of random queries with a brute force search over all line strings, using
+   * JTS to compute the distance.
+   */
+  @Test
+  void sameResultAsBruteForce() {
+    List<LineString> lines = new ArrayList<>();
+    var builder = PackedSegmentIndex.<LineString>of();
+    for (int i = 0; i < 2000; i++) {
+      LineString line = randomLine();
+      lines.add(line);
+      builder.add(line, line);
+    }
+    var subject = builder.build();
+    double xScale = Math.cos(Math.toRadians(Y0));
+
+    for (int i = 0; i < 200; i++) {
+      Coordinate p = randomCoordinate();
+      Envelope env = new Envelope(p);
+      env.expandBy(0.002 / xScale, 0.002);
+
+      Map<LineString, Double> result = new HashMap<>();
+      subject.query(env, p.x, p.y, xScale, (line, d) -> result.merge(line, d, Math::min));
+
+      for (LineString line : lines) {
+        double expected = project(line, xScale)
+          .distance(GEOMETRY_FACTORY.createPoint(new Coordinate(p.x * xScale, p.y)));
+
+        if (hasSegmentIntersecting(line, env)) {
+          assertTrue(result.containsKey(line));
+          // Only segments intersecting the envelope are visited, so the distance may be larger
+          assertTrue(result.get(line) >= expected - EPSILON);
+        } else {
+          assertTrue(!result.containsKey(line));
+        }
+        // The closest point is always found if it is inside the envelope
+        if (result.containsKey(line) && expected < 0.002) {
+          assertEquals(expected, result.get(line), EPSILON);
+        }
+      }
+    }
+  }
+
+  @Test
+  void emptyIndex() {
+    var subject = PackedSegmentIndex.<String>of().build();
+    List<String> result = new ArrayList<>();
+    subject.query(new Envelope(0, 1, 0, 1), 0.5, 0.5, 1.0, (it, d) -> result.add(it));
+    assertTrue(result.isEmpty());
+  }
+
+  @Test
+  void singleSegment() {
+    var line = GEOMETRY_FACTORY.createLineString(
+      new Coordinate[] { new Coordinate(0, 0), new Coordinate(1, 0) }
+    );
+    var subject = PackedSegmentIndex.<String>of().add(line, "A").build();
+    Map<String, Double> result = new HashMap<>();
+    subject.query(new Envelope(0, 1, 0, 1), 0.5, 0.5, 1.0, result::put);
+    assertEquals(Map.of("A", 0.5), result);
+  }
+
+  private static boolean hasSegmentIntersecting(LineString line, Envelope env) {
+    Coordinate[] c = line.getCoordinates();
+    for (int i = 0; i < c.length - 1; i++) {
+      if (env.intersects(new Envelope(c[i], c[i + 1]))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static LineString project(LineString line, double xScale) {
+    Coordinate[] coords = line.getCoordinates();
+    Coordinate[] projected = new Coordinate[coords.length];
+    for (int i = 0; i < coords.length; i++) {
+      projected[i] = new Coordinate(coords[i].x * xScale, coords[i].y);
+    }
+    return GEOMETRY_FACTORY.createLineString(projected);
+  }
+
+  private LineString randomLine() {
+    Coordinate start = randomCoordinate();
+    Coordinate[] coords = new Coordinate[2 + rand.nextInt(4)];
+    coords[0] = start;
+    for (int i = 1; i < coords.length; i++) {
+      coords[i] =
+        new Coordinate(
+          coords[i - 1].x + (rand.nextDouble() - 0.5) * 0.002,
+          coords[i - 1].y + (rand.nextDouble() - 0.5) * 0.001
+        );
+    }
+    return GEOMETRY_FACTORY.createLineString(coords);
+  }
+
+  private Coordinate randomCoordinate() {
+    return new Coordinate(X0 + rand.nextDouble() * D, Y0 + rand.nextDouble() * D);
+  }
+}
@@ -0,0 +1,126 @@
+package org.opentripplanner.graph_builder.linking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.opentripplanner.routing.core.TraverseMode;
+import org.opentripplanner.routing.core.TraverseModeSet;
+import org.opentripplanner.routing.edgetype.StreetEdge;
+import org.opentripplanner.routing.edgetype.StreetTraversalPermission;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.location.TemporaryStreetLocation;
+import org.opentripplanner.routing.vertextype.IntersectionVertex;
+import org.opentripplanner.routing.vertextype.SplitterVertex;
+import org.opentripplanner.routing.vertextype.StreetVertex;
+import org.opentripplanner.transit.model.basic.NonLocalizedString;
+import org.opentripplanner.transit.model.framework.Deduplicator;
+import org.opentripplanner.transit.service.StopModel;
+import org.opentripplanner.util.geometry.GeometryUtils;
+
+/**
+ * Request-time linking through the packed street index, on two parallel streets about 55 meters
+ * apart:
+ * <pre>
+ * C ------ D
+ *
+ * A ------ B
+ * </pre>
+ */
+public class VertexLinkerTest {
+
+  private static final TraverseModeSet WALK = new TraverseModeSet(TraverseMode.WALK);
+
+  private Graph graph;
+  private IntersectionVertex A;
+  private VertexLinker linker;
+
+  @BeforeEach
+  public void setUp() {
+    graph = new Graph(new Deduplicator());
+    A = new IntersectionVertex(graph, "A", 10.0, 60.0);
+    var B = new IntersectionVertex(graph, "B", 10.002, 60.0);
+    var C = new IntersectionVertex(graph, "C", 10.0, 60.0005);
+    var D = new IntersectionVertex(graph, "D", 10.002, 60.0005);
+    street(A, B);
+    street(C, D);
+
+    linker = new VertexLinker(graph, new StopModel());
+    linker.packStreetIndex();
+  }
+
+  @Test
+  public void linkToTheNearestStreetInThePackedIndex() {
+    assertSame(A, linkForRequest(10.0, 60.0001));
+  }
+
+  @Test
+  public void linkToAnEdgeAddedAfterThePackedIndexIsBuilt() {
+    // Split A-B permanently, this replaces the packed edge with two new edges
+    var splitVertices = new ArrayList<StreetVertex>();
+    var stop = new IntersectionVertex(graph, "S", 10.001, 60.0);
+    linker.linkVertexPermanently(
+      stop,
+      WALK,
+      LinkingDirection.BOTH_WAYS,
+      (vertex, streetVertex) -> {
+        splitVertices.add(streetVertex);
+        return List.of();
+      }
+    );
+    assertEquals(1, splitVertices.size());
+    var splitVertex = assertInstanceOf(SplitterVertex.class, splitVertices.get(0));
+
+    // The original edge is no longer in the graph, so the split vertex is only found if the
+    // packed index is built again with the new edges
+    assertSame(splitVertex, linkForRequest(10.001, 60.0001));
+  }
+
+  /** Link a temporary location for a request, and return the street vertex it is linked to. */
+  private StreetVertex linkForRequest(double lon, double lat) {
+    var location = new TemporaryStreetLocation(
+      "origin",
+      new Coordinate(lon, lat),
+      new NonLocalizedString("origin"),
+      false
+    );
+    var linked = new ArrayList<StreetVertex>();
+    var tempEdges = linker.linkVertexForRequest(
+      location,
+      WALK,
+      LinkingDirection.OUTGOING,
+      (vertex, streetVertex) -> {
+        linked.add(streetVertex);
+        return List.of();
+      }
+    );
+    assertNotNull(tempEdges);
+    tempEdges.disposeEdges();
+    assertEquals(1, linked.size());
+    return linked.get(0);
+  }
+
+  private static void street(IntersectionVertex from, IntersectionVertex to) {
+    var geometry = GeometryUtils.makeLineString(
+      from.getCoordinate().x,
+      from.getCoordinate().y,
+      to.getCoordinate().x,
+      to.getCoordinate().y
+    );
+    new StreetEdge(
+      from,
+      to,
+      geometry,
+      from.getLabel() + to.getLabel(),
+      geometry.getLength(),
+      StreetTraversalPermission.ALL,
+      false
+    );
+  }
+}
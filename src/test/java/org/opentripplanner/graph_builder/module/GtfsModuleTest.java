@@ -5,18 +5,25 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.io.File;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.opentripplanner.ConstantsForTests;
+import org.opentripplanner.ext.fares.impl.DefaultFareServiceFactory;
+import org.opentripplanner.graph_builder.DataImportIssue;
+import org.opentripplanner.graph_builder.DataImportIssueStore;
+import org.opentripplanner.graph_builder.issues.HopZeroDistance;
 import org.opentripplanner.graph_builder.model.GtfsBundle;
 import org.opentripplanner.model.calendar.ServiceDateInterval;
 import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.test.support.VariableSource;
 import org.opentripplanner.transit.model.framework.Deduplicator;
+import org.opentripplanner.transit.model.network.TripPattern;
 import org.opentripplanner.transit.service.StopModel;
 import org.opentripplanner.transit.service.TransitModel;
 
@@ -102,4 +109,62 @@ class GtfsModuleTest {
       assertEquals(expectedTransfers, model.transitModel.getTransferService().listAll().size());
     }
   }
+
+  @Nested
+  class ParallelLoading {
+
+    /** The feeds have the same feed id, so the agency ids conflict. */
+    static GtfsBundle bundle(String name) {
+      var b = new GtfsBundle(new File("src/test/resources/gtfs/parallel/" + name));
+      b.setFeedId(new GtfsFeedId.Builder().id("F").build());
+      return b;
+    }
+
+    /**
+     * The feeds are loaded in parallel, but the conflicting agency ids are replaced and the issues
+     * are reported in the feed order.
+     */
+    @RepeatedTest(3)
+    public void agencyIdsAndIssuesFollowTheFeedOrder() {
+      var model = buildTestModel();
+      var issueStore = new DataImportIssueStore();
+
+      var module = new GtfsModule(
+        List.of(bundle("a"), bundle("b"), bundle("c")),
+        model.transitModel,
+        model.graph,
+        issueStore,
+        ServiceDateInterval.unbounded(),
+        new DefaultFareServiceFactory(),
+        false,
+        true,
+        100
+      );
+
+      module.buildGraph();
+
+      var agencyIdByRoute = model.transitModel
+        .getAllTripPatterns()
+        .stream()
+        .map(TripPattern::getRoute)
+        .distinct()
+        .collect(
+          Collectors.toMap(
+            route -> route.getId().getId(),
+            route -> route.getAgency().getId().getId()
+          )
+        );
+      assertEquals(Map.of("route-a", "TEST", "route-b", "F1", "route-c", "F2"), agencyIdByRoute);
+
+      // Each feed has a zero-distance hop
+      var tripsWithIssues = issueStore
+        .getIssues()
+        .stream()
+        .filter(HopZeroDistance.class::isInstance)
+        .map(DataImportIssue::getMessage)
+        .map(message -> message.replaceAll(".*(trip-\\w).*", "$1"))
+        .toList();
+      assertEquals(List.of("trip-a", "trip-b", "trip-c"), tripsWithIssues);
+    }
+  }
 }
@@ -0,0 +1,54 @@
+package org.opentripplanner.graph_builder.module.ned;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.junit.jupiter.api.Test;
+import org.opengis.coverage.PointOutsideCoverageException;
+import org.opentripplanner.util.geometry.GeometryUtils;
+
+class ElevationRasterTest {
+
+  @Test
+  void interpolateBetweenCellCenters() {
+    var subject = raster(new float[][] { { 1, 2 }, { 3, 4 } });
+
+    // Cell centers, the first row is the northern one
+    assertEquals(1, subject.interpolate(10.5, 61.5), 1e-6);
+    assertEquals(4, subject.interpolate(11.5, 60.5), 1e-6);
+
+    assertEquals(2.5, subject.interpolate(11, 61), 1e-6);
+    assertEquals(1.5, subject.interpolate(11, 61.5), 1e-6);
+  }
+
+  @Test
+  void useEdgeCellsWithinHalfACellFromTheEdge() {
+    var subject = raster(new float[][] { { 1, 2 }, { 3, 4 } });
+
+    assertEquals(1, subject.interpolate(10.1, 61.9), 1e-6);
+    assertEquals(3.5, subject.interpolate(11, 60.1), 1e-6);
+  }
+
+  @Test
+  void pointsOutsideTheRaster() {
+    var subject = raster(new float[][] { { 1, 2 }, { 3, 4 } });
+
+    assertThrows(PointOutsideCoverageException.class, () -> subject.interpolate(9.9, 61));
+    assertThrows(PointOutsideCoverageException.class, () -> subject.interpolate(11, 62.1));
+  }
+
+  @Test
+  void pointsNextToNoData() {
+    var subject = raster(new float[][] { { 1, Float.NaN }, { 3, 4 } });
+
+    assertEquals(3, subject.interpolate(10.5, 60.5), 1e-6);
+    assertThrows(PointOutsideCoverageException.class, () -> subject.interpolate(11, 61));
+  }
+
+  private static ElevationRaster raster(float[][] samples) {
+    var envelope = new ReferencedEnvelope(10, 12, 60, 62, GeometryUtils.WGS84_XY);
+    return ElevationRaster.of(new GridCoverageFactory().create("test", samples, envelope));
+  }
+}
@@ -0,0 +1,124 @@
+package org.opentripplanner.graph_builder.module.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.opentripplanner.openstreetmap.model.OSMNode;
+
+class OSMNodeStoreTest {
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  void storeUntaggedNodes(boolean onDisk) {
+    var subject = new OSMNodeStore(onDisk);
+
+    // Not sorted, and with a duplicate
+    subject.add(node(3, 59.9, 10.7));
+    subject.add(node(1, 60.1234567, -10.7654321));
+    subject.add(node(2, -33.9, 151.2));
+    subject.add(node(1, 0, 0));
+    subject.seal();
+
+    assertEquals(3, subject.size());
+    assertNull(subject.get(4));
+    assertFalse(subject.contains(4));
+    assertTrue(subject.contains(2));
+
+    OSMNode node = subject.get(1);
+    assertEquals(1, node.getId());
+    assertEquals(60.1234567, node.lat, 1e-9);
+    assertEquals(-10.7654321, node.lon, 1e-9);
+    assertEquals(node, subject.get(1));
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  void keepNodesFromPreviousSources(boolean onDisk) {
+    var subject = new OSMNodeStore(onDisk);
+    subject.add(node(1, 60, 10));
+    subject.seal();
+
+    // A second source, the first node is already added
+    subject.add(node(1, 0, 0));
+    subject.add(node(2, 61, 11));
+    subject.seal();
+
+    assertEquals(2, subject.size());
+    assertEquals(60, subject.get(1).lat, 1e-9);
+    assertEquals(61, subject.get(2).lat, 1e-9);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  void keepTaggedNodesAsObjects(boolean onDisk) {
+    var subject = new OSMNodeStore(onDisk);
+    var signal = node(1, 60, 10);
+    signal.addTag("highway", "traffic_signals");
+    var createdBy = node(2, 60, 10);
+    createdBy.addTag("created_by", "JOSM");
+    subject.add(signal);
+    subject.add(createdBy);
+    subject.seal();
+
+    assertSame(signal, subject.get(1));
+    assertEquals(createdBy, subject.get(2));
+    assertNull(subject.get(2).getTags(), "Nodes with only metadata tags are stored compact");
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  void lookUpNodesConcurrently(boolean onDisk) throws Exception {
+    int nNodes = 10_000;
+    var subject = new OSMNodeStore(onDisk);
+    for (int id = 1; id <= nNodes; ++id) {
+      subject.add(node(id, id * 1e-4, -id * 1e-4));
+    }
+    subject.seal();
+
+    // Each task looks up all nodes, starting at a different node
+    var pool = Executors.newFixedThreadPool(4);
+    try {
+      var tasks = new ArrayList<Callable<Integer>>();
+      for (int t = 0; t < 8; ++t) {
+        int offset = t * nNodes / 8;
+        tasks.add(() -> {
+          int mismatches = 0;
+          for (int i = 0; i < nNodes; ++i) {
+            long id = 1 + (offset + i) % nNodes;
+            OSMNode node = subject.get(id);
+            if (
+              node.getId() != id ||
+              Math.abs(node.lat - id * 1e-4) > 1e-9 ||
+              Math.abs(node.lon + id * 1e-4) > 1e-9
+            ) {
+              ++mismatches;
+            }
+          }
+          return mismatches;
+        });
+      }
+      for (Future<Integer> result : pool.invokeAll(tasks)) {
+        assertEquals(0, result.get());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static OSMNode node(long id, double lat, double lon) {
+    var node = new OSMNode();
+    node.setId(id);
+    node.lat = lat;
+    node.lon = lon;
+    return node;
+  }
+}
@@ -14,10 +14,13 @@ import java.io.File;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import org.opentripplanner.common.model.P2;
@@ -107,6 +110,19 @@ public class OpenStreetMapModuleTest {
     );
   }
 
+  /**
+   * The ways are prepared in parallel, the street graph must be the same as when they are prepared
+   * by a single thread. The parallel streams of the build use the pool the build is running in.
+   */
+  @Test
+  public void testParallelBuildIsTheSameAsSequential() throws Exception {
+    List<String> sequential = buildInPool(new ForkJoinPool(1), "map.osm.pbf");
+    List<String> parallel = buildInPool(new ForkJoinPool(4), "map.osm.pbf");
+
+    assertTrue(sequential.size() > 1000, "Expected a graph with many edges");
+    assertEquals(sequential, parallel);
+  }
+
   /**
    * Detailed testing of OSM graph building using a very small chunk of NYC (SOHO-ish).
    */
@@ -292,6 +308,58 @@ public class OpenStreetMapModuleTest {
     assertEquals("Kreuzung first mit second", localizedString.toString(new Locale("de")));
   }
 
+  /**
+   * Build the street graph of an OSM file in the given pool, and describe the outgoing edges of
+   * each vertex in the order they are created.
+   */
+  private List<String> buildInPool(ForkJoinPool pool, String osmFile) throws Exception {
+    try {
+      return pool
+        .submit(() -> {
+          var deduplicator = new Deduplicator();
+          var graph = new Graph(deduplicator);
+          var transitModel = new TransitModel(new StopModel(), deduplicator);
+          File file = new File(
+            URLDecoder.decode(getClass().getResource(osmFile).getFile(), StandardCharsets.UTF_8)
+          );
+          OpenStreetMapModule osmModule = new OpenStreetMapModule(
+            List.of(new OpenStreetMapProvider(file, true)),
+            Set.of(),
+            graph,
+            transitModel.getTimeZone(),
+            noopIssueStore()
+          );
+          osmModule.setDefaultWayPropertySetSource(new DefaultWayPropertySetSource());
+          osmModule.buildGraph();
+
+          List<String> edges = new ArrayList<>();
+          graph
+            .getVertices()
+            .stream()
+            .sorted(Comparator.comparing(Vertex::getLabel))
+            .forEach(v -> {
+              for (Edge e : v.getOutgoing()) {
+                edges.add(
+                  v.getLabel() +
+                  " -> " +
+                  e.getToVertex().getLabel() +
+                  " " +
+                  e.getDefaultName() +
+                  " " +
+                  (e instanceof StreetEdge se ? se.getPermission() : "") +
+                  " " +
+                  e.getGeometry()
+                );
+              }
+            });
+          return edges;
+        })
+        .get();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   /**
    * This reads test file with area and tests if it can be routed if visibility is used and if it
    * isn't
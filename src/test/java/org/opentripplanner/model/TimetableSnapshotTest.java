@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
@@ -14,6 +15,7 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Assertions;
@@ -260,6 +262,69 @@ public class TimetableSnapshotTest {
     assertFalse(resolver.isDirty());
   }
 
+  @Test
+  public void testCombine() {
+    LocalDate today = LocalDate.now(timeZone);
+    TripPattern pattern1 = patternIndex.get(new FeedScopedId(feedId, "1.1"));
+    TripPattern pattern2 = patternIndex.get(new FeedScopedId(feedId, "2.1"));
+
+    TimetableSnapshot resolver1 = new TimetableSnapshot();
+    TimetableSnapshot resolver2 = new TimetableSnapshot();
+    updateResolver(resolver1, pattern1, delayedTripUpdate("1.1", 20), today);
+    updateResolver(resolver2, pattern2, delayedTripUpdate("2.1", 25), today);
+
+    // only committed snapshots can be combined
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> TimetableSnapshot.combine(List.of(resolver1, resolver2))
+    );
+
+    TimetableSnapshot snapshot1 = resolver1.commit();
+    TimetableSnapshot snapshot2 = resolver2.commit();
+    TimetableSnapshot combined = TimetableSnapshot.combine(List.of(snapshot1, snapshot2));
+
+    assertSame(snapshot1.resolve(pattern1, today), combined.resolve(pattern1, today));
+    assertSame(snapshot2.resolve(pattern2, today), combined.resolve(pattern2, today));
+    assertNotSame(pattern1.getScheduledTimetable(), combined.resolve(pattern1, today));
+    assertNotSame(pattern2.getScheduledTimetable(), combined.resolve(pattern2, today));
+    assertFalse(combined.isDirty());
+
+    // the combined snapshot is read-only
+    Assertions.assertThrows(
+      ConcurrentModificationException.class,
+      () -> updateResolver(combined, pattern1, delayedTripUpdate("1.1", 30), today)
+    );
+
+    // the timetables of the first snapshot are kept for a pattern updated in two snapshots
+    TimetableSnapshot resolver3 = new TimetableSnapshot();
+    updateResolver(resolver3, pattern1, delayedTripUpdate("1.1", 30), today);
+    TimetableSnapshot snapshot3 = resolver3.commit();
+    TimetableSnapshot conflicting = TimetableSnapshot.combine(List.of(snapshot1, snapshot3));
+    assertSame(snapshot1.resolve(pattern1, today), conflicting.resolve(pattern1, today));
+  }
+
+  private static TripUpdate delayedTripUpdate(String tripId, int delay) {
+    TripUpdate.Builder tripUpdateBuilder = TripUpdate.newBuilder();
+
+    tripUpdateBuilder.setTrip(
+      TripDescriptor
+        .newBuilder()
+        .setTripId(tripId)
+        .setScheduleRelationship(ScheduleRelationship.SCHEDULED)
+    );
+
+    var stopTimeUpdateBuilder = tripUpdateBuilder.addStopTimeUpdateBuilder(0);
+    stopTimeUpdateBuilder.setStopSequence(2);
+    stopTimeUpdateBuilder.setScheduleRelationship(
+      TripUpdate.StopTimeUpdate.ScheduleRelationship.SCHEDULED
+    );
+    stopTimeUpdateBuilder.setDeparture(
+      TripUpdate.StopTimeEvent.newBuilder().setDelay(delay).build()
+    );
+
+    return tripUpdateBuilder.build();
+  }
+
   private Optional<UpdateError> updateResolver(
     TimetableSnapshot resolver,
     TripPattern pattern,
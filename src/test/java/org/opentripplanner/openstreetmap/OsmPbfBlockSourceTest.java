@@ -0,0 +1,47 @@
+package org.opentripplanner.openstreetmap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.graph_builder.module.osm.OpenStreetMapParserTest;
+
+class OsmPbfBlockSourceTest {
+
+  private static final File OSM_FILE = new File(
+    URLDecoder.decode(
+      OpenStreetMapParserTest.class.getResource("map.osm.pbf").getPath(),
+      StandardCharsets.UTF_8
+    )
+  );
+
+  @Test
+  void mappedFileAndInputStreamReadTheSameBlocks() throws Exception {
+    List<String> mapped = new ArrayList<>();
+    try (var source = OsmPbfBlockSource.ofMappedFile(OSM_FILE, "test")) {
+      readAll(source, mapped);
+    }
+    List<String> streamed = new ArrayList<>();
+    try (var source = OsmPbfBlockSource.ofInputStream(new FileInputStream(OSM_FILE))) {
+      readAll(source, streamed);
+    }
+
+    assertTrue(mapped.size() > 1, mapped.toString());
+    assertEquals(streamed, mapped);
+  }
+
+  private static void readAll(OsmPbfBlockSource source, List<String> result) throws Exception {
+    OsmPbfBlockSource.RawBlock block;
+    while ((block = source.next()) != null) {
+      result.add(block.type() + ":" + block.decompress().size());
+    }
+    assertNull(source.next());
+  }
+}
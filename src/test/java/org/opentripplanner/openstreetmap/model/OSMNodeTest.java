@@ -2,9 +2,11 @@ package org.opentripplanner.openstreetmap.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 
 public class OSMNodeTest {
@@ -21,6 +23,23 @@ public class OSMNodeTest {
     assertTrue(node.isMultiLevel());
   }
 
+  @Test
+  public void testEqualsById() {
+    OSMNode node = node(1, 60, 10);
+    OSMNode sameId = node(1, 60, 10);
+    OSMNode otherId = node(2, 60, 10);
+
+    // The same node may be represented by more than one instance, see OSMNodeStore
+    assertEquals(node, sameId);
+    assertEquals(node.hashCode(), sameId.hashCode());
+    assertEquals(Set.of(node), Set.of(sameId));
+    assertNotEquals(node, otherId);
+
+    OSMWay way = new OSMWay();
+    way.setId(1);
+    assertNotEquals(node, way);
+  }
+
   @Test
   public void testGetCapacity() {
     OSMNode node = new OSMNode();
@@ -39,4 +58,12 @@ public class OSMNodeTest {
     assertTrue(node.hasTag("capacity"));
     assertEquals(10, node.getCapacity());
   }
+
+  private static OSMNode node(long id, double lat, double lon) {
+    OSMNode node = new OSMNode();
+    node.setId(id);
+    node.lat = lat;
+    node.lon = lon;
+    return node;
+  }
 }
@@ -0,0 +1,45 @@
+package org.opentripplanner.routing.algorithm.filterchain.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.opentripplanner.model.plan.TestItineraryBuilder.newItinerary;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.model.SystemNotice;
+import org.opentripplanner.model.plan.Itinerary;
+import org.opentripplanner.model.plan.PlanTestConstants;
+
+public class DecoratingFilterTest implements PlanTestConstants {
+
+  private final List<Itinerary> decorated = new ArrayList<>();
+
+  private final DecoratingFilter subject = new DecoratingFilter(itineraries -> {
+    decorated.addAll(itineraries);
+    return itineraries;
+  });
+
+  @Test
+  public void decorateOnlyItinerariesNotFlaggedForDeletion() {
+    var i1 = newItinerary(A).bicycle(T11_06, T11_28, E).build();
+    var i2 = newItinerary(A).bicycle(T11_06, T11_30, E).build();
+    var i3 = newItinerary(A).bicycle(T11_06, T11_32, E).build();
+    i2.flagForDeletion(new SystemNotice("test", "Flagged by test"));
+
+    var result = subject.filter(List.of(i1, i2, i3));
+
+    assertEquals(List.of(i1, i3), decorated);
+    assertEquals(List.of(i1, i2, i3), result);
+  }
+
+  @Test
+  public void doNothingIfAllItinerariesAreFlaggedForDeletion() {
+    var i1 = newItinerary(A).bicycle(T11_06, T11_28, E).build();
+    i1.flagForDeletion(new SystemNotice("test", "Flagged by test"));
+    var input = List.of(i1);
+
+    assertSame(input, subject.filter(input));
+    assertEquals(List.of(), decorated);
+  }
+}
@@ -0,0 +1,178 @@
+package org.opentripplanner.routing.algorithm.raptoradapter.transit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.opentripplanner.model.StopTime;
+import org.opentripplanner.transit.model._data.TransitModelForTest;
+import org.opentripplanner.transit.model.network.RoutingTripPattern;
+import org.opentripplanner.transit.model.network.StopPattern;
+import org.opentripplanner.transit.model.network.TripPattern;
+import org.opentripplanner.transit.model.timetable.TripTimes;
+
+class TripPatternsRunningOnDateCacheTest {
+
+  private static final ZoneId ZONE_ID = ZoneId.of("Europe/Oslo");
+  private static final LocalDate TODAY = LocalDate.of(2022, 10, 10);
+  private static final Clock CLOCK = Clock.fixed(
+    TODAY.atTime(12, 0).atZone(ZONE_ID).toInstant(),
+    ZONE_ID
+  );
+
+  private static final RoutingTripPattern DAY_PATTERN = pattern("Day");
+  private static final RoutingTripPattern NIGHT_PATTERN = pattern("Night");
+  /** 08:00 - 09:00 */
+  private static final TripTimes DAY_TRIP = tripTimes(8 * 3600, 9 * 3600);
+  /** 23:00 - 01:00 (+1d) */
+  private static final TripTimes NIGHT_TRIP = tripTimes(23 * 3600, 25 * 3600);
+
+  private final List<LocalDate> mappedServiceDates = new ArrayList<>();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private final TripPatternsRunningOnDateCache subject = new TripPatternsRunningOnDateCache(
+    new ServiceDateWindow(1, 2),
+    CLOCK,
+    0,
+    1,
+    this::mapServiceDate,
+    registry
+  );
+
+  @Test
+  void tripsRunningPastMidnightIsIncludedOnTheNextDay() {
+    var result = subject.get(TODAY);
+
+    assertEquals(
+      List.of(TODAY.minusDays(1), TODAY).toString(),
+      mappedServiceDates.toString(),
+      "Yesterday and today is mapped"
+    );
+    assertEquals(3, result.size());
+    assertEquals(
+      1,
+      result.stream().filter(it -> it.getLocalDate().equals(TODAY.minusDays(1))).count(),
+      "Only the night trip is included from yesterday"
+    );
+  }
+
+  @Test
+  void datesAreOnlyMappedOnce() {
+    subject.get(TODAY);
+    subject.get(TODAY.plusDays(1));
+    subject.get(TODAY);
+
+    assertEquals(
+      List.of(TODAY.minusDays(1), TODAY, TODAY.plusDays(1)).toString(),
+      mappedServiceDates.toString()
+    );
+  }
+
+  @Test
+  void rollMapsTheWindowAndEvictsDatesOutsideIt() {
+    var farFuture = TODAY.plusDays(30);
+    subject.get(farFuture);
+
+    subject.roll();
+
+    // The window is [today - 1d, today + 2d]
+    assertFalse(subject.isBeforeWindow(TODAY.minusDays(1)));
+    assertTrue(subject.isBeforeWindow(TODAY.minusDays(2)));
+    assertEquals(4.0, registry.get("transit.layer.runningDates").gauge().value());
+    // The day before the window is needed for the night trip running into the first day
+    assertEquals(5.0, registry.get("transit.layer.serviceDates").gauge().value());
+    assertEquals(10.0, registry.get("transit.layer.tripPatternsForDate").gauge().value());
+
+    // The far future date was evicted, and is mapped again on demand
+    mappedServiceDates.clear();
+    subject.get(farFuture);
+    assertEquals(
+      List.of(farFuture.minusDays(1), farFuture).toString(),
+      mappedServiceDates.toString()
+    );
+  }
+
+  @Test
+  void aNewCacheReplacesTheGaugesOfThePreviousCache() {
+    subject.get(TODAY);
+    assertEquals(1.0, registry.get("transit.layer.runningDates").gauge().value());
+
+    var next = new TripPatternsRunningOnDateCache(
+      new ServiceDateWindow(1, 2),
+      CLOCK,
+      0,
+      1,
+      this::mapServiceDate,
+      registry
+    );
+    assertEquals(0.0, registry.get("transit.layer.runningDates").gauge().value());
+
+    // Closing the previous cache does not remove the gauges of the new cache
+    subject.close();
+    next.get(TODAY);
+    next.get(TODAY.plusDays(1));
+    assertEquals(2.0, registry.get("transit.layer.runningDates").gauge().value());
+
+    next.close();
+    assertNull(registry.find("transit.layer.runningDates").gauge());
+  }
+
+  @Test
+  void aFailedDateIsMappedAgain() {
+    var calls = new AtomicInteger();
+    var failing = new TripPatternsRunningOnDateCache(
+      new ServiceDateWindow(1, 2),
+      CLOCK,
+      0,
+      0,
+      serviceDate -> {
+        if (calls.getAndIncrement() == 0) {
+          throw new IllegalStateException("Failed to map " + serviceDate);
+        }
+        return mapServiceDate(serviceDate);
+      },
+      registry
+    );
+
+    assertThrows(IllegalStateException.class, () -> failing.get(TODAY));
+    assertEquals(2, failing.get(TODAY).size());
+  }
+
+  private List<TripPatternForDate> mapServiceDate(LocalDate serviceDate) {
+    mappedServiceDates.add(serviceDate);
+    return List.of(
+      new TripPatternForDate(DAY_PATTERN, List.of(DAY_TRIP), List.of(), serviceDate),
+      new TripPatternForDate(NIGHT_PATTERN, List.of(NIGHT_TRIP), List.of(), serviceDate)
+    );
+  }
+
+  private static RoutingTripPattern pattern(String id) {
+    var stopTime = new StopTime();
+    stopTime.setStop(TransitModelForTest.stopForTest("S-" + id, 0, 0));
+    return TripPattern
+      .of(TransitModelForTest.id(id))
+      .withRoute(TransitModelForTest.route(id).build())
+      .withStopPattern(new StopPattern(List.of(stopTime, stopTime)))
+      .build()
+      .getRoutingTripPattern();
+  }
+
+  private static TripTimes tripTimes(int departure, int arrival) {
+    var tripTimes = Mockito.mock(TripTimes.class);
+    Mockito.when(tripTimes.getNumStops()).thenReturn(2);
+    Mockito.when(tripTimes.getDepartureTime(0)).thenReturn(departure);
+    Mockito.when(tripTimes.getArrivalTime(1)).thenReturn(arrival);
+    return tripTimes;
+  }
+}
@@ -10,6 +10,7 @@ import java.time.LocalTime;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.opentripplanner.transit.model.framework.Deduplicator;
@@ -197,6 +198,27 @@ public class DeduplicatorTest {
     assertNotSame(dateList, subject.deduplicateImmutableList(DATE_CL, DATE_LIST));
   }
 
+  @Test
+  public void deduplicateInParallel() {
+    var strings = IntStream
+      .range(0, 10_000)
+      .parallel()
+      .mapToObj(i -> subject.deduplicateString(new String("Abba")))
+      .toList();
+    var lists = IntStream
+      .range(0, 10_000)
+      .parallel()
+      .mapToObj(i -> subject.deduplicateImmutableList(TIME_CL, List.of(LocalTime.of(12, 45))))
+      .toList();
+
+    // All threads get the same canonical instance
+    assertEquals(1, strings.stream().map(System::identityHashCode).distinct().count());
+    assertEquals(1, lists.stream().map(System::identityHashCode).distinct().count());
+    var value = subject.toString();
+    assertTrue(value.contains("String: 1(10000)"), value);
+    assertTrue(value.contains("List<LocalTime>: 1(10000)"), value);
+  }
+
   @Test
   public void testToStringForEmptyDeduplicator() {
     assertEquals("Deduplicator{}", subject.toString());
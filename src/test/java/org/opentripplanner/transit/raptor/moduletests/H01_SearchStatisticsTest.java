@@ -0,0 +1,106 @@
+package org.opentripplanner.transit.raptor.moduletests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.opentripplanner.transit.raptor._data.transit.TestRoute.route;
+import static org.opentripplanner.transit.raptor._data.transit.TestTransfer.walk;
+import static org.opentripplanner.transit.raptor._data.transit.TestTripPattern.pattern;
+import static org.opentripplanner.transit.raptor._data.transit.TestTripSchedule.schedule;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.transit.raptor.RaptorService;
+import org.opentripplanner.transit.raptor._data.RaptorTestConstants;
+import org.opentripplanner.transit.raptor._data.transit.TestTransitData;
+import org.opentripplanner.transit.raptor._data.transit.TestTripSchedule;
+import org.opentripplanner.transit.raptor.api.debug.RaptorSearchStatistics;
+import org.opentripplanner.transit.raptor.api.request.RaptorProfile;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequestBuilder;
+import org.opentripplanner.transit.raptor.api.transit.SearchDirection;
+import org.opentripplanner.transit.raptor.configure.RaptorConfig;
+
+/**
+ * FEATURE UNDER TEST
+ * <p>
+ * Raptor should report search statistics to the statistics collector set on the request, one
+ * report for each search performed.
+ */
+public class H01_SearchStatisticsTest implements RaptorTestConstants {
+
+  private final TestTransitData data = new TestTransitData();
+  private final RaptorRequestBuilder<TestTripSchedule> requestBuilder = new RaptorRequestBuilder<>();
+  private final RaptorService<TestTripSchedule> raptorService = new RaptorService<>(
+    RaptorConfig.defaultConfigForTest()
+  );
+  private final List<RaptorSearchStatistics> collected = new ArrayList<>();
+
+  /**
+   * Stops: 0..3
+   *
+   * Stop on route (stop indexes):
+   *   R1:  1 - 2 - 3
+   *
+   * Schedule:
+   *   R1: 00:01 - 00:03 - 00:05
+   *
+   * Access (toStop & duration):
+   *   1  30s
+   *
+   * Egress (fromStop & duration):
+   *   3  20s
+   */
+  @BeforeEach
+  public void setup() {
+    data.withRoute(
+      route(pattern("R1", STOP_B, STOP_C, STOP_D)).withTimetable(schedule("00:01, 00:03, 00:05"))
+    );
+    requestBuilder
+      .statisticsCollector(collected::add)
+      .searchParams()
+      .addAccessPaths(walk(STOP_B, D30s))
+      .addEgressPaths(walk(STOP_D, D20s))
+      .earliestDepartureTime(T00_00)
+      .latestArrivalTime(T00_10)
+      .timetableEnabled(true);
+
+    ModuleTestDebugLogging.setupDebugLogging(data, requestBuilder);
+  }
+
+  @Test
+  public void standardOneIteration() {
+    var request = requestBuilder
+      .profile(RaptorProfile.STANDARD)
+      .searchParams()
+      .searchOneIterationOnly()
+      .build();
+
+    raptorService.route(request, data);
+
+    assertEquals(1, collected.size());
+    var stats = collected.get(0);
+    assertEquals(RaptorProfile.STANDARD, stats.profile());
+    assertEquals(SearchDirection.FORWARD, stats.direction());
+    assertEquals(1, stats.iterations());
+    assertTrue(stats.rounds() >= 1);
+    // R1 is scanned in round 1 from stop B, and in round 2 from stop C and D
+    assertEquals(2, stats.patternsScanned());
+    assertTrue(stats.tripSearches() >= 1);
+    assertEquals(0, stats.binaryTripSearches());
+    // Stop C and D is reached by transit in round 1
+    assertEquals(2.0, stats.avgStopsReachedByRound()[1]);
+  }
+
+  @Test
+  public void multiCriteria() {
+    var request = requestBuilder.profile(RaptorProfile.MULTI_CRITERIA).build();
+
+    raptorService.route(request, data);
+
+    var stats = collected.get(collected.size() - 1);
+    assertEquals(RaptorProfile.MULTI_CRITERIA, stats.profile());
+    assertTrue(stats.iterations() > 1);
+    assertTrue(stats.paretoSetInserts() > 0);
+  }
+}
@@ -0,0 +1,94 @@
+package org.opentripplanner.transit.raptor.moduletests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.opentripplanner.transit.raptor._data.transit.TestRoute.route;
+import static org.opentripplanner.transit.raptor._data.transit.TestTransfer.walk;
+import static org.opentripplanner.transit.raptor._data.transit.TestTripPattern.pattern;
+import static org.opentripplanner.transit.raptor._data.transit.TestTripSchedule.schedule;
+import static org.opentripplanner.util.time.TimeUtils.hm2time;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.transit.raptor.RaptorService;
+import org.opentripplanner.transit.raptor._data.RaptorTestConstants;
+import org.opentripplanner.transit.raptor._data.transit.TestTransitData;
+import org.opentripplanner.transit.raptor._data.transit.TestTripSchedule;
+import org.opentripplanner.transit.raptor.api.request.RaptorProfile;
+import org.opentripplanner.transit.raptor.api.request.RaptorRequestBuilder;
+import org.opentripplanner.transit.raptor.configure.RaptorConfig;
+
+/**
+ * FEATURE UNDER TEST
+ * <p>
+ * Raptor should notify the stop arrivals listener set on the request after each iteration, with
+ * the best arrival times for a departure at the iteration departure time.
+ */
+public class H02_StopArrivalsListenerTest implements RaptorTestConstants {
+
+  private final TestTransitData data = new TestTransitData();
+  private final RaptorRequestBuilder<TestTripSchedule> requestBuilder = new RaptorRequestBuilder<>();
+  private final RaptorService<TestTripSchedule> raptorService = new RaptorService<>(
+    RaptorConfig.defaultConfigForTest()
+  );
+  private final List<String> iterations = new ArrayList<>();
+
+  /**
+   * Stops: 0..3
+   *
+   * Stop on route (stop indexes):
+   *   R1:  1 - 2 - 3
+   *
+   * Schedule:
+   *   R1: 00:01 - 00:03 - 00:05
+   *       00:06 - 00:08 - 00:10
+   *
+   * Access (toStop & duration):
+   *   1  30s
+   */
+  @BeforeEach
+  public void setup() {
+    data.withRoute(
+      route(pattern("R1", STOP_B, STOP_C, STOP_D))
+        .withTimetable(schedule("00:01, 00:03, 00:05"), schedule("00:06, 00:08, 00:10"))
+    );
+    requestBuilder
+      .profile(RaptorProfile.BEST_TIME)
+      .stopArrivalsListener((departureTime, arrivals) ->
+        iterations.add(
+          departureTime +
+          ":" +
+          (arrivals.reachedByTransit(STOP_D) ? arrivals.bestTransitArrivalTime(STOP_D) : "-")
+        )
+      )
+      .searchParams()
+      .addAccessPaths(walk(STOP_B, D30s))
+      .earliestDepartureTime(T00_00)
+      .latestArrivalTime(T00_30)
+      .allowEmptyEgressPaths(true)
+      .timetableEnabled(false);
+
+    ModuleTestDebugLogging.setupDebugLogging(data, requestBuilder);
+  }
+
+  @Test
+  public void notifyEachIteration() {
+    var request = requestBuilder.searchParams().searchWindow(Duration.ofMinutes(2)).build();
+
+    raptorService.route(request, data);
+
+    // The iterations are run from the last departure time to the first
+    assertEquals(List.of(T00_01 + ":" + T00_10, T00_00 + ":" + hm2time(0, 5)), iterations);
+  }
+
+  @Test
+  public void notifyOneIteration() {
+    var request = requestBuilder.searchParams().searchOneIterationOnly().build();
+
+    raptorService.route(request, data);
+
+    assertEquals(List.of(T00_00 + ":" + hm2time(0, 5)), iterations);
+  }
+}
@@ -2,14 +2,38 @@ package org.opentripplanner.updater;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.opentripplanner.transit.model._data.TransitModelForTest.id;
 
 import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
+import gnu.trove.set.hash.TIntHashSet;
+import java.time.LocalDate;
+import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 import org.opentripplanner.GtfsTest;
+import org.opentripplanner.model.StopTime;
+import org.opentripplanner.transit.model._data.TransitModelForTest;
+import org.opentripplanner.transit.model.framework.Deduplicator;
+import org.opentripplanner.transit.model.network.Route;
+import org.opentripplanner.transit.model.network.StopPattern;
+import org.opentripplanner.transit.model.network.TripPattern;
+import org.opentripplanner.transit.model.site.RegularStop;
+import org.opentripplanner.transit.model.timetable.Direction;
+import org.opentripplanner.transit.model.timetable.Trip;
+import org.opentripplanner.transit.model.timetable.TripTimes;
 import org.opentripplanner.transit.service.DefaultTransitService;
+import org.opentripplanner.transit.service.TransitService;
 
 public class GtfsRealtimeFuzzyTripMatcherTest extends GtfsTest {
 
+  private static final String FEED_ID = TransitModelForTest.FEED_ID;
+  private static final LocalDate DATE = LocalDate.of(2022, 10, 10);
+  private static final int DAY_SERVICE = 1;
+  private static final int NIGHT_SERVICE = 2;
+  private static final Route ROUTE = TransitModelForTest.route("R1").build();
+  private static final RegularStop STOP_A = TransitModelForTest.stopForTest("A", 60.0, 10.0);
+  private static final RegularStop STOP_B = TransitModelForTest.stopForTest("B", 60.1, 10.1);
+
   @Test
   public void testMatch() {
     String feedId = transitModel.getFeedIds().iterator().next();
@@ -56,6 +80,97 @@ public class GtfsRealtimeFuzzyTripMatcherTest extends GtfsTest {
     assertFalse(trip1.hasTripId());
   }
 
+  @Test
+  public void matchTheIndexedTrips() {
+    var transitService = transitService(
+      pattern(Direction.OUTBOUND, "Out0800", 8 * 3600, DAY_SERVICE),
+      pattern(Direction.INBOUND, "In0800", 8 * 3600, DAY_SERVICE),
+      // Departs at 01:00 the day after the service date
+      pattern(Direction.OUTBOUND, "Night", 25 * 3600, NIGHT_SERVICE)
+    );
+    var matcher = new GtfsRealtimeFuzzyTripMatcher(transitService);
+
+    assertEquals("Out0800", matcher.match(FEED_ID, descriptor(0, "08:00:00")).getTripId());
+    assertEquals("In0800", matcher.match(FEED_ID, descriptor(1, "08:00:00")).getTripId());
+    // No trip departs at this time
+    assertFalse(matcher.match(FEED_ID, descriptor(0, "09:00:00")).hasTripId());
+    // The night trip is carried over from the previous day
+    assertEquals("Night", matcher.match(FEED_ID, descriptor(0, "01:00:00")).getTripId());
+    assertFalse(matcher.match(FEED_ID, descriptor(1, "01:00:00")).hasTripId());
+  }
+
+  @Test
+  public void theIndexOfARouteIsOnlyBuiltOnce() {
+    var transitService = transitService(
+      pattern(Direction.OUTBOUND, "Out0800", 8 * 3600, DAY_SERVICE)
+    );
+    var matcher = new GtfsRealtimeFuzzyTripMatcher(transitService);
+
+    assertEquals("Out0800", matcher.match(FEED_ID, descriptor(0, "08:00:00")).getTripId());
+    assertFalse(matcher.match(FEED_ID, descriptor(0, "09:00:00")).hasTripId());
+    assertFalse(matcher.match(FEED_ID, descriptor(1, "08:00:00")).hasTripId());
+
+    Mockito.verify(transitService, Mockito.times(1)).getPatternsForRoute(ROUTE);
+  }
+
+  private static TransitService transitService(TripPattern... patterns) {
+    var transitService = Mockito.mock(TransitService.class);
+    Mockito.when(transitService.getRouteForId(ROUTE.getId())).thenReturn(ROUTE);
+    Mockito.when(transitService.getPatternsForRoute(ROUTE)).thenReturn(List.of(patterns));
+    Mockito
+      .when(transitService.getServiceCodesRunningForDate(Mockito.any()))
+      .thenReturn(new TIntHashSet());
+    Mockito
+      .when(transitService.getServiceCodesRunningForDate(DATE))
+      .thenReturn(new TIntHashSet(new int[] { DAY_SERVICE }));
+    Mockito
+      .when(transitService.getServiceCodesRunningForDate(DATE.minusDays(1)))
+      .thenReturn(new TIntHashSet(new int[] { NIGHT_SERVICE }));
+    return transitService;
+  }
+
+  private static TripDescriptor descriptor(int directionId, String startTime) {
+    return TripDescriptor
+      .newBuilder()
+      .setRouteId(ROUTE.getId().getId())
+      .setDirectionId(directionId)
+      .setStartTime(startTime)
+      .setStartDate("20221010")
+      .build();
+  }
+
+  private static TripPattern pattern(
+    Direction direction,
+    String tripId,
+    int departureTime,
+    int serviceCode
+  ) {
+    var trip = TransitModelForTest.trip(tripId).withRoute(ROUTE).withDirection(direction).build();
+    var stopTimes = List.of(
+      stopTime(trip, STOP_A, 0, departureTime),
+      stopTime(trip, STOP_B, 1, departureTime + 600)
+    );
+    var pattern = TripPattern
+      .of(id("P-" + tripId))
+      .withRoute(ROUTE)
+      .withStopPattern(new StopPattern(stopTimes))
+      .build();
+    var tripTimes = new TripTimes(trip, stopTimes, new Deduplicator());
+    tripTimes.setServiceCode(serviceCode);
+    pattern.add(tripTimes);
+    return pattern;
+  }
+
+  private static StopTime stopTime(Trip trip, RegularStop stop, int sequence, int time) {
+    var stopTime = new StopTime();
+    stopTime.setTrip(trip);
+    stopTime.setStop(stop);
+    stopTime.setStopSequence(sequence);
+    stopTime.setArrivalTime(time);
+    stopTime.setDepartureTime(time);
+    return stopTime;
+  }
+
   @Override
   public String getFeedName() {
     return "portland/portland.gtfs.zip";
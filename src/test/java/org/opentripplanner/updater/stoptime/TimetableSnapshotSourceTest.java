@@ -6,6 +6,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.opentripplanner.updater.stoptime.BackwardsDelayPropagationType.REQUIRED_NO_DATA;
 import static org.opentripplanner.updater.stoptime.TimetableSnapshotSourceTest.SameAssert.NotSame;
@@ -17,8 +18,11 @@ import com.google.transit.realtime.GtfsRealtime.TripDescriptor.ScheduleRelations
 import com.google.transit.realtime.GtfsRealtime.TripUpdate;
 import com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeEvent;
 import com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,14 +31,18 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.opentripplanner.ConstantsForTests;
 import org.opentripplanner.TestOtpModel;
+import org.opentripplanner.ext.fares.impl.DefaultFareServiceFactory;
 import org.opentripplanner.model.Timetable;
 import org.opentripplanner.model.TimetableSnapshot;
+import org.opentripplanner.routing.graph.Graph;
 import org.opentripplanner.test.support.VariableSource;
+import org.opentripplanner.transit.model.framework.Deduplicator;
 import org.opentripplanner.transit.model.framework.FeedScopedId;
 import org.opentripplanner.transit.model.network.TripPattern;
 import org.opentripplanner.transit.model.timetable.RealTimeState;
 import org.opentripplanner.transit.model.timetable.Trip;
 import org.opentripplanner.transit.model.timetable.TripTimes;
+import org.opentripplanner.transit.service.StopModel;
 import org.opentripplanner.transit.service.TransitModel;
 import org.opentripplanner.updater.GtfsRealtimeFuzzyTripMatcher;
 import org.opentripplanner.updater.TimetableSnapshotSourceParameters;
@@ -219,6 +227,81 @@ public class TimetableSnapshotSourceTest {
     assertEquals(RealTimeState.SCHEDULED, forToday.getTripTimes(tripIndex2).getRealTimeState());
   }
 
+  /**
+   * A message prepared in the updater thread and applied by the graph writer runnable gives the
+   * same timetables as the updates applied one by one. The message is large enough to be prepared
+   * in parallel.
+   */
+  @Test
+  public void testApplyPreparedTripUpdates() {
+    var otherTransitModel = ConstantsForTests
+      .buildGtfsGraph(ConstantsForTests.FAKE_GTFS)
+      .transitModel();
+    List<FeedScopedId> tripIds = transitModel
+      .getTransitModelIndex()
+      .getTripForId()
+      .keySet()
+      .stream()
+      .sorted()
+      .toList();
+    List<LocalDate> serviceDates = List.of(
+      serviceDate,
+      serviceDate.plusDays(1),
+      serviceDate.plusDays(2),
+      serviceDate.plusDays(3)
+    );
+
+    List<TripUpdate> updates = new ArrayList<>();
+    for (LocalDate date : serviceDates) {
+      for (FeedScopedId tripId : tripIds) {
+        updates.add(delayedTripUpdate(tripId.getId(), date, 60 * (1 + updates.size() % 7)));
+      }
+    }
+    assertTrue(updates.size() > TimetableSnapshotSource.MIN_TRIP_UPDATES_PARALLEL_PREPARE);
+
+    var parameters = TimetableSnapshotSourceParameters.DEFAULT.withMaxSnapshotFrequencyMs(-1);
+    var prepared = new TimetableSnapshotSource(parameters, transitModel);
+    new TripUpdateGraphWriterRunnable(
+      prepared,
+      prepared.prepareTripUpdates(TRIP_MATCHER_NOOP, REQUIRED_NO_DATA, false, updates, feedId)
+    )
+      .run(null, transitModel);
+
+    var oneByOne = new TimetableSnapshotSource(parameters, otherTransitModel);
+    for (TripUpdate update : updates) {
+      oneByOne.applyTripUpdates(
+        TRIP_MATCHER_NOOP,
+        REQUIRED_NO_DATA,
+        false,
+        List.of(update),
+        feedId
+      );
+    }
+
+    var snapshot = prepared.getTimetableSnapshot();
+    var expected = oneByOne.getTimetableSnapshot();
+    var updatedTrip = new FeedScopedId(feedId, "1.1");
+    assertEquals(
+      RealTimeState.UPDATED,
+      tripTimes(snapshot, transitModel, updatedTrip, serviceDate).getRealTimeState()
+    );
+    for (LocalDate date : serviceDates) {
+      for (FeedScopedId tripId : tripIds) {
+        var tripTimes = tripTimes(snapshot, transitModel, tripId, date);
+        var expectedTripTimes = tripTimes(expected, otherTransitModel, tripId, date);
+        if (expectedTripTimes == null) {
+          assertNull(tripTimes, tripId.toString());
+          continue;
+        }
+        assertEquals(expectedTripTimes.getRealTimeState(), tripTimes.getRealTimeState());
+        for (int i = 0; i < expectedTripTimes.getNumStops(); ++i) {
+          assertEquals(expectedTripTimes.getArrivalTime(i), tripTimes.getArrivalTime(i));
+          assertEquals(expectedTripTimes.getDepartureTime(i), tripTimes.getDepartureTime(i));
+        }
+      }
+    }
+  }
+
   /**
    * This test just asserts that invalid trip ids don't throw an exception and are ignored instead
    */
@@ -1131,4 +1214,173 @@ public class TimetableSnapshotSourceTest {
     assertNotSame(snapshotA.resolve(pattern, null), snapshotA.resolve(pattern, yesterday));
     assertSame(snapshotA.resolve(pattern, null), snapshotB.resolve(pattern, null));
   }
+
+  @Test
+  public void testFeedsAreUpdatedIndependently() throws InterruptedException {
+    var transitModel = twoFeedTransitModel();
+    var updater = new TimetableSnapshotSource(
+      TimetableSnapshotSourceParameters.DEFAULT.withMaxSnapshotFrequencyMs(-1),
+      transitModel
+    );
+    var tripId1 = new FeedScopedId("F1", "1.1");
+    var tripId2 = new FeedScopedId("F2", "1.1");
+
+    applyDelay(updater, "F1", false, "1.1", 60);
+    applyDelay(updater, "F2", false, "1.1", 120);
+
+    // The snapshot contains the updates of both feeds
+    var snapshot = updater.getTimetableSnapshot();
+    assertEquals(60, tripTimes(snapshot, transitModel, tripId1, serviceDate).getDepartureDelay(1));
+    assertEquals(120, tripTimes(snapshot, transitModel, tripId2, serviceDate).getDepartureDelay(1));
+    // Nothing is combined again if no feed is committed
+    assertSame(snapshot, updater.getTimetableSnapshot());
+
+    // The updates of a feed are applied and committed while another feed is locked
+    var locked = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    var holder = new Thread(() -> {
+      var lock = updater.feedLock("F1");
+      lock.lock();
+      try {
+        locked.countDown();
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        lock.unlock();
+      }
+    });
+    holder.start();
+    locked.await();
+    try {
+      assertTimeoutPreemptively(
+        Duration.ofSeconds(10),
+        () -> applyDelay(updater, "F2", false, "1.1", 180)
+      );
+      var partial = updater.getTimetableSnapshot();
+      assertNotSame(snapshot, partial);
+      assertEquals(
+        180,
+        tripTimes(partial, transitModel, tripId2, serviceDate).getDepartureDelay(1)
+      );
+      assertSame(
+        tripTimes(snapshot, transitModel, tripId1, serviceDate),
+        tripTimes(partial, transitModel, tripId1, serviceDate)
+      );
+    } finally {
+      release.countDown();
+      holder.join();
+    }
+
+    // A full dataset only clears the updates of its own feed
+    applyDelay(updater, "F2", true, "1.2", 240);
+    snapshot = updater.getTimetableSnapshot();
+    assertEquals(60, tripTimes(snapshot, transitModel, tripId1, serviceDate).getDepartureDelay(1));
+    assertEquals(0, tripTimes(snapshot, transitModel, tripId2, serviceDate).getDepartureDelay(1));
+    assertEquals(
+      240,
+      tripTimes(snapshot, transitModel, new FeedScopedId("F2", "1.2"), serviceDate)
+        .getDepartureDelay(1)
+    );
+  }
+
+  @Test
+  public void testExpiredDataIsPurgedPerFeed() {
+    var transitModel = twoFeedTransitModel();
+    var clock = new AtomicReference<>(serviceDate);
+    var updater = new TimetableSnapshotSource(
+      TimetableSnapshotSourceParameters.DEFAULT
+        .withPurgeExpiredData(true)
+        .withMaxSnapshotFrequencyMs(-1),
+      transitModel,
+      clock::get
+    );
+    var tripId1 = new FeedScopedId("F1", "1.1");
+    var tripId2 = new FeedScopedId("F2", "1.1");
+
+    applyDelay(updater, "F1", false, "1.1", 60);
+    applyDelay(updater, "F2", false, "1.1", 120);
+
+    // Only the feed receiving a message after the change of date is purged
+    clock.set(serviceDate.plusDays(3));
+    updater.applyTripUpdates(
+      TRIP_MATCHER_NOOP,
+      REQUIRED_NO_DATA,
+      false,
+      List.of(delayedTripUpdate("1.2", serviceDate.plusDays(3), 30)),
+      "F1"
+    );
+
+    var snapshot = updater.getTimetableSnapshot();
+    assertEquals(0, tripTimes(snapshot, transitModel, tripId1, serviceDate).getDepartureDelay(1));
+    assertEquals(120, tripTimes(snapshot, transitModel, tripId2, serviceDate).getDepartureDelay(1));
+    assertEquals(
+      30,
+      tripTimes(snapshot, transitModel, new FeedScopedId("F1", "1.2"), serviceDate.plusDays(3))
+        .getDepartureDelay(1)
+    );
+  }
+
+  /**
+   * The test agency loaded twice, with the feed ids F1 and F2.
+   */
+  private static TransitModel twoFeedTransitModel() {
+    var deduplicator = new Deduplicator();
+    var graph = new Graph(deduplicator);
+    var transitModel = new TransitModel(new StopModel(), deduplicator);
+    for (String feedId : List.of("F1", "F2")) {
+      ConstantsForTests.addGtfsToGraph(
+        graph,
+        transitModel,
+        ConstantsForTests.FAKE_GTFS,
+        new DefaultFareServiceFactory(),
+        feedId
+      );
+    }
+    return transitModel;
+  }
+
+  private void applyDelay(
+    TimetableSnapshotSource updater,
+    String feedId,
+    boolean fullDataset,
+    String tripId,
+    int delay
+  ) {
+    updater.applyTripUpdates(
+      TRIP_MATCHER_NOOP,
+      REQUIRED_NO_DATA,
+      fullDataset,
+      List.of(delayedTripUpdate(tripId, serviceDate, delay)),
+      feedId
+    );
+  }
+
+  private static TripTimes tripTimes(
+    TimetableSnapshot snapshot,
+    TransitModel transitModel,
+    FeedScopedId tripId,
+    LocalDate serviceDate
+  ) {
+    var index = transitModel.getTransitModelIndex();
+    var pattern = index.getPatternForTrip().get(index.getTripForId().get(tripId));
+    return pattern == null ? null : snapshot.resolve(pattern, serviceDate).getTripTimes(tripId);
+  }
+
+  private static TripUpdate delayedTripUpdate(String tripId, LocalDate serviceDate, int delay) {
+    var tripUpdateBuilder = TripUpdate.newBuilder();
+    tripUpdateBuilder.setTrip(
+      TripDescriptor
+        .newBuilder()
+        .setTripId(tripId)
+        .setStartDate(ServiceDateUtils.asCompactString(serviceDate))
+        .setScheduleRelationship(ScheduleRelationship.SCHEDULED)
+    );
+    var stopTimeUpdateBuilder = tripUpdateBuilder.addStopTimeUpdateBuilder();
+    stopTimeUpdateBuilder.setScheduleRelationship(StopTimeUpdate.ScheduleRelationship.SCHEDULED);
+    stopTimeUpdateBuilder.setStopSequence(2);
+    stopTimeUpdateBuilder.getArrivalBuilder().setDelay(delay);
+    stopTimeUpdateBuilder.getDepartureBuilder().setDelay(delay);
+    return tripUpdateBuilder.build();
+  }
 }
@@ -0,0 +1,215 @@
+package org.opentripplanner.updater.stoptime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
+import com.google.transit.realtime.GtfsRealtime.TripUpdate;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.transit.model.framework.Deduplicator;
+import org.opentripplanner.transit.model.framework.FeedScopedId;
+import org.opentripplanner.transit.service.TransitModel;
+import org.opentripplanner.updater.GraphUpdater;
+import org.opentripplanner.updater.GraphUpdaterManager;
+import org.opentripplanner.updater.WriteToGraphCallback;
+import org.opentripplanner.updater.stoptime.PreparedTripUpdates.PreparedTripUpdate;
+
+public class TripUpdateBatcherTest {
+
+  private static final String FEED_ID = "F";
+  private static final LocalDate DATE = LocalDate.of(2022, 10, 1);
+
+  @Test
+  public void mergeKeepsTheLastUpdateOfEachTrip() {
+    var first = updates(false, update("A", DATE, 1), update("B", DATE, 1));
+    var second = updates(false, update("A", DATE, 2), update("A", DATE.plusDays(1), 2));
+
+    var merged = first.merge(second);
+
+    assertFalse(merged.fullDataset());
+    assertEquals(4, merged.nReceived());
+    assertEquals(List.of("A@1:2", "B@1:1", "A@2:2"), describe(merged));
+    assertEquals(first.preparedAtNanos(), merged.preparedAtNanos());
+  }
+
+  @Test
+  public void fullDatasetReplacesPreviousUpdates() {
+    var first = updates(false, update("A", DATE, 1), update("B", DATE, 1));
+    var second = updates(true, update("B", DATE, 2));
+
+    var merged = first.merge(second);
+
+    assertTrue(merged.fullDataset());
+    assertEquals(List.of("B@1:2"), describe(merged));
+  }
+
+  @Test
+  public void applyEachMessageWithoutWindow() {
+    BlockingQueue<PreparedTripUpdates> batches = new ArrayBlockingQueue<>(10);
+    var batcher = new TripUpdateBatcher(Duration.ZERO, collect(batches));
+    var message = updates(false, update("A", DATE, 1));
+
+    batcher.add(message);
+
+    assertSame(message, batches.poll());
+  }
+
+  @Test
+  public void applyMessagesInWindowAsOneBatch() throws InterruptedException {
+    BlockingQueue<PreparedTripUpdates> batches = new ArrayBlockingQueue<>(10);
+    var batcher = new TripUpdateBatcher(Duration.ofMillis(50), collect(batches));
+
+    batcher.add(updates(false, update("A", DATE, 1)));
+    batcher.add(updates(false, update("A", DATE, 2), update("B", DATE, 2)));
+
+    var batch = batches.poll(5, TimeUnit.SECONDS);
+    assertEquals(List.of("A@1:2", "B@1:2"), describe(batch));
+    assertEquals(0, batches.size());
+  }
+
+  @Test
+  public void closeAppliesThePendingBatchAndDropsLaterMessages() throws InterruptedException {
+    BlockingQueue<PreparedTripUpdates> batches = new ArrayBlockingQueue<>(10);
+    var batcher = new TripUpdateBatcher(Duration.ofMillis(200), collect(batches));
+
+    batcher.add(updates(false, update("A", DATE, 1)));
+    batcher.add(updates(false, update("B", DATE, 2)));
+    batcher.close();
+
+    // The batch is applied before close returns
+    assertEquals(List.of("A@1:1", "B@1:2"), describe(batches.poll()));
+
+    batcher.add(updates(false, update("A", DATE, 3)));
+    // The end of the window does not apply the batch again
+    assertNull(batches.poll(400, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void teardownAppliesThePendingBatchBeforeTheGraphWriterIsShutDown() {
+    List<PreparedTripUpdates> applied = new CopyOnWriteArrayList<>();
+    var updater = new BatchingUpdater(applied);
+    var manager = new GraphUpdaterManager(
+      new Graph(new Deduplicator()),
+      new TransitModel(),
+      List.of(updater)
+    );
+    var message = updates(false, update("A", DATE, 1));
+    updater.batcher.add(message);
+
+    // The batch is queued behind this task when the updater is torn down
+    manager.execute((graph, transitModel) -> {
+      try {
+        Thread.sleep(200);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    manager.stop();
+
+    assertEquals(List.of(message), applied);
+  }
+
+  /**
+   * Apply the batches in the calling thread, by adding them to the given queue.
+   */
+  private static Function<PreparedTripUpdates, Future<?>> collect(
+    BlockingQueue<PreparedTripUpdates> batches
+  ) {
+    return updates -> {
+      batches.add(updates);
+      return CompletableFuture.completedFuture(null);
+    };
+  }
+
+  /**
+   * An updater which applies the batches with the graph writer of the manager, like the streaming
+   * GTFS-RT updaters.
+   */
+  private static class BatchingUpdater implements GraphUpdater {
+
+    private final TripUpdateBatcher batcher;
+    private WriteToGraphCallback saveResultOnGraph;
+
+    BatchingUpdater(List<PreparedTripUpdates> applied) {
+      this.batcher =
+        new TripUpdateBatcher(
+          Duration.ofHours(1),
+          updates -> saveResultOnGraph.execute((graph, transitModel) -> applied.add(updates))
+        );
+    }
+
+    @Override
+    public void setGraphUpdaterManager(WriteToGraphCallback saveResultOnGraph) {
+      this.saveResultOnGraph = saveResultOnGraph;
+    }
+
+    @Override
+    public void run() {}
+
+    @Override
+    public void teardown() {
+      batcher.close();
+    }
+
+    @Override
+    public String getConfigRef() {
+      return "batching";
+    }
+  }
+
+  private static PreparedTripUpdates updates(boolean fullDataset, PreparedTripUpdate... updates) {
+    return new PreparedTripUpdates(FEED_ID, fullDataset, updates.length, List.of(updates));
+  }
+
+  /**
+   * A trip update with a delay at one stop, the delay identifies the message.
+   */
+  private static PreparedTripUpdate update(String tripId, LocalDate serviceDate, int delay) {
+    var tripUpdate = TripUpdate
+      .newBuilder()
+      .setTrip(TripDescriptor.newBuilder().setTripId(tripId))
+      .addStopTimeUpdate(
+        TripUpdate.StopTimeUpdate
+          .newBuilder()
+          .setStopSequence(delay)
+          .setArrival(TripUpdate.StopTimeEvent.newBuilder().setDelay(delay))
+      )
+      .build();
+    return new PreparedTripUpdate(
+      tripUpdate,
+      new FeedScopedId(FEED_ID, tripId),
+      serviceDate,
+      TripDescriptor.ScheduleRelationship.SCHEDULED,
+      null,
+      null
+    );
+  }
+
+  private static List<String> describe(PreparedTripUpdates updates) {
+    return updates
+      .updates()
+      .stream()
+      .map(it ->
+        it.tripId().getId() +
+        "@" +
+        it.serviceDate().getDayOfMonth() +
+        ":" +
+        it.tripUpdate().getStopTimeUpdate(0).getArrival().getDelay()
+      )
+      .toList();
+  }
+}
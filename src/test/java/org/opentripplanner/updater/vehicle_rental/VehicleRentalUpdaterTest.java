@@ -0,0 +1,38 @@
+package org.opentripplanner.updater.vehicle_rental;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.opentripplanner.routing.graph.Graph;
+import org.opentripplanner.routing.vehicle_rental.VehicleRentalVehicle;
+import org.opentripplanner.routing.vertextype.VehicleRentalPlaceVertex;
+import org.opentripplanner.transit.model.basic.NonLocalizedString;
+import org.opentripplanner.transit.model.framework.FeedScopedId;
+
+class VehicleRentalUpdaterTest {
+
+  private static final double LAT = 59.9;
+  private static final double LON = 10.7;
+
+  // Roughly 1 meter in the latitude direction
+  private static final double ONE_METER_LAT = 1.0 / 111_000;
+
+  @Test
+  void hasMoved() {
+    var vertex = new VehicleRentalPlaceVertex(new Graph(), vehicle(LAT, LON));
+
+    assertFalse(VehicleRentalUpdater.hasMoved(vertex, vehicle(LAT, LON)));
+    assertFalse(VehicleRentalUpdater.hasMoved(vertex, vehicle(LAT + 5 * ONE_METER_LAT, LON)));
+    assertTrue(VehicleRentalUpdater.hasMoved(vertex, vehicle(LAT + 20 * ONE_METER_LAT, LON)));
+  }
+
+  private static VehicleRentalVehicle vehicle(double lat, double lon) {
+    var vehicle = new VehicleRentalVehicle();
+    vehicle.id = new FeedScopedId("F", "V1");
+    vehicle.name = new NonLocalizedString("V1");
+    vehicle.latitude = lat;
+    vehicle.longitude = lon;
+    return vehicle;
+  }
+}